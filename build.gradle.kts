@@ -1,3 +1,6 @@
+import javax.inject.Inject
+import org.gradle.process.ExecOperations
+
 plugins {
     application
     id("org.graalvm.buildtools.native") version "0.10.6"
@@ -22,6 +25,9 @@ dependencies {
 
     annotationProcessor("org.projectlombok:lombok:1.18.38")
     annotationProcessor("info.picocli:picocli-codegen:4.7.7")
+    annotationProcessor(project(":processor"))
+
+    compileOnly(project(":processor"))
 	
     compileOnly("org.projectlombok:lombok:1.18.38")
     testCompileOnly("org.projectlombok:lombok:1.18.38")
@@ -45,12 +51,69 @@ tasks.withType<JavaExec> {
     jvmArgs("--enable-native-access=ALL-UNNAMED")
 }
 
+// Dynamic AppCDS archive used by the launcher scripts. The JVM creates it on the first launch (or
+// recreates it when the JDK or the classpath changed) and maps it on every following launch.
+val cdsArchiveName = "${project.name}.jsa"
+val appHomePlaceholder = "__APP_HOME__"
+
+tasks.named<CreateStartScripts>("startScripts") {
+    defaultJvmOpts =
+        application.applicationDefaultJvmArgs +
+        listOf(
+            "-XX:SharedArchiveFile=$appHomePlaceholder/lib/$cdsArchiveName",
+            "-XX:+AutoCreateSharedArchive",
+        )
+    doLast {
+        unixScript.writeText(unixScript.readText().replace(appHomePlaceholder, "'\"\$APP_HOME\"'"))
+        windowsScript.writeText(windowsScript.readText().replace(appHomePlaceholder, "%APP_HOME%"))
+    }
+}
+
+tasks.register<Exec>("generateCdsArchive") {
+    group = "distribution"
+    description = "Generates the AppCDS archive of the installed distribution by running get-main-class."
+    dependsOn(tasks.named("installDist"))
+    val installDir = layout.buildDirectory.dir("install/${project.name}")
+    val isWindows = System.getProperty("os.name").lowercase().contains("windows")
+    val launcher = installDir.map { it.file(if (isWindows) "bin/${project.name}.bat" else "bin/${project.name}") }
+    val archive = installDir.map { it.file("lib/$cdsArchiveName") }
+    outputs.file(archive)
+    doFirst {
+        // Always start from scratch so the archive reflects the current classpath.
+        archive.get().asFile.delete()
+    }
+    executable = launcher.get().asFile.absolutePath
+    args("java", "get-main-class", "--cwd", layout.projectDirectory.asFile.absolutePath)
+    // Train the command itself, not the thin client forwarding it to a running server.
+    environment("SYNTAXPRESSO_NO_SERVER", "1")
+    isIgnoreExitValue = true
+}
+
+// Classes initialized while the image is built. Everything listed here is pure Java: the picocli
+// model held by Core, the command factory and the services it wires together. Tree-sitter classes
+// (and SupportedLanguage, which holds TSLanguage handles) wrap native pointers and must stay
+// run-time initialized, so none of these classes may touch tree-sitter in a static initializer.
+val buildTimeInitializedClasses =
+    listOf(
+        "picocli",
+        "io.github.syntaxpresso.core.Core",
+        "io.github.syntaxpresso.core.command",
+        "io.github.syntaxpresso.core.common.CommandFactory",
+        "io.github.syntaxpresso.core.service.JavaService",
+        "io.github.syntaxpresso.core.service.extra",
+        "io.github.syntaxpresso.core.util.PathHelper",
+    )
+
 graalvmNative {
     testSupport.set(true)
     binaries {
         named("main") {
             mainClass.set("io.github.syntaxpresso.core.Core")
             buildArgs.add("--enable-native-access=ALL-UNNAMED")
+            buildArgs.add("--initialize-at-build-time=${buildTimeInitializedClasses.joinToString(",")}")
+            // Build an instrumented binary with -PpgoInstrument, run collectPgoProfile, then run
+            // nativeCompile again: profiles in src/pgo-profiles/main are picked up automatically.
+            pgoInstrument.set(project.hasProperty("pgoInstrument"))
         }
     }
     toolchainDetection.set(true)
@@ -58,6 +121,8 @@ graalvmNative {
 
 tasks.named<Test>("test") {
     useJUnitPlatform()
+    // Keep persisted indexes of test projects out of the user's cache directory.
+    systemProperty("syntaxpresso.cacheDir", layout.buildDirectory.dir("test-cache").get().asFile.absolutePath)
     testLogging {
         showStandardStreams = true
         events("passed", "skipped", "failed")
@@ -91,3 +156,60 @@ tasks.register<JavaExec>("generateNativeConfig") {
         }
     }
 }
+
+// Gives task actions access to ExecOperations without touching the project at execution time,
+// which the configuration cache does not allow.
+interface InjectedExecOperations {
+    @get:Inject
+    val execOperations: ExecOperations
+}
+
+tasks.register("collectPgoProfile") {
+    group = "GraalVM Native"
+    description = "Runs the instrumented native binary over the benchmark corpus to collect PGO profiles."
+    dependsOn(tasks.named("nativeCompile"))
+    val binary = layout.buildDirectory.file("native/nativeCompile/${project.name}")
+    val profilesDir = layout.projectDirectory.dir("src/pgo-profiles/main")
+    val corpusDir =
+        (project.findProperty("pgoCorpus") as String?)?.let { file(it) } ?: layout.projectDirectory.asFile
+    val isInstrumented = project.hasProperty("pgoInstrument")
+    val injected = project.objects.newInstance<InjectedExecOperations>()
+    doFirst {
+        if (!isInstrumented) {
+            throw GradleException(
+                "The native binary must be instrumented.\nUsage: ./gradlew collectPgoProfile -PpgoInstrument [-PpgoCorpus=<dir>]",
+            )
+        }
+    }
+    doLast {
+        val outputDir = profilesDir.asFile
+        outputDir.mkdirs()
+        val scratchDir = temporaryDir.resolve("corpus-output")
+        scratchDir.mkdirs()
+        val runs =
+            listOf(
+                listOf("java", "get-main-class", "--cwd", corpusDir.absolutePath),
+                listOf(
+                    "java",
+                    "create-new-file",
+                    "--cwd",
+                    scratchDir.absolutePath,
+                    "--package-name",
+                    "io.github.syntaxpresso.pgo",
+                    "--file-name",
+                    "PgoSample",
+                    "--file-type",
+                    "CLASS",
+                ),
+            )
+        runs.forEachIndexed { index, commandArgs ->
+            injected.execOperations.exec {
+                executable = binary.get().asFile.absolutePath
+                // Profile the commands themselves, not the thin client forwarding them to a server.
+                environment("SYNTAXPRESSO_NO_SERVER", "1")
+                args("-XX:ProfilesDumpFile=${outputDir.resolve("run-$index.iprof").absolutePath}")
+                args(commandArgs)
+            }
+        }
+    }
+}
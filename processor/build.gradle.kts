@@ -0,0 +1,14 @@
+plugins {
+    `java-library`
+}
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(24)
+        vendor.set(JvmVendorSpec.GRAAL_VM)
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.syntaxpresso.core.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a response DTO for compile-time JSON serialization.
+ *
+ * <p>{@link CompiledJsonProcessor} generates a {@code <Name>JsonWriter} next to every annotated
+ * class. The writer reads each instance field through its Lombok-style getter, in declaration
+ * order, and emits it to a {@code JsonOutput} without reflection. Supported field types are
+ * strings, primitives and their wrappers, enums, other {@code @CompiledJson} types and {@link
+ * Iterable}s of those.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface CompiledJson {}
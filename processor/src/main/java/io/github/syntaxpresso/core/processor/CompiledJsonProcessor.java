@@ -0,0 +1,289 @@
+package io.github.syntaxpresso.core.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates reflection-free JSON writers for classes annotated with {@link CompiledJson}.
+ *
+ * <p>For every annotated class a {@code <Name>JsonWriter} singleton is generated in the same
+ * package. After that, a {@code CompiledJsonWriters} registry listing every writer is generated in
+ * the runtime JSON package, so callers can look a writer up by class without reflection or service
+ * loading.
+ */
+public class CompiledJsonProcessor extends AbstractProcessor {
+  private static final String JSON_PACKAGE = "io.github.syntaxpresso.core.common.json";
+  private static final String JSON_OUTPUT = JSON_PACKAGE + ".JsonOutput";
+  private static final String JSON_WRITER = JSON_PACKAGE + ".JsonWriter";
+  private static final String REGISTRY = "CompiledJsonWriters";
+  private static final String GENERATED =
+      "@javax.annotation.processing.Generated(\"" + CompiledJsonProcessor.class.getName() + "\")";
+
+  private final List<String[]> generatedWriters = new ArrayList<>();
+  private boolean registryGenerated;
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Set.of(CompiledJson.class.getCanonicalName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(CompiledJson.class);
+    for (Element element : elements) {
+      if (element.getKind() != ElementKind.CLASS) {
+        this.error(element, "@CompiledJson can only be applied to classes.");
+        continue;
+      }
+      this.generateWriter((TypeElement) element);
+    }
+    // The registry is written in the first round without new annotated classes, so it is still
+    // compiled as a regular source instead of a last-round file.
+    if (elements.isEmpty() && !this.registryGenerated && !this.generatedWriters.isEmpty()) {
+      this.generateRegistry();
+      this.registryGenerated = true;
+    }
+    return true;
+  }
+
+  private void generateWriter(TypeElement type) {
+    String packageName = this.packageOf(type);
+    String writerName = this.writerSimpleName(type);
+    String typeName = type.getQualifiedName().toString();
+    StringBuilder body = new StringBuilder();
+    body.append("    out.beginObject();\n");
+    int[] counter = {0};
+    for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+      Set<Modifier> modifiers = field.getModifiers();
+      if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+        continue;
+      }
+      String name = field.getSimpleName().toString();
+      body.append("    out.name(\"").append(name).append("\");\n");
+      String getter = "value." + this.getterName(field) + "()";
+      if (!this.appendValue(body, "    ", getter, field.asType(), counter)) {
+        this.error(field, "Unsupported field type for @CompiledJson: " + field.asType());
+        return;
+      }
+    }
+    body.append("    out.endObject();\n");
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source
+        .append(GENERATED)
+        .append("\npublic final class ")
+        .append(writerName)
+        .append(" implements ")
+        .append(JSON_WRITER)
+        .append('<')
+        .append(typeName)
+        .append("> {\n")
+        .append("  public static final ")
+        .append(writerName)
+        .append(" INSTANCE = new ")
+        .append(writerName)
+        .append("();\n\n")
+        .append("  private ")
+        .append(writerName)
+        .append("() {}\n\n")
+        .append("  @Override\n")
+        .append("  public void write(")
+        .append(typeName)
+        .append(" value, ")
+        .append(JSON_OUTPUT)
+        .append(" out) {\n")
+        .append(body)
+        .append("  }\n}\n");
+    String qualifiedWriterName =
+        packageName.isEmpty() ? writerName : packageName + "." + writerName;
+    if (this.writeSource(qualifiedWriterName, source, type)) {
+      this.generatedWriters.add(new String[] {typeName, qualifiedWriterName});
+    }
+  }
+
+  /**
+   * Appends the statements that write {@code expression} of the given type.
+   *
+   * @return false if the type cannot be serialized.
+   */
+  private boolean appendValue(
+      StringBuilder body, String indent, String expression, TypeMirror type, int[] counter) {
+    Types types = this.processingEnv.getTypeUtils();
+    Elements elements = this.processingEnv.getElementUtils();
+    if (type.getKind().isPrimitive()) {
+      if (type.getKind() == TypeKind.CHAR) {
+        body.append(indent)
+            .append("out.value(String.valueOf(")
+            .append(expression)
+            .append("));\n");
+      } else {
+        body.append(indent).append("out.value(").append(expression).append(");\n");
+      }
+      return true;
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    String qualifiedName = element.getQualifiedName().toString();
+    if (qualifiedName.equals("java.lang.String")
+        || qualifiedName.equals("java.lang.Boolean")
+        || types.isAssignable(type, elements.getTypeElement("java.lang.Number").asType())) {
+      body.append(indent).append("out.value(").append(expression).append(");\n");
+      return true;
+    }
+    String variable = "v" + counter[0]++;
+    body.append(indent)
+        .append("var ")
+        .append(variable)
+        .append(" = ")
+        .append(expression)
+        .append(";\n");
+    body.append(indent).append("if (").append(variable).append(" == null) {\n");
+    body.append(indent).append("  out.nullValue();\n");
+    body.append(indent).append("} else {\n");
+    String innerIndent = indent + "  ";
+    if (qualifiedName.equals("java.lang.Character")) {
+      body.append(innerIndent).append("out.value(").append(variable).append(".toString());\n");
+    } else if (element.getKind() == ElementKind.ENUM) {
+      body.append(innerIndent).append("out.value(").append(variable).append(".name());\n");
+    } else if (element.getAnnotation(CompiledJson.class) != null) {
+      body.append(innerIndent)
+          .append(this.writerQualifiedName(element))
+          .append(".INSTANCE.write(")
+          .append(variable)
+          .append(", out);\n");
+    } else if (types.isAssignable(
+        types.erasure(type),
+        types.erasure(elements.getTypeElement("java.lang.Iterable").asType()))) {
+      List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+      if (arguments.size() != 1) {
+        return false;
+      }
+      String item = "v" + counter[0]++;
+      body.append(innerIndent).append("out.beginArray();\n");
+      body.append(innerIndent)
+          .append("for (var ")
+          .append(item)
+          .append(" : ")
+          .append(variable)
+          .append(") {\n");
+      if (!this.appendValue(body, innerIndent + "  ", item, arguments.get(0), counter)) {
+        return false;
+      }
+      body.append(innerIndent).append("}\n");
+      body.append(innerIndent).append("out.endArray();\n");
+    } else {
+      return false;
+    }
+    body.append(indent).append("}\n");
+    return true;
+  }
+
+  private void generateRegistry() {
+    StringBuilder source = new StringBuilder();
+    source
+        .append("package ")
+        .append(JSON_PACKAGE)
+        .append(";\n\n")
+        .append(GENERATED)
+        .append("\npublic final class ")
+        .append(REGISTRY)
+        .append(" {\n")
+        .append("  private ")
+        .append(REGISTRY)
+        .append("() {}\n\n")
+        .append("  /** Returns the compiled writer for a class, or null if there is none. */\n")
+        .append("  public static JsonWriter<?> find(Class<?> type) {\n");
+    for (String[] writer : this.generatedWriters) {
+      source
+          .append("    if (type == ")
+          .append(writer[0])
+          .append(".class) {\n")
+          .append("      return ")
+          .append(writer[1])
+          .append(".INSTANCE;\n")
+          .append("    }\n");
+    }
+    source.append("    return null;\n  }\n}\n");
+    this.writeSource(JSON_PACKAGE + "." + REGISTRY, source, null);
+  }
+
+  private boolean writeSource(String qualifiedName, CharSequence source, Element origin) {
+    try (Writer writer =
+        origin == null
+            ? this.processingEnv.getFiler().createSourceFile(qualifiedName).openWriter()
+            : this.processingEnv.getFiler().createSourceFile(qualifiedName, origin).openWriter()) {
+      writer.append(source);
+      return true;
+    } catch (IOException e) {
+      this.error(origin, "Unable to write " + qualifiedName + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  private String getterName(VariableElement field) {
+    String name = field.getSimpleName().toString();
+    String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    if (field.asType().getKind() == TypeKind.BOOLEAN) {
+      // Lombok keeps an existing "is" prefix on primitive booleans: isReady -> isReady().
+      if (name.startsWith("is") && name.length() > 2 && Character.isUpperCase(name.charAt(2))) {
+        return name;
+      }
+      return "is" + capitalized;
+    }
+    return "get" + capitalized;
+  }
+
+  private String packageOf(TypeElement type) {
+    PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(type);
+    return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+  }
+
+  /** Nested classes are flattened: {@code Outer.Inner} gets {@code Outer_InnerJsonWriter}. */
+  private String writerSimpleName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    Element enclosing = type.getEnclosingElement();
+    while (enclosing instanceof TypeElement enclosingType) {
+      name.insert(0, enclosingType.getSimpleName() + "_");
+      enclosing = enclosingType.getEnclosingElement();
+    }
+    return name.append("JsonWriter").toString();
+  }
+
+  private String writerQualifiedName(TypeElement type) {
+    String packageName = this.packageOf(type);
+    String simpleName = this.writerSimpleName(type);
+    return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+  }
+
+  private void error(Element element, String message) {
+    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
@@ -1,18 +1,44 @@
 package io.github.syntaxpresso.core;
 
 import io.github.syntaxpresso.core.common.CommandFactory;
+import io.github.syntaxpresso.core.common.RequestScheduler;
 import io.github.syntaxpresso.core.command.GenericCommand;
 import io.github.syntaxpresso.core.command.JavaCommand;
+import io.github.syntaxpresso.core.command.ServerCommand;
+import io.github.syntaxpresso.core.server.ServerClient;
+import io.github.syntaxpresso.core.util.PathHelper;
+import java.util.OptionalInt;
 import picocli.CommandLine;
 
 @CommandLine.Command(
     subcommands = {
       JavaCommand.class,
       GenericCommand.class,
+      ServerCommand.class,
     })
 public class Core {
-  public static void main(String[] args) {
-    CommandLine commandLine = new CommandLine(new Core(), new CommandFactory());
-    System.exit(commandLine.execute(args));
+  /**
+   * The picocli command model. It is built in the static initializer so the native image can run
+   * the annotation introspection at build time (see {@code --initialize-at-build-time} in the
+   * build script) instead of on every invocation. Nothing reachable from here may touch
+   * tree-sitter during construction.
+   */
+  private static final CommandLine COMMAND_LINE = new CommandLine(new Core(), new CommandFactory());
+
+  public static void main(String[] args) throws Exception {
+    // Forward to a shared server when one is running, unless this process is meant to be the
+    // server or was told to work on its own.
+    boolean isServer = args.length > 0 && "server".equals(args[0]);
+    if (!isServer && System.getenv("SYNTAXPRESSO_NO_SERVER") == null) {
+      OptionalInt exitCode =
+          ServerClient.tryExecute(
+              new PathHelper().getServerSocketPath(), args, System.in, System.out, System.err);
+      if (exitCode.isPresent()) {
+        System.exit(exitCode.getAsInt());
+      }
+    }
+    // Commands run from the command line are interactive: background work started while they run
+    // yields to them.
+    System.exit(RequestScheduler.getDefault().callInteractive(() -> COMMAND_LINE.execute(args)));
   }
 }
@@ -1,11 +1,24 @@
 package io.github.syntaxpresso.core.command;
 
 import io.github.syntaxpresso.core.command.java.CreateNewFileCommand;
+import io.github.syntaxpresso.core.command.java.FindImplementationsCommand;
+import io.github.syntaxpresso.core.command.java.FindSubclassesCommand;
 import io.github.syntaxpresso.core.command.java.GetMainClassCommand;
+import io.github.syntaxpresso.core.command.java.OutlineCommand;
+import io.github.syntaxpresso.core.command.java.RenameCommand;
+import io.github.syntaxpresso.core.command.java.SearchSymbolCommand;
 import picocli.CommandLine.Command;
 
 @Command(
     name = "java",
     description = "Parent command for all Java-specific operations.",
-    subcommands = {CreateNewFileCommand.class, GetMainClassCommand.class})
+    subcommands = {
+      CreateNewFileCommand.class,
+      GetMainClassCommand.class,
+      RenameCommand.class,
+      FindImplementationsCommand.class,
+      FindSubclassesCommand.class,
+      SearchSymbolCommand.class,
+      OutlineCommand.class
+    })
 public class JavaCommand {}
@@ -0,0 +1,42 @@
+package io.github.syntaxpresso.core.command;
+
+import io.github.syntaxpresso.core.server.SyntaxpressoServer;
+import io.github.syntaxpresso.core.service.JavaService;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import lombok.RequiredArgsConstructor;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+@RequiredArgsConstructor
+@Command(
+    name = "server",
+    description = "Serve the commands of editors and scripts from one shared process")
+public class ServerCommand implements Callable<Void> {
+  private final JavaService javaService;
+
+  @Option(
+      names = "--socket",
+      description = "The Unix domain socket to listen on, by default in the runtime directory")
+  private Path socket;
+
+  @Override
+  public Void call() throws Exception {
+    Path socketPath =
+        this.socket != null ? this.socket : this.javaService.getPathHelper().getServerSocketPath();
+    SyntaxpressoServer server = SyntaxpressoServer.bind(socketPath, this.javaService);
+    Thread shutdownHook =
+        new Thread(
+            () -> {
+              try {
+                server.close();
+              } catch (IOException e) {
+                // The process is exiting; a stale socket file is replaced on the next start.
+              }
+            });
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+    server.run();
+    return null;
+  }
+}
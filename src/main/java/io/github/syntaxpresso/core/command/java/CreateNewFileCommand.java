@@ -8,18 +8,23 @@ import io.github.syntaxpresso.core.common.DataTransferObject;
 import io.github.syntaxpresso.core.common.TSFile;
 import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
 import io.github.syntaxpresso.core.service.JavaService;
+import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import lombok.RequiredArgsConstructor;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
 
 @RequiredArgsConstructor
 @Command(name = "create-new-file", description = "Create a new Java file")
 public class CreateNewFileCommand implements Callable<Void> {
   private final JavaService javaService;
 
+  @Spec private CommandSpec spec;
+
   @Option(names = "--cwd", description = "Current Working Directory", required = true)
   private Path cwd;
 
@@ -47,6 +52,7 @@ public class CreateNewFileCommand implements Callable<Void> {
 
   @Override
   public Void call() throws Exception {
+    PrintWriter out = this.spec.commandLine().getOut();
     String className = this.fileName.trim();
     className = Files.getNameWithoutExtension(className);
     String template = this.fileType.getSourceContent(this.packageName, className);
@@ -54,14 +60,14 @@ public class CreateNewFileCommand implements Callable<Void> {
     Optional<Path> filePath =
         this.javaService.findFilePath(this.cwd, this.packageName, this.sourceDirectoryType);
     if (filePath.isEmpty()) {
-      System.out.println(DataTransferObject.error("Unable to find file path."));
+      out.println(DataTransferObject.error("Unable to find file path."));
       return null;
     }
     file.saveAs(
         filePath.get().resolve(className.concat(SupportedLanguage.JAVA.getFileExtension())));
     CreateNewJavaFileResponse response =
         CreateNewJavaFileResponse.builder().filePath(file.getFile().getAbsolutePath()).build();
-    System.out.println(DataTransferObject.success(response));
+    out.println(DataTransferObject.success(response));
     return null;
   }
 }
@@ -0,0 +1,28 @@
+package io.github.syntaxpresso.core.command.java;
+
+import io.github.syntaxpresso.core.index.TypeKind;
+import io.github.syntaxpresso.core.service.JavaService;
+import picocli.CommandLine.Command;
+
+@Command(name = "find-implementations", description = "Find the classes implementing an interface")
+public class FindImplementationsCommand extends FindSubtypesCommand {
+
+  public FindImplementationsCommand(JavaService javaService) {
+    super(javaService);
+  }
+
+  @Override
+  protected TypeKind getSupertypeKind() {
+    return TypeKind.INTERFACE;
+  }
+
+  @Override
+  protected String getSupertypeDescription() {
+    return "an interface";
+  }
+
+  @Override
+  protected boolean isReported(TypeKind kind) {
+    return kind != TypeKind.INTERFACE;
+  }
+}
@@ -0,0 +1,28 @@
+package io.github.syntaxpresso.core.command.java;
+
+import io.github.syntaxpresso.core.index.TypeKind;
+import io.github.syntaxpresso.core.service.JavaService;
+import picocli.CommandLine.Command;
+
+@Command(name = "find-subclasses", description = "Find the classes extending a class")
+public class FindSubclassesCommand extends FindSubtypesCommand {
+
+  public FindSubclassesCommand(JavaService javaService) {
+    super(javaService);
+  }
+
+  @Override
+  protected TypeKind getSupertypeKind() {
+    return TypeKind.CLASS;
+  }
+
+  @Override
+  protected String getSupertypeDescription() {
+    return "a class";
+  }
+
+  @Override
+  protected boolean isReported(TypeKind kind) {
+    return kind == TypeKind.CLASS;
+  }
+}
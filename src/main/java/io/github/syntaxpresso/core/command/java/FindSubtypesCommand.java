@@ -0,0 +1,94 @@
+package io.github.syntaxpresso.core.command.java;
+
+import io.github.syntaxpresso.core.command.java.dto.FindSubtypesResponse;
+import io.github.syntaxpresso.core.command.java.dto.TypeLocation;
+import io.github.syntaxpresso.core.common.DataTransferObject;
+import io.github.syntaxpresso.core.index.TypeDeclaration;
+import io.github.syntaxpresso.core.index.TypeHierarchy;
+import io.github.syntaxpresso.core.index.TypeHierarchy.IndexedType;
+import io.github.syntaxpresso.core.index.TypeKind;
+import io.github.syntaxpresso.core.service.JavaService;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import lombok.RequiredArgsConstructor;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * The lookup shared by the commands listing the subtypes of a type: subclasses declare which kind
+ * of type they start from and which kinds of subtypes they report.
+ */
+@RequiredArgsConstructor
+abstract class FindSubtypesCommand implements Callable<Void> {
+  private final JavaService javaService;
+
+  @Spec private CommandSpec spec;
+
+  @Option(names = "--cwd", description = "Current Working Directory", required = true)
+  private Path cwd;
+
+  @Option(
+      names = "--type-name",
+      description =
+          "The simple or fully qualified name of the type; a qualified name is resolved through"
+              + " the imports of each subtype",
+      required = true)
+  private String typeName;
+
+  @Option(
+      names = "--direct",
+      description = "Only report direct subtypes instead of the whole hierarchy",
+      required = false)
+  private boolean direct;
+
+  /** Returns the kind of type the subtypes are looked up for. */
+  protected abstract TypeKind getSupertypeKind();
+
+  /** Describes the kind of type the subtypes are looked up for, such as "a class". */
+  protected abstract String getSupertypeDescription();
+
+  /** Returns whether a subtype of the given kind is reported. */
+  protected abstract boolean isReported(TypeKind kind);
+
+  @Override
+  public Void call() throws Exception {
+    PrintWriter out = this.spec.commandLine().getOut();
+    String name = this.typeName.trim();
+    String simpleName = name.substring(name.lastIndexOf('.') + 1);
+    boolean isQualified = !simpleName.equals(name);
+    TypeHierarchy typeHierarchy = this.javaService.getProjectIndexes().getTypeHierarchy(this.cwd);
+    List<TypeDeclaration> declarations =
+        typeHierarchy.findDeclarations(simpleName).stream()
+            .map(IndexedType::declaration)
+            .filter(declaration -> !isQualified || declaration.qualifiedName().equals(name))
+            .toList();
+    if (!declarations.isEmpty()
+        && declarations.stream()
+            .noneMatch(declaration -> declaration.kind() == this.getSupertypeKind())) {
+      out.println(
+          DataTransferObject.error(name + " is not " + this.getSupertypeDescription() + "."));
+      return null;
+    }
+    List<TypeLocation> types = new ArrayList<>();
+    for (IndexedType indexedType : typeHierarchy.findSubtypes(name, !this.direct)) {
+      if (this.isReported(indexedType.declaration().kind())) {
+        types.add(
+            TypeLocation.builder()
+                .filePath(indexedType.path().toString())
+                .qualifiedName(indexedType.declaration().qualifiedName())
+                .kind(indexedType.declaration().kind())
+                .line(indexedType.declaration().line())
+                .column(indexedType.declaration().column())
+                .build());
+      }
+    }
+    FindSubtypesResponse response =
+        FindSubtypesResponse.builder().typeName(name).types(types).build();
+    out.println(DataTransferObject.success(response));
+    return null;
+  }
+}
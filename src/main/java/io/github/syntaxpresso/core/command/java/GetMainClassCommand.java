@@ -2,44 +2,81 @@ package io.github.syntaxpresso.core.command.java;
 
 import io.github.syntaxpresso.core.command.java.dto.GetMainClassResponse;
 import io.github.syntaxpresso.core.common.DataTransferObject;
-import io.github.syntaxpresso.core.common.TSFile;
-import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import io.github.syntaxpresso.core.index.FileFingerprint;
+import io.github.syntaxpresso.core.index.MappedProjectIndex;
+import io.github.syntaxpresso.core.index.ProjectIndexes;
 import io.github.syntaxpresso.core.service.JavaService;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import lombok.RequiredArgsConstructor;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
 
 @RequiredArgsConstructor
 @Command(name = "get-main-class", description = "Get Main class")
 public class GetMainClassCommand implements Callable<Void> {
   private final JavaService javaService;
 
+  @Spec private CommandSpec spec;
+
   @Option(names = "--cwd", description = "Current Working Directory", required = true)
   private Path cwd;
 
   @Override
   public Void call() throws Exception {
-    GetMainClassResponse response = new GetMainClassResponse();
-    List<TSFile> allFiles =
-        this.javaService.getPathHelper().findFilesByExtention(this.cwd, SupportedLanguage.JAVA);
-    for (TSFile file : allFiles) {
-      boolean isMainClass = this.javaService.isMainClass(file);
-      if (isMainClass) {
-        Optional<String> packageName = this.javaService.getPackageName(file);
-        if (packageName.isEmpty()) {
-          System.out.println(DataTransferObject.error("Package name not found"));
-          return null;
-        }
-        response.setFilePath(file.getFile().getAbsolutePath());
-        response.setPackageName(packageName.get());
-        System.out.println(DataTransferObject.success(response));
-        return null;
-      }
+    ProjectIndexes projectIndexes = this.javaService.getProjectIndexes();
+    Optional<MappedProjectIndex> index = projectIndexes.openProjectIndex(this.cwd);
+    if (index.isPresent() && this.printFromIndex(index.get(), true)) {
+      return null;
     }
+    // No index yet, or a recorded main class changed: rebuild, which re-parses changed files only.
+    this.printFromIndex(projectIndexes.writeProjectIndex(this.cwd), false);
     return null;
   }
+
+  /**
+   * Prints the first main class recorded in the index.
+   *
+   * @param index The project index.
+   * @param verify Whether to check that the file did not change since it was indexed.
+   * @return Whether a response was printed.
+   */
+  private boolean printFromIndex(MappedProjectIndex index, boolean verify) throws IOException {
+    int[] mainClassFiles = index.findMainClassFiles();
+    if (verify && mainClassFiles.length == 0) {
+      return false;
+    }
+    for (int fileId : mainClassFiles) {
+      Path path = index.getPath(fileId);
+      if (verify && !this.isUnchanged(index, fileId, path)) {
+        return false;
+      }
+      PrintWriter out = this.spec.commandLine().getOut();
+      String packageName = index.getPackageName(fileId);
+      if (packageName.isEmpty()) {
+        out.println(DataTransferObject.error("Package name not found"));
+        return true;
+      }
+      GetMainClassResponse response = new GetMainClassResponse();
+      response.setFilePath(path.toString());
+      response.setPackageName(packageName);
+      out.println(DataTransferObject.success(response));
+      return true;
+    }
+    return !verify;
+  }
+
+  private boolean isUnchanged(MappedProjectIndex index, int fileId, Path path) throws IOException {
+    try {
+      return index.getFingerprint(fileId).equals(FileFingerprint.of(path));
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
 }
@@ -0,0 +1,82 @@
+package io.github.syntaxpresso.core.command.java;
+
+import io.github.syntaxpresso.core.command.java.dto.FileOutlineResponse;
+import io.github.syntaxpresso.core.command.java.dto.OutlineResponse;
+import io.github.syntaxpresso.core.command.java.dto.SymbolResponse;
+import io.github.syntaxpresso.core.common.BufferUpdate;
+import io.github.syntaxpresso.core.common.DataTransferObject;
+import io.github.syntaxpresso.core.index.SymbolDeclaration;
+import io.github.syntaxpresso.core.service.JavaService;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+@RequiredArgsConstructor
+@Command(name = "outline", description = "List the types, methods and fields declared in files")
+public class OutlineCommand implements Callable<Void> {
+  private final JavaService javaService;
+  private final Supplier<InputStream> input;
+  private final Function<String, Path> pathResolver;
+
+  @Spec private CommandSpec spec;
+
+  @Option(names = "--cwd", description = "Current Working Directory", required = true)
+  private Path cwd;
+
+  @Option(
+      names = "--file-path",
+      description = "A file to outline; repeat the option to outline several files",
+      required = true)
+  private List<Path> filePaths;
+
+  @Option(
+      names = "--stdin",
+      description = "Read unsaved buffer content or edits for open files from standard input")
+  private boolean stdin;
+
+  @Override
+  public Void call() throws Exception {
+    PrintWriter out = this.spec.commandLine().getOut();
+    if (this.stdin) {
+      Path defaultPath = this.filePaths.size() == 1 ? this.filePaths.get(0) : null;
+      this.javaService.applyBufferUpdates(
+          BufferUpdate.read(this.input.get(), this.pathResolver), defaultPath);
+    }
+    List<FileOutlineResponse> files = new ArrayList<>();
+    for (Path filePath : this.filePaths) {
+      Path path = filePath.toAbsolutePath().normalize();
+      if (!Files.isRegularFile(path) && this.javaService.getBuffer(path).isEmpty()) {
+        out.println(DataTransferObject.error("File not found: " + path));
+        return null;
+      }
+      List<SymbolResponse> symbols = new ArrayList<>();
+      for (SymbolDeclaration declaration : this.javaService.getOutline(this.cwd, path)) {
+        symbols.add(
+            SymbolResponse.builder()
+                .filePath(path.toString())
+                .name(declaration.name())
+                .kind(declaration.kind())
+                .containerName(declaration.containerName())
+                .line(declaration.line())
+                .column(declaration.column())
+                .endLine(declaration.endLine())
+                .endColumn(declaration.endColumn())
+                .build());
+      }
+      files.add(FileOutlineResponse.builder().filePath(path.toString()).symbols(symbols).build());
+    }
+    out.println(DataTransferObject.success(OutlineResponse.builder().files(files).build()));
+    return null;
+  }
+}
@@ -0,0 +1,379 @@
+package io.github.syntaxpresso.core.command.java;
+
+import io.github.syntaxpresso.core.command.java.dto.ReferenceLocation;
+import io.github.syntaxpresso.core.command.java.dto.RenameResponse;
+import io.github.syntaxpresso.core.common.BufferUpdate;
+import io.github.syntaxpresso.core.common.DataTransferObject;
+import io.github.syntaxpresso.core.common.FileWriteBatch;
+import io.github.syntaxpresso.core.common.TSFile;
+import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import io.github.syntaxpresso.core.index.ImportGraph;
+import io.github.syntaxpresso.core.index.ProjectIndexes;
+import io.github.syntaxpresso.core.index.SymbolDeclaration;
+import io.github.syntaxpresso.core.index.SymbolKind;
+import io.github.syntaxpresso.core.index.TypeDeclaration;
+import io.github.syntaxpresso.core.index.TypeHierarchy;
+import io.github.syntaxpresso.core.index.TypeHierarchy.IndexedType;
+import io.github.syntaxpresso.core.service.JavaService;
+import io.github.syntaxpresso.core.service.extra.JavaIdentifierType;
+import io.github.syntaxpresso.core.service.extra.ReferenceMatches;
+import io.github.syntaxpresso.core.service.extra.ScopeType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.lang.model.SourceVersion;
+import lombok.RequiredArgsConstructor;
+import org.treesitter.TSNode;
+import org.treesitter.TSPoint;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+@RequiredArgsConstructor
+@Command(name = "rename", description = "Rename the identifier declared at the given position")
+public class RenameCommand implements Callable<Void> {
+  private final JavaService javaService;
+  private final Supplier<InputStream> input;
+  private final Function<String, Path> pathResolver;
+
+  @Spec private CommandSpec spec;
+
+  @Option(names = "--cwd", description = "Current Working Directory", required = true)
+  private Path cwd;
+
+  @Option(
+      names = "--file-path",
+      description = "The file containing the identifier",
+      required = true)
+  private Path filePath;
+
+  @Option(names = "--line", description = "The one-based line of the identifier", required = true)
+  private int line;
+
+  @Option(
+      names = "--column",
+      description = "The one-based column of the identifier",
+      required = true)
+  private int column;
+
+  @Option(names = "--new-name", description = "The new name of the identifier", required = true)
+  private String newName;
+
+  @Option(
+      names = "--stdin",
+      description = "Read unsaved buffer content or edits for open files from standard input")
+  private boolean stdin;
+
+  @Override
+  public Void call() throws Exception {
+    PrintWriter out = this.spec.commandLine().getOut();
+    String name = this.newName.trim();
+    if (!SourceVersion.isIdentifier(name) || SourceVersion.isKeyword(name)) {
+      out.println(DataTransferObject.error("Invalid Java identifier: " + name));
+      return null;
+    }
+    Path currentPath = this.filePath.toAbsolutePath().normalize();
+    if (this.stdin) {
+      this.javaService.applyBufferUpdates(
+          BufferUpdate.read(this.input.get(), this.pathResolver), currentPath);
+    }
+    // Work on a copy so the open buffer only changes once the rename was written.
+    TSFile file = new TSFile(SupportedLanguage.JAVA, this.javaService.readSourceCode(currentPath));
+    TSNode node = file.getNodeFromPosition(this.line, this.column);
+    JavaIdentifierType identifierType =
+        node == null ? null : this.javaService.getIdentifierType(node);
+    if (identifierType == null) {
+      out.println(DataTransferObject.error("No renameable declaration at this position."));
+      return null;
+    }
+    TSNode declarationNode = this.javaService.getDeclarationNode(node).orElse(null);
+    Optional<ScopeType> scope = this.javaService.getNodeScope(declarationNode);
+    if (scope.isEmpty()) {
+      out.println(DataTransferObject.error("Unable to determine the identifier scope."));
+      return null;
+    }
+    String oldName = file.getTextFromRange(node.getStartByte(), node.getEndByte());
+    boolean includeTypeIdentifiers = identifierType == JavaIdentifierType.CLASS_NAME;
+    // A class named like its file takes the file along, which must not overwrite another class.
+    String fileExtension = SupportedLanguage.JAVA.getFileExtension();
+    Path movedPath = null;
+    if (includeTypeIdentifiers
+        && currentPath.getFileName().toString().equals(oldName + fileExtension)) {
+      movedPath = currentPath.resolveSibling(name + fileExtension);
+      if (Files.exists(movedPath)
+          && !(Files.exists(currentPath) && Files.isSameFile(currentPath, movedPath))) {
+        out.println(DataTransferObject.error("File already exists: " + movedPath));
+        return null;
+      }
+    }
+    List<FileRewrite> rewrites;
+    if (scope.get() == ScopeType.PROJECT) {
+      Function<TSFile, ReferenceMatches> findReferences;
+      Collection<Path> candidates;
+      if (includeTypeIdentifiers) {
+        findReferences =
+            candidate ->
+                new ReferenceMatches(
+                    this.javaService.findClassUsages(candidate, oldName), List.of());
+        ImportGraph importGraph = this.javaService.getProjectIndexes().getImportGraph(this.cwd);
+        // Only the files in the same package or importing the class can name it.
+        candidates = importGraph.findCandidateFiles(oldName);
+      } else {
+        String declaringType =
+            this.javaService.getEnclosingTypeName(file, declarationNode).orElse(null);
+        if (declaringType == null) {
+          out.println(DataTransferObject.error("Unable to determine the declaring type."));
+          return null;
+        }
+        boolean isMethod = identifierType == JavaIdentifierType.METHOD_NAME;
+        // The types through which the member can be accessed: the declaring type and its
+        // subtypes, and for a method every type sharing it through overriding.
+        Optional<Set<String>> overridingTypes =
+            isMethod
+                ? this.findOverridingTypes(currentPath, declaringType, oldName)
+                : Optional.empty();
+        if (isMethod
+            && overridingTypes.isEmpty()
+            && this.javaService.isOverride(file, declarationNode)) {
+          out.println(
+              DataTransferObject.error(
+                  "The method overrides a method declared outside the project."));
+          return null;
+        }
+        Set<String> owningTypes =
+            overridingTypes.isPresent()
+                ? overridingTypes.get()
+                : this.findOwningTypes(declaringType);
+        findReferences =
+            candidate ->
+                this.javaService.findMemberReferences(
+                    candidate, oldName, isMethod, declaringType, owningTypes);
+        // Receivers of any type can reach the member, even where no owning type is named.
+        candidates = this.javaService.getProjectIndexes().getImportGraph(this.cwd).files();
+      }
+      rewrites =
+          this.findCandidateFiles(currentPath, oldName, candidates).parallelStream()
+              .map(path -> this.rewrite(path, oldName, name, findReferences))
+              .flatMap(Optional::stream)
+              .toList();
+    } else {
+      // Local and class scoped names cannot be referenced from other files; only their scope in
+      // the already parsed file is searched.
+      ReferenceMatches matches =
+          this.javaService
+              .findMatchesInScope(file, declarationNode, oldName, includeTypeIdentifiers)
+              .orElseGet(() -> new ReferenceMatches(List.of(), List.of()));
+      rewrites = this.rewrite(file, currentPath, oldName, name, matches).stream().toList();
+    }
+    FileWriteBatch batch = new FileWriteBatch();
+    Path resultPath = currentPath;
+    int renamedNodes = 0;
+    List<ReferenceLocation> unresolvedReferences = new ArrayList<>();
+    List<Path> writtenPaths = new ArrayList<>();
+    for (FileRewrite rewrite : rewrites) {
+      unresolvedReferences.addAll(rewrite.unresolved());
+      if (rewrite.renamedNodes() == 0) {
+        continue;
+      }
+      renamedNodes += rewrite.renamedNodes();
+      writtenPaths.add(rewrite.path());
+      Path targetPath = rewrite.path();
+      if (movedPath != null && rewrite.path().equals(currentPath)) {
+        targetPath = movedPath;
+        batch.move(currentPath, targetPath);
+        resultPath = targetPath;
+      }
+      batch.write(targetPath, rewrite.content());
+    }
+    batch.commit();
+    // The written files now hold what the buffers showed, plus the rename.
+    for (Path writtenPath : writtenPaths) {
+      this.javaService.closeBuffer(writtenPath);
+    }
+    RenameResponse response =
+        RenameResponse.builder()
+            .filePath(resultPath.toString())
+            .renamedNodes(renamedNodes)
+            .newName(name)
+            .unresolvedReferences(unresolvedReferences)
+            .build();
+    out.println(DataTransferObject.success(response));
+    return null;
+  }
+
+  /**
+   * Narrows the candidate files to those mentioning a name. The current file and open buffers are
+   * always searched, as the index describes the files on disk.
+   */
+  private Set<Path> findCandidateFiles(
+      Path currentPath, String oldName, Collection<Path> candidates) throws IOException {
+    ProjectIndexes projectIndexes = this.javaService.getProjectIndexes();
+    Set<Path> filteredCandidates = new LinkedHashSet<>();
+    filteredCandidates.add(currentPath);
+    filteredCandidates.addAll(
+        projectIndexes.getIdentifierFilters(this.cwd).filter(candidates, oldName));
+    Path root = this.cwd.toAbsolutePath().normalize();
+    for (Path bufferPath : this.javaService.getBufferPaths()) {
+      if (bufferPath.startsWith(root)) {
+        filteredCandidates.add(bufferPath);
+      }
+    }
+    return filteredCandidates;
+  }
+
+  /** Returns the simple names of a type and its subtypes, through which its members are used. */
+  private Set<String> findOwningTypes(String declaringType) throws IOException {
+    TypeHierarchy typeHierarchy = this.javaService.getProjectIndexes().getTypeHierarchy(this.cwd);
+    Set<String> owningTypes = new LinkedHashSet<>();
+    owningTypes.add(declaringType);
+    for (IndexedType subtype : typeHierarchy.findSubtypes(declaringType, true)) {
+      owningTypes.add(subtype.declaration().simpleName());
+    }
+    return owningTypes;
+  }
+
+  /**
+   * Returns the simple names of the types sharing a method through overriding, when the method
+   * overrides one declared in a project supertype: the supertypes declaring it, their subtypes,
+   * which covers sibling implementations, and so on until no type is added. Renaming the method
+   * in only some of them would silently break the overrides.
+   *
+   * @return The types, or empty if neither the method nor an override of it overrides a method
+   *     declared in a project supertype.
+   */
+  private Optional<Set<String>> findOverridingTypes(
+      Path currentPath, String declaringType, String methodName) throws IOException {
+    TypeHierarchy typeHierarchy = this.javaService.getProjectIndexes().getTypeHierarchy(this.cwd);
+    Map<Path, List<SymbolDeclaration>> outlines = new HashMap<>();
+    Set<TypeDeclaration> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    ArrayDeque<IndexedType> pending = new ArrayDeque<>();
+    for (IndexedType type : typeHierarchy.findDeclarations(declaringType)) {
+      if (type.path().equals(currentPath) && visited.add(type.declaration())) {
+        pending.add(type);
+      }
+    }
+    Set<String> owningTypes = new LinkedHashSet<>();
+    boolean overrides = false;
+    while (!pending.isEmpty()) {
+      IndexedType type = pending.poll();
+      owningTypes.add(type.declaration().simpleName());
+      // Walk up through supertypes that only inherit the method to those declaring it.
+      Set<TypeDeclaration> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+      ArrayDeque<IndexedType> ancestors =
+          new ArrayDeque<>(typeHierarchy.findSupertypes(type.declaration()));
+      while (!ancestors.isEmpty()) {
+        IndexedType ancestor = ancestors.poll();
+        if (!seen.add(ancestor.declaration())) {
+          continue;
+        }
+        ancestors.addAll(typeHierarchy.findSupertypes(ancestor.declaration()));
+        if (this.declaresMethod(ancestor, methodName, outlines)) {
+          overrides = true;
+          if (visited.add(ancestor.declaration())) {
+            pending.add(ancestor);
+          }
+        }
+      }
+      for (IndexedType subtype :
+          typeHierarchy.findSubtypes(type.declaration().qualifiedName(), true)) {
+        if (visited.add(subtype.declaration())) {
+          pending.add(subtype);
+        }
+      }
+    }
+    return overrides ? Optional.of(owningTypes) : Optional.empty();
+  }
+
+  private boolean declaresMethod(
+      IndexedType type, String methodName, Map<Path, List<SymbolDeclaration>> outlines)
+      throws IOException {
+    List<SymbolDeclaration> outline = outlines.get(type.path());
+    if (outline == null) {
+      outline = this.javaService.getOutline(this.cwd, type.path());
+      outlines.put(type.path(), outline);
+    }
+    for (SymbolDeclaration declaration : outline) {
+      if (declaration.kind() == SymbolKind.METHOD
+          && declaration.name().equals(methodName)
+          && declaration.containerName().equals(type.declaration().qualifiedName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Optional<FileRewrite> rewrite(
+      Path path, String oldName, String name, Function<TSFile, ReferenceMatches> findReferences) {
+    String content;
+    try {
+      content = this.javaService.readSourceCode(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // Most files never mention the identifier; skip them before paying for a parse.
+    if (!content.contains(oldName)) {
+      return Optional.empty();
+    }
+    TSFile file = new TSFile(SupportedLanguage.JAVA, content);
+    return this.rewrite(file, path, oldName, name, findReferences.apply(file));
+  }
+
+  private Optional<FileRewrite> rewrite(
+      TSFile file, Path path, String oldName, String name, ReferenceMatches matches) {
+    List<TSNode> references = matches.references();
+    if (references.isEmpty() && matches.unresolved().isEmpty()) {
+      return Optional.empty();
+    }
+    // Report the unresolved occurrences where they are after the rename: renamed identifiers
+    // earlier on the same line shift their column.
+    int shift =
+        name.getBytes(StandardCharsets.UTF_8).length
+            - oldName.getBytes(StandardCharsets.UTF_8).length;
+    List<ReferenceLocation> unresolved = new ArrayList<>();
+    for (TSNode node : matches.unresolved()) {
+      TSPoint start = node.getStartPoint();
+      int column = start.getColumn();
+      for (TSNode reference : references) {
+        TSPoint referenceStart = reference.getStartPoint();
+        if (referenceStart.getRow() == start.getRow()
+            && referenceStart.getColumn() < start.getColumn()) {
+          column += shift;
+        }
+      }
+      unresolved.add(new ReferenceLocation(path.toString(), start.getRow() + 1, column + 1));
+    }
+    if (references.isEmpty()) {
+      return Optional.of(new FileRewrite(path, null, 0, unresolved));
+    }
+    file.updateSourceCode(references, name);
+    return Optional.of(
+        new FileRewrite(path, file.getSourceCode(), references.size(), unresolved));
+  }
+
+  /**
+   * The outcome of renaming in one file.
+   *
+   * @param content The rewritten content, or null if nothing was renamed in the file.
+   */
+  private record FileRewrite(
+      Path path, String content, int renamedNodes, List<ReferenceLocation> unresolved) {}
+}
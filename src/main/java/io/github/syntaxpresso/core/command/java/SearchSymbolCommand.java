@@ -0,0 +1,75 @@
+package io.github.syntaxpresso.core.command.java;
+
+import io.github.syntaxpresso.core.command.java.dto.SearchSymbolResponse;
+import io.github.syntaxpresso.core.command.java.dto.SymbolResponse;
+import io.github.syntaxpresso.core.common.DataTransferObject;
+import io.github.syntaxpresso.core.index.SymbolLocation;
+import io.github.syntaxpresso.core.service.JavaService;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import lombok.RequiredArgsConstructor;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+@RequiredArgsConstructor
+@Command(name = "search-symbol", description = "Search types, methods and fields by name")
+public class SearchSymbolCommand implements Callable<Void> {
+  private final JavaService javaService;
+
+  @Spec private CommandSpec spec;
+
+  @Option(names = "--cwd", description = "Current Working Directory", required = true)
+  private Path cwd;
+
+  @Option(
+      names = "--query",
+      description = "The text to search for, case-insensitively",
+      required = true)
+  private String query;
+
+  @Option(
+      names = "--fuzzy",
+      description = "Also match names containing the query's characters in order",
+      required = false)
+  private boolean fuzzy;
+
+  @Option(names = "--limit", description = "The maximum number of results", required = false)
+  private int limit = 100;
+
+  @Override
+  public Void call() throws Exception {
+    PrintWriter out = this.spec.commandLine().getOut();
+    String text = this.query.trim();
+    if (text.isEmpty()) {
+      out.println(DataTransferObject.error("The query must not be blank."));
+      return null;
+    }
+    List<SymbolResponse> symbols = new ArrayList<>();
+    List<SymbolLocation> matches =
+        this.javaService
+            .getProjectIndexes()
+            .searchSymbols(this.cwd, text, this.fuzzy, Math.max(1, this.limit));
+    for (SymbolLocation match : matches) {
+      symbols.add(
+          SymbolResponse.builder()
+              .filePath(match.path().toString())
+              .name(match.declaration().name())
+              .kind(match.declaration().kind())
+              .containerName(match.declaration().containerName())
+              .line(match.declaration().line())
+              .column(match.declaration().column())
+              .endLine(match.declaration().endLine())
+              .endColumn(match.declaration().endColumn())
+              .build());
+    }
+    SearchSymbolResponse response =
+        SearchSymbolResponse.builder().query(text).symbols(symbols).build();
+    out.println(DataTransferObject.success(response));
+    return null;
+  }
+}
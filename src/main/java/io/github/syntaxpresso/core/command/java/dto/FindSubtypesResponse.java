@@ -0,0 +1,16 @@
+package io.github.syntaxpresso.core.command.java.dto;
+
+import io.github.syntaxpresso.core.processor.CompiledJson;
+import java.io.Serializable;
+import java.util.List;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompiledJson
+public class FindSubtypesResponse implements Serializable {
+  private String typeName;
+  private List<TypeLocation> types;
+}
@@ -1,5 +1,6 @@
 package io.github.syntaxpresso.core.command.java.dto;
 
+import io.github.syntaxpresso.core.processor.CompiledJson;
 import java.io.Serializable;
 import lombok.*;
 
@@ -7,6 +8,7 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@CompiledJson
 public class GetMainClassResponse implements Serializable {
   private String filePath;
   private String packageName;
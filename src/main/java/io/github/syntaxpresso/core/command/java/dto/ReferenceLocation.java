@@ -0,0 +1,16 @@
+package io.github.syntaxpresso.core.command.java.dto;
+
+import io.github.syntaxpresso.core.processor.CompiledJson;
+import java.io.Serializable;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompiledJson
+public class ReferenceLocation implements Serializable {
+  private String filePath;
+  private int line;
+  private int column;
+}
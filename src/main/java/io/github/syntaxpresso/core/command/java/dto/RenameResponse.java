@@ -1,14 +1,18 @@
 package io.github.syntaxpresso.core.command.java.dto;
 
+import io.github.syntaxpresso.core.processor.CompiledJson;
 import java.io.Serializable;
+import java.util.List;
 import lombok.*;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@CompiledJson
 public class RenameResponse implements Serializable {
   private String filePath;
   private int renamedNodes;
   private String newName;
+  private List<ReferenceLocation> unresolvedReferences;
 }
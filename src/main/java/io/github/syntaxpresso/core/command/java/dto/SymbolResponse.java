@@ -0,0 +1,22 @@
+package io.github.syntaxpresso.core.command.java.dto;
+
+import io.github.syntaxpresso.core.index.SymbolKind;
+import io.github.syntaxpresso.core.processor.CompiledJson;
+import java.io.Serializable;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompiledJson
+public class SymbolResponse implements Serializable {
+  private String filePath;
+  private String name;
+  private SymbolKind kind;
+  private String containerName;
+  private int line;
+  private int column;
+  private int endLine;
+  private int endColumn;
+}
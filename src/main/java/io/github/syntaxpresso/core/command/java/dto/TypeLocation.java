@@ -0,0 +1,19 @@
+package io.github.syntaxpresso.core.command.java.dto;
+
+import io.github.syntaxpresso.core.index.TypeKind;
+import io.github.syntaxpresso.core.processor.CompiledJson;
+import java.io.Serializable;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompiledJson
+public class TypeLocation implements Serializable {
+  private String filePath;
+  private String qualifiedName;
+  private TypeKind kind;
+  private int line;
+  private int column;
+}
@@ -0,0 +1,123 @@
+package io.github.syntaxpresso.core.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The unsaved content of a file open in an editor, sent either as the full text or as edits
+ * relative to the content the editor sent last.
+ *
+ * <p>Updates are read from JSON, as a single object or an array of objects:
+ *
+ * <pre>
+ * {"filePath": "/p/A.java", "content": "class A {}"}
+ * {"filePath": "/p/A.java", "edits": [{"startLine": 1, "startColumn": 7, "endLine": 1,
+ *     "endColumn": 8, "text": "B"}]}
+ * </pre>
+ *
+ * <p>The file path may be omitted when the command only targets a single file. Edits are applied
+ * in order, each against the text produced by the previous one. Their columns count UTF-8 bytes,
+ * see {@link TextEdit}.
+ *
+ * @param filePath The file the update belongs to, or null to use the command's file.
+ * @param content The full buffer content, or null if the update consists of edits.
+ * @param edits The edits to apply when no full content is given.
+ */
+public record BufferUpdate(Path filePath, String content, List<TextEdit> edits) {
+  // The tree model needs no reflection, so reading updates works in the native image as is.
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  public BufferUpdate {
+    edits = edits == null ? List.of() : List.copyOf(edits);
+  }
+
+  /**
+   * Reads buffer updates from a stream until its end.
+   *
+   * @param inputStream The stream, usually the standard input.
+   * @return The updates, in the order they were sent.
+   * @throws IOException If the stream cannot be read or does not contain valid updates.
+   */
+  public static List<BufferUpdate> read(InputStream inputStream) throws IOException {
+    return read(inputStream, Path::of);
+  }
+
+  /**
+   * Reads buffer updates from a stream until its end.
+   *
+   * @param inputStream The stream, usually the standard input.
+   * @param pathResolver Resolves the file paths of updates, like the command's path options.
+   * @return The updates, in the order they were sent.
+   * @throws IOException If the stream cannot be read or does not contain valid updates.
+   */
+  public static List<BufferUpdate> read(
+      InputStream inputStream, Function<String, Path> pathResolver) throws IOException {
+    JsonNode root = OBJECT_MAPPER.readTree(inputStream);
+    List<BufferUpdate> updates = new ArrayList<>();
+    if (root == null || root.isMissingNode()) {
+      return updates;
+    }
+    if (root.isArray()) {
+      for (JsonNode node : root) {
+        updates.add(parse(node, pathResolver));
+      }
+    } else {
+      updates.add(parse(root, pathResolver));
+    }
+    return updates;
+  }
+
+  /**
+   * Applies this update to a file, re-parsing only the changed ranges.
+   *
+   * @param file The file holding the content the editor sent last.
+   * @throws IllegalArgumentException If an edit lies outside of the file's source code.
+   */
+  public void applyTo(TSFile file) {
+    if (this.content != null) {
+      file.updateSourceCode(this.content);
+    }
+    for (TextEdit edit : this.edits) {
+      edit.applyTo(file);
+    }
+  }
+
+  private static BufferUpdate parse(JsonNode node, Function<String, Path> pathResolver)
+      throws IOException {
+    if (!node.isObject()) {
+      throw new IOException("A buffer update must be a JSON object.");
+    }
+    Path filePath =
+        node.hasNonNull("filePath") ? pathResolver.apply(node.get("filePath").asText()) : null;
+    String content = node.hasNonNull("content") ? node.get("content").asText() : null;
+    List<TextEdit> edits = new ArrayList<>();
+    JsonNode editNodes = node.path("edits");
+    for (JsonNode edit : editNodes) {
+      edits.add(
+          new TextEdit(
+              requireInt(edit, "startLine"),
+              requireInt(edit, "startColumn"),
+              requireInt(edit, "endLine"),
+              requireInt(edit, "endColumn"),
+              edit.path("text").asText("")));
+    }
+    if (content == null && edits.isEmpty()) {
+      throw new IOException("A buffer update needs either \"content\" or \"edits\".");
+    }
+    return new BufferUpdate(filePath, content, edits);
+  }
+
+  private static int requireInt(JsonNode node, String field) throws IOException {
+    JsonNode value = node.get(field);
+    if (value == null || !value.canConvertToInt()) {
+      throw new IOException("A buffer edit needs an integer \"" + field + "\".");
+    }
+    return value.intValue();
+  }
+}
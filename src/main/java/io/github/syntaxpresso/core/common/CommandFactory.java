@@ -1,14 +1,51 @@
 package io.github.syntaxpresso.core.common;
 
+import io.github.syntaxpresso.core.command.ServerCommand;
 import io.github.syntaxpresso.core.command.java.CreateNewFileCommand;
+import io.github.syntaxpresso.core.command.java.FindImplementationsCommand;
+import io.github.syntaxpresso.core.command.java.FindSubclassesCommand;
 import io.github.syntaxpresso.core.command.java.GetMainClassCommand;
+import io.github.syntaxpresso.core.command.java.OutlineCommand;
+import io.github.syntaxpresso.core.command.java.RenameCommand;
+import io.github.syntaxpresso.core.command.java.SearchSymbolCommand;
 import io.github.syntaxpresso.core.service.JavaService;
 import io.github.syntaxpresso.core.util.PathHelper;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import picocli.CommandLine.IFactory;
 
 public class CommandFactory implements IFactory {
-  private final PathHelper pathHelper = new PathHelper();
-  private final JavaService javaService = new JavaService(pathHelper);
+  private final JavaService javaService;
+  // Resolved when a command reads it, never while the native image is built.
+  private final Supplier<InputStream> input;
+  private final Function<String, Path> pathResolver;
+
+  /** Creates a factory with its own services, reading command input from the standard input. */
+  public CommandFactory() {
+    this(new JavaService(new PathHelper()), () -> System.in, Path::of);
+  }
+
+  /**
+   * Creates a factory that shares existing services, e.g. for one request of a server.
+   *
+   * @param javaService The service shared by all commands.
+   * @param input Supplies the input of commands that read one, such as buffer updates.
+   * @param pathResolver Turns paths given by the caller, in options or in the input, into paths of
+   *     this process; register it as the {@link Path} converter of the command line as well.
+   */
+  public CommandFactory(
+      JavaService javaService, Supplier<InputStream> input, Function<String, Path> pathResolver) {
+    this.javaService = javaService;
+    this.input = input;
+    this.pathResolver = pathResolver;
+  }
+
+  /** Returns the resolver for paths given by the caller. */
+  public Function<String, Path> getPathResolver() {
+    return this.pathResolver;
+  }
 
   @Override
   @SuppressWarnings("unchecked")
@@ -19,6 +56,24 @@ public class CommandFactory implements IFactory {
     if (cls == GetMainClassCommand.class) {
       return (K) new GetMainClassCommand(javaService);
     }
+    if (cls == RenameCommand.class) {
+      return (K) new RenameCommand(javaService, input, pathResolver);
+    }
+    if (cls == FindImplementationsCommand.class) {
+      return (K) new FindImplementationsCommand(javaService);
+    }
+    if (cls == FindSubclassesCommand.class) {
+      return (K) new FindSubclassesCommand(javaService);
+    }
+    if (cls == SearchSymbolCommand.class) {
+      return (K) new SearchSymbolCommand(javaService);
+    }
+    if (cls == OutlineCommand.class) {
+      return (K) new OutlineCommand(javaService, input, pathResolver);
+    }
+    if (cls == ServerCommand.class) {
+      return (K) new ServerCommand(javaService);
+    }
     return cls.getDeclaredConstructor().newInstance();
   }
 }
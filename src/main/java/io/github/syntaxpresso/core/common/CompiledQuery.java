@@ -0,0 +1,154 @@
+package io.github.syntaxpresso.core.common;
+
+import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.treesitter.TSNode;
+import org.treesitter.TSQuery;
+import org.treesitter.TSQueryCapture;
+import org.treesitter.TSQueryCursor;
+import org.treesitter.TSQueryMatch;
+
+/**
+ * A tree-sitter query compiled once and shared by every search that runs it.
+ *
+ * <p>Capture names are resolved to indices when the query is compiled, so callers look them up
+ * once with {@link #captureIndex(String)} and read the captured nodes of each match by index from
+ * a {@link Match} that is reused for the whole search, instead of building a map per match.
+ *
+ * <p>A compiled query is immutable and can be run from several threads at once; every run uses its
+ * own cursor.
+ */
+public final class CompiledQuery {
+  private final TSQuery query;
+  private final String[] captureNames;
+
+  /**
+   * Compiles a query.
+   *
+   * @param language The language of the trees the query runs on.
+   * @param source The query in tree-sitter's S-expression syntax.
+   */
+  public CompiledQuery(SupportedLanguage language, String source) {
+    this.query = new TSQuery(language.getLanguage(), source);
+    this.captureNames = new String[this.query.getCaptureCount()];
+    for (int i = 0; i < this.captureNames.length; i++) {
+      this.captureNames[i] = this.query.getCaptureNameForId(i);
+    }
+  }
+
+  /**
+   * Returns the index of a capture, to read its nodes from a {@link Match}.
+   *
+   * @param name The capture name, without the leading {@code @}.
+   * @return The capture index.
+   * @throws IllegalArgumentException If the query has no capture with that name.
+   */
+  public int captureIndex(String name) {
+    for (int i = 0; i < this.captureNames.length; i++) {
+      if (this.captureNames[i].equals(name)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown capture: @" + name);
+  }
+
+  /**
+   * Runs the query on a subtree and calls the visitor for every match, in document order.
+   *
+   * @param root The root of the subtree to search.
+   * @param visitor The visitor; returning false ends the search.
+   */
+  public void forEachMatch(TSNode root, MatchVisitor visitor) {
+    TSQueryCursor cursor = new TSQueryCursor();
+    cursor.exec(this.query, root);
+    TSQueryMatch queryMatch = new TSQueryMatch();
+    Match match = new Match(this.captureNames.length);
+    while (cursor.nextMatch(queryMatch)) {
+      match.reset(queryMatch);
+      if (!visitor.visit(match)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the first node captured under the given index.
+   *
+   * @param root The root of the subtree to search.
+   * @param captureIndex The capture index.
+   * @return The node, or empty if no match captured it.
+   */
+  public Optional<TSNode> findFirst(TSNode root, int captureIndex) {
+    TSNode[] found = new TSNode[1];
+    this.forEachMatch(
+        root,
+        match -> {
+          found[0] = match.get(captureIndex);
+          return found[0] == null;
+        });
+    return Optional.ofNullable(found[0]);
+  }
+
+  /**
+   * Returns every node captured under the given index, in document order.
+   *
+   * @param root The root of the subtree to search.
+   * @param captureIndex The capture index.
+   * @return The captured nodes.
+   */
+  public List<TSNode> findAll(TSNode root, int captureIndex) {
+    List<TSNode> nodes = new ArrayList<>();
+    this.forEachMatch(
+        root,
+        match -> {
+          TSNode node = match.get(captureIndex);
+          if (node != null) {
+            nodes.add(node);
+          }
+          return true;
+        });
+    return nodes;
+  }
+
+  /** The captures of the current match. Only valid until the visitor returns. */
+  public static final class Match {
+    private final TSNode[] captures;
+
+    private Match(int captureCount) {
+      this.captures = new TSNode[captureCount];
+    }
+
+    private void reset(TSQueryMatch queryMatch) {
+      Arrays.fill(this.captures, null);
+      for (TSQueryCapture capture : queryMatch.getCaptures()) {
+        this.captures[capture.getIndex()] = capture.getNode();
+      }
+    }
+
+    /**
+     * Returns the node captured under the given index.
+     *
+     * @param captureIndex The capture index.
+     * @return The node, or null if the match did not capture it. When a capture is quantified,
+     *     the last captured node is returned.
+     */
+    public TSNode get(int captureIndex) {
+      return this.captures[captureIndex];
+    }
+  }
+
+  /** Callback for {@link #forEachMatch(TSNode, MatchVisitor)}. */
+  @FunctionalInterface
+  public interface MatchVisitor {
+    /**
+     * Visits a match.
+     *
+     * @param match The captures of the match.
+     * @return true to continue with the next match.
+     */
+    boolean visit(Match match);
+  }
+}
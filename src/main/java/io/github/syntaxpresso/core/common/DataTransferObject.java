@@ -3,6 +3,12 @@ package io.github.syntaxpresso.core.common;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.syntaxpresso.core.common.json.CompiledJsonWriters;
+import io.github.syntaxpresso.core.common.json.JsonOutput;
+import io.github.syntaxpresso.core.common.json.JsonWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,9 +21,6 @@ import lombok.SneakyThrows;
 @Builder
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class DataTransferObject<T> {
-  private static final ObjectMapper objectMapper =
-      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
-
   private Boolean succeed;
   private T data;
   private String errorReason;
@@ -43,9 +46,63 @@ public class DataTransferObject<T> {
     return new DataTransferObject<>(false, null, reason);
   }
 
-  @Override
+  /**
+   * Serializes this envelope as JSON.
+   *
+   * <p>The envelope and any {@code @CompiledJson} payload are written by compile-time generated
+   * writers. Payloads without a compiled writer fall back to Jackson, which is only loaded when
+   * such a payload is actually serialized.
+   *
+   * @return The UTF-8 encoded JSON document.
+   */
   @SneakyThrows
+  public byte[] toJson() {
+    JsonWriter<Object> dataWriter = this.findDataWriter();
+    if (this.data != null && dataWriter == null) {
+      return JacksonHolder.OBJECT_MAPPER.writeValueAsBytes(this);
+    }
+    JsonOutput out = new JsonOutput();
+    out.beginObject();
+    if (this.succeed != null) {
+      out.name("succeed").value(this.succeed);
+    }
+    if (this.data != null) {
+      out.name("data");
+      dataWriter.write(this.data, out);
+    }
+    if (this.errorReason != null) {
+      out.name("errorReason").value(this.errorReason);
+    }
+    out.endObject();
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes this envelope as JSON to a stream.
+   *
+   * @param outputStream The target stream. It is not closed.
+   * @throws IOException If the stream cannot be written.
+   */
+  public void writeTo(OutputStream outputStream) throws IOException {
+    outputStream.write(this.toJson());
+  }
+
+  @Override
   public String toString() {
-    return objectMapper.writeValueAsString(this);
+    return new String(this.toJson(), StandardCharsets.UTF_8);
+  }
+
+  @SuppressWarnings("unchecked")
+  private JsonWriter<Object> findDataWriter() {
+    if (this.data == null) {
+      return null;
+    }
+    return (JsonWriter<Object>) CompiledJsonWriters.find(this.data.getClass());
+  }
+
+  /** Lazily initialized so Jackson stays off the startup path unless a fallback is needed. */
+  private static final class JacksonHolder {
+    private static final ObjectMapper OBJECT_MAPPER =
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
   }
 }
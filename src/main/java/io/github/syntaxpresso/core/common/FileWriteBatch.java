@@ -0,0 +1,376 @@
+package io.github.syntaxpresso.core.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Collects file moves, writes and deletions and applies them as one unit.
+ *
+ * <p>On {@link #commit()} every new content is first written to a temporary file next to its
+ * target. Only when all of them were written successfully are moves, writes and deletions applied,
+ * in that order. Each temporary file replaces its target with a single rename, so other processes
+ * see either the old or the new content, and takes over the target's POSIX permissions. The
+ * previous version of each affected target is kept as a hard link, or a copy where links are not
+ * supported, until the whole batch succeeded. If any step fails, the files already touched are
+ * restored, so the tree is never left half-edited. Writes whose content equals what is already on
+ * disk are skipped.
+ *
+ * <p>A durable batch additionally forces every temporary file and every affected directory to
+ * storage, so a crash right after {@link #commit()} returns cannot lose or truncate a file.
+ *
+ * <p>Instances are not thread-safe and must not be modified while a commit is running.
+ */
+public class FileWriteBatch {
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String BACKUP_SUFFIX = ".bak";
+  private static final ExecutorService IO_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final boolean durable;
+  private final Map<Path, Path> moves = new LinkedHashMap<>();
+  private final Set<Path> replacingMoves = new LinkedHashSet<>();
+  private final Map<Path, byte[]> writes = new LinkedHashMap<>();
+  private final Set<Path> deletions = new LinkedHashSet<>();
+
+  /** Creates a batch that does not force its changes to storage. */
+  public FileWriteBatch() {
+    this(false);
+  }
+
+  /**
+   * Creates a batch.
+   *
+   * @param durable Whether the committed files and their directories should be forced to storage.
+   */
+  public FileWriteBatch(boolean durable) {
+    this.durable = durable;
+  }
+
+  /**
+   * Stages a write of the given content to a file. A later write to the same path replaces it.
+   *
+   * @param path The file to write.
+   * @param content The new file content.
+   * @return This batch.
+   */
+  public FileWriteBatch write(Path path, String content) {
+    Path target = normalize(path);
+    this.deletions.remove(target);
+    this.writes.put(target, content.getBytes(StandardCharsets.UTF_8));
+    return this;
+  }
+
+  /**
+   * Stages a move of a file. Moves are applied before writes, so content staged for the
+   * destination is written over the moved file. The commit fails if another file already exists
+   * at the destination.
+   *
+   * @param source The file to move.
+   * @param destination The new location of the file.
+   * @return This batch.
+   */
+  public FileWriteBatch move(Path source, Path destination) {
+    return this.move(source, destination, false);
+  }
+
+  /**
+   * Stages a move of a file. Moves are applied before writes, so content staged for the
+   * destination is written over the moved file.
+   *
+   * @param source The file to move.
+   * @param destination The new location of the file.
+   * @param replaceExisting Whether another file existing at the destination is replaced. If
+   *     false, the commit fails with a {@link FileAlreadyExistsException} instead.
+   * @return This batch.
+   */
+  public FileWriteBatch move(Path source, Path destination, boolean replaceExisting) {
+    Path normalizedSource = normalize(source);
+    Path normalizedDestination = normalize(destination);
+    if (!normalizedSource.equals(normalizedDestination)) {
+      this.moves.put(normalizedSource, normalizedDestination);
+      if (replaceExisting) {
+        this.replacingMoves.add(normalizedSource);
+      } else {
+        this.replacingMoves.remove(normalizedSource);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Stages the deletion of a file.
+   *
+   * @param path The file to delete.
+   * @return This batch.
+   */
+  public FileWriteBatch delete(Path path) {
+    Path target = normalize(path);
+    this.writes.remove(target);
+    this.deletions.add(target);
+    return this;
+  }
+
+  /** Returns the number of staged operations. */
+  public int size() {
+    return this.moves.size() + this.writes.size() + this.deletions.size();
+  }
+
+  /**
+   * Applies all staged operations on the calling thread. The batch is empty afterwards.
+   *
+   * @throws IOException If any operation fails. Files touched before the failure are restored.
+   */
+  public void commit() throws IOException {
+    Map<Path, Path> tempFiles = new LinkedHashMap<>();
+    List<Path[]> applied = new ArrayList<>();
+    Set<Path> touchedDirectories = new LinkedHashSet<>();
+    try {
+      for (Map.Entry<Path, byte[]> write : this.writes.entrySet()) {
+        Path target = write.getKey();
+        if (!this.moves.containsValue(target) && this.hasContent(target, write.getValue())) {
+          continue;
+        }
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+        Path tempFile = createSibling(target, TEMP_SUFFIX);
+        tempFiles.put(target, tempFile);
+        this.writeFully(tempFile, write.getValue());
+      }
+      for (Map.Entry<Path, Path> move : this.moves.entrySet()) {
+        Path source = move.getKey();
+        Path destination = move.getValue();
+        if (!this.replacingMoves.contains(source) && isOtherFile(source, destination)) {
+          throw new FileAlreadyExistsException(destination.toString());
+        }
+        Files.createDirectories(destination.getParent());
+        Path backup = backup(destination);
+        applied.add(new Path[] {destination, backup, source});
+        moveAtomically(source, destination);
+        touchedDirectories.add(source.getParent());
+        touchedDirectories.add(destination.getParent());
+      }
+      for (Map.Entry<Path, Path> tempFile : tempFiles.entrySet()) {
+        Path target = tempFile.getKey();
+        Path backup = backup(target);
+        applied.add(new Path[] {target, backup, null});
+        if (backup != null) {
+          copyPermissions(target, tempFile.getValue());
+        }
+        moveAtomically(tempFile.getValue(), target);
+        touchedDirectories.add(target.getParent());
+      }
+      for (Path target : this.deletions) {
+        Path backup = backup(target);
+        if (backup == null) {
+          continue;
+        }
+        try {
+          Files.delete(target);
+        } catch (IOException e) {
+          Files.deleteIfExists(backup);
+          throw e;
+        }
+        applied.add(new Path[] {target, backup, null});
+        touchedDirectories.add(target.getParent());
+      }
+      if (this.durable) {
+        for (Path directory : touchedDirectories) {
+          forceDirectory(directory);
+        }
+      }
+    } catch (IOException e) {
+      this.rollback(applied, tempFiles, e);
+      throw e;
+    }
+    for (Path[] operation : applied) {
+      if (operation[1] != null) {
+        Files.deleteIfExists(operation[1]);
+      }
+    }
+    this.moves.clear();
+    this.replacingMoves.clear();
+    this.writes.clear();
+    this.deletions.clear();
+  }
+
+  /**
+   * Applies all staged operations on a background thread.
+   *
+   * @return A future completed when the batch was committed, or completed exceptionally with an
+   *     {@link UncheckedIOException} if it failed and was rolled back.
+   */
+  public CompletableFuture<Void> commitAsync() {
+    return this.commitAsync(IO_EXECUTOR);
+  }
+
+  /**
+   * Applies all staged operations using the given executor.
+   *
+   * @param executor The executor that performs the I/O.
+   * @return A future completed when the batch was committed, or completed exceptionally with an
+   *     {@link UncheckedIOException} if it failed and was rolled back.
+   */
+  public CompletableFuture<Void> commitAsync(Executor executor) {
+    return CompletableFuture.runAsync(
+        () -> {
+          try {
+            this.commit();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        },
+        executor);
+  }
+
+  private boolean hasContent(Path target, byte[] content) throws IOException {
+    if (!Files.isRegularFile(target) || Files.size(target) != content.length) {
+      return false;
+    }
+    return Arrays.equals(Files.readAllBytes(target), content);
+  }
+
+  private void writeFully(Path path, byte[] content) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(content);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (this.durable) {
+        channel.force(true);
+      }
+    }
+  }
+
+  /**
+   * Keeps the current version of a target next to it, leaving the target in place, and returns the
+   * backup path, or null if the target did not exist.
+   */
+  private static Path backup(Path target) throws IOException {
+    if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+      return null;
+    }
+    while (true) {
+      Path backup = siblingOf(target, BACKUP_SUFFIX);
+      try {
+        return Files.createLink(backup, target);
+      } catch (FileAlreadyExistsException e) {
+        // Name taken by a concurrent batch; pick another one.
+      } catch (UnsupportedOperationException | FileSystemException e) {
+        return Files.copy(
+            target, backup, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+      }
+    }
+  }
+
+  /**
+   * Creates an empty file next to a target. Unlike {@link Files#createTempFile}, which restricts a
+   * file to its owner, it gets the permissions of any new file in the directory.
+   */
+  private static Path createSibling(Path target, String suffix) throws IOException {
+    while (true) {
+      try {
+        return Files.createFile(siblingOf(target, suffix));
+      } catch (FileAlreadyExistsException e) {
+        // Name taken by a concurrent batch; pick another one.
+      }
+    }
+  }
+
+  private static Path siblingOf(Path target, String suffix) {
+    long random = ThreadLocalRandom.current().nextLong();
+    return target.resolveSibling(
+        "." + target.getFileName() + Long.toUnsignedString(random) + suffix);
+  }
+
+  /**
+   * Returns whether a file other than the source exists at the destination. A destination that
+   * only differs in case from its source on a case-insensitive file system is the same file.
+   */
+  private static boolean isOtherFile(Path source, Path destination) throws IOException {
+    if (!Files.exists(destination, LinkOption.NOFOLLOW_LINKS)) {
+      return false;
+    }
+    return !Files.exists(source, LinkOption.NOFOLLOW_LINKS)
+        || !Files.isSameFile(source, destination);
+  }
+
+  private static void copyPermissions(Path source, Path target) throws IOException {
+    if (Files.getFileAttributeView(source, PosixFileAttributeView.class) != null) {
+      Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+    }
+  }
+
+  /** Undoes applied operations in reverse order. Each entry is {target, backup, moveSource}. */
+  private void rollback(List<Path[]> applied, Map<Path, Path> tempFiles, IOException cause) {
+    for (int i = applied.size() - 1; i >= 0; i--) {
+      Path target = applied.get(i)[0];
+      Path backup = applied.get(i)[1];
+      Path moveSource = applied.get(i)[2];
+      try {
+        if (moveSource != null && Files.exists(target) && !Files.exists(moveSource)) {
+          moveAtomically(target, moveSource);
+        }
+        if (backup != null) {
+          moveAtomically(backup, target);
+        } else if (moveSource == null) {
+          Files.deleteIfExists(target);
+        }
+      } catch (IOException e) {
+        cause.addSuppressed(e);
+      }
+    }
+    for (Path tempFile : tempFiles.values()) {
+      try {
+        Files.deleteIfExists(tempFile);
+      } catch (IOException e) {
+        cause.addSuppressed(e);
+      }
+    }
+  }
+
+  private static void forceDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Not every platform can open or sync a directory (e.g. Windows); file contents are
+      // already forced at this point.
+    }
+  }
+
+  private static void moveAtomically(Path source, Path target) throws IOException {
+    try {
+      Files.move(
+          source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static Path normalize(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+}
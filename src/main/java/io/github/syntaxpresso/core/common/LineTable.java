@@ -0,0 +1,165 @@
+package io.github.syntaxpresso.core.common;
+
+import java.util.Arrays;
+
+/**
+ * The start of every line of a source code, both as a UTF-8 byte offset, the unit of tree-sitter
+ * positions, and as a char index into the Java string. Each table ends with a sentinel entry one
+ * past the end of the source, so the end-of-file position stays addressable.
+ *
+ * <p>Offsets are converted by locating the line in the table and walking its characters; lines
+ * made of ASCII only are converted without a walk.
+ */
+final class LineTable {
+  private final int[] byteStarts;
+  private final int[] charStarts;
+
+  private LineTable(int[] byteStarts, int[] charStarts) {
+    this.byteStarts = byteStarts;
+    this.charStarts = charStarts;
+  }
+
+  /** Computes the line starts of a source code. */
+  static LineTable of(String sourceCode) {
+    int[] byteStarts = new int[64];
+    int[] charStarts = new int[64];
+    int lineCount = 1;
+    int byteOffset = 0;
+    for (int i = 0; i < sourceCode.length(); ) {
+      char c = sourceCode.charAt(i);
+      int length = utf8Length(sourceCode, i);
+      byteOffset += length;
+      i += length == 4 ? 2 : 1;
+      if (c == '\n') {
+        if (lineCount == byteStarts.length) {
+          byteStarts = Arrays.copyOf(byteStarts, lineCount * 2);
+          charStarts = Arrays.copyOf(charStarts, lineCount * 2);
+        }
+        byteStarts[lineCount] = byteOffset;
+        charStarts[lineCount] = i;
+        lineCount++;
+      }
+    }
+    byteStarts = Arrays.copyOf(byteStarts, lineCount + 1);
+    charStarts = Arrays.copyOf(charStarts, lineCount + 1);
+    byteStarts[lineCount] = byteOffset + 1;
+    charStarts[lineCount] = sourceCode.length() + 1;
+    return new LineTable(byteStarts, charStarts);
+  }
+
+  /** Returns the number of lines. */
+  int getLineCount() {
+    return this.byteStarts.length - 1;
+  }
+
+  /** Returns the length of the source code in UTF-8 bytes. */
+  int getByteLength() {
+    return this.byteStarts[this.byteStarts.length - 1] - 1;
+  }
+
+  /**
+   * Returns the byte offset at which a line starts.
+   *
+   * @param row The zero-based line, or the line count for the sentinel one past the last byte.
+   */
+  int getLineStartByte(int row) {
+    return this.byteStarts[row];
+  }
+
+  /** Returns the zero-based line containing a byte offset. */
+  int findRow(int byteOffset) {
+    return findRow(this.byteStarts, byteOffset);
+  }
+
+  /**
+   * Converts a UTF-8 byte offset into a char index of the source code.
+   *
+   * @param sourceCode The source code this table was computed from.
+   * @param byteOffset The byte offset.
+   * @return The char index.
+   * @throws IndexOutOfBoundsException If the offset lies outside of the source code.
+   * @throws IllegalArgumentException If the offset points into the middle of a character.
+   */
+  int toCharOffset(String sourceCode, int byteOffset) {
+    if (byteOffset < 0 || byteOffset > this.getByteLength()) {
+      throw new IndexOutOfBoundsException("Byte offset " + byteOffset + " is out of range.");
+    }
+    int row = findRow(this.byteStarts, byteOffset);
+    int charOffset = this.charStarts[row];
+    int lineByteOffset = this.byteStarts[row];
+    if (this.isAscii(row)) {
+      return charOffset + byteOffset - lineByteOffset;
+    }
+    while (lineByteOffset < byteOffset) {
+      int length = utf8Length(sourceCode, charOffset);
+      lineByteOffset += length;
+      charOffset += length == 4 ? 2 : 1;
+    }
+    if (lineByteOffset != byteOffset) {
+      throw new IllegalArgumentException(
+          "Byte offset " + byteOffset + " points into the middle of a character.");
+    }
+    return charOffset;
+  }
+
+  /**
+   * Converts a char index of the source code into a UTF-8 byte offset.
+   *
+   * @param sourceCode The source code this table was computed from.
+   * @param charOffset The char index. An index between the two halves of a surrogate pair maps
+   *     to the start of the pair.
+   * @return The byte offset.
+   * @throws IndexOutOfBoundsException If the index lies outside of the source code.
+   */
+  int toByteOffset(String sourceCode, int charOffset) {
+    if (charOffset < 0 || charOffset > sourceCode.length()) {
+      throw new IndexOutOfBoundsException("Char offset " + charOffset + " is out of range.");
+    }
+    int row = findRow(this.charStarts, charOffset);
+    int lineCharOffset = this.charStarts[row];
+    int byteOffset = this.byteStarts[row];
+    if (this.isAscii(row)) {
+      return byteOffset + charOffset - lineCharOffset;
+    }
+    while (lineCharOffset < charOffset) {
+      int length = utf8Length(sourceCode, lineCharOffset);
+      if (length == 4 && lineCharOffset + 1 == charOffset) {
+        break;
+      }
+      byteOffset += length;
+      lineCharOffset += length == 4 ? 2 : 1;
+    }
+    return byteOffset;
+  }
+
+  private boolean isAscii(int row) {
+    return this.byteStarts[row + 1] - this.byteStarts[row]
+        == this.charStarts[row + 1] - this.charStarts[row];
+  }
+
+  private static int findRow(int[] lineStarts, int offset) {
+    // The last entry is a sentinel, so only real line starts are searched.
+    int index = Arrays.binarySearch(lineStarts, 0, lineStarts.length - 1, offset);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * Returns the number of UTF-8 bytes of the character starting at a char index; a surrogate pair
+   * takes four bytes.
+   */
+  private static int utf8Length(String sourceCode, int index) {
+    char c = sourceCode.charAt(index);
+    if (c < 0x80) {
+      return 1;
+    }
+    if (c < 0x800) {
+      return 2;
+    }
+    if (Character.isHighSurrogate(c)
+        && index + 1 < sourceCode.length()
+        && Character.isLowSurrogate(sourceCode.charAt(index + 1))) {
+      return 4;
+    }
+    return 3;
+  }
+}
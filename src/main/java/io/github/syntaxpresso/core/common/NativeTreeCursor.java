@@ -0,0 +1,495 @@
+package io.github.syntaxpresso.core.common;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentAllocator;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.treesitter.TSNode;
+
+/**
+ * A tree cursor that calls the tree-sitter C API through the Foreign Function & Memory API instead
+ * of the JNI binding.
+ *
+ * <p>The cursor and its current node live as plain C structs in memory owned by the cursor, so
+ * moving, and reading the symbol, field or byte range of the current node, never creates Java
+ * objects. Downcalls are linked as critical functions, which skips most of the thread state
+ * transition a JNI call pays. A {@link TSNode} is only materialized when a caller asks for one.
+ *
+ * <p>The JNI binding keeps a node's C struct in private fields, so nodes are converted in both
+ * directions by copying those fields. Since their layout is not part of the binding's API, {@link
+ * #isUsable(TSNode)} checks the conversion against the JNI binding once per process and {@link
+ * TSTreeWalker} falls back to the JNI cursor if anything does not match. The binding is never used
+ * in a native image, or when the {@code syntaxpresso.treeSitterBinding} system property is {@code
+ * jni}. Instances are not thread-safe.
+ */
+final class NativeTreeCursor {
+  private static final int UNKNOWN = 0;
+  private static final int USABLE = 1;
+  private static final int UNUSABLE = 2;
+  private static volatile int state = UNKNOWN;
+
+  private final MemorySegment cursor;
+  private final MemorySegment node;
+  private final SegmentAllocator nodeAllocator;
+  // A node of the walked tree, whose Java references materialized nodes share.
+  private TSNode template;
+  private String[] typeNames;
+  private boolean nodeLoaded;
+
+  NativeTreeCursor(TSNode root) {
+    Arena arena = Arena.ofAuto();
+    // Cleanup actions run before the arena frees its memory, so the cursor is still readable.
+    this.cursor = arena.allocate(Api.CURSOR).reinterpret(arena, Api::deleteCursor);
+    this.node = arena.allocate(Api.NODE);
+    this.nodeAllocator = SegmentAllocator.prefixAllocator(this.node);
+    Api.toStruct(root, this.node);
+    Api.newCursor(SegmentAllocator.prefixAllocator(this.cursor), this.node);
+    this.template = root;
+    this.typeNames = Api.typeNames(this.node);
+    this.nodeLoaded = true;
+  }
+
+  /**
+   * Tells whether the FFM binding can be used, checking it against the given JNI node on first use.
+   *
+   * @param sample Any node, used to verify the binding.
+   * @return true if cursors can be created.
+   */
+  static boolean isUsable(TSNode sample) {
+    int current = state;
+    if (current == UNKNOWN) {
+      synchronized (NativeTreeCursor.class) {
+        current = state;
+        if (current == UNKNOWN) {
+          current = verify(sample) ? USABLE : UNUSABLE;
+          state = current;
+        }
+      }
+    }
+    return current == USABLE;
+  }
+
+  private static boolean verify(TSNode sample) {
+    if ("jni".equals(System.getProperty("syntaxpresso.treeSitterBinding"))
+        || System.getProperty("org.graalvm.nativeimage.imagecode") != null) {
+      return false;
+    }
+    try {
+      NativeTreeCursor probe = new NativeTreeCursor(sample);
+      TSNode copy = probe.currentNode();
+      boolean matches =
+          probe.symbol() == sample.getSymbol()
+              && probe.startByte() == sample.getStartByte()
+              && probe.endByte() == sample.getEndByte()
+              && probe.isNamed() == sample.isNamed()
+              && probe.type().equals(sample.getType())
+              && copy.getSymbol() == sample.getSymbol()
+              && copy.getEndByte() == sample.getEndByte()
+              && copy.getChildCount() == sample.getChildCount();
+      if (matches && probe.gotoFirstChild()) {
+        TSNode child = sample.getChild(0);
+        TSNode childCopy = probe.currentNode();
+        matches =
+            probe.startByte() == child.getStartByte()
+                && probe.symbol() == child.getSymbol()
+                && childCopy.getEndByte() == child.getEndByte()
+                && childCopy.getParent().getSymbol() == sample.getSymbol();
+      }
+      return matches;
+    } catch (Throwable e) {
+      // Missing symbols, a changed field layout or disabled native access: keep using JNI.
+      return false;
+    }
+  }
+
+  void reset(TSNode root) {
+    Api.toStruct(root, this.node);
+    Api.resetCursor(this.cursor, this.node);
+    this.template = root;
+    this.typeNames = Api.typeNames(this.node);
+    this.nodeLoaded = true;
+  }
+
+  boolean gotoFirstChild() {
+    return this.moved(Api.gotoFirstChild(this.cursor));
+  }
+
+  boolean gotoNextSibling() {
+    return this.moved(Api.gotoNextSibling(this.cursor));
+  }
+
+  boolean gotoParent() {
+    return this.moved(Api.gotoParent(this.cursor));
+  }
+
+  long gotoFirstChildForByte(int byteOffset) {
+    long index = Api.gotoFirstChildForByte(this.cursor, byteOffset);
+    this.moved(index >= 0);
+    return index;
+  }
+
+  int fieldId() {
+    return Api.currentFieldId(this.cursor);
+  }
+
+  int symbol() {
+    return Api.symbol(this.loadNode());
+  }
+
+  String type() {
+    int symbol = this.symbol();
+    if (symbol >= this.typeNames.length) {
+      // ERROR nodes report the symbol 65535, which lies outside of the language's symbols.
+      return Api.typeName(this.loadNode());
+    }
+    String type = this.typeNames[symbol];
+    if (type == null) {
+      type = Api.typeName(this.loadNode());
+      this.typeNames[symbol] = type;
+    }
+    return type;
+  }
+
+  int startByte() {
+    return Api.startByte(this.loadNode());
+  }
+
+  int endByte() {
+    return Api.endByte(this.loadNode());
+  }
+
+  boolean isNamed() {
+    return Api.isNamed(this.loadNode());
+  }
+
+  /** Creates a JNI node for the current position. */
+  TSNode currentNode() {
+    return Api.toNode(this.loadNode(), this.template);
+  }
+
+  private boolean moved(boolean moved) {
+    if (moved) {
+      this.nodeLoaded = false;
+    }
+    return moved;
+  }
+
+  private MemorySegment loadNode() {
+    if (!this.nodeLoaded) {
+      Api.currentNode(this.nodeAllocator, this.cursor);
+      this.nodeLoaded = true;
+    }
+    return this.node;
+  }
+
+  /** Downcall handles and node conversion, linked when the binding is first verified. */
+  private static final class Api {
+    // typedef struct { uint32_t context[4]; const void *id; const TSTree *tree; } TSNode;
+    static final StructLayout NODE =
+        MemoryLayout.structLayout(
+            MemoryLayout.sequenceLayout(4, ValueLayout.JAVA_INT).withName("context"),
+            ValueLayout.ADDRESS.withName("id"),
+            ValueLayout.ADDRESS.withName("tree"));
+    // typedef struct { const void *tree; const void *id; uint32_t context[3]; } TSTreeCursor;
+    static final StructLayout CURSOR =
+        MemoryLayout.structLayout(
+            ValueLayout.ADDRESS.withName("tree"),
+            ValueLayout.ADDRESS.withName("id"),
+            MemoryLayout.sequenceLayout(3, ValueLayout.JAVA_INT).withName("context"),
+            MemoryLayout.paddingLayout(4));
+    private static final long ID_OFFSET = 16;
+    private static final long TREE_OFFSET = 24;
+
+    private static final MethodHandle CURSOR_NEW =
+        downcall("ts_tree_cursor_new", FunctionDescriptor.of(CURSOR, NODE), false);
+    private static final MethodHandle CURSOR_DELETE =
+        downcall("ts_tree_cursor_delete", FunctionDescriptor.ofVoid(ValueLayout.ADDRESS), false);
+    private static final MethodHandle CURSOR_RESET =
+        downcall(
+            "ts_tree_cursor_reset", FunctionDescriptor.ofVoid(ValueLayout.ADDRESS, NODE), true);
+    private static final MethodHandle CURSOR_CURRENT_NODE =
+        downcall(
+            "ts_tree_cursor_current_node", FunctionDescriptor.of(NODE, ValueLayout.ADDRESS), true);
+    private static final MethodHandle CURSOR_CURRENT_FIELD_ID =
+        downcall(
+            "ts_tree_cursor_current_field_id",
+            FunctionDescriptor.of(ValueLayout.JAVA_SHORT, ValueLayout.ADDRESS),
+            true);
+    private static final MethodHandle CURSOR_GOTO_FIRST_CHILD =
+        downcall(
+            "ts_tree_cursor_goto_first_child",
+            FunctionDescriptor.of(ValueLayout.JAVA_BOOLEAN, ValueLayout.ADDRESS),
+            true);
+    private static final MethodHandle CURSOR_GOTO_NEXT_SIBLING =
+        downcall(
+            "ts_tree_cursor_goto_next_sibling",
+            FunctionDescriptor.of(ValueLayout.JAVA_BOOLEAN, ValueLayout.ADDRESS),
+            true);
+    private static final MethodHandle CURSOR_GOTO_PARENT =
+        downcall(
+            "ts_tree_cursor_goto_parent",
+            FunctionDescriptor.of(ValueLayout.JAVA_BOOLEAN, ValueLayout.ADDRESS),
+            true);
+    private static final MethodHandle CURSOR_GOTO_FIRST_CHILD_FOR_BYTE =
+        downcall(
+            "ts_tree_cursor_goto_first_child_for_byte",
+            FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS, ValueLayout.JAVA_INT),
+            true);
+    private static final MethodHandle NODE_SYMBOL =
+        downcall("ts_node_symbol", FunctionDescriptor.of(ValueLayout.JAVA_SHORT, NODE), true);
+    private static final MethodHandle NODE_START_BYTE =
+        downcall("ts_node_start_byte", FunctionDescriptor.of(ValueLayout.JAVA_INT, NODE), true);
+    private static final MethodHandle NODE_END_BYTE =
+        downcall("ts_node_end_byte", FunctionDescriptor.of(ValueLayout.JAVA_INT, NODE), true);
+    private static final MethodHandle NODE_IS_NAMED =
+        downcall("ts_node_is_named", FunctionDescriptor.of(ValueLayout.JAVA_BOOLEAN, NODE), true);
+    private static final MethodHandle NODE_TYPE =
+        downcall("ts_node_type", FunctionDescriptor.of(ValueLayout.ADDRESS, NODE), true);
+    private static final MethodHandle NODE_LANGUAGE =
+        downcall("ts_node_language", FunctionDescriptor.of(ValueLayout.ADDRESS, NODE), true);
+    private static final MethodHandle LANGUAGE_SYMBOL_COUNT =
+        downcall(
+            "ts_language_symbol_count",
+            FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS),
+            true);
+
+    // Node types by grammar symbol, per language.
+    private static final Map<Long, String[]> TYPE_NAMES = new ConcurrentHashMap<>();
+
+    private static final VarHandle[] CONTEXT;
+    private static final VarHandle ID;
+    private static final VarHandle TREE;
+    private static final VarHandle[] REFERENCES;
+    private static final MethodHandle NEW_NODE;
+
+    static {
+      try {
+        MethodHandles.Lookup lookup =
+            MethodHandles.privateLookupIn(TSNode.class, MethodHandles.lookup());
+        // Fields are matched by name, as in the binding's JNI code; the order reflection returns
+        // them in is unspecified. Any primitive field not known here means the layout changed.
+        List<String> structFields = List.of("context0", "context1", "context2", "context3");
+        CONTEXT = new VarHandle[4];
+        for (int i = 0; i < 4; i++) {
+          CONTEXT[i] = lookup.findVarHandle(TSNode.class, structFields.get(i), int.class);
+        }
+        ID = lookup.findVarHandle(TSNode.class, "id", long.class);
+        TREE = lookup.findVarHandle(TSNode.class, "tree", long.class);
+        List<VarHandle> references = new ArrayList<>();
+        for (Field field : TSNode.class.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          if (!field.getType().isPrimitive()) {
+            references.add(lookup.unreflectVarHandle(field));
+          } else if (!structFields.contains(field.getName())
+              && !field.getName().equals("id")
+              && !field.getName().equals("tree")) {
+            throw new IllegalStateException("Unexpected TSNode field " + field.getName());
+          }
+        }
+        REFERENCES = references.toArray(VarHandle[]::new);
+        NEW_NODE = lookup.findConstructor(TSNode.class, MethodType.methodType(void.class));
+      } catch (ReflectiveOperationException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    private Api() {}
+
+    private static MethodHandle downcall(
+        String name, FunctionDescriptor descriptor, boolean critical) {
+      // The JNI binding has loaded the tree-sitter library, which exports the C API, by now.
+      MemorySegment symbol =
+          SymbolLookup.loaderLookup()
+              .find(name)
+              .orElseThrow(() -> new UnsatisfiedLinkError("Missing tree-sitter symbol " + name));
+      return critical
+          ? Linker.nativeLinker()
+              .downcallHandle(symbol, descriptor, Linker.Option.critical(false))
+          : Linker.nativeLinker().downcallHandle(symbol, descriptor);
+    }
+
+    static void toStruct(TSNode node, MemorySegment struct) {
+      for (int i = 0; i < 4; i++) {
+        struct.setAtIndex(ValueLayout.JAVA_INT, i, (int) CONTEXT[i].get(node));
+      }
+      struct.set(ValueLayout.JAVA_LONG, ID_OFFSET, (long) ID.get(node));
+      struct.set(ValueLayout.JAVA_LONG, TREE_OFFSET, (long) TREE.get(node));
+    }
+
+    static TSNode toNode(MemorySegment struct, TSNode template) {
+      try {
+        TSNode node = (TSNode) NEW_NODE.invokeExact();
+        for (int i = 0; i < 4; i++) {
+          CONTEXT[i].set(node, struct.getAtIndex(ValueLayout.JAVA_INT, i));
+        }
+        ID.set(node, struct.get(ValueLayout.JAVA_LONG, ID_OFFSET));
+        TREE.set(node, struct.get(ValueLayout.JAVA_LONG, TREE_OFFSET));
+        // Keeps the Java tree of the template, and with it the native tree, reachable.
+        for (VarHandle reference : REFERENCES) {
+          reference.set(node, reference.get(template));
+        }
+        return node;
+      } catch (Throwable e) {
+        throw new IllegalStateException("Cannot create a tree-sitter node", e);
+      }
+    }
+
+    static String[] typeNames(MemorySegment node) {
+      try {
+        MemorySegment language = (MemorySegment) NODE_LANGUAGE.invokeExact(node);
+        return TYPE_NAMES.computeIfAbsent(
+            language.address(), address -> new String[symbolCount(language)]);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    private static int symbolCount(MemorySegment language) {
+      try {
+        return (int) LANGUAGE_SYMBOL_COUNT.invokeExact(language);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static String typeName(MemorySegment node) {
+      try {
+        MemorySegment name = (MemorySegment) NODE_TYPE.invokeExact(node);
+        return name.reinterpret(Long.MAX_VALUE).getString(0);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static void newCursor(SegmentAllocator allocator, MemorySegment node) {
+      try {
+        MemorySegment ignored = (MemorySegment) CURSOR_NEW.invokeExact(allocator, node);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static void deleteCursor(MemorySegment cursor) {
+      try {
+        CURSOR_DELETE.invokeExact(cursor);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static void resetCursor(MemorySegment cursor, MemorySegment node) {
+      try {
+        CURSOR_RESET.invokeExact(cursor, node);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static void currentNode(SegmentAllocator allocator, MemorySegment cursor) {
+      try {
+        MemorySegment ignored = (MemorySegment) CURSOR_CURRENT_NODE.invokeExact(allocator, cursor);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static int currentFieldId(MemorySegment cursor) {
+      try {
+        return Short.toUnsignedInt((short) CURSOR_CURRENT_FIELD_ID.invokeExact(cursor));
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static boolean gotoFirstChild(MemorySegment cursor) {
+      try {
+        return (boolean) CURSOR_GOTO_FIRST_CHILD.invokeExact(cursor);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static boolean gotoNextSibling(MemorySegment cursor) {
+      try {
+        return (boolean) CURSOR_GOTO_NEXT_SIBLING.invokeExact(cursor);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static boolean gotoParent(MemorySegment cursor) {
+      try {
+        return (boolean) CURSOR_GOTO_PARENT.invokeExact(cursor);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static long gotoFirstChildForByte(MemorySegment cursor, int byteOffset) {
+      try {
+        return (long) CURSOR_GOTO_FIRST_CHILD_FOR_BYTE.invokeExact(cursor, byteOffset);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static int symbol(MemorySegment node) {
+      try {
+        return Short.toUnsignedInt((short) NODE_SYMBOL.invokeExact(node));
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static int startByte(MemorySegment node) {
+      try {
+        return (int) NODE_START_BYTE.invokeExact(node);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static int endByte(MemorySegment node) {
+      try {
+        return (int) NODE_END_BYTE.invokeExact(node);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    static boolean isNamed(MemorySegment node) {
+      try {
+        return (boolean) NODE_IS_NAMED.invokeExact(node);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+      if (e instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,25 +1,23 @@
 package io.github.syntaxpresso.core.common;
 
 import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
-import org.treesitter.TSLanguage;
-import org.treesitter.TSParser;
+import org.treesitter.TSTree;
 
 /**
- * A factory for TSParser instances. This utility class provides thread-safe, reusable Tree-sitter
- * parsers for multiple languages.
+ * Shares a bounded {@link ParserPool} per language between all threads.
  *
- * <p>This class uses a {@link ThreadLocal} to hold a cache (a {@link Map}) of parsers for each
- * thread. This avoids concurrency issues while efficiently reusing parser instances on a
- * per-language, per-thread basis.
+ * <p>Parsers are borrowed for the duration of a single parse, so the number of native parsers
+ * stays fixed no matter how many (virtual) threads parse concurrently. The pool size defaults to
+ * the number of available processors and can be set with the {@code syntaxpresso.parserPoolSize}
+ * system property.
  */
 public final class ParserFactory {
+  private static final int POOL_SIZE =
+      Integer.getInteger("syntaxpresso.parserPoolSize", Runtime.getRuntime().availableProcessors());
 
-  // A ThreadLocal holding a Map where each thread can store its own set of parsers.
-  // The key is the TSLanguage, and the value is the configured TSParser.
-  private static final ThreadLocal<Map<TSLanguage, TSParser>> PARSERS =
-      ThreadLocal.withInitial(HashMap::new);
+  private static final Map<SupportedLanguage, ParserPool> POOLS = createPools();
 
   /** Private constructor to prevent instantiation. */
   private ParserFactory() {
@@ -27,27 +25,46 @@ public final class ParserFactory {
   }
 
   /**
-   * Retrieves a parser instance for the current thread, configured for the specified language.
+   * Borrows a parser configured for the specified language.
    *
-   * <p>If a parser for the given language has already been created for the current thread, the
-   * existing instance is returned. Otherwise, a new one is created, configured, and cached for
-   * future use by the thread.
+   * @param supportedLanguage The {@link SupportedLanguage} grammar of the parser.
+   * @return The lease, to be closed as soon as the parse is done.
+   */
+  public static ParserPool.Lease borrow(SupportedLanguage supportedLanguage) {
+    return POOLS.get(supportedLanguage).borrow();
+  }
+
+  /**
+   * Parses source code with a pooled parser.
    *
-   * @param supportedLanguage The {@link SupportedLanguage} grammar to configure the parser with.
-   * @return A thread-safe {@link TSParser} configured for the specified language.
+   * @param supportedLanguage The language of the source code.
+   * @param oldTree The previous, already edited tree of the same source to reuse, or null.
+   * @param sourceCode The source code.
+   * @return The new tree.
    */
-  public static TSParser get(SupportedLanguage supportedLanguage) {
-    // Get the map for the current thread.
-    Map<TSLanguage, TSParser> parserMap = PARSERS.get();
-
-    // Use computeIfAbsent to get the existing parser or create a new one.
-    // This is an atomic and clean way to handle the "get or create" logic.
-    return parserMap.computeIfAbsent(
-        supportedLanguage.getLanguage(),
-        lang -> {
-          TSParser parser = new TSParser();
-          parser.setLanguage(lang);
-          return parser;
-        });
+  public static TSTree parse(
+      SupportedLanguage supportedLanguage, TSTree oldTree, String sourceCode) {
+    try (ParserPool.Lease lease = borrow(supportedLanguage)) {
+      return lease.parser().parseString(oldTree, sourceCode);
+    }
+  }
+
+  /**
+   * Returns the counters of a language's pool, e.g. to tell whether parsing threads wait for
+   * parsers.
+   *
+   * @param supportedLanguage The language.
+   * @return The pool counters.
+   */
+  public static ParserPool.Stats getStats(SupportedLanguage supportedLanguage) {
+    return POOLS.get(supportedLanguage).getStats();
+  }
+
+  private static Map<SupportedLanguage, ParserPool> createPools() {
+    Map<SupportedLanguage, ParserPool> pools = new EnumMap<>(SupportedLanguage.class);
+    for (SupportedLanguage language : SupportedLanguage.values()) {
+      pools.put(language, new ParserPool(language.getLanguage(), Math.max(1, POOL_SIZE)));
+    }
+    return pools;
   }
 }
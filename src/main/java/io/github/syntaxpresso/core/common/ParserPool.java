@@ -0,0 +1,132 @@
+package io.github.syntaxpresso.core.common;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import org.treesitter.TSLanguage;
+import org.treesitter.TSParser;
+
+/**
+ * A bounded pool of parsers for one language.
+ *
+ * <p>At most {@code maxSize} parsers are ever created. Borrowing takes a permit and then an idle
+ * parser from a lock-free stack, creating one only when the stack is empty; a borrower that finds
+ * no permit waits until another one returns its parser. The pool only uses {@link Semaphore} and
+ * non-blocking collections, so virtual threads waiting for a parser do not pin their carrier.
+ *
+ * <p>Returned parsers are reset, so an aborted or timed-out parse never leaks state into the next
+ * one.
+ */
+public final class ParserPool {
+  private final TSLanguage language;
+  private final int maxSize;
+  private final Semaphore permits;
+  private final ConcurrentLinkedDeque<TSParser> idle = new ConcurrentLinkedDeque<>();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder borrows = new LongAdder();
+  private final LongAdder contendedBorrows = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+
+  /**
+   * Creates an empty pool. Parsers are created on demand.
+   *
+   * @param language The grammar every parser of the pool is configured with.
+   * @param maxSize The maximum number of parsers.
+   */
+  public ParserPool(TSLanguage language, int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The pool size must be positive: " + maxSize);
+    }
+    this.language = language;
+    this.maxSize = maxSize;
+    this.permits = new Semaphore(maxSize);
+  }
+
+  /**
+   * Borrows a parser, waiting for one to be returned if all of them are in use.
+   *
+   * @return The lease, which must be closed to return the parser.
+   */
+  public Lease borrow() {
+    this.borrows.increment();
+    if (!this.permits.tryAcquire()) {
+      this.contendedBorrows.increment();
+      long start = System.nanoTime();
+      this.permits.acquireUninterruptibly();
+      this.waitNanos.add(System.nanoTime() - start);
+    }
+    TSParser parser = this.idle.pollFirst();
+    if (parser == null) {
+      try {
+        parser = new TSParser();
+        parser.setLanguage(this.language);
+      } catch (RuntimeException | Error e) {
+        this.permits.release();
+        throw e;
+      }
+      this.created.increment();
+    }
+    return new Lease(parser);
+  }
+
+  /** Returns a snapshot of the pool's counters. */
+  public Stats getStats() {
+    return new Stats(
+        this.maxSize,
+        this.created.intValue(),
+        this.idle.size(),
+        this.borrows.sum(),
+        this.contendedBorrows.sum(),
+        this.waitNanos.sum());
+  }
+
+  private void release(TSParser parser) {
+    parser.reset();
+    // The most recently used parser is handed out first, keeping its memory warm.
+    this.idle.offerFirst(parser);
+    this.permits.release();
+  }
+
+  /**
+   * Counters of a pool.
+   *
+   * @param maxSize The maximum number of parsers.
+   * @param created The number of parsers created so far.
+   * @param idle The number of parsers currently waiting to be borrowed.
+   * @param borrows The number of borrows.
+   * @param contendedBorrows The number of borrows that had to wait for a parser.
+   * @param waitNanos The total time spent waiting, in nanoseconds.
+   */
+  public record Stats(
+      int maxSize, int created, int idle, long borrows, long contendedBorrows, long waitNanos) {}
+
+  /** A borrowed parser. Closing the lease returns the parser to its pool. */
+  public final class Lease implements AutoCloseable {
+    private TSParser parser;
+
+    private Lease(TSParser parser) {
+      this.parser = parser;
+    }
+
+    /**
+     * Returns the borrowed parser.
+     *
+     * @throws IllegalStateException If the lease was already closed.
+     */
+    public TSParser parser() {
+      if (this.parser == null) {
+        throw new IllegalStateException("The parser was already returned.");
+      }
+      return this.parser;
+    }
+
+    @Override
+    public void close() {
+      if (this.parser != null) {
+        TSParser returned = this.parser;
+        this.parser = null;
+        ParserPool.this.release(returned);
+      }
+    }
+  }
+}
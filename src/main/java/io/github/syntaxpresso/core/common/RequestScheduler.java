@@ -0,0 +1,232 @@
+package io.github.syntaxpresso.core.common;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs requests in two priority classes so interactive commands are not slowed down by background
+ * indexing.
+ *
+ * <p>Interactive requests run right away, each on its own virtual thread. Background requests run
+ * on a small fork-join pool whose parallelism is the CPU budget for background work; parallel
+ * streams started by a background request stay inside that pool, so a project scan can never use
+ * more threads than the budget allows. Long-running loops call {@link #checkpoint()} between
+ * files: on a background thread it waits while any interactive request is running, so an
+ * interactive request only competes with the background files already being processed.
+ *
+ * <p>Checkpoints must only be placed where no lock is held that an interactive request might need.
+ */
+public final class RequestScheduler {
+  /** The longest a background thread waits at a single checkpoint, so it cannot starve. */
+  private static final long MAX_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+  private final int backgroundParallelism;
+  private final AtomicInteger activeInteractive = new AtomicInteger();
+  private final ReentrantLock idleLock = new ReentrantLock();
+  private final Condition interactiveIdle = this.idleLock.newCondition();
+  private final LongAdder preemptions = new LongAdder();
+  private volatile ExecutorService interactiveExecutor;
+  private volatile ForkJoinPool backgroundPool;
+
+  /**
+   * Creates a scheduler. Its threads are only started when the first request is submitted.
+   *
+   * @param backgroundParallelism The maximum number of threads used for background requests.
+   */
+  public RequestScheduler(int backgroundParallelism) {
+    if (backgroundParallelism < 1) {
+      throw new IllegalArgumentException(
+          "The background parallelism must be positive: " + backgroundParallelism);
+    }
+    this.backgroundParallelism = backgroundParallelism;
+  }
+
+  /**
+   * Returns the process-wide scheduler. Background work may use half of the available processors,
+   * or the number given by the {@code syntaxpresso.backgroundThreads} system property.
+   */
+  public static RequestScheduler getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Pauses the calling thread while interactive requests are running, if it is a background
+   * thread. Does nothing on any other thread.
+   */
+  public static void checkpoint() {
+    if (Thread.currentThread() instanceof BackgroundThread thread) {
+      thread.scheduler.awaitInteractiveIdle();
+    }
+  }
+
+  /** Returns whether the calling thread runs background work. */
+  public static boolean isBackgroundThread() {
+    return Thread.currentThread() instanceof BackgroundThread;
+  }
+
+  /**
+   * Submits a request.
+   *
+   * @param priority The priority class of the request.
+   * @param task The request.
+   * @return A future completed with the result of the request, or exceptionally with a {@link
+   *     CompletionException} wrapping what it threw.
+   */
+  public <T> CompletableFuture<T> submit(Priority priority, Callable<T> task) {
+    if (priority == Priority.BACKGROUND) {
+      return CompletableFuture.supplyAsync(() -> callUnchecked(task), this.getBackgroundPool());
+    }
+    // Counted before the request is queued, so background threads yield immediately.
+    this.activeInteractive.incrementAndGet();
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> {
+            try {
+              return callUnchecked(task);
+            } finally {
+              this.interactiveDone();
+            }
+          },
+          this.getInteractiveExecutor());
+    } catch (RuntimeException e) {
+      this.interactiveDone();
+      throw e;
+    }
+  }
+
+  /**
+   * Runs an interactive request on the calling thread, pausing background work until it returns.
+   *
+   * @param task The request.
+   * @return The result of the request.
+   * @throws Exception What the request threw.
+   */
+  public <T> T callInteractive(Callable<T> task) throws Exception {
+    this.activeInteractive.incrementAndGet();
+    try {
+      return task.call();
+    } finally {
+      this.interactiveDone();
+    }
+  }
+
+  /** Returns the number of interactive requests currently running. */
+  public int getActiveInteractive() {
+    return this.activeInteractive.get();
+  }
+
+  /** Returns how often a background thread paused at a checkpoint. */
+  public long getPreemptions() {
+    return this.preemptions.sum();
+  }
+
+  private void interactiveDone() {
+    if (this.activeInteractive.decrementAndGet() == 0) {
+      this.idleLock.lock();
+      try {
+        this.interactiveIdle.signalAll();
+      } finally {
+        this.idleLock.unlock();
+      }
+    }
+  }
+
+  private void awaitInteractiveIdle() {
+    if (this.activeInteractive.get() == 0) {
+      return;
+    }
+    this.preemptions.increment();
+    this.idleLock.lock();
+    try {
+      long remaining = MAX_PAUSE_NANOS;
+      while (this.activeInteractive.get() > 0 && remaining > 0) {
+        remaining = this.interactiveIdle.awaitNanos(remaining);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      this.idleLock.unlock();
+    }
+  }
+
+  private ExecutorService getInteractiveExecutor() {
+    ExecutorService executor = this.interactiveExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        executor = this.interactiveExecutor;
+        if (executor == null) {
+          executor = Executors.newVirtualThreadPerTaskExecutor();
+          this.interactiveExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  private ForkJoinPool getBackgroundPool() {
+    ForkJoinPool pool = this.backgroundPool;
+    if (pool == null) {
+      synchronized (this) {
+        pool = this.backgroundPool;
+        if (pool == null) {
+          pool =
+              new ForkJoinPool(
+                  this.backgroundParallelism,
+                  forkJoinPool -> new BackgroundThread(forkJoinPool, this),
+                  null,
+                  false);
+          this.backgroundPool = pool;
+        }
+      }
+    }
+    return pool;
+  }
+
+  private static <T> T callUnchecked(Callable<T> task) {
+    try {
+      return task.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /** The priority class of a request. */
+  public enum Priority {
+    /** A request a user is waiting for, e.g. a command run from the editor. */
+    INTERACTIVE,
+    /** Work nobody waits for, e.g. warming up project indexes. */
+    BACKGROUND
+  }
+
+  private static final class BackgroundThread extends ForkJoinWorkerThread {
+    private final RequestScheduler scheduler;
+
+    private BackgroundThread(ForkJoinPool pool, RequestScheduler scheduler) {
+      super(pool);
+      this.scheduler = scheduler;
+      this.setPriority(Thread.MIN_PRIORITY);
+    }
+  }
+
+  private static final class DefaultHolder {
+    private static final RequestScheduler INSTANCE =
+        new RequestScheduler(
+            Math.max(
+                1,
+                Integer.getInteger(
+                    "syntaxpresso.backgroundThreads",
+                    Runtime.getRuntime().availableProcessors() / 2)));
+  }
+}
@@ -1,23 +1,38 @@
 package io.github.syntaxpresso.core.common;
 
+import io.github.syntaxpresso.core.common.extra.LanguageSymbols;
 import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import lombok.AccessLevel;
 import lombok.Getter;
+import org.treesitter.TSInputEdit;
 import org.treesitter.TSNode;
-import org.treesitter.TSParser;
 import org.treesitter.TSPoint;
 import org.treesitter.TSTree;
+import org.treesitter.TSTreeCursor;
 
 @Getter
 public class TSFile {
-  private final TSParser parser;
+  private final SupportedLanguage language;
   private File file;
   private TSTree tree;
   private String sourceCode;
+  // Incremented whenever the source code changes, so results computed from one version can be
+  // told apart from those of another.
+  private long version;
+
+  // Byte and char offset at which each line starts, built on first use and reset whenever the
+  // source changes.
+  @Getter(AccessLevel.NONE)
+  private LineTable lineTable;
 
   /**
    * Creates a TSFile instance from a given programming language and source code string.
@@ -26,7 +41,7 @@ public class TSFile {
    * @param sourceCode The source code content.
    */
   public TSFile(SupportedLanguage supportedLanguage, String sourceCode) {
-    this.parser = ParserFactory.get(supportedLanguage);
+    this.language = supportedLanguage;
     this.setData(sourceCode);
   }
 
@@ -38,7 +53,7 @@ public class TSFile {
    * @throws IOException If the file cannot be read.
    */
   public TSFile(SupportedLanguage supportedLanguage, Path path) {
-    this.parser = ParserFactory.get(supportedLanguage);
+    this.language = supportedLanguage;
     this.file = path.toFile();
     try {
       String content = Files.readString(path, StandardCharsets.UTF_8);
@@ -49,40 +64,151 @@ public class TSFile {
   }
 
   /**
-   * Internal method to parse source code and set the tree and sourceCode fields.
+   * Creates a private working copy of a snapshot. The tree is copied, so the new file can be
+   * edited without affecting the snapshot or other copies of it.
+   */
+  TSFile(TSFileSnapshot snapshot) {
+    this.language = snapshot.getLanguage();
+    this.file = snapshot.file();
+    this.tree = snapshot.copyTree();
+    this.sourceCode = snapshot.getSourceCode();
+    this.version = snapshot.getVersion();
+    this.lineTable = snapshot.getLineTable();
+  }
+
+  /**
+   * Captures the current content of this file as an immutable snapshot that can be shared with
+   * other threads while this file keeps being edited.
+   *
+   * @return The snapshot.
+   * @throws IllegalStateException If the source code has not been initialized.
+   */
+  public TSFileSnapshot snapshot() {
+    return new TSFileSnapshot(
+        this.language,
+        this.file,
+        this.getSourceCode(),
+        this.getTree().copy(),
+        this.version,
+        this.lineTable);
+  }
+
+  /** Returns the node kind and field ids of this file's grammar. */
+  public LanguageSymbols getSymbols() {
+    return this.language.getSymbols();
+  }
+
+  /**
+   * Internal method to parse source code and set the tree and sourceCode fields. The parser is
+   * borrowed from the shared pool for the duration of the parse only.
    *
    * @param sourceCode The source code to parse.
    */
   private void setData(String sourceCode) {
-    if (this.parser == null) {
-      throw new IllegalStateException("Parser is not initialized.");
-    }
-    this.tree = this.parser.parseString(null, sourceCode);
+    this.tree = ParserFactory.parse(this.language, null, sourceCode);
     this.sourceCode = sourceCode;
+    this.lineTable = null;
+    this.version++;
   }
 
   /**
    * Updates the source code and re-parses the content.
    *
+   * <p>Only the range between the longest common prefix and suffix of the old and new source is
+   * treated as edited, so the parse reuses the subtrees outside of it.
+   *
    * @param newSourceCode The new source code.
    */
   public void updateSourceCode(String newSourceCode) {
-    this.setData(newSourceCode);
+    if (this.sourceCode == null || this.tree == null) {
+      this.setData(newSourceCode);
+      return;
+    }
+    String oldSourceCode = this.sourceCode;
+    int maxLength = Math.min(oldSourceCode.length(), newSourceCode.length());
+    int prefix = 0;
+    while (prefix < maxLength && oldSourceCode.charAt(prefix) == newSourceCode.charAt(prefix)) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < maxLength - prefix
+        && oldSourceCode.charAt(oldSourceCode.length() - 1 - suffix)
+            == newSourceCode.charAt(newSourceCode.length() - 1 - suffix)) {
+      suffix++;
+    }
+    if (prefix == oldSourceCode.length() && prefix == newSourceCode.length()) {
+      return;
+    }
+    // Keep surrogate pairs whole, so the edited range starts and ends on character boundaries.
+    if (prefix > 0 && Character.isHighSurrogate(oldSourceCode.charAt(prefix - 1))) {
+      prefix--;
+    }
+    if (suffix > 0
+        && Character.isLowSurrogate(oldSourceCode.charAt(oldSourceCode.length() - suffix))) {
+      suffix--;
+    }
+    LineTable lineTable = this.getLineTable();
+    this.updateSourceCode(
+        lineTable.toByteOffset(oldSourceCode, prefix),
+        lineTable.toByteOffset(oldSourceCode, oldSourceCode.length() - suffix),
+        newSourceCode.substring(prefix, newSourceCode.length() - suffix));
   }
 
   /**
-   * Updates a specific range of the source code and re-parses the content.
+   * Updates a specific range of the source code and re-parses the content incrementally.
    *
-   * @param start The starting index of the text to replace.
-   * @param end The ending index of the text to replace.
+   * @param startByte The UTF-8 byte offset where the replaced text starts, like {@link
+   *     TSNode#getStartByte()}.
+   * @param endByte The UTF-8 byte offset right after the replaced text.
    * @param newText The new text to insert.
+   * @throws IndexOutOfBoundsException If an offset lies outside of the source code.
+   * @throws IllegalArgumentException If an offset points into the middle of a character or the
+   *     end lies before the start.
    */
-  public void updateSourceCode(int start, int end, String newText) {
+  public void updateSourceCode(int startByte, int endByte, String newText) {
     if (this.sourceCode == null) {
       throw new IllegalStateException("Source code has not been initialized.");
     }
+    LineTable lineTable = this.getLineTable();
+    int start = lineTable.toCharOffset(this.sourceCode, startByte);
+    int end = lineTable.toCharOffset(this.sourceCode, endByte);
+    if (end < start) {
+      throw new IllegalArgumentException("The end of the range lies before its start.");
+    }
+    this.tree.edit(this.createEdit(startByte, endByte, newText));
     String newContent = new StringBuilder(this.sourceCode).replace(start, end, newText).toString();
-    this.setData(newContent);
+    this.reparse(newContent);
+  }
+
+  /**
+   * Replaces the text between two positions and re-parses the content incrementally.
+   *
+   * @param startLine The one-based line where the replaced text starts.
+   * @param startColumn The one-based column where the replaced text starts, counted in UTF-8
+   *     bytes like tree-sitter columns.
+   * @param endLine The one-based line where the replaced text ends.
+   * @param endColumn The one-based byte column right after the replaced text.
+   * @param newText The new text to insert.
+   * @throws IllegalArgumentException If a position is outside of the source code or inside a
+   *     character, or the end lies before the start.
+   */
+  public void updateSourceCode(
+      int startLine, int startColumn, int endLine, int endColumn, String newText) {
+    int start = this.getByteOffset(startLine, startColumn);
+    int end = this.getByteOffset(endLine, endColumn);
+    if (start < 0 || end < start) {
+      throw new IllegalArgumentException(
+          "Invalid range "
+              + startLine
+              + ":"
+              + startColumn
+              + "-"
+              + endLine
+              + ":"
+              + endColumn
+              + " for the source code.");
+    }
+    this.updateSourceCode(start, end, newText);
   }
 
   /**
@@ -101,17 +227,102 @@ public class TSFile {
     this.updateSourceCode(start, end, newText);
   }
 
+  /**
+   * Replaces the text of several CST nodes with the same new text and re-parses the content once.
+   *
+   * @param nodes The nodes to be replaced. They must not overlap.
+   * @param newText The new string that will replace each node's text.
+   * @throws IllegalStateException if the tree has not been generated yet.
+   */
+  public void updateSourceCode(List<TSNode> nodes, String newText) {
+    if (this.tree == null) {
+      throw new IllegalStateException("Tree is not set.");
+    }
+    if (nodes.isEmpty()) {
+      return;
+    }
+    List<TSNode> sortedNodes = new ArrayList<>(nodes);
+    // Replace from the end of the file so earlier offsets, and the positions computed from the
+    // current line table, stay valid for every following edit.
+    sortedNodes.sort(Comparator.comparingInt(TSNode::getStartByte).reversed());
+    LineTable lineTable = this.getLineTable();
+    StringBuilder newContent = new StringBuilder(this.sourceCode);
+    for (TSNode node : sortedNodes) {
+      int start = lineTable.toCharOffset(this.sourceCode, node.getStartByte());
+      int end = lineTable.toCharOffset(this.sourceCode, node.getEndByte());
+      this.tree.edit(this.createEdit(node.getStartByte(), node.getEndByte(), newText));
+      newContent.replace(start, end, newText);
+    }
+    this.reparse(newContent.toString());
+  }
+
+  /** Parses new source code, reusing the subtrees of the already edited current tree. */
+  private void reparse(String newSourceCode) {
+    this.tree = ParserFactory.parse(this.language, this.tree, newSourceCode);
+    this.sourceCode = newSourceCode;
+    this.lineTable = null;
+    this.version++;
+  }
+
+  /** Describes the replacement of a range of the current source code for tree-sitter. */
+  private TSInputEdit createEdit(int startByte, int oldEndByte, String newText) {
+    TSPoint startPoint = this.getPoint(startByte);
+    TSPoint oldEndPoint = this.getPoint(oldEndByte);
+    int newTextBytes = newText.getBytes(StandardCharsets.UTF_8).length;
+    int lastNewline = newText.lastIndexOf('\n');
+    TSPoint newEndPoint;
+    if (lastNewline < 0) {
+      newEndPoint = new TSPoint(startPoint.getRow(), startPoint.getColumn() + newTextBytes);
+    } else {
+      int rows = (int) newText.chars().filter(c -> c == '\n').count();
+      int lastLineBytes =
+          newText.substring(lastNewline + 1).getBytes(StandardCharsets.UTF_8).length;
+      newEndPoint = new TSPoint(startPoint.getRow() + rows, lastLineBytes);
+    }
+    return new TSInputEdit(
+        startByte,
+        oldEndByte,
+        startByte + newTextBytes,
+        startPoint,
+        oldEndPoint,
+        newEndPoint);
+  }
+
+  /** Converts a byte offset into a zero-based tree-sitter point using the line start table. */
+  private TSPoint getPoint(int byteOffset) {
+    LineTable lineTable = this.getLineTable();
+    int row = lineTable.findRow(byteOffset);
+    return new TSPoint(row, byteOffset - lineTable.getLineStartByte(row));
+  }
+
   /**
    * Saves the current source code to the original file path.
    *
+   * <p>The content is written to a temporary file and atomically moved into place, so a failure
+   * mid-write never truncates the original file. Nothing is written if the file already has this
+   * content.
+   *
    * @throws IOException If the file cannot be written.
    * @throws IllegalStateException If the original file path is not known.
    */
   public void save() throws IOException {
+    FileWriteBatch batch = new FileWriteBatch();
+    this.save(batch);
+    batch.commit();
+  }
+
+  /**
+   * Stages the current source code to be written to the original file path when the given batch
+   * is committed.
+   *
+   * @param batch The batch that will perform the write.
+   * @throws IllegalStateException If the original file path is not known.
+   */
+  public void save(FileWriteBatch batch) {
     if (this.file == null) {
       throw new IllegalStateException("File path is not set. Use saveAs(path) instead.");
     }
-    Files.writeString(this.file.toPath(), this.sourceCode, StandardCharsets.UTF_8);
+    batch.write(this.file.toPath(), this.sourceCode);
   }
 
   /**
@@ -121,18 +332,34 @@ public class TSFile {
    * @throws IOException If the file cannot be written.
    */
   public void saveAs(Path path) throws IOException {
-    this.file = Files.writeString(path, this.sourceCode, StandardCharsets.UTF_8).toFile();
+    FileWriteBatch batch = new FileWriteBatch();
+    batch.write(path, this.sourceCode);
+    batch.commit();
+    this.file = path.toFile();
   }
 
   /**
    * Moves the file to a new destination.
    *
    * @param destination The destination directory or full file path.
-   * @return true if the move is successful.
    * @throws IOException If an I/O error occurs.
    * @throws IllegalStateException If the file has not been saved to disk yet.
    */
   public void move(File destination) throws IOException {
+    FileWriteBatch batch = new FileWriteBatch();
+    this.move(destination, batch);
+    batch.commit();
+  }
+
+  /**
+   * Stages a move of the file to a new destination. The file is associated with the new path right
+   * away; the move on disk happens when the given batch is committed.
+   *
+   * @param destination The destination directory or full file path.
+   * @param batch The batch that will perform the move.
+   * @throws IllegalStateException If the file has not been saved to disk yet.
+   */
+  public void move(File destination, FileWriteBatch batch) {
     if (this.file == null) {
       throw new IllegalStateException("Cannot move a file that has not been saved yet.");
     }
@@ -140,17 +367,32 @@ public class TSFile {
     if (Files.isDirectory(targetPath)) {
       targetPath = targetPath.resolve(this.file.getName());
     }
+    batch.move(this.file.toPath(), targetPath);
     this.file = targetPath.toFile();
   }
 
   /**
    * Renames the file in its current directory.
    *
-   * @param newName The new name for the file.
-   * @return true if the rename is successful.
+   * @param newName The new name for the file, with or without the language's file extension.
+   * @throws IOException If an I/O error occurs.
+   * @throws IllegalStateException If the file has not been saved to disk yet.
+   */
+  public void rename(String newName) throws IOException {
+    FileWriteBatch batch = new FileWriteBatch();
+    this.rename(newName, batch);
+    batch.commit();
+  }
+
+  /**
+   * Stages a rename of the file in its current directory. The file is associated with the new path
+   * right away; the rename on disk happens when the given batch is committed.
+   *
+   * @param newName The new name for the file, with or without the language's file extension.
+   * @param batch The batch that will perform the rename.
    * @throws IllegalStateException If the file has not been saved to disk yet.
    */
-  public void rename(String newName) {
+  public void rename(String newName, FileWriteBatch batch) {
     if (this.file == null) {
       throw new IllegalStateException("Cannot rename a file that has not been saved yet.");
     }
@@ -158,13 +400,9 @@ public class TSFile {
     if (parentDir == null) {
       throw new IllegalStateException("Unable to get parent directory");
     }
-    Path targetPath =
-        parentDir.resolve(
-            newName
-                + SupportedLanguage.fromLanguage(this.parser.getLanguage())
-                    .get()
-                    .getFileExtension());
-    this.file = targetPath.toFile();
+    String fileExtension = this.language.getFileExtension();
+    String fileName = newName.endsWith(fileExtension) ? newName : newName + fileExtension;
+    this.move(parentDir.resolve(fileName).toFile(), batch);
   }
 
   /**
@@ -179,19 +417,129 @@ public class TSFile {
     if (this.tree == null) {
       throw new IllegalStateException("Tree is not set; cannot get a node by position.");
     }
-    if (line <= 0 || column <= 0) {
+    int byteOffset = this.getByteOffset(line, column);
+    if (byteOffset < 0) {
       return null;
     }
+    return this.tree.getRootNode().getNamedDescendantForByteRange(byteOffset, byteOffset);
+  }
+
+  /**
+   * Retrieves the smallest named CST node at each of several line and column positions.
+   *
+   * <p>Positions are resolved in one pass in byte order with a single reused tree cursor, which
+   * only climbs as far as needed between neighbouring positions instead of descending from the
+   * root for each one.
+   *
+   * @param lines The one-based line numbers.
+   * @param columns The one-based column numbers, aligned with {@code lines}.
+   * @return The node at each position, in input order; an entry is null if its position is out
+   *     of range.
+   * @throws IllegalArgumentException if the arrays have different lengths.
+   * @throws IllegalStateException if the source code has not been parsed yet.
+   */
+  public TSNode[] getNodesFromPositions(int[] lines, int[] columns) {
+    if (lines.length != columns.length) {
+      throw new IllegalArgumentException("Lines and columns must have the same length.");
+    }
+    int[] byteOffsets = new int[lines.length];
+    for (int i = 0; i < lines.length; i++) {
+      byteOffsets[i] = this.getByteOffset(lines[i], columns[i]);
+    }
+    return this.getNodesFromByteOffsets(byteOffsets);
+  }
+
+  /**
+   * Retrieves the smallest named CST node at each of several byte offsets.
+   *
+   * @param byteOffsets The byte offsets. Negative offsets are skipped.
+   * @return The node at each offset, in input order; an entry is null if its offset is out of
+   *     range.
+   * @throws IllegalStateException if the source code has not been parsed yet.
+   * @see #getNodesFromPositions(int[], int[])
+   */
+  public TSNode[] getNodesFromByteOffsets(int[] byteOffsets) {
+    if (this.tree == null) {
+      throw new IllegalStateException("Tree is not set; cannot get a node by position.");
+    }
+    TSNode[] nodes = new TSNode[byteOffsets.length];
+    Integer[] order = new Integer[byteOffsets.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingInt(i -> byteOffsets[i]));
     TSNode rootNode = this.tree.getRootNode();
-    TSPoint endPoint = rootNode.getEndPoint();
-    int requestedLine = line - 1;
-    int requestedColumn = column - 1;
-    if (requestedLine > endPoint.getRow()
-        || (requestedLine == endPoint.getRow() && requestedColumn > endPoint.getColumn())) {
-      return null;
+    int sourceLength = rootNode.getEndByte();
+    TSTreeCursor cursor = new TSTreeCursor(rootNode);
+    // namedPath[d] is the deepest named node on the cursor's path down to depth d.
+    TSNode[] namedPath = new TSNode[16];
+    namedPath[0] = rootNode;
+    TSNode current = rootNode;
+    int depth = 0;
+    for (int index : order) {
+      int byteOffset = byteOffsets[index];
+      if (byteOffset < 0 || byteOffset > sourceLength) {
+        continue;
+      }
+      while (depth > 0
+          && (byteOffset < current.getStartByte() || byteOffset >= current.getEndByte())) {
+        cursor.gotoParent();
+        depth--;
+        current = cursor.currentNode();
+      }
+      while (cursor.gotoFirstChildForByte(byteOffset) >= 0) {
+        TSNode child = cursor.currentNode();
+        if (child.getStartByte() > byteOffset) {
+          // The offset falls in a gap between children; the current node is the answer.
+          cursor.gotoParent();
+          break;
+        }
+        depth++;
+        if (depth == namedPath.length) {
+          namedPath = Arrays.copyOf(namedPath, depth * 2);
+        }
+        namedPath[depth] = child.isNamed() ? child : namedPath[depth - 1];
+        current = child;
+      }
+      nodes[index] = namedPath[depth];
     }
-    TSPoint point = new TSPoint(requestedLine, requestedColumn);
-    return rootNode.getNamedDescendantForPointRange(point, point);
+    return nodes;
+  }
+
+  /**
+   * Converts a line and column position into a byte offset using the line start table.
+   *
+   * @param line The one-based line number.
+   * @param column The one-based column number, counted in bytes like tree-sitter columns.
+   * @return The byte offset, or -1 if the position is outside of the source code.
+   */
+  public int getByteOffset(int line, int column) {
+    if (this.sourceCode == null) {
+      throw new IllegalStateException("Source code has not been initialized.");
+    }
+    if (line <= 0 || column <= 0) {
+      return -1;
+    }
+    LineTable lineTable = this.getLineTable();
+    if (line > lineTable.getLineCount()) {
+      return -1;
+    }
+    int byteOffset = lineTable.getLineStartByte(line - 1) + column - 1;
+    // Each line ends right before the next line start; the last entry is a sentinel one past the
+    // end of the source, so the end-of-file position stays addressable.
+    if (byteOffset >= lineTable.getLineStartByte(line)) {
+      return -1;
+    }
+    return byteOffset;
+  }
+
+  private LineTable getLineTable() {
+    LineTable lineTable = this.lineTable;
+    if (lineTable == null) {
+      lineTable = LineTable.of(this.sourceCode);
+      this.lineTable = lineTable;
+    }
+    return lineTable;
   }
 
   /**
@@ -207,10 +555,49 @@ public class TSFile {
     if (this.sourceCode == null) {
       throw new IllegalStateException("Source code has not been initialized.");
     }
-    if (startByte < 0 || endByte > this.sourceCode.length() || startByte > endByte) {
+    LineTable lineTable = this.getLineTable();
+    if (startByte < 0 || endByte > lineTable.getByteLength() || startByte > endByte) {
       throw new IndexOutOfBoundsException("Invalid range specified for substring.");
     }
-    return this.sourceCode.substring(startByte, endByte);
+    return this.sourceCode.substring(
+        lineTable.toCharOffset(this.sourceCode, startByte),
+        lineTable.toCharOffset(this.sourceCode, endByte));
+  }
+
+  /**
+   * Compares the text of a node with the given text without copying it out of the source code.
+   *
+   * @param node The node.
+   * @param text The text to compare with.
+   * @return true if the node spans exactly the given text.
+   * @throws IllegalStateException If the source code has not been initialized.
+   */
+  public boolean textEquals(TSNode node, String text) {
+    return this.textEquals(node.getStartByte(), node.getEndByte(), text);
+  }
+
+  /**
+   * Compares the text of a byte range with the given text without copying it out of the source
+   * code.
+   *
+   * @param startByte The UTF-8 byte offset where the range starts.
+   * @param endByte The UTF-8 byte offset right after the range.
+   * @param text The text to compare with.
+   * @return true if the range spans exactly the given text.
+   * @throws IllegalStateException If the source code has not been initialized.
+   */
+  public boolean textEquals(int startByte, int endByte, String text) {
+    if (this.sourceCode == null) {
+      throw new IllegalStateException("Source code has not been initialized.");
+    }
+    // A range is never shorter in bytes than in chars, which rules out most candidates cheaply.
+    int byteLength = endByte - startByte;
+    if (byteLength < text.length() || byteLength > text.length() * 3) {
+      return false;
+    }
+    int start = this.getLineTable().toCharOffset(this.sourceCode, startByte);
+    return this.sourceCode.regionMatches(start, text, 0, text.length())
+        && this.getLineTable().toByteOffset(this.sourceCode, start + text.length()) == endByte;
   }
 
   /**
@@ -251,8 +638,4 @@ public class TSFile {
     }
     return this.sourceCode;
   }
-
-  public TSParser getParser() {
-    return this.parser;
-  }
 }
@@ -0,0 +1,110 @@
+package io.github.syntaxpresso.core.common;
+
+import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import java.io.File;
+import java.util.Optional;
+import org.treesitter.TSTree;
+
+/**
+ * An immutable version of a {@link TSFile}: its source code, a private copy of its syntax tree and
+ * the version number the file had when the snapshot was taken.
+ *
+ * <p>Snapshots can be shared between threads without locking. Tree-sitter trees must not be used
+ * by several threads at once, so the tree is never handed out directly; readers call {@link
+ * #toFile()} to get their own working copy, which is cheap because tree-sitter copies share all
+ * nodes. Results derived from a snapshot can be cached by {@link #getVersion()}.
+ */
+public final class TSFileSnapshot {
+  private final SupportedLanguage language;
+  private final File file;
+  private final String sourceCode;
+  private final TSTree tree;
+  private final long version;
+  private volatile LineTable lineTable;
+
+  TSFileSnapshot(
+      SupportedLanguage language,
+      File file,
+      String sourceCode,
+      TSTree tree,
+      long version,
+      LineTable lineTable) {
+    this.language = language;
+    this.file = file;
+    this.sourceCode = sourceCode;
+    this.tree = tree;
+    this.version = version;
+    this.lineTable = lineTable;
+  }
+
+  /** Returns the language of the source code. */
+  public SupportedLanguage getLanguage() {
+    return this.language;
+  }
+
+  /** Returns the file the snapshot was read from, if the source came from one. */
+  public Optional<File> getFile() {
+    return Optional.ofNullable(this.file);
+  }
+
+  /** Returns the source code of this version. */
+  public String getSourceCode() {
+    return this.sourceCode;
+  }
+
+  /** Returns the version of the file this snapshot was taken from. */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Returns a substring of the source code based on a given byte range.
+   *
+   * @param startByte The starting byte offset.
+   * @param endByte The ending byte offset.
+   * @return The text within the specified range.
+   * @throws IndexOutOfBoundsException If the specified range is invalid.
+   */
+  public String getTextFromRange(int startByte, int endByte) {
+    LineTable lineTable = this.getLineTable();
+    if (startByte < 0 || endByte > lineTable.getByteLength() || startByte > endByte) {
+      throw new IndexOutOfBoundsException("Invalid range specified for substring.");
+    }
+    return this.sourceCode.substring(
+        lineTable.toCharOffset(this.sourceCode, startByte),
+        lineTable.toCharOffset(this.sourceCode, endByte));
+  }
+
+  /** Returns the number of lines of the source code. */
+  public int getLineCount() {
+    return this.getLineTable().getLineCount();
+  }
+
+  /**
+   * Creates a working copy of this version that the calling thread owns. Edits to the copy do not
+   * affect the snapshot.
+   *
+   * @return A new file with the content of this snapshot.
+   */
+  public TSFile toFile() {
+    return new TSFile(this);
+  }
+
+  File file() {
+    return this.file;
+  }
+
+  TSTree copyTree() {
+    return this.tree.copy();
+  }
+
+  LineTable getLineTable() {
+    LineTable lineTable = this.lineTable;
+    if (lineTable == null) {
+      // Computing the table twice from racing readers is harmless; both results are equal.
+      lineTable = LineTable.of(this.sourceCode);
+      this.lineTable = lineTable;
+    }
+    return lineTable;
+  }
+}
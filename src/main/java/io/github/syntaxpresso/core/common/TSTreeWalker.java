@@ -0,0 +1,307 @@
+package io.github.syntaxpresso.core.common;
+
+import org.treesitter.TSNode;
+import org.treesitter.TSTreeCursor;
+
+/**
+ * A reusable walker over a syntax tree built on tree-sitter's tree cursor.
+ *
+ * <p>Moving the walker never allocates: the cursor keeps the path from the walker's root to the
+ * current node, so going to a parent or sibling is a constant-time step instead of a {@link
+ * TSNode#getParent()} call that re-descends from the root. A {@link TSNode} for the current
+ * position is only created when {@link #node()} is called, and is cached until the next move.
+ *
+ * <p>Where the JVM allows it, the walker moves a {@link NativeTreeCursor} that calls tree-sitter
+ * through the Foreign Function & Memory API, so reading the symbol, field or byte range of the
+ * current node does not go through JNI or create a {@link TSNode} either. Otherwise, or with
+ * {@code -Dsyntaxpresso.treeSitterBinding=jni}, it uses the JNI cursor.
+ *
+ * <p>A walker is bound to the subtree it was reset to and cannot move above that root. Instances
+ * are not thread-safe.
+ */
+public final class TSTreeWalker {
+  // Exactly one of the cursors is set.
+  private final TSTreeCursor cursor;
+  private final NativeTreeCursor nativeCursor;
+  private TSNode root;
+  private TSNode currentNode;
+  private int depth;
+  private boolean stopped;
+
+  private TSTreeWalker(TSNode root, boolean allowNative) {
+    if (allowNative && NativeTreeCursor.isUsable(root)) {
+      this.cursor = null;
+      this.nativeCursor = new NativeTreeCursor(root);
+    } else {
+      this.cursor = new TSTreeCursor(root);
+      this.nativeCursor = null;
+    }
+    this.root = root;
+    this.currentNode = root;
+  }
+
+  /**
+   * Creates a walker positioned on the given node.
+   *
+   * @param root The root of the subtree to walk.
+   * @return A new walker.
+   */
+  public static TSTreeWalker of(TSNode root) {
+    return new TSTreeWalker(root, true);
+  }
+
+  /** Creates a walker that always uses the JNI cursor. */
+  static TSTreeWalker ofJni(TSNode root) {
+    return new TSTreeWalker(root, false);
+  }
+
+  /**
+   * Re-targets this walker to a new subtree, reusing the underlying cursor.
+   *
+   * @param root The root of the subtree to walk.
+   */
+  public void reset(TSNode root) {
+    if (this.nativeCursor != null) {
+      this.nativeCursor.reset(root);
+    } else {
+      this.cursor.reset(root);
+    }
+    this.root = root;
+    this.currentNode = root;
+    this.depth = 0;
+  }
+
+  /** Returns the node the walker is positioned on. */
+  public TSNode node() {
+    if (this.currentNode == null) {
+      this.currentNode =
+          this.nativeCursor != null ? this.nativeCursor.currentNode() : this.cursor.currentNode();
+    }
+    return this.currentNode;
+  }
+
+  /** Returns the grammar type of the current node. */
+  public String type() {
+    if (this.nativeCursor != null) {
+      return this.nativeCursor.type();
+    }
+    return this.node().getType();
+  }
+
+  /**
+   * Returns the grammar symbol id of the current node, to compare against ids resolved through
+   * {@link io.github.syntaxpresso.core.common.extra.LanguageSymbols}.
+   */
+  public int symbol() {
+    if (this.nativeCursor != null) {
+      return this.nativeCursor.symbol();
+    }
+    return this.node().getSymbol();
+  }
+
+  /** Returns whether the current node has the given symbol id. */
+  public boolean is(int symbol) {
+    return this.symbol() == symbol;
+  }
+
+  /** Returns the id of the field the current node is stored in by its parent, or 0 if none. */
+  public int fieldId() {
+    if (this.nativeCursor != null) {
+      return this.nativeCursor.fieldId();
+    }
+    return this.cursor.currentFieldId();
+  }
+
+  /** Returns the byte offset where the current node starts. */
+  public int startByte() {
+    if (this.nativeCursor != null) {
+      return this.nativeCursor.startByte();
+    }
+    return this.node().getStartByte();
+  }
+
+  /** Returns the byte offset where the current node ends. */
+  public int endByte() {
+    if (this.nativeCursor != null) {
+      return this.nativeCursor.endByte();
+    }
+    return this.node().getEndByte();
+  }
+
+  /** Returns whether the current node is named in the grammar. */
+  public boolean isNamed() {
+    if (this.nativeCursor != null) {
+      return this.nativeCursor.isNamed();
+    }
+    return this.node().isNamed();
+  }
+
+  /** Returns the distance of the current node from the walker's root. */
+  public int depth() {
+    return this.depth;
+  }
+
+  public boolean gotoFirstChild() {
+    boolean moved =
+        this.nativeCursor != null
+            ? this.nativeCursor.gotoFirstChild()
+            : this.cursor.gotoFirstChild();
+    if (!moved) {
+      return false;
+    }
+    this.depth++;
+    this.currentNode = null;
+    return true;
+  }
+
+  public boolean gotoNextSibling() {
+    if (this.depth == 0) {
+      return false;
+    }
+    boolean moved =
+        this.nativeCursor != null
+            ? this.nativeCursor.gotoNextSibling()
+            : this.cursor.gotoNextSibling();
+    if (!moved) {
+      return false;
+    }
+    this.currentNode = null;
+    return true;
+  }
+
+  public boolean gotoParent() {
+    if (this.depth == 0) {
+      return false;
+    }
+    boolean moved =
+        this.nativeCursor != null ? this.nativeCursor.gotoParent() : this.cursor.gotoParent();
+    if (!moved) {
+      return false;
+    }
+    this.depth--;
+    this.currentNode = null;
+    return true;
+  }
+
+  /**
+   * Moves to the first child of the current node that extends beyond the given byte offset.
+   *
+   * @param byteOffset The byte offset.
+   * @return true if such a child exists; otherwise the walker stays where it was.
+   */
+  public boolean gotoFirstChildForByte(int byteOffset) {
+    long childIndex =
+        this.nativeCursor != null
+            ? this.nativeCursor.gotoFirstChildForByte(byteOffset)
+            : this.cursor.gotoFirstChildForByte(byteOffset);
+    if (childIndex < 0) {
+      return false;
+    }
+    this.depth++;
+    this.currentNode = null;
+    return true;
+  }
+
+  /**
+   * Moves to the first child of the current node with the given type.
+   *
+   * @param type The grammar type to look for.
+   * @return true if such a child exists; otherwise the walker stays where it was.
+   */
+  public boolean gotoChild(String type) {
+    if (!this.gotoFirstChild()) {
+      return false;
+    }
+    do {
+      if (type.equals(this.type())) {
+        return true;
+      }
+    } while (this.gotoNextSibling());
+    this.gotoParent();
+    return false;
+  }
+
+  /**
+   * Moves to the first child of the current node with the given symbol id.
+   *
+   * @param symbol The symbol id to look for.
+   * @return true if such a child exists; otherwise the walker stays where it was.
+   */
+  public boolean gotoChild(int symbol) {
+    if (!this.gotoFirstChild()) {
+      return false;
+    }
+    do {
+      if (this.symbol() == symbol) {
+        return true;
+      }
+    } while (this.gotoNextSibling());
+    this.gotoParent();
+    return false;
+  }
+
+  /**
+   * Moves from the root to the smallest named node containing the given byte offset, keeping the
+   * whole ancestor path available to {@link #gotoParent()}.
+   *
+   * @param byteOffset The byte offset to look for.
+   * @return false if the offset lies outside of the walker's root.
+   */
+  public boolean gotoNamedDescendantForByte(int byteOffset) {
+    this.reset(this.root);
+    if (byteOffset < this.root.getStartByte() || byteOffset > this.root.getEndByte()) {
+      return false;
+    }
+    while (this.gotoFirstChildForByte(byteOffset)) {
+      if (this.startByte() > byteOffset) {
+        // The offset falls in a gap between children.
+        this.gotoParent();
+        break;
+      }
+    }
+    while (!this.isNamed() && this.gotoParent()) {
+      // Anonymous tokens resolve to their closest named ancestor.
+    }
+    return true;
+  }
+
+  /**
+   * Visits the walker's root and its descendants in pre-order.
+   *
+   * <p>The visitor decides for every node whether its children are visited, and may end the walk
+   * early with {@link #stop()}. It must leave the walker on the node it was called for.
+   *
+   * @param visitor The visitor to call for each node.
+   */
+  public void walk(Visitor visitor) {
+    this.reset(this.root);
+    this.stopped = false;
+    while (!this.stopped) {
+      if (visitor.visit(this) && !this.stopped && this.gotoFirstChild()) {
+        continue;
+      }
+      while (!this.stopped && !this.gotoNextSibling()) {
+        if (!this.gotoParent()) {
+          return;
+        }
+      }
+    }
+  }
+
+  /** Ends the current {@link #walk(Visitor)} after the visitor returns. */
+  public void stop() {
+    this.stopped = true;
+  }
+
+  /** Callback for {@link #walk(Visitor)}. */
+  @FunctionalInterface
+  public interface Visitor {
+    /**
+     * Visits the node the walker is positioned on.
+     *
+     * @param walker The walker.
+     * @return true to visit the children of the current node.
+     */
+    boolean visit(TSTreeWalker walker);
+  }
+}
@@ -0,0 +1,26 @@
+package io.github.syntaxpresso.core.common;
+
+/**
+ * A replacement of a range of text, addressed by one-based lines and columns. Columns count UTF-8
+ * bytes, like tree-sitter columns and the positions the commands take.
+ *
+ * @param startLine The line where the replaced text starts.
+ * @param startColumn The byte column where the replaced text starts.
+ * @param endLine The line where the replaced text ends.
+ * @param endColumn The byte column right after the replaced text.
+ * @param text The text to insert.
+ */
+public record TextEdit(int startLine, int startColumn, int endLine, int endColumn, String text) {
+
+  /**
+   * Applies this edit to a file, re-parsing it incrementally.
+   *
+   * @param file The file to edit.
+   * @throws IllegalArgumentException If the range lies outside of the file's source code or a
+   *     column points into the middle of a character.
+   */
+  public void applyTo(TSFile file) {
+    file.updateSourceCode(
+        this.startLine, this.startColumn, this.endLine, this.endColumn, this.text);
+  }
+}
@@ -0,0 +1,36 @@
+package io.github.syntaxpresso.core.common.extra;
+
+import io.github.syntaxpresso.core.common.CompiledQuery;
+
+/**
+ * Queries over the Java grammar, compiled once with their capture indices resolved.
+ *
+ * <p>The queries hold native handles, so this class must be initialized at run time.
+ */
+public final class JavaQueries {
+  public static final CompiledQuery MAIN_METHOD =
+      new CompiledQuery(
+          SupportedLanguage.JAVA,
+          "(class_declaration body: (class_body (method_declaration (modifiers) @mods"
+              + " type: (void_type) name: (identifier) @name parameters: (formal_parameters ["
+              + " (formal_parameter type: (array_type element: (type_identifier) @param_type))"
+              + " (spread_parameter (type_identifier) @param_type) ]))))");
+  public static final int MAIN_METHOD_MODIFIERS = MAIN_METHOD.captureIndex("mods");
+  public static final int MAIN_METHOD_NAME = MAIN_METHOD.captureIndex("name");
+  public static final int MAIN_METHOD_PARAMETER_TYPE = MAIN_METHOD.captureIndex("param_type");
+
+  public static final CompiledQuery PACKAGE_NAME =
+      new CompiledQuery(
+          SupportedLanguage.JAVA, "(package_declaration (scoped_identifier) @package_name)");
+  public static final int PACKAGE_NAME_NAME = PACKAGE_NAME.captureIndex("package_name");
+
+  public static final CompiledQuery IDENTIFIERS =
+      new CompiledQuery(SupportedLanguage.JAVA, "(identifier) @name");
+  public static final int IDENTIFIERS_NAME = IDENTIFIERS.captureIndex("name");
+
+  public static final CompiledQuery IDENTIFIERS_AND_TYPES =
+      new CompiledQuery(SupportedLanguage.JAVA, "[(identifier) (type_identifier)] @name");
+  public static final int IDENTIFIERS_AND_TYPES_NAME = IDENTIFIERS_AND_TYPES.captureIndex("name");
+
+  private JavaQueries() {}
+}
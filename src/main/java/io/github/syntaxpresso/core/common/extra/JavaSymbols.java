@@ -0,0 +1,102 @@
+package io.github.syntaxpresso.core.common.extra;
+
+/**
+ * Symbol and field ids of the Java grammar used by the analyses.
+ *
+ * <p>The ids are resolved from the loaded grammar when this class is first used, so they are not
+ * compile-time constants and the class must be initialized at run time.
+ */
+public final class JavaSymbols {
+  private static final LanguageSymbols SYMBOLS = SupportedLanguage.JAVA.getSymbols();
+
+  public static final int PROGRAM = SYMBOLS.kind("program");
+  public static final int PACKAGE_DECLARATION = SYMBOLS.kind("package_declaration");
+  public static final int IMPORT_DECLARATION = SYMBOLS.kind("import_declaration");
+  public static final int IDENTIFIER = SYMBOLS.kind("identifier");
+  public static final int TYPE_IDENTIFIER = SYMBOLS.kind("type_identifier");
+  public static final int SCOPED_IDENTIFIER = SYMBOLS.kind("scoped_identifier");
+  public static final int SCOPED_TYPE_IDENTIFIER = SYMBOLS.kind("scoped_type_identifier");
+  public static final int GENERIC_TYPE = SYMBOLS.kind("generic_type");
+  public static final int SUPERCLASS = SYMBOLS.kind("superclass");
+  public static final int SUPER_INTERFACES = SYMBOLS.kind("super_interfaces");
+  public static final int EXTENDS_INTERFACES = SYMBOLS.kind("extends_interfaces");
+  public static final int FIELD_ACCESS = SYMBOLS.kind("field_access");
+  public static final int METHOD_INVOCATION = SYMBOLS.kind("method_invocation");
+  public static final int ASTERISK = SYMBOLS.kind("asterisk");
+  public static final int MODIFIERS = SYMBOLS.kind("modifiers");
+  public static final int MARKER_ANNOTATION = SYMBOLS.kind("marker_annotation");
+  public static final int CLASS_DECLARATION = SYMBOLS.kind("class_declaration");
+  public static final int INTERFACE_DECLARATION = SYMBOLS.kind("interface_declaration");
+  public static final int ENUM_DECLARATION = SYMBOLS.kind("enum_declaration");
+  public static final int RECORD_DECLARATION = SYMBOLS.kind("record_declaration");
+  public static final int ANNOTATION_TYPE_DECLARATION =
+      SYMBOLS.kind("annotation_type_declaration");
+  public static final int FIELD_DECLARATION = SYMBOLS.kind("field_declaration");
+  public static final int METHOD_DECLARATION = SYMBOLS.kind("method_declaration");
+  public static final int CONSTRUCTOR_DECLARATION = SYMBOLS.kind("constructor_declaration");
+  public static final int COMPACT_CONSTRUCTOR_DECLARATION =
+      SYMBOLS.kind("compact_constructor_declaration");
+  public static final int LAMBDA_EXPRESSION = SYMBOLS.kind("lambda_expression");
+  public static final int LOCAL_VARIABLE_DECLARATION = SYMBOLS.kind("local_variable_declaration");
+  public static final int FORMAL_PARAMETER = SYMBOLS.kind("formal_parameter");
+  public static final int VARIABLE_DECLARATOR = SYMBOLS.kind("variable_declarator");
+  public static final int CONSTANT_DECLARATION = SYMBOLS.kind("constant_declaration");
+  public static final int FORMAL_PARAMETERS = SYMBOLS.kind("formal_parameters");
+  public static final int SPREAD_PARAMETER = SYMBOLS.kind("spread_parameter");
+  public static final int INFERRED_PARAMETERS = SYMBOLS.kind("inferred_parameters");
+  public static final int CATCH_FORMAL_PARAMETER = SYMBOLS.kind("catch_formal_parameter");
+  public static final int RESOURCE_SPECIFICATION = SYMBOLS.kind("resource_specification");
+  public static final int RESOURCE = SYMBOLS.kind("resource");
+  public static final int ENHANCED_FOR_STATEMENT = SYMBOLS.kind("enhanced_for_statement");
+  public static final int BLOCK = SYMBOLS.kind("block");
+  public static final int CLASS_BODY = SYMBOLS.kind("class_body");
+  public static final int INTERFACE_BODY = SYMBOLS.kind("interface_body");
+  public static final int ENUM_BODY_DECLARATIONS = SYMBOLS.kind("enum_body_declarations");
+  public static final int OBJECT_CREATION_EXPRESSION = SYMBOLS.kind("object_creation_expression");
+  public static final int METHOD_REFERENCE = SYMBOLS.kind("method_reference");
+  public static final int CAST_EXPRESSION = SYMBOLS.kind("cast_expression");
+  public static final int PARENTHESIZED_EXPRESSION = SYMBOLS.kind("parenthesized_expression");
+  public static final int THIS = SYMBOLS.kind("this");
+  public static final int SUPER = SYMBOLS.kind("super");
+  public static final int PUBLIC = SYMBOLS.token("public");
+  public static final int PRIVATE = SYMBOLS.token("private");
+  public static final int STATIC = SYMBOLS.token("static");
+
+  public static final int FIELD_NAME = SYMBOLS.field("name");
+
+  private static final boolean[] TYPE_DECLARATIONS =
+      SYMBOLS.setOf(
+          CLASS_DECLARATION,
+          INTERFACE_DECLARATION,
+          ENUM_DECLARATION,
+          RECORD_DECLARATION,
+          ANNOTATION_TYPE_DECLARATION);
+
+  private static final boolean[] MEMBER_CONTAINERS =
+      SYMBOLS.setOf(CLASS_BODY, INTERFACE_BODY, ENUM_BODY_DECLARATIONS);
+
+  private static final boolean[] PARAMETER_OWNERS =
+      SYMBOLS.setOf(
+          METHOD_DECLARATION,
+          CONSTRUCTOR_DECLARATION,
+          COMPACT_CONSTRUCTOR_DECLARATION,
+          LAMBDA_EXPRESSION,
+          RECORD_DECLARATION);
+
+  private JavaSymbols() {}
+
+  /** Returns whether the symbol is one of the type declaration kinds. */
+  public static boolean isTypeDeclaration(int symbol) {
+    return symbol >= 0 && symbol < TYPE_DECLARATIONS.length && TYPE_DECLARATIONS[symbol];
+  }
+
+  /** Returns whether the symbol is a type body holding field and method declarations. */
+  public static boolean isMemberContainer(int symbol) {
+    return symbol >= 0 && symbol < MEMBER_CONTAINERS.length && MEMBER_CONTAINERS[symbol];
+  }
+
+  /** Returns whether the symbol declares formal parameters: methods, constructors and lambdas. */
+  public static boolean isParameterOwner(int symbol) {
+    return symbol >= 0 && symbol < PARAMETER_OWNERS.length && PARAMETER_OWNERS[symbol];
+  }
+}
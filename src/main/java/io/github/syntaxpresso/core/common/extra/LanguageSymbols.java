@@ -0,0 +1,100 @@
+package io.github.syntaxpresso.core.common.extra;
+
+import org.treesitter.TSLanguage;
+
+/**
+ * Integer ids of the node kinds and field names of a tree-sitter grammar.
+ *
+ * <p>Comparing {@link org.treesitter.TSNode#getSymbol()} against an id resolved once is a plain int
+ * comparison, while {@link org.treesitter.TSNode#getType()} converts a C string into a new Java
+ * string on every call. Resolve the ids a hot path needs into constants up front.
+ */
+public final class LanguageSymbols {
+  private final TSLanguage language;
+  private final String[] symbolNames;
+
+  LanguageSymbols(TSLanguage language) {
+    this.language = language;
+    this.symbolNames = new String[language.symbolCount()];
+    for (int symbol = 0; symbol < this.symbolNames.length; symbol++) {
+      this.symbolNames[symbol] = language.symbolName(symbol);
+    }
+  }
+
+  /**
+   * Returns the id of a named node kind, such as {@code class_declaration}.
+   *
+   * @param kind The node kind.
+   * @return The symbol id.
+   * @throws IllegalArgumentException If the grammar has no such named node kind.
+   */
+  public int kind(String kind) {
+    return this.symbol(kind, true);
+  }
+
+  /**
+   * Returns the id of an anonymous token, such as the {@code public} keyword.
+   *
+   * @param token The token text.
+   * @return The symbol id.
+   * @throws IllegalArgumentException If the grammar has no such token.
+   */
+  public int token(String token) {
+    return this.symbol(token, false);
+  }
+
+  /**
+   * Returns the id of a field name, such as {@code name}.
+   *
+   * @param field The field name.
+   * @return The field id.
+   * @throws IllegalArgumentException If the grammar has no such field.
+   */
+  public int field(String field) {
+    int fieldId = this.language.fieldIdForName(field);
+    if (fieldId == 0) {
+      throw new IllegalArgumentException("Unknown field: " + field);
+    }
+    return fieldId;
+  }
+
+  /**
+   * Returns the node kind of a symbol id without crossing into native code.
+   *
+   * @param symbol The symbol id.
+   * @return The node kind, or null if the id is out of range.
+   */
+  public String kindName(int symbol) {
+    if (symbol < 0 || symbol >= this.symbolNames.length) {
+      return null;
+    }
+    return this.symbolNames[symbol];
+  }
+
+  /** Returns the number of symbols in the grammar, which bounds every symbol id. */
+  public int symbolCount() {
+    return this.symbolNames.length;
+  }
+
+  /**
+   * Builds a lookup table for a set of symbol ids, answering membership with one array read.
+   *
+   * @param symbols The symbol ids in the set.
+   * @return A table indexed by symbol id.
+   */
+  public boolean[] setOf(int... symbols) {
+    boolean[] set = new boolean[this.symbolNames.length];
+    for (int symbol : symbols) {
+      set[symbol] = true;
+    }
+    return set;
+  }
+
+  private int symbol(String name, boolean named) {
+    int symbol = this.language.symbolForName(name, named);
+    if (symbol == 0) {
+      throw new IllegalArgumentException("Unknown " + (named ? "node kind: " : "token: ") + name);
+    }
+    return symbol;
+  }
+}
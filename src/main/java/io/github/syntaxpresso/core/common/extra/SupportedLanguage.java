@@ -15,6 +15,7 @@ public enum SupportedLanguage {
 
   private final TSLanguage language;
   private final String fileExtension;
+  private final LanguageSymbols symbols;
 
   private static final Map<TSLanguage, SupportedLanguage> languageMap =
       Stream.of(values())
@@ -23,6 +24,7 @@ public enum SupportedLanguage {
   SupportedLanguage(TSLanguage language, String fileExtension) {
     this.language = language;
     this.fileExtension = fileExtension;
+    this.symbols = new LanguageSymbols(language);
   }
 
   public static Optional<SupportedLanguage> fromLanguage(TSLanguage language) {
@@ -0,0 +1,302 @@
+package io.github.syntaxpresso.core.common.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal streaming JSON writer that encodes straight into a UTF-8 byte buffer.
+ *
+ * <p>The layout matches Jackson's default pretty printer ({@code SerializationFeature
+ * .INDENT_OUTPUT}) byte for byte, so compiled writers and the Jackson fallback produce identical
+ * output: two-space indented objects, {@code " : "} between names and values, and arrays kept on
+ * one line as {@code [ a, b ]}.
+ *
+ * <p>Instances are not thread-safe and are meant to be used for a single document.
+ */
+public final class JsonOutput {
+  private static final byte[] LINE_SEPARATOR =
+      System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+  private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+  private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+  private static final byte[] NAME_SEPARATOR = {' ', ':', ' '};
+
+  private byte[] buffer = new byte[256];
+  private int size;
+
+  // One entry per open container: true for objects, false for arrays.
+  private boolean[] objectStack = new boolean[8];
+  private int[] entryCounts = new int[8];
+  private int depth;
+  private int objectDepth;
+
+  public JsonOutput beginObject() {
+    this.beforeValue();
+    this.push(true);
+    this.objectDepth++;
+    this.writeByte('{');
+    return this;
+  }
+
+  public JsonOutput endObject() {
+    this.objectDepth--;
+    if (this.pop()) {
+      this.writeIndentation();
+    } else {
+      this.writeByte(' ');
+    }
+    this.writeByte('}');
+    return this;
+  }
+
+  public JsonOutput beginArray() {
+    this.beforeValue();
+    this.push(false);
+    this.writeByte('[');
+    return this;
+  }
+
+  public JsonOutput endArray() {
+    this.pop();
+    this.writeByte(' ');
+    this.writeByte(']');
+    return this;
+  }
+
+  /**
+   * Writes an object member name. Must be followed by exactly one value.
+   *
+   * @param name The member name.
+   * @return This output.
+   */
+  public JsonOutput name(String name) {
+    int top = this.depth - 1;
+    if (top < 0 || !this.objectStack[top]) {
+      throw new IllegalStateException("Member names can only be written inside an object.");
+    }
+    if (this.entryCounts[top]++ > 0) {
+      this.writeByte(',');
+    }
+    this.writeIndentation();
+    this.writeString(name);
+    this.writeBytes(NAME_SEPARATOR);
+    return this;
+  }
+
+  public JsonOutput value(String value) {
+    if (value == null) {
+      return this.nullValue();
+    }
+    this.beforeValue();
+    this.writeString(value);
+    return this;
+  }
+
+  public JsonOutput value(boolean value) {
+    this.beforeValue();
+    this.writeBytes(value ? TRUE : FALSE);
+    return this;
+  }
+
+  public JsonOutput value(Boolean value) {
+    if (value == null) {
+      return this.nullValue();
+    }
+    return this.value(value.booleanValue());
+  }
+
+  public JsonOutput value(long value) {
+    this.beforeValue();
+    this.writeAscii(Long.toString(value));
+    return this;
+  }
+
+  public JsonOutput value(double value) {
+    this.beforeValue();
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      // Jackson quotes non-numeric numbers by default.
+      this.writeString(Double.toString(value));
+    } else {
+      this.writeAscii(Double.toString(value));
+    }
+    return this;
+  }
+
+  public JsonOutput value(Number value) {
+    if (value == null) {
+      return this.nullValue();
+    }
+    if (value instanceof Double || value instanceof Float) {
+      double number = value.doubleValue();
+      if (Double.isNaN(number) || Double.isInfinite(number)) {
+        this.beforeValue();
+        this.writeString(value.toString());
+        return this;
+      }
+    }
+    this.beforeValue();
+    this.writeAscii(value.toString());
+    return this;
+  }
+
+  public JsonOutput nullValue() {
+    this.beforeValue();
+    this.writeBytes(NULL);
+    return this;
+  }
+
+  /**
+   * Copies the encoded document to a stream.
+   *
+   * @param outputStream The target stream.
+   * @throws IOException If the stream cannot be written.
+   */
+  public void writeTo(OutputStream outputStream) throws IOException {
+    outputStream.write(this.buffer, 0, this.size);
+  }
+
+  /** Returns a copy of the encoded document. */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(this.buffer, this.size);
+  }
+
+  @Override
+  public String toString() {
+    return new String(this.buffer, 0, this.size, StandardCharsets.UTF_8);
+  }
+
+  private void beforeValue() {
+    int top = this.depth - 1;
+    if (top < 0 || this.objectStack[top]) {
+      // Root values and object members: the separator was written together with the name.
+      return;
+    }
+    if (this.entryCounts[top]++ > 0) {
+      this.writeByte(',');
+    }
+    this.writeByte(' ');
+  }
+
+  private void push(boolean isObject) {
+    if (this.depth == this.objectStack.length) {
+      this.objectStack = Arrays.copyOf(this.objectStack, this.depth * 2);
+      this.entryCounts = Arrays.copyOf(this.entryCounts, this.depth * 2);
+    }
+    this.objectStack[this.depth] = isObject;
+    this.entryCounts[this.depth] = 0;
+    this.depth++;
+  }
+
+  /** Closes the innermost container and reports whether it had any entries. */
+  private boolean pop() {
+    if (this.depth == 0) {
+      throw new IllegalStateException("No open container to close.");
+    }
+    this.depth--;
+    return this.entryCounts[this.depth] > 0;
+  }
+
+  private void writeIndentation() {
+    this.writeBytes(LINE_SEPARATOR);
+    int spaces = this.objectDepth * 2;
+    this.ensureCapacity(spaces);
+    Arrays.fill(this.buffer, this.size, this.size + spaces, (byte) ' ');
+    this.size += spaces;
+  }
+
+  private void writeString(String value) {
+    this.ensureCapacity(value.length() + 2);
+    this.buffer[this.size++] = '"';
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        this.writeAsciiChar(c);
+      } else if (c < 0x800) {
+        this.ensureCapacity(2);
+        this.buffer[this.size++] = (byte) (0xC0 | (c >> 6));
+        this.buffer[this.size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        this.ensureCapacity(4);
+        this.buffer[this.size++] = (byte) (0xF0 | (codePoint >> 18));
+        this.buffer[this.size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        this.buffer[this.size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        this.buffer[this.size++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // Lone surrogates cannot be encoded in UTF-8; escape them like any other code unit.
+        this.writeUnicodeEscape(c);
+      } else {
+        this.ensureCapacity(3);
+        this.buffer[this.size++] = (byte) (0xE0 | (c >> 12));
+        this.buffer[this.size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        this.buffer[this.size++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    this.writeByte('"');
+  }
+
+  private void writeAsciiChar(char c) {
+    switch (c) {
+      case '"' -> this.writeEscape('"');
+      case '\\' -> this.writeEscape('\\');
+      case '\b' -> this.writeEscape('b');
+      case '\t' -> this.writeEscape('t');
+      case '\n' -> this.writeEscape('n');
+      case '\f' -> this.writeEscape('f');
+      case '\r' -> this.writeEscape('r');
+      default -> {
+        if (c < 0x20) {
+          this.writeUnicodeEscape(c);
+        } else {
+          this.writeByte(c);
+        }
+      }
+    }
+  }
+
+  private void writeEscape(char escaped) {
+    this.ensureCapacity(2);
+    this.buffer[this.size++] = '\\';
+    this.buffer[this.size++] = (byte) escaped;
+  }
+
+  private void writeUnicodeEscape(char c) {
+    this.ensureCapacity(6);
+    this.buffer[this.size++] = '\\';
+    this.buffer[this.size++] = 'u';
+    this.buffer[this.size++] = HEX[(c >> 12) & 0xF];
+    this.buffer[this.size++] = HEX[(c >> 8) & 0xF];
+    this.buffer[this.size++] = HEX[(c >> 4) & 0xF];
+    this.buffer[this.size++] = HEX[c & 0xF];
+  }
+
+  private void writeAscii(String value) {
+    this.ensureCapacity(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      this.buffer[this.size++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void writeBytes(byte[] bytes) {
+    this.ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+    this.size += bytes.length;
+  }
+
+  private void writeByte(int b) {
+    this.ensureCapacity(1);
+    this.buffer[this.size++] = (byte) b;
+  }
+
+  private void ensureCapacity(int additional) {
+    int required = this.size + additional;
+    if (required > this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package io.github.syntaxpresso.core.common.json;
+
+/**
+ * Writes one type to a {@link JsonOutput}. Implementations are generated at compile time for
+ * classes annotated with {@code @CompiledJson} and looked up through {@code CompiledJsonWriters}.
+ *
+ * @param <T> The serialized type.
+ */
+public interface JsonWriter<T> {
+  void write(T value, JsonOutput out);
+}
@@ -0,0 +1,37 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The modification time and size of a file, used to tell whether an indexed file changed without
+ * reading it.
+ *
+ * @param lastModified The last modification time in milliseconds since the epoch.
+ * @param size The file size in bytes.
+ */
+public record FileFingerprint(long lastModified, long size) {
+
+  /**
+   * Reads the fingerprint of a file.
+   *
+   * @param path The file.
+   * @return The current fingerprint of the file.
+   * @throws IOException If the file attributes cannot be read.
+   */
+  public static FileFingerprint of(Path path) throws IOException {
+    return of(Files.readAttributes(path, BasicFileAttributes.class));
+  }
+
+  /**
+   * Builds a fingerprint from attributes that were already read.
+   *
+   * @param attributes The file attributes.
+   * @return The fingerprint.
+   */
+  public static FileFingerprint of(BasicFileAttributes attributes) {
+    return new FileFingerprint(attributes.lastModifiedTime().toMillis(), attributes.size());
+  }
+}
@@ -0,0 +1,32 @@
+package io.github.syntaxpresso.core.index;
+
+import java.util.Set;
+
+/**
+ * The package-level dependencies of one Java file.
+ *
+ * @param packageName The declared package, or an empty string for the default package.
+ * @param declaredTypes The simple names of the top-level types declared in the file.
+ * @param importedTypes The fully qualified names of single-type and static imports. For a static
+ *     import this is the type the member is imported from.
+ * @param importedPackages The packages or types imported on demand with a wildcard.
+ * @param qualifiedNames The dotted names used in the file outside of its package and import
+ *     declarations, such as fully qualified type references.
+ */
+public record FileImports(
+    String packageName,
+    Set<String> declaredTypes,
+    Set<String> importedTypes,
+    Set<String> importedPackages,
+    Set<String> qualifiedNames) {
+
+  /**
+   * Qualifies a simple type name with this file's package.
+   *
+   * @param simpleName The simple name of a type declared in this file.
+   * @return The fully qualified name.
+   */
+  public String qualify(String simpleName) {
+    return this.packageName.isEmpty() ? simpleName : this.packageName + "." + simpleName;
+  }
+}
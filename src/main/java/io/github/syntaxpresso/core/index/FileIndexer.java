@@ -0,0 +1,21 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Extracts the indexed data of a single file.
+ *
+ * @param <T> The type of the per-file data.
+ */
+@FunctionalInterface
+public interface FileIndexer<T> {
+  /**
+   * Reads and analyzes a file.
+   *
+   * @param path The file to index.
+   * @return The data extracted from the file.
+   * @throws IOException If the file cannot be read.
+   */
+  T index(Path path) throws IOException;
+}
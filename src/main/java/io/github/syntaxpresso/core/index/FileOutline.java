@@ -0,0 +1,132 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The declarations of a file, serialized into a single byte array.
+ *
+ * <p>Names and container names are stored once in a string table and referenced by index, and
+ * positions are stored as variable-length integers with end lines relative to start lines, so a
+ * summary takes a few bytes per declaration. That keeps the outlines of a whole project in memory
+ * without keeping any syntax tree. Declarations are decoded on every call to {@link
+ * #declarations()}.
+ */
+public final class FileOutline {
+  private static final SymbolKind[] KINDS = SymbolKind.values();
+
+  private final byte[] data;
+
+  private FileOutline(byte[] data) {
+    this.data = data;
+  }
+
+  /**
+   * Encodes a list of declarations.
+   *
+   * @param declarations The declarations of a file.
+   * @return The encoded summary.
+   */
+  public static FileOutline of(List<SymbolDeclaration> declarations) {
+    Map<String, Integer> stringIds = new HashMap<>();
+    List<String> strings = new ArrayList<>();
+    for (SymbolDeclaration declaration : declarations) {
+      for (String string : new String[] {declaration.name(), declaration.containerName()}) {
+        if (stringIds.putIfAbsent(string, strings.size()) == null) {
+          strings.add(string);
+        }
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + declarations.size() * 12);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      writeVarInt(output, strings.size());
+      for (String string : strings) {
+        output.writeUTF(string);
+      }
+      writeVarInt(output, declarations.size());
+      for (SymbolDeclaration declaration : declarations) {
+        writeVarInt(output, stringIds.get(declaration.name()));
+        output.writeByte(declaration.kind().ordinal());
+        writeVarInt(output, stringIds.get(declaration.containerName()));
+        writeVarInt(output, declaration.line());
+        writeVarInt(output, declaration.column());
+        writeVarInt(output, declaration.endLine() - declaration.line());
+        writeVarInt(output, declaration.endColumn());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new FileOutline(bytes.toByteArray());
+  }
+
+  /** Decodes the declarations, in source order. */
+  public List<SymbolDeclaration> declarations() {
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(this.data))) {
+      String[] strings = new String[readVarInt(input)];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = input.readUTF();
+      }
+      int count = readVarInt(input);
+      List<SymbolDeclaration> declarations = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        String name = strings[readVarInt(input)];
+        SymbolKind kind = KINDS[input.readUnsignedByte()];
+        String containerName = strings[readVarInt(input)];
+        int line = readVarInt(input);
+        int column = readVarInt(input);
+        int endLine = line + readVarInt(input);
+        int endColumn = readVarInt(input);
+        declarations.add(
+            new SymbolDeclaration(name, kind, containerName, line, column, endLine, endColumn));
+      }
+      return declarations;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Wraps a summary encoded by {@link #of}, as returned by {@link #toByteArray()}. */
+  static FileOutline fromByteArray(byte[] data) {
+    return new FileOutline(data);
+  }
+
+  /** Returns the encoded summary; the array must not be modified. */
+  byte[] toByteArray() {
+    return this.data;
+  }
+
+  /** Returns the size of the encoded summary in bytes. */
+  public int byteSize() {
+    return this.data.length;
+  }
+
+  private static void writeVarInt(DataOutput output, int value) throws IOException {
+    while ((value & ~0x7f) != 0) {
+      output.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    output.writeByte(value);
+  }
+
+  private static int readVarInt(DataInput input) throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = input.readByte();
+      value |= (b & 0x7f) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+}
@@ -0,0 +1,20 @@
+package io.github.syntaxpresso.core.index;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * What a {@link MappedProjectIndex} records about one file.
+ *
+ * @param path The normalized absolute path of the file.
+ * @param fingerprint The fingerprint of the file when it was summarized.
+ * @param packageName The declared package, or an empty string for the default package.
+ * @param mainClass Whether the file declares a {@code main} method.
+ * @param identifiers The distinct identifiers and type identifiers in the file.
+ */
+public record FileSummary(
+    Path path,
+    FileFingerprint fingerprint,
+    String packageName,
+    boolean mainClass,
+    Set<String> identifiers) {}
@@ -0,0 +1,517 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The tracked files of a git working tree as recorded in its {@code .git/index}, read directly from
+ * the index file (formats 2 to 4) without running git.
+ *
+ * <p>For every tracked path the index holds the modification time and size git saw when it last
+ * refreshed the entry, and the id of the blob it staged. With an fsmonitor, the entries the monitor
+ * did not report as dirty when git last wrote the index are known to be unchanged up to that point,
+ * unless their timestamp is too close to the index's own to be trusted (git's "racy" entries); see
+ * {@link #getUnchangedAttributes(Path)}. Entries marked assume-unchanged are not taken as
+ * unchanged: the flag is mostly set on files the user does edit, such as local configuration.
+ *
+ * <p>{@link #find(Path)} keeps the last index it read per index file and only parses the file
+ * again once its modification time or size changed.
+ */
+public final class GitIndex {
+  private static final int SIGNATURE = 0x44495243; // "DIRC"
+  private static final int EXTENSION_FSMONITOR = 0x46534d4e; // "FSMN"
+  private static final int EXTENSION_LINK = 0x6c696e6b; // "link"
+  private static final int FLAG_ASSUME_VALID = 0x8000;
+  private static final int FLAG_EXTENDED = 0x4000;
+  private static final int FLAG_STAGE_MASK = 0x3000;
+  private static final int EXTENDED_FLAG_SKIP_WORKTREE = 0x4000;
+  private static final int EXTENDED_FLAG_INTENT_TO_ADD = 0x2000;
+  private static final int MODE_TYPE_MASK = 0170000;
+  private static final int MODE_REGULAR_FILE = 0100000;
+  private static final Pattern SHA256_FORMAT =
+      Pattern.compile("^\\s*objectformat\\s*=\\s*sha256\\s*$", Pattern.CASE_INSENSITIVE);
+
+  // The last index read per index file, for find().
+  private static final Map<Path, GitIndex> CACHE = new ConcurrentHashMap<>();
+
+  private final Path workTree;
+  private final int version;
+  private final List<Entry> entries;
+  private final Map<String, Entry> entriesByPath;
+  private final boolean fsmonitor;
+  private final FileTime indexModifiedTime;
+  private final long indexSize;
+
+  private GitIndex(
+      Path workTree,
+      int version,
+      List<Entry> entries,
+      boolean fsmonitor,
+      FileTime indexModifiedTime,
+      long indexSize) {
+    this.workTree = workTree;
+    this.version = version;
+    this.entries = Collections.unmodifiableList(entries);
+    this.entriesByPath = new HashMap<>(entries.size() * 2);
+    for (Entry entry : entries) {
+      if (entry.stage() == 0) {
+        this.entriesByPath.put(entry.path(), entry);
+      }
+    }
+    this.fsmonitor = fsmonitor;
+    this.indexModifiedTime = indexModifiedTime;
+    this.indexSize = indexSize;
+  }
+
+  /**
+   * Finds the git working tree a directory belongs to and reads its index, unless the index did
+   * not change since it was last read.
+   *
+   * @param directory A directory inside of the working tree.
+   * @return The index, or empty if the directory is not in a git working tree, the index does not
+   *     exist yet or is split, which this reader does not support.
+   * @throws IOException If the index exists but cannot be read.
+   */
+  public static Optional<GitIndex> find(Path directory) throws IOException {
+    for (Path dir = directory.toAbsolutePath().normalize(); dir != null; dir = dir.getParent()) {
+      Path dotGit = dir.resolve(".git");
+      Path gitDir;
+      if (Files.isDirectory(dotGit)) {
+        gitDir = dotGit;
+      } else if (Files.isRegularFile(dotGit)) {
+        // Linked worktrees and submodules point to their git directory from a ".git" file.
+        String content = Files.readString(dotGit).strip();
+        if (!content.startsWith("gitdir:")) {
+          return Optional.empty();
+        }
+        gitDir = dir.resolve(content.substring("gitdir:".length()).strip()).normalize();
+      } else {
+        continue;
+      }
+      Path indexFile = gitDir.resolve("index");
+      BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(indexFile, BasicFileAttributes.class);
+      } catch (NoSuchFileException e) {
+        return Optional.empty();
+      }
+      GitIndex cached = CACHE.get(indexFile);
+      if (cached != null
+          && cached.workTree.equals(dir)
+          && cached.indexModifiedTime.equals(attributes.lastModifiedTime())
+          && cached.indexSize == attributes.size()) {
+        return Optional.of(cached);
+      }
+      Optional<GitIndex> index = read(dir, indexFile, usesSha256(gitDir) ? 32 : 20);
+      index.ifPresentOrElse(fresh -> CACHE.put(indexFile, fresh), () -> CACHE.remove(indexFile));
+      return index;
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Reads an index file.
+   *
+   * @param workTree The root of the working tree the index describes.
+   * @param indexFile The index file.
+   * @param hashLength The length of object ids in bytes: 20 for SHA-1, 32 for SHA-256 repositories.
+   * @return The index, or empty if the index is split, which this reader does not support.
+   * @throws IOException If the file cannot be read or is not a valid index.
+   */
+  public static Optional<GitIndex> read(Path workTree, Path indexFile, int hashLength)
+      throws IOException {
+    FileTime modifiedTime = Files.getLastModifiedTime(indexFile);
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      return parse(
+          workTree.toAbsolutePath().normalize(),
+          buffer,
+          hashLength,
+          modifiedTime,
+          buffer.capacity());
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Truncated git index: " + indexFile, e);
+    }
+  }
+
+  private static Optional<GitIndex> parse(
+      Path workTree, ByteBuffer buffer, int hashLength, FileTime modifiedTime, long indexSize)
+      throws IOException {
+    if (buffer.getInt() != SIGNATURE) {
+      throw new IOException("Not a git index");
+    }
+    int version = buffer.getInt();
+    if (version < 2 || version > 4) {
+      throw new IOException("Unsupported git index version: " + version);
+    }
+    int entryCount = buffer.getInt();
+    List<Entry> entries = new ArrayList<>(entryCount);
+    byte[] previousName = new byte[0];
+    for (int i = 0; i < entryCount; i++) {
+      int start = buffer.position();
+      buffer.position(start + 8); // ctime
+      long modifiedSeconds = Integer.toUnsignedLong(buffer.getInt());
+      int modifiedNanos = buffer.getInt();
+      buffer.position(buffer.position() + 8); // dev, ino
+      int mode = buffer.getInt();
+      buffer.position(buffer.position() + 8); // uid, gid
+      long size = Integer.toUnsignedLong(buffer.getInt());
+      byte[] objectId = new byte[hashLength];
+      buffer.get(objectId);
+      int flags = Short.toUnsignedInt(buffer.getShort());
+      int extendedFlags = 0;
+      if (version >= 3 && (flags & FLAG_EXTENDED) != 0) {
+        extendedFlags = Short.toUnsignedInt(buffer.getShort());
+      }
+      byte[] name;
+      if (version == 4) {
+        // Names are prefix-compressed: drop a number of bytes from the end of the previous name,
+        // then append the NUL-terminated rest.
+        int strip = (int) readOffsetVarint(buffer);
+        byte[] suffix = readNulTerminated(buffer);
+        int keep = previousName.length - strip;
+        if (keep < 0) {
+          throw new IOException("Corrupt path compression in git index");
+        }
+        name = Arrays.copyOf(previousName, keep + suffix.length);
+        System.arraycopy(suffix, 0, name, keep, suffix.length);
+      } else {
+        name = readNulTerminated(buffer);
+        // Entries are padded with NULs to a multiple of eight bytes; the terminator is the first.
+        int length = buffer.position() - 1 - start;
+        buffer.position(start + ((length + 8) & ~7));
+      }
+      previousName = name;
+      entries.add(
+          new Entry(
+              new String(name, StandardCharsets.UTF_8),
+              mode,
+              (flags & FLAG_STAGE_MASK) >> 12,
+              modifiedSeconds,
+              modifiedNanos,
+              size,
+              objectId,
+              (flags & FLAG_ASSUME_VALID) != 0,
+              (extendedFlags & EXTENDED_FLAG_SKIP_WORKTREE) != 0,
+              (extendedFlags & EXTENDED_FLAG_INTENT_TO_ADD) != 0,
+              false));
+    }
+    BitSet dirty = null;
+    // Extensions follow the entries; the index ends with a checksum of hash length.
+    while (buffer.remaining() > hashLength) {
+      int signature = buffer.getInt();
+      int length = buffer.getInt();
+      int next = buffer.position() + length;
+      if (signature == EXTENSION_LINK) {
+        // A split index keeps most entries in a shared index file.
+        return Optional.empty();
+      }
+      if (signature == EXTENSION_FSMONITOR) {
+        dirty = readFsmonitorDirty(buffer);
+      }
+      buffer.position(next);
+    }
+    if (dirty != null) {
+      for (int i = 0; i < entries.size(); i++) {
+        if (!dirty.get(i)) {
+          entries.set(i, entries.get(i).withFsmonitorValid());
+        }
+      }
+    }
+    return Optional.of(
+        new GitIndex(workTree, version, entries, dirty != null, modifiedTime, indexSize));
+  }
+
+  private static BitSet readFsmonitorDirty(ByteBuffer buffer) throws IOException {
+    int version = buffer.getInt();
+    if (version == 1) {
+      buffer.getLong(); // timestamp of the last query
+    } else if (version == 2) {
+      readNulTerminated(buffer); // token of the last query
+    } else {
+      throw new IOException("Unsupported fsmonitor extension version: " + version);
+    }
+    buffer.getInt(); // size of the bitmap
+    return readEwahBitmap(buffer);
+  }
+
+  /**
+   * Decodes git's serialized EWAH bitmap: the bit count, the number of 64-bit words, the words and
+   * the position of the last run-length word. Each run-length word holds a running bit, the number
+   * of words that are all that bit, and the number of literal words that follow it.
+   */
+  private static BitSet readEwahBitmap(ByteBuffer buffer) {
+    int bitCount = buffer.getInt();
+    int wordCount = buffer.getInt();
+    BitSet bits = new BitSet(bitCount);
+    int bit = 0;
+    int i = 0;
+    while (i < wordCount) {
+      long marker = buffer.getLong();
+      i++;
+      boolean runningBit = (marker & 1) != 0;
+      long runningWords = (marker >>> 1) & 0xFFFFFFFFL;
+      int literalWords = (int) (marker >>> 33);
+      int runEnd = (int) Math.min(bitCount, bit + runningWords * 64);
+      if (runningBit) {
+        bits.set(bit, runEnd);
+      }
+      bit = runEnd;
+      for (int j = 0; j < literalWords && i < wordCount; j++, i++) {
+        long word = buffer.getLong();
+        for (long rest = word; rest != 0; rest &= rest - 1) {
+          int index = bit + Long.numberOfTrailingZeros(rest);
+          if (index < bitCount) {
+            bits.set(index);
+          }
+        }
+        bit += 64;
+      }
+    }
+    buffer.getInt(); // position of the last run-length word
+    return bits;
+  }
+
+  /** Reads git's offset varint, where each continuation adds one before shifting. */
+  private static long readOffsetVarint(ByteBuffer buffer) {
+    int b = buffer.get() & 0xFF;
+    long value = b & 0x7F;
+    while ((b & 0x80) != 0) {
+      b = buffer.get() & 0xFF;
+      value = ((value + 1) << 7) | (b & 0x7F);
+    }
+    return value;
+  }
+
+  private static byte[] readNulTerminated(ByteBuffer buffer) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (byte b = buffer.get(); b != 0; b = buffer.get()) {
+      bytes.write(b);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static boolean usesSha256(Path gitDir) throws IOException {
+    Path commonDir = gitDir;
+    Path commonDirFile = gitDir.resolve("commondir");
+    if (Files.isRegularFile(commonDirFile)) {
+      commonDir = gitDir.resolve(Files.readString(commonDirFile).strip()).normalize();
+    }
+    try {
+      return Files.readAllLines(commonDir.resolve("config")).stream()
+          .anyMatch(line -> SHA256_FORMAT.matcher(line).matches());
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  /** Returns the root of the working tree. */
+  public Path getWorkTree() {
+    return this.workTree;
+  }
+
+  /** Returns the format version of the index file. */
+  public int getVersion() {
+    return this.version;
+  }
+
+  /** Returns whether the index carries fsmonitor data. */
+  public boolean hasFsmonitor() {
+    return this.fsmonitor;
+  }
+
+  /** Returns all entries in index order, including those of unmerged stages. */
+  public List<Entry> getEntries() {
+    return this.entries;
+  }
+
+  /**
+   * Returns the merged (stage 0) entry of a file.
+   *
+   * @param file The file, absolute or relative to the working tree.
+   * @return The entry, or empty if the file is not tracked or has conflicts.
+   */
+  public Optional<Entry> getEntry(Path file) {
+    String key = this.toKey(file);
+    return key == null ? Optional.empty() : Optional.ofNullable(this.entriesByPath.get(key));
+  }
+
+  /**
+   * Returns the attributes of a tracked file as recorded in the index, if the fsmonitor saw no
+   * change to the file up to the last git command that wrote the index. Edits made since are not
+   * reflected, so callers should only rely on this when the user opted in.
+   *
+   * @param file The file, absolute or relative to the working tree.
+   * @return The recorded attributes, or empty if the file must be checked on disk.
+   */
+  public Optional<BasicFileAttributes> getUnchangedAttributes(Path file) {
+    Optional<Entry> entry = this.getEntry(file);
+    if (entry.isEmpty()) {
+      return Optional.empty();
+    }
+    Entry e = entry.get();
+    boolean unchanged =
+        e.isRegularFile()
+            && !e.intentToAdd()
+            && !e.skipWorktree()
+            && e.fsmonitorValid()
+            && !this.isRacy(e);
+    return unchanged ? Optional.of(new IndexedAttributes(e)) : Optional.empty();
+  }
+
+  /**
+   * Tells whether an entry was modified in the same instant the index was written; git cannot tell
+   * such entries apart from later changes by timestamp.
+   */
+  private boolean isRacy(Entry entry) {
+    return entry.getLastModifiedTime().compareTo(this.indexModifiedTime) >= 0;
+  }
+
+  private String toKey(Path file) {
+    Path relative = file;
+    if (file.isAbsolute()) {
+      Path normalized = file.normalize();
+      if (!normalized.startsWith(this.workTree)) {
+        return null;
+      }
+      relative = this.workTree.relativize(normalized);
+    }
+    String key = relative.toString();
+    return relative.getFileSystem().getSeparator().equals("/") ? key : key.replace('\\', '/');
+  }
+
+  /**
+   * A tracked file as recorded in the index.
+   *
+   * @param path The path relative to the working tree, with forward slashes.
+   * @param mode The file mode, e.g. {@code 0100644}.
+   * @param stage 0 for merged entries, 1 to 3 for the sides of a conflict.
+   * @param lastModifiedSeconds The modification time git saw, in seconds since the epoch.
+   * @param lastModifiedNanos The nanosecond part of the modification time.
+   * @param size The size git saw, truncated to 32 bits.
+   * @param objectId The raw id of the staged blob, 20 or 32 bytes.
+   * @param assumeValid Whether the entry is marked assume-unchanged.
+   * @param skipWorktree Whether the entry is excluded from the working tree.
+   * @param intentToAdd Whether the entry was added with {@code git add -N}.
+   * @param fsmonitorValid Whether the fsmonitor did not report the entry as changed.
+   */
+  public record Entry(
+      String path,
+      int mode,
+      int stage,
+      long lastModifiedSeconds,
+      int lastModifiedNanos,
+      long size,
+      byte[] objectId,
+      boolean assumeValid,
+      boolean skipWorktree,
+      boolean intentToAdd,
+      boolean fsmonitorValid) {
+
+    /** Returns whether the entry is a regular file rather than a link or submodule. */
+    public boolean isRegularFile() {
+      return (this.mode & MODE_TYPE_MASK) == MODE_REGULAR_FILE;
+    }
+
+    /** Returns the modification time git saw. */
+    public FileTime getLastModifiedTime() {
+      return FileTime.from(
+          TimeUnit.SECONDS.toNanos(this.lastModifiedSeconds) + this.lastModifiedNanos,
+          TimeUnit.NANOSECONDS);
+    }
+
+    private Entry withFsmonitorValid() {
+      return new Entry(
+          this.path,
+          this.mode,
+          this.stage,
+          this.lastModifiedSeconds,
+          this.lastModifiedNanos,
+          this.size,
+          this.objectId,
+          this.assumeValid,
+          this.skipWorktree,
+          this.intentToAdd,
+          true);
+    }
+  }
+
+  private static final class IndexedAttributes implements BasicFileAttributes {
+    private final FileTime lastModifiedTime;
+    private final long size;
+
+    private IndexedAttributes(Entry entry) {
+      this.lastModifiedTime = entry.getLastModifiedTime();
+      this.size = entry.size();
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+      return this.lastModifiedTime;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+      return this.lastModifiedTime;
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return this.lastModifiedTime;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return true;
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return false;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return false;
+    }
+
+    @Override
+    public boolean isOther() {
+      return false;
+    }
+
+    @Override
+    public long size() {
+      return this.size;
+    }
+
+    @Override
+    public Object fileKey() {
+      return null;
+    }
+  }
+}
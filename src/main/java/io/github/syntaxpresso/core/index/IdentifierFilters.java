@@ -0,0 +1,326 @@
+package io.github.syntaxpresso.core.index;
+
+import io.github.syntaxpresso.core.common.RequestScheduler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One Bloom filter per file over the identifiers it contains, answering "does this file possibly
+ * mention this name?" without reading the file.
+ *
+ * <p>Each filter is sized by the file's number of distinct identifiers, at about ten bits per
+ * identifier for a false positive rate near one percent. The filters of all files are packed into a
+ * single off-heap array of longs. Replaced filters leave gaps that are compacted once they make up
+ * half of the array. A grown or compacted array comes from a fresh automatic arena, so the old one
+ * is freed once it is no longer referenced. The filters can be saved together with the
+ * fingerprints they were built for, so a later process only rebuilds the filters of files that
+ * changed.
+ */
+public class IdentifierFilters {
+  private static final int MAGIC = 0x53504246;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HASH_FUNCTIONS = 7;
+  private static final int BITS_PER_IDENTIFIER = 10;
+
+  private final FileIndexer<Set<String>> indexer;
+  private final Map<Path, Slot> slots = new HashMap<>();
+  private MemorySegment words;
+  private long usedWords;
+  private long liveWords;
+
+  /**
+   * Creates an empty set of filters.
+   *
+   * @param indexer Extracts the distinct identifiers of a file.
+   */
+  public IdentifierFilters(FileIndexer<Set<String>> indexer) {
+    this.indexer = indexer;
+    this.words = Arena.ofAuto().allocate(ValueLayout.JAVA_LONG, 1024);
+  }
+
+  /**
+   * Brings the filters in line with the given set of files, rebuilding only changed files.
+   *
+   * @param files Every file that should be covered.
+   * @return The number of filters that were (re-)built.
+   * @throws IOException If a changed file cannot be indexed.
+   */
+  public int refresh(Collection<Path> files) throws IOException {
+    return this.refresh(files, Map.of());
+  }
+
+  /**
+   * Brings the filters in line with the given set of files, using fingerprints that were already
+   * read, e.g. while walking the project, instead of reading them again.
+   *
+   * @param files Every file that should be covered, with its current fingerprint.
+   * @return The number of filters that were (re-)built.
+   * @throws IOException If a changed file cannot be indexed.
+   */
+  public int refresh(Map<Path, FileFingerprint> files) throws IOException {
+    return this.refresh(files.keySet(), files);
+  }
+
+  private int refresh(Collection<Path> files, Map<Path, FileFingerprint> knownFingerprints)
+      throws IOException {
+    List<Path> changed = new ArrayList<>();
+    List<FileFingerprint> fingerprints = new ArrayList<>();
+    synchronized (this) {
+      Set<Path> present = new HashSet<>();
+      for (Path file : files) {
+        Path path = file.toAbsolutePath().normalize();
+        FileFingerprint fingerprint = knownFingerprints.get(file);
+        if (fingerprint == null) {
+          try {
+            fingerprint = FileFingerprint.of(path);
+          } catch (NoSuchFileException e) {
+            continue;
+          }
+        }
+        present.add(path);
+        Slot slot = this.slots.get(path);
+        if (slot == null || !slot.fingerprint().equals(fingerprint)) {
+          changed.add(path);
+          fingerprints.add(fingerprint);
+        }
+      }
+      for (Path path : new ArrayList<>(this.slots.keySet())) {
+        if (!present.contains(path)) {
+          this.liveWords -= this.slots.remove(path).wordCount();
+        }
+      }
+    }
+    // Filters are built without the lock, so lookups are not blocked by a long scan and
+    // background scans can pause at their checkpoints.
+    List<long[]> filters;
+    try {
+      filters = changed.parallelStream().map(this::buildFilter).toList();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    synchronized (this) {
+      for (int i = 0; i < changed.size(); i++) {
+        this.put(changed.get(i), fingerprints.get(i), filters.get(i));
+      }
+      if (this.usedWords > 4096 && this.liveWords < this.usedWords / 2) {
+        this.compact();
+      }
+    }
+    return changed.size();
+  }
+
+  /**
+   * Tells whether a file may contain an identifier.
+   *
+   * @param file The file to check.
+   * @param identifier The identifier to look for.
+   * @return false only if the file is covered and definitely does not contain the identifier.
+   */
+  public synchronized boolean mightContain(Path file, String identifier) {
+    Slot slot = this.slots.get(file.toAbsolutePath().normalize());
+    return slot == null || this.mightContain(slot, hash(identifier));
+  }
+
+  /**
+   * Keeps the files that may contain an identifier, hashing the identifier only once.
+   *
+   * @param files The files to check.
+   * @param identifier The identifier to look for.
+   * @return The files not ruled out, in their original order.
+   */
+  public synchronized List<Path> filter(Collection<Path> files, String identifier) {
+    long hash = hash(identifier);
+    List<Path> candidates = new ArrayList<>();
+    for (Path file : files) {
+      Slot slot = this.slots.get(file.toAbsolutePath().normalize());
+      if (slot == null || this.mightContain(slot, hash)) {
+        candidates.add(file);
+      }
+    }
+    return candidates;
+  }
+
+  /** Returns the number of covered files. */
+  public synchronized int size() {
+    return this.slots.size();
+  }
+
+  /**
+   * Writes the filters and their fingerprints to a file, replacing it atomically.
+   *
+   * @param file The file to write.
+   * @throws IOException If the file cannot be written.
+   */
+  public synchronized void save(Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(this.slots.size());
+        for (Map.Entry<Path, Slot> entry : this.slots.entrySet()) {
+          Slot slot = entry.getValue();
+          output.writeUTF(entry.getKey().toString());
+          output.writeLong(slot.fingerprint().lastModified());
+          output.writeLong(slot.fingerprint().size());
+          output.writeInt(slot.wordCount());
+          for (int i = 0; i < slot.wordCount(); i++) {
+            output.writeLong(this.words.getAtIndex(ValueLayout.JAVA_LONG, slot.offset() + i));
+          }
+        }
+      }
+      try {
+        Files.move(
+            tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * Reads filters written by {@link #save(Path)}.
+   *
+   * @param file The file to read.
+   * @param indexer Extracts the distinct identifiers of a file on later refreshes.
+   * @return The loaded filters.
+   * @throws IOException If the file cannot be read or has an unknown format.
+   */
+  public static IdentifierFilters load(Path file, FileIndexer<Set<String>> indexer)
+      throws IOException {
+    IdentifierFilters filters = new IdentifierFilters(indexer);
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unsupported identifier filter file: " + file);
+      }
+      int slotCount = input.readInt();
+      for (int i = 0; i < slotCount; i++) {
+        Path path = Path.of(input.readUTF());
+        FileFingerprint fingerprint = new FileFingerprint(input.readLong(), input.readLong());
+        long[] filter = new long[input.readInt()];
+        for (int j = 0; j < filter.length; j++) {
+          filter[j] = input.readLong();
+        }
+        filters.put(path, fingerprint, filter);
+      }
+    }
+    return filters;
+  }
+
+  private long[] buildFilter(Path path) {
+    RequestScheduler.checkpoint();
+    Set<String> identifiers;
+    try {
+      identifiers = this.indexer.index(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    int wordCount = Math.max(1, (identifiers.size() * BITS_PER_IDENTIFIER + 63) / 64);
+    long[] filter = new long[wordCount];
+    long bitCount = wordCount * 64L;
+    for (String identifier : identifiers) {
+      long hash = hash(identifier);
+      int first = (int) hash;
+      int second = (int) (hash >>> 32) | 1;
+      for (int i = 0; i < HASH_FUNCTIONS; i++) {
+        long bit = Math.floorMod(first + i * second, bitCount);
+        filter[(int) (bit >>> 6)] |= 1L << bit;
+      }
+    }
+    return filter;
+  }
+
+  private boolean mightContain(Slot slot, long hash) {
+    int first = (int) hash;
+    int second = (int) (hash >>> 32) | 1;
+    long bitCount = slot.wordCount() * 64L;
+    for (int i = 0; i < HASH_FUNCTIONS; i++) {
+      long bit = Math.floorMod(first + i * second, bitCount);
+      long word = this.words.getAtIndex(ValueLayout.JAVA_LONG, slot.offset() + (bit >>> 6));
+      if ((word & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void put(Path path, FileFingerprint fingerprint, long[] filter) {
+    this.ensureCapacity(this.usedWords + filter.length);
+    MemorySegment.copy(
+        filter, 0, this.words, ValueLayout.JAVA_LONG, this.usedWords * Long.BYTES, filter.length);
+    Slot previous = this.slots.put(path, new Slot(fingerprint, this.usedWords, filter.length));
+    if (previous != null) {
+      this.liveWords -= previous.wordCount();
+    }
+    this.usedWords += filter.length;
+    this.liveWords += filter.length;
+  }
+
+  private void ensureCapacity(long requiredWords) {
+    long capacity = this.words.byteSize() / Long.BYTES;
+    if (requiredWords <= capacity) {
+      return;
+    }
+    long newCapacity = Math.max(requiredWords, capacity * 2);
+    MemorySegment grown = Arena.ofAuto().allocate(ValueLayout.JAVA_LONG, newCapacity);
+    MemorySegment.copy(this.words, 0, grown, 0, this.usedWords * Long.BYTES);
+    this.words = grown;
+  }
+
+  /** Moves the live filters to a new array without the gaps left by replaced filters. */
+  private void compact() {
+    MemorySegment compacted =
+        Arena.ofAuto().allocate(ValueLayout.JAVA_LONG, Math.max(1024, this.liveWords * 2));
+    long offset = 0;
+    for (Map.Entry<Path, Slot> entry : this.slots.entrySet()) {
+      Slot slot = entry.getValue();
+      MemorySegment.copy(
+          this.words,
+          slot.offset() * Long.BYTES,
+          compacted,
+          offset * Long.BYTES,
+          slot.wordCount() * (long) Long.BYTES);
+      entry.setValue(new Slot(slot.fingerprint(), offset, slot.wordCount()));
+      offset += slot.wordCount();
+    }
+    this.words = compacted;
+    this.usedWords = offset;
+    this.liveWords = offset;
+  }
+
+  /** 64-bit FNV-1a over the characters; stable across runs, as filters are persisted. */
+  private static long hash(String identifier) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < identifier.length(); i++) {
+      hash ^= identifier.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private record Slot(FileFingerprint fingerprint, long offset, int wordCount) {}
+}
@@ -0,0 +1,136 @@
+package io.github.syntaxpresso.core.index;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which files of a project can refer to which top-level types.
+ *
+ * <p>A top-level type can only be referenced by simple name from its own package or from files that
+ * import it, either directly or with a wildcard import of its package, and by qualified name from
+ * anywhere else. The graph keeps reverse lookups for each of these so the candidate files for a
+ * type are found without reading any file.
+ */
+public class ImportGraph extends ProjectIndex<FileImports> {
+  private final Map<String, Set<Path>> filesByPackage = new HashMap<>();
+  private final Map<String, Set<Path>> filesByDeclaredType = new HashMap<>();
+  private final Map<String, Set<Path>> filesByImportedType = new HashMap<>();
+  private final Map<String, Set<Path>> filesByImportedPackage = new HashMap<>();
+  private final Map<String, Set<Path>> filesByQualifiedName = new HashMap<>();
+
+  public ImportGraph(FileIndexer<FileImports> indexer) {
+    super(indexer);
+  }
+
+  /**
+   * Finds the files that may refer to a top-level type with the given simple name.
+   *
+   * @param simpleName The simple name of the type.
+   * @return The declaring files and the files that may refer to any project type with this name,
+   *     or all indexed files if no such top-level type is declared in the project.
+   */
+  public synchronized Set<Path> findCandidateFiles(String simpleName) {
+    Set<Path> declaringFiles = this.filesByDeclaredType.get(simpleName);
+    if (declaringFiles == null) {
+      // Nested and external types cannot be attributed to a package; nothing can be pruned.
+      return this.files();
+    }
+    Set<Path> candidates = new LinkedHashSet<>(declaringFiles);
+    for (Path declaringFile : declaringFiles) {
+      FileImports imports = this.get(declaringFile).orElseThrow();
+      String qualifiedName = imports.qualify(simpleName);
+      candidates.addAll(this.lookup(this.filesByPackage, imports.packageName()));
+      candidates.addAll(this.lookup(this.filesByQualifiedName, qualifiedName));
+      if (!imports.packageName().isEmpty()) {
+        candidates.addAll(this.lookup(this.filesByImportedType, qualifiedName));
+        candidates.addAll(this.lookup(this.filesByImportedPackage, imports.packageName()));
+      }
+    }
+    return candidates;
+  }
+
+  /** Returns the files that declare the given package. */
+  public synchronized Set<Path> findFilesInPackage(String packageName) {
+    return new HashSet<>(this.lookup(this.filesByPackage, packageName));
+  }
+
+  @Override
+  protected void onAdded(Path path, FileImports imports) {
+    add(this.filesByPackage, imports.packageName(), path);
+    for (String declaredType : imports.declaredTypes()) {
+      add(this.filesByDeclaredType, declaredType, path);
+    }
+    for (String importedType : imports.importedTypes()) {
+      for (String prefix : qualifiedPrefixes(importedType)) {
+        add(this.filesByImportedType, prefix, path);
+      }
+    }
+    for (String importedPackage : imports.importedPackages()) {
+      add(this.filesByImportedPackage, importedPackage, path);
+      // A wildcard import of a type's members depends on the type itself.
+      for (String prefix : qualifiedPrefixes(importedPackage)) {
+        add(this.filesByImportedType, prefix, path);
+      }
+    }
+    for (String qualifiedName : imports.qualifiedNames()) {
+      for (String prefix : qualifiedPrefixes(qualifiedName)) {
+        add(this.filesByQualifiedName, prefix, path);
+      }
+    }
+  }
+
+  @Override
+  protected void onRemoved(Path path, FileImports imports) {
+    remove(this.filesByPackage, imports.packageName(), path);
+    for (String declaredType : imports.declaredTypes()) {
+      remove(this.filesByDeclaredType, declaredType, path);
+    }
+    for (String importedType : imports.importedTypes()) {
+      for (String prefix : qualifiedPrefixes(importedType)) {
+        remove(this.filesByImportedType, prefix, path);
+      }
+    }
+    for (String importedPackage : imports.importedPackages()) {
+      remove(this.filesByImportedPackage, importedPackage, path);
+      for (String prefix : qualifiedPrefixes(importedPackage)) {
+        remove(this.filesByImportedType, prefix, path);
+      }
+    }
+    for (String qualifiedName : imports.qualifiedNames()) {
+      for (String prefix : qualifiedPrefixes(qualifiedName)) {
+        remove(this.filesByQualifiedName, prefix, path);
+      }
+    }
+  }
+
+  private Set<Path> lookup(Map<String, Set<Path>> map, String key) {
+    return map.getOrDefault(key, Set.of());
+  }
+
+  /** Returns every dotted prefix of a name that has at least two segments, including the name. */
+  private static Set<String> qualifiedPrefixes(String name) {
+    Set<String> prefixes = new HashSet<>();
+    int dot = name.indexOf('.');
+    while (dot >= 0) {
+      int next = name.indexOf('.', dot + 1);
+      prefixes.add(next < 0 ? name : name.substring(0, next));
+      dot = next;
+    }
+    return prefixes;
+  }
+
+  private static void add(Map<String, Set<Path>> map, String key, Path path) {
+    map.computeIfAbsent(key, ignored -> new HashSet<>()).add(path);
+  }
+
+  private static void remove(Map<String, Set<Path>> map, String key, Path path) {
+    Set<Path> paths = map.get(key);
+    if (paths != null && paths.remove(path) && paths.isEmpty()) {
+      map.remove(key);
+    }
+  }
+}
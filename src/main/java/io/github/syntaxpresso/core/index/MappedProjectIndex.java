@@ -0,0 +1,483 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A persistent project index that is memory-mapped and queried in place, so a new process can use
+ * it without reading it into the heap.
+ *
+ * <p>The file starts with a header holding a generation number and the offsets of four sections,
+ * all little-endian:
+ *
+ * <ul>
+ *   <li>file records of fixed size, sorted by path: the path, fingerprint and package of each file
+ *       and whether it declares a main method;
+ *   <li>symbol records of fixed size, sorted by name: an identifier and the range of its postings;
+ *   <li>postings: for each identifier, the ascending ids of the files containing it;
+ *   <li>a pool of the UTF-8 text of paths, packages and identifiers.
+ * </ul>
+ *
+ * <p>Lookups binary-search the sorted records, comparing UTF-8 bytes directly in the mapping. A
+ * single writer at a time, across processes, holds a lock on a sibling {@code .lock} file, writes
+ * the next generation to a temporary file and atomically renames it over the index. Readers take
+ * no lock: a mapping keeps showing the generation it was opened on, and {@link #isStale()} tells
+ * when a newer one was published.
+ */
+public final class MappedProjectIndex {
+  private static final int MAGIC = 0x5350494d; // "SPIM"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 64;
+  private static final int FILE_RECORD_BYTES = 40;
+  private static final int SYMBOL_RECORD_BYTES = 16;
+  private static final int FLAG_MAIN_CLASS = 1;
+  private static final ValueLayout.OfInt INT =
+      ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfLong LONG =
+      ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+  // File locks are held per process; threads of this process queue here first.
+  private static final ReentrantLock WRITE_LOCK = new ReentrantLock();
+
+  private final Path file;
+  private final MemorySegment data;
+  private final long generation;
+  private final int fileCount;
+  private final int symbolCount;
+  private final long filesOffset;
+  private final long symbolsOffset;
+  private final long postingsOffset;
+  private final long stringsOffset;
+
+  private MappedProjectIndex(Path file, MemorySegment data) throws IOException {
+    this.file = file;
+    this.data = data;
+    if (data.byteSize() < HEADER_BYTES
+        || data.get(INT, 0) != MAGIC
+        || data.get(INT, 4) != FORMAT_VERSION
+        || data.get(LONG, 56) != data.byteSize()) {
+      throw new IOException("Unsupported or truncated project index: " + file);
+    }
+    this.generation = data.get(LONG, 8);
+    this.fileCount = data.get(INT, 16);
+    this.symbolCount = data.get(INT, 20);
+    this.filesOffset = data.get(LONG, 24);
+    this.symbolsOffset = data.get(LONG, 32);
+    this.postingsOffset = data.get(LONG, 40);
+    this.stringsOffset = data.get(LONG, 48);
+    if (this.filesOffset + (long) this.fileCount * FILE_RECORD_BYTES > this.symbolsOffset
+        || this.symbolsOffset + (long) this.symbolCount * SYMBOL_RECORD_BYTES > this.postingsOffset
+        || this.postingsOffset > this.stringsOffset
+        || this.stringsOffset > data.byteSize()) {
+      throw new IOException("Corrupt project index: " + file);
+    }
+  }
+
+  /**
+   * Maps an index file.
+   *
+   * @param file The index file.
+   * @return The mapped index, or empty if the file does not exist.
+   * @throws IOException If the file cannot be mapped or is not a valid index.
+   */
+  public static Optional<MappedProjectIndex> open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // The mapping outlives the channel and is released once the index is unreachable.
+      MemorySegment data =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+      return Optional.of(new MappedProjectIndex(file, data));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Publishes a new generation of an index file.
+   *
+   * @param file The index file.
+   * @param files The summaries of every file the index should cover.
+   * @throws IOException If the index cannot be written.
+   */
+  public static void write(Path file, Collection<FileSummary> files) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+    WRITE_LOCK.lock();
+    try (FileChannel lockChannel =
+            FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock ignored = lockChannel.lock()) {
+      long generation = readGeneration(file) + 1;
+      Path tempFile =
+          Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+            Arena arena = Arena.ofConfined()) {
+          ByteBuffer buffer = encode(files, generation, arena).asByteBuffer();
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          channel.force(true);
+        }
+        try {
+          Files.move(
+              tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } finally {
+      WRITE_LOCK.unlock();
+    }
+  }
+
+  /** Returns the generation of the index file on disk, or 0 if there is no readable one. */
+  private static long readGeneration(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // Read until the header is complete or the file ends.
+      }
+      return header.hasRemaining() || header.getInt(0) != MAGIC ? 0 : header.getLong(8);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static MemorySegment encode(Collection<FileSummary> files, long generation, Arena arena) {
+    List<EncodedFile> sortedFiles = new ArrayList<>(files.size());
+    for (FileSummary summary : files) {
+      sortedFiles.add(new EncodedFile(summary, utf8(summary.path().toString())));
+    }
+    sortedFiles.sort((a, b) -> Arrays.compareUnsigned(a.path(), b.path()));
+    Map<String, EncodedSymbol> symbolsByIdentifier = new HashMap<>();
+    long postingCount = 0;
+    for (int fileId = 0; fileId < sortedFiles.size(); fileId++) {
+      for (String identifier : sortedFiles.get(fileId).summary().identifiers()) {
+        symbolsByIdentifier
+            .computeIfAbsent(identifier, ignored -> new EncodedSymbol(utf8(identifier)))
+            .add(fileId);
+        postingCount++;
+      }
+    }
+    List<EncodedSymbol> symbols = new ArrayList<>(symbolsByIdentifier.values());
+    symbols.sort((a, b) -> Arrays.compareUnsigned(a.name, b.name));
+
+    StringPool strings = new StringPool();
+    int[] pathRefs = new int[sortedFiles.size()];
+    int[] packageRefs = new int[sortedFiles.size()];
+    for (int i = 0; i < sortedFiles.size(); i++) {
+      pathRefs[i] = strings.add(sortedFiles.get(i).path());
+      packageRefs[i] = strings.add(utf8(sortedFiles.get(i).summary().packageName()));
+    }
+    int[] symbolRefs = new int[symbols.size()];
+    for (int i = 0; i < symbols.size(); i++) {
+      symbolRefs[i] = strings.add(symbols.get(i).name);
+    }
+    long filesOffset = HEADER_BYTES;
+    long symbolsOffset = align(filesOffset + (long) sortedFiles.size() * FILE_RECORD_BYTES);
+    long postingsOffset = align(symbolsOffset + (long) symbols.size() * SYMBOL_RECORD_BYTES);
+    long stringsOffset = align(postingsOffset + postingCount * Integer.BYTES);
+    long length = stringsOffset + strings.size();
+
+    MemorySegment data = arena.allocate(length, Long.BYTES);
+    data.set(INT, 0, MAGIC);
+    data.set(INT, 4, FORMAT_VERSION);
+    data.set(LONG, 8, generation);
+    data.set(INT, 16, sortedFiles.size());
+    data.set(INT, 20, symbols.size());
+    data.set(LONG, 24, filesOffset);
+    data.set(LONG, 32, symbolsOffset);
+    data.set(LONG, 40, postingsOffset);
+    data.set(LONG, 48, stringsOffset);
+    data.set(LONG, 56, length);
+    for (int i = 0; i < sortedFiles.size(); i++) {
+      FileSummary summary = sortedFiles.get(i).summary();
+      long record = filesOffset + (long) i * FILE_RECORD_BYTES;
+      data.set(INT, record, strings.offset(pathRefs[i]));
+      data.set(INT, record + 4, strings.length(pathRefs[i]));
+      data.set(LONG, record + 8, summary.fingerprint().lastModified());
+      data.set(LONG, record + 16, summary.fingerprint().size());
+      data.set(INT, record + 24, strings.offset(packageRefs[i]));
+      data.set(INT, record + 28, strings.length(packageRefs[i]));
+      data.set(INT, record + 32, summary.mainClass() ? FLAG_MAIN_CLASS : 0);
+    }
+    long posting = 0;
+    for (int i = 0; i < symbols.size(); i++) {
+      EncodedSymbol symbol = symbols.get(i);
+      long record = symbolsOffset + (long) i * SYMBOL_RECORD_BYTES;
+      data.set(INT, record, strings.offset(symbolRefs[i]));
+      data.set(INT, record + 4, strings.length(symbolRefs[i]));
+      data.set(INT, record + 8, (int) posting);
+      data.set(INT, record + 12, symbol.count);
+      MemorySegment.copy(
+          symbol.fileIds, 0, data, INT, postingsOffset + posting * Integer.BYTES, symbol.count);
+      posting += symbol.count;
+    }
+    strings.copyTo(data, stringsOffset);
+    return data;
+  }
+
+  private static long align(long offset) {
+    return (offset + 7) & ~7L;
+  }
+
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Returns the generation this mapping shows. */
+  public long getGeneration() {
+    return this.generation;
+  }
+
+  /**
+   * Tells whether a newer generation was published since this index was opened, or the file was
+   * removed.
+   */
+  public boolean isStale() {
+    return readGeneration(this.file) != this.generation;
+  }
+
+  /** Returns the number of files in the index; file ids range from 0 to this count. */
+  public int getFileCount() {
+    return this.fileCount;
+  }
+
+  /** Returns the path of a file. */
+  public Path getPath(int fileId) {
+    long record = this.fileRecord(fileId);
+    return Path.of(this.string(this.data.get(INT, record), this.data.get(INT, record + 4)));
+  }
+
+  /** Returns the fingerprint a file had when it was summarized. */
+  public FileFingerprint getFingerprint(int fileId) {
+    long record = this.fileRecord(fileId);
+    return new FileFingerprint(this.data.get(LONG, record + 8), this.data.get(LONG, record + 16));
+  }
+
+  /** Returns the package a file declares, or an empty string for the default package. */
+  public String getPackageName(int fileId) {
+    long record = this.fileRecord(fileId);
+    return this.string(this.data.get(INT, record + 24), this.data.get(INT, record + 28));
+  }
+
+  /** Returns whether a file declares a main method. */
+  public boolean isMainClass(int fileId) {
+    return (this.data.get(INT, this.fileRecord(fileId) + 32) & FLAG_MAIN_CLASS) != 0;
+  }
+
+  /** Returns the ids of the files declaring a main method, in path order. */
+  public int[] findMainClassFiles() {
+    int[] fileIds = new int[this.fileCount];
+    int count = 0;
+    for (int fileId = 0; fileId < this.fileCount; fileId++) {
+      if (this.isMainClass(fileId)) {
+        fileIds[count++] = fileId;
+      }
+    }
+    return Arrays.copyOf(fileIds, count);
+  }
+
+  /**
+   * Finds the id of a file.
+   *
+   * @param path The normalized absolute path of the file.
+   * @return The file id, or empty if the file is not indexed.
+   */
+  public OptionalInt findFile(Path path) {
+    byte[] key = utf8(path.toString());
+    int low = 0;
+    int high = this.fileCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long record = this.fileRecord(middle);
+      int comparison =
+          this.compare(this.data.get(INT, record), this.data.get(INT, record + 4), key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return OptionalInt.of(middle);
+      }
+    }
+    return OptionalInt.empty();
+  }
+
+  /**
+   * Finds the files containing an identifier.
+   *
+   * @param identifier The identifier.
+   * @return The ascending ids of the files containing it; empty if no file does.
+   */
+  public int[] findFilesContaining(String identifier) {
+    int symbol = this.findSymbol(utf8(identifier));
+    if (symbol < 0) {
+      return new int[0];
+    }
+    long record = this.symbolsOffset + (long) symbol * SYMBOL_RECORD_BYTES;
+    long start = this.postingsOffset + (long) this.data.get(INT, record + 8) * Integer.BYTES;
+    int count = this.data.get(INT, record + 12);
+    int[] fileIds = new int[count];
+    MemorySegment.copy(this.data, INT, start, fileIds, 0, count);
+    return fileIds;
+  }
+
+  /**
+   * Visits every identifier of every file, grouped by identifier.
+   *
+   * @param visitor Called once per identifier and file containing it.
+   */
+  public void forEachPosting(PostingVisitor visitor) {
+    for (int symbol = 0; symbol < this.symbolCount; symbol++) {
+      long record = this.symbolsOffset + (long) symbol * SYMBOL_RECORD_BYTES;
+      String identifier = this.string(this.data.get(INT, record), this.data.get(INT, record + 4));
+      long start = this.postingsOffset + (long) this.data.get(INT, record + 8) * Integer.BYTES;
+      int count = this.data.get(INT, record + 12);
+      for (int i = 0; i < count; i++) {
+        visitor.visit(identifier, this.data.get(INT, start + (long) i * Integer.BYTES));
+      }
+    }
+  }
+
+  private int findSymbol(byte[] key) {
+    int low = 0;
+    int high = this.symbolCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long record = this.symbolsOffset + (long) middle * SYMBOL_RECORD_BYTES;
+      int comparison =
+          this.compare(this.data.get(INT, record), this.data.get(INT, record + 4), key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  private long fileRecord(int fileId) {
+    if (fileId < 0 || fileId >= this.fileCount) {
+      throw new IndexOutOfBoundsException("No file with id " + fileId);
+    }
+    return this.filesOffset + (long) fileId * FILE_RECORD_BYTES;
+  }
+
+  /** Compares a string of the pool with a key as unsigned bytes, without copying it. */
+  private int compare(int offset, int length, byte[] key) {
+    long start = this.stringsOffset + offset;
+    MemorySegment keySegment = MemorySegment.ofArray(key);
+    long mismatch =
+        MemorySegment.mismatch(this.data, start, start + length, keySegment, 0, key.length);
+    if (mismatch < 0) {
+      return 0;
+    }
+    if (mismatch == length) {
+      return -1;
+    }
+    if (mismatch == key.length) {
+      return 1;
+    }
+    return Integer.compare(
+        Byte.toUnsignedInt(this.data.get(ValueLayout.JAVA_BYTE, start + mismatch)),
+        Byte.toUnsignedInt(key[(int) mismatch]));
+  }
+
+  private String string(int offset, int length) {
+    long start = this.stringsOffset + offset;
+    byte[] bytes = this.data.asSlice(start, length).toArray(ValueLayout.JAVA_BYTE);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Callback for {@link #forEachPosting}. */
+  @FunctionalInterface
+  public interface PostingVisitor {
+    void visit(String identifier, int fileId);
+  }
+
+  private record EncodedFile(FileSummary summary, byte[] path) {}
+
+  /** An identifier with the ascending ids of the files containing it, while encoding. */
+  private static final class EncodedSymbol {
+    private final byte[] name;
+    private int[] fileIds = new int[4];
+    private int count;
+
+    private EncodedSymbol(byte[] name) {
+      this.name = name;
+    }
+
+    void add(int fileId) {
+      if (this.count == this.fileIds.length) {
+        this.fileIds = Arrays.copyOf(this.fileIds, this.count * 2);
+      }
+      this.fileIds[this.count++] = fileId;
+    }
+  }
+
+  /** UTF-8 strings appended back to back, with equal strings stored once. */
+  private static final class StringPool {
+    private final Map<ByteBuffer, Integer> refs = new HashMap<>();
+    private final List<byte[]> values = new ArrayList<>();
+    private final List<Integer> offsets = new ArrayList<>();
+    private int size;
+
+    int add(byte[] value) {
+      Integer ref = this.refs.get(ByteBuffer.wrap(value));
+      if (ref != null) {
+        return ref;
+      }
+      ref = this.values.size();
+      this.refs.put(ByteBuffer.wrap(value), ref);
+      this.values.add(value);
+      this.offsets.add(this.size);
+      this.size += value.length;
+      return ref;
+    }
+
+    int offset(int ref) {
+      return this.offsets.get(ref);
+    }
+
+    int length(int ref) {
+      return this.values.get(ref).length;
+    }
+
+    int size() {
+      return this.size;
+    }
+
+    void copyTo(MemorySegment data, long start) {
+      for (int ref = 0; ref < this.values.size(); ref++) {
+        byte[] value = this.values.get(ref);
+        long offset = start + this.offsets.get(ref);
+        MemorySegment.copy(value, 0, data, ValueLayout.JAVA_BYTE, offset, value.length);
+      }
+    }
+  }
+}
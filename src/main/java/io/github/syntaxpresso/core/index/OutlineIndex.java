@@ -0,0 +1,109 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The {@link FileOutline} of every file of a project, kept up to date by fingerprint.
+ *
+ * <p>The outlines can be saved together with the fingerprints they were taken for, so a later
+ * process only outlines the files that changed.
+ */
+public class OutlineIndex extends ProjectIndex<FileOutline> {
+  private static final int MAGIC = 0x53504f49;
+  private static final int FORMAT_VERSION = 1;
+
+  // Whether outlines were added or removed since the index was last saved or loaded.
+  private boolean modified;
+
+  public OutlineIndex(FileIndexer<FileOutline> indexer) {
+    super(indexer);
+  }
+
+  /** Returns whether outlines were added or removed since the index was last saved or loaded. */
+  public synchronized boolean isModified() {
+    return this.modified;
+  }
+
+  /**
+   * Writes the outlines and their fingerprints to a file, replacing it atomically.
+   *
+   * @param file The file to write.
+   * @throws IOException If the file cannot be written.
+   */
+  public synchronized void save(Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(this.size());
+        for (Path path : this.files()) {
+          FileFingerprint fingerprint = this.getFingerprint(path).orElseThrow();
+          byte[] data = this.get(path).orElseThrow().toByteArray();
+          output.writeUTF(path.toString());
+          output.writeLong(fingerprint.lastModified());
+          output.writeLong(fingerprint.size());
+          output.writeInt(data.length);
+          output.write(data);
+        }
+      }
+      try {
+        Files.move(
+            tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+    this.modified = false;
+  }
+
+  /**
+   * Reads outlines written by {@link #save(Path)}.
+   *
+   * @param file The file to read.
+   * @param indexer Outlines a file on later refreshes.
+   * @return The loaded index.
+   * @throws IOException If the file cannot be read or has an unknown format.
+   */
+  public static OutlineIndex load(Path file, FileIndexer<FileOutline> indexer) throws IOException {
+    OutlineIndex index = new OutlineIndex(indexer);
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unsupported outline index file: " + file);
+      }
+      int fileCount = input.readInt();
+      for (int i = 0; i < fileCount; i++) {
+        Path path = Path.of(input.readUTF());
+        FileFingerprint fingerprint = new FileFingerprint(input.readLong(), input.readLong());
+        byte[] data = new byte[input.readInt()];
+        input.readFully(data);
+        index.restore(path, fingerprint, FileOutline.fromByteArray(data));
+      }
+    }
+    index.modified = false;
+    return index;
+  }
+
+  @Override
+  protected void onAdded(Path path, FileOutline outline) {
+    this.modified = true;
+  }
+
+  @Override
+  protected void onRemoved(Path path, FileOutline outline) {
+    this.modified = true;
+  }
+}
@@ -0,0 +1,210 @@
+package io.github.syntaxpresso.core.index;
+
+import io.github.syntaxpresso.core.common.RequestScheduler;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Per-file data of a project, kept up to date by fingerprint.
+ *
+ * <p>{@link #refresh(Collection)} only re-indexes files whose {@link FileFingerprint} changed since
+ * they were last indexed, in parallel and without holding the index's lock, and drops files that
+ * no longer exist. Subclasses maintain their derived lookup structures through {@link #onAdded}
+ * and {@link #onRemoved}, which are called while holding this index's lock.
+ *
+ * @param <T> The type of the per-file data.
+ */
+public abstract class ProjectIndex<T> {
+  private final FileIndexer<T> indexer;
+  private final Map<Path, Entry<T>> entries = new HashMap<>();
+
+  protected ProjectIndex(FileIndexer<T> indexer) {
+    this.indexer = indexer;
+  }
+
+  /**
+   * Brings the index in line with the given set of files.
+   *
+   * @param files Every file that should be part of the index.
+   * @return The number of files that were (re-)indexed.
+   * @throws IOException If a changed file cannot be indexed.
+   */
+  public int refresh(Collection<Path> files) throws IOException {
+    return this.update(files, Map.of(), true);
+  }
+
+  /**
+   * Brings the index in line with the given set of files, using fingerprints that were already
+   * read, e.g. while walking the project, instead of reading them again.
+   *
+   * @param files Every file that should be part of the index, with its current fingerprint.
+   * @return The number of files that were (re-)indexed.
+   * @throws IOException If a changed file cannot be indexed.
+   */
+  public int refresh(Map<Path, FileFingerprint> files) throws IOException {
+    return this.update(files.keySet(), files, true);
+  }
+
+  /**
+   * Indexes the given files where they are new or changed, leaving all other files in the index
+   * untouched.
+   *
+   * @param files The files to bring up to date.
+   * @return The number of files that were (re-)indexed.
+   * @throws IOException If a changed file cannot be indexed.
+   */
+  public int update(Collection<Path> files) throws IOException {
+    return this.update(files, Map.of(), false);
+  }
+
+  private int update(
+      Collection<Path> files, Map<Path, FileFingerprint> knownFingerprints, boolean dropOthers)
+      throws IOException {
+    List<Path> changed = new ArrayList<>();
+    List<FileFingerprint> fingerprints = new ArrayList<>();
+    synchronized (this) {
+      Set<Path> present = new HashSet<>();
+      for (Path file : files) {
+        Path path = file.toAbsolutePath().normalize();
+        FileFingerprint fingerprint = knownFingerprints.get(file);
+        if (fingerprint == null) {
+          try {
+            fingerprint = FileFingerprint.of(path);
+          } catch (NoSuchFileException e) {
+            this.invalidate(path);
+            continue;
+          }
+        }
+        present.add(path);
+        Entry<T> entry = this.entries.get(path);
+        if (entry == null || !entry.fingerprint().equals(fingerprint)) {
+          changed.add(path);
+          fingerprints.add(fingerprint);
+        }
+      }
+      if (dropOthers) {
+        for (Path path : new ArrayList<>(this.entries.keySet())) {
+          if (!present.contains(path)) {
+            this.invalidate(path);
+          }
+        }
+      }
+    }
+    // Indexing runs without the lock, so readers are not blocked by a long scan and background
+    // scans can pause at their checkpoints. Concurrent updates may index a file twice; the
+    // results are equal.
+    List<T> values;
+    try {
+      values = changed.parallelStream().map(this::indexUnchecked).toList();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    synchronized (this) {
+      for (int i = 0; i < changed.size(); i++) {
+        this.put(changed.get(i), new Entry<>(fingerprints.get(i), values.get(i)));
+      }
+    }
+    return changed.size();
+  }
+
+  /**
+   * Returns the data of a single file, indexing it first if it is new or changed. Unlike {@link
+   * #refresh(Collection)} this does not look at any other file.
+   *
+   * @param file The file.
+   * @return The up-to-date data of the file.
+   * @throws IOException If the file cannot be read or indexed.
+   */
+  public synchronized T getOrIndex(Path file) throws IOException {
+    Path path = file.toAbsolutePath().normalize();
+    FileFingerprint fingerprint = FileFingerprint.of(path);
+    Entry<T> entry = this.entries.get(path);
+    if (entry == null || !entry.fingerprint().equals(fingerprint)) {
+      entry = new Entry<>(fingerprint, this.indexer.index(path));
+      this.put(path, entry);
+    }
+    return entry.value();
+  }
+
+  /**
+   * Drops a file from the index, so the next {@link #refresh(Collection)} indexes it again.
+   *
+   * @param file The file to drop.
+   */
+  public synchronized void invalidate(Path file) {
+    Path path = file.toAbsolutePath().normalize();
+    Entry<T> removed = this.entries.remove(path);
+    if (removed != null) {
+      this.onRemoved(path, removed.value());
+    }
+  }
+
+  /** Returns the indexed data of a file, if it is part of the index. */
+  public synchronized Optional<T> get(Path file) {
+    Entry<T> entry = this.entries.get(file.toAbsolutePath().normalize());
+    return entry == null ? Optional.empty() : Optional.of(entry.value());
+  }
+
+  /** Returns the fingerprint a file had when it was indexed. */
+  public synchronized Optional<FileFingerprint> getFingerprint(Path file) {
+    Entry<T> entry = this.entries.get(file.toAbsolutePath().normalize());
+    return entry == null ? Optional.empty() : Optional.of(entry.fingerprint());
+  }
+
+  /** Returns a snapshot of all indexed files. */
+  public synchronized Set<Path> files() {
+    return new HashSet<>(this.entries.keySet());
+  }
+
+  /** Returns the number of indexed files. */
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Adds data read back from a cache, as if the file had been indexed when it had the given
+   * fingerprint. A later refresh re-indexes the file if it changed since.
+   *
+   * @param file The file.
+   * @param fingerprint The fingerprint the file had when the data was extracted.
+   * @param value The data.
+   */
+  protected synchronized void restore(Path file, FileFingerprint fingerprint, T value) {
+    this.put(file.toAbsolutePath().normalize(), new Entry<>(fingerprint, value));
+  }
+
+  /** Called after a file's data was added to the index. */
+  protected abstract void onAdded(Path path, T value);
+
+  /** Called after a file's data was removed from the index. */
+  protected abstract void onRemoved(Path path, T value);
+
+  private void put(Path path, Entry<T> entry) {
+    Entry<T> previous = this.entries.put(path, entry);
+    if (previous != null) {
+      this.onRemoved(path, previous.value());
+    }
+    this.onAdded(path, entry.value());
+  }
+
+  private T indexUnchecked(Path path) {
+    RequestScheduler.checkpoint();
+    try {
+      return this.indexer.index(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private record Entry<T>(FileFingerprint fingerprint, T value) {}
+}
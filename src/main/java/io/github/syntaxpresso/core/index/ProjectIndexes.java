@@ -0,0 +1,502 @@
+package io.github.syntaxpresso.core.index;
+
+import io.github.syntaxpresso.core.common.RequestScheduler;
+import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import io.github.syntaxpresso.core.util.PathHelper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The indexes of every project a process works on, by normalized project root.
+ *
+ * <p>Indexes are created on first use and refreshed by fingerprint, so only files that changed
+ * since the last refresh are analyzed again. Identifier filters, trigrams, outlines and the
+ * project index are persisted in the project's cache directory, so a later process starts from
+ * what an earlier one built.
+ */
+public class ProjectIndexes {
+  private static final String IDENTIFIER_FILTERS_FILE = "identifier-filters.bin";
+  private static final String PROJECT_INDEX_FILE = "project-index.bin";
+  private static final String OUTLINE_INDEX_FILE = "outline-index.bin";
+  private static final String TRIGRAM_INDEX_FILE = "trigram-index.bin";
+
+  private final PathHelper pathHelper;
+  private final SupportedLanguage language;
+  private final SourceAnalyzer analyzer;
+
+  // Refreshed incrementally on every use.
+  private final Map<Path, ImportGraph> importGraphs = new ConcurrentHashMap<>();
+  private final Map<Path, TypeHierarchy> typeHierarchies = new ConcurrentHashMap<>();
+  // Refreshed incrementally on every use and persisted in the project's cache directory.
+  private final Map<Path, TrigramIndex> trigramIndexes = new ConcurrentHashMap<>();
+  private final Map<Path, IdentifierFilters> identifierFilters = new ConcurrentHashMap<>();
+  // Filled on demand and persisted in the project's cache directory.
+  private final Map<Path, OutlineIndex> outlineIndexes = new ConcurrentHashMap<>();
+  // Shared by the indexes of a project; interns identifiers and paths off the heap.
+  private final Map<Path, SymbolTable> symbolTables = new ConcurrentHashMap<>();
+  // Queued or running background refreshes of the search indexes.
+  private final Map<Path, CompletableFuture<Void>> searchRefreshes = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an empty registry.
+   *
+   * @param pathHelper Finds the source files and the cache directory of a project.
+   * @param language The language of the indexed source files.
+   * @param analyzer Extracts the indexed data of a source file.
+   */
+  public ProjectIndexes(
+      PathHelper pathHelper, SupportedLanguage language, SourceAnalyzer analyzer) {
+    this.pathHelper = pathHelper;
+    this.language = language;
+    this.analyzer = analyzer;
+  }
+
+  /**
+   * Returns the import graph of a project, re-indexing only the files that changed since the last
+   * call for the same root.
+   *
+   * @param rootDir The project root.
+   * @return The up-to-date import graph.
+   * @throws IOException If the project cannot be walked or a changed file cannot be read.
+   */
+  public ImportGraph getImportGraph(Path rootDir) throws IOException {
+    Path root = normalize(rootDir);
+    ImportGraph importGraph =
+        this.importGraphs.computeIfAbsent(
+            root, ignored -> new ImportGraph(this.analyzer::getFileImports));
+    importGraph.refresh(this.findFiles(root));
+    return importGraph;
+  }
+
+  /**
+   * Returns the type hierarchy of a project, re-indexing only the files that changed since the
+   * last call for the same root.
+   *
+   * @param rootDir The project root.
+   * @return The up-to-date type hierarchy.
+   * @throws IOException If the project cannot be walked or a changed file cannot be read.
+   */
+  public TypeHierarchy getTypeHierarchy(Path rootDir) throws IOException {
+    Path root = normalize(rootDir);
+    TypeHierarchy typeHierarchy =
+        this.typeHierarchies.computeIfAbsent(
+            root, ignored -> new TypeHierarchy(this.analyzer::getTypeDeclarations));
+    typeHierarchy.refresh(this.findFiles(root));
+    return typeHierarchy;
+  }
+
+  /**
+   * Returns the identifier filters of a project. Filters are loaded from the project's cache
+   * directory on first use, rebuilt for changed files and saved back when anything was rebuilt.
+   *
+   * @param rootDir The project root.
+   * @return The up-to-date identifier filters.
+   * @throws IOException If the project cannot be walked or a changed file cannot be read.
+   */
+  public IdentifierFilters getIdentifierFilters(Path rootDir) throws IOException {
+    Path root = normalize(rootDir);
+    Path cacheFile = this.pathHelper.getCacheDirectory(root).resolve(IDENTIFIER_FILTERS_FILE);
+    IdentifierFilters filters =
+        this.identifierFilters.computeIfAbsent(
+            root, ignored -> this.loadIdentifierFilters(cacheFile));
+    int rebuilt = filters.refresh(this.findFiles(root));
+    if (rebuilt > 0) {
+      try {
+        filters.save(cacheFile);
+      } catch (IOException e) {
+        // The cache only saves work for the next process; the filters in memory are valid.
+      }
+    }
+    return filters;
+  }
+
+  private IdentifierFilters loadIdentifierFilters(Path cacheFile) {
+    FileIndexer<Set<String>> indexer = this.analyzer::getIdentifierNames;
+    if (Files.isRegularFile(cacheFile)) {
+      try {
+        return IdentifierFilters.load(cacheFile, indexer);
+      } catch (IOException e) {
+        // A corrupt or outdated cache is rebuilt from scratch.
+      }
+    }
+    return new IdentifierFilters(indexer);
+  }
+
+  /**
+   * Returns the trigram index of a project. The index is loaded from the project's cache directory
+   * on first use, re-indexed for files that changed since the last call for the same root and
+   * saved back when anything changed.
+   *
+   * @param rootDir The project root.
+   * @return The up-to-date trigram index.
+   * @throws IOException If the project cannot be walked or a changed file cannot be read.
+   */
+  public TrigramIndex getTrigramIndex(Path rootDir) throws IOException {
+    Path root = normalize(rootDir);
+    return this.getTrigramIndex(root, this.findFiles(root));
+  }
+
+  private TrigramIndex getTrigramIndex(Path root, Map<Path, FileFingerprint> files)
+      throws IOException {
+    Path cacheFile = this.pathHelper.getCacheDirectory(root).resolve(TRIGRAM_INDEX_FILE);
+    TrigramIndex trigramIndex =
+        this.trigramIndexes.computeIfAbsent(
+            root, ignored -> this.loadTrigramIndex(cacheFile, this.getSymbolTable(root)));
+    trigramIndex.refresh(files);
+    if (trigramIndex.isModified()) {
+      try {
+        trigramIndex.save(cacheFile);
+      } catch (IOException e) {
+        // The cache only saves work for the next process; the index in memory is valid.
+      }
+    }
+    return trigramIndex;
+  }
+
+  private TrigramIndex loadTrigramIndex(Path cacheFile, SymbolTable symbols) {
+    FileIndexer<TrigramIndex.FileTrigrams> indexer =
+        path -> TrigramIndex.trigramsOf(this.analyzer.getIdentifierNames(path));
+    if (Files.isRegularFile(cacheFile)) {
+      try {
+        return TrigramIndex.load(cacheFile, indexer, symbols);
+      } catch (IOException e) {
+        // A corrupt or outdated cache is rebuilt from scratch.
+      }
+    }
+    return new TrigramIndex(indexer, symbols);
+  }
+
+  /**
+   * Returns the symbol table shared by the indexes of a project, which interns identifiers and
+   * paths off the heap.
+   *
+   * @param rootDir The project root.
+   * @return The project's symbol table.
+   */
+  public SymbolTable getSymbolTable(Path rootDir) {
+    return this.symbolTables.computeIfAbsent(normalize(rootDir), ignored -> new SymbolTable());
+  }
+
+  /**
+   * Maps the persistent project index from the project's cache directory, as last written by any
+   * process. The index is not checked against the files on disk.
+   *
+   * @param rootDir The project root.
+   * @return The mapped index, or empty if none was written yet or it cannot be read.
+   */
+  public Optional<MappedProjectIndex> openProjectIndex(Path rootDir) {
+    Path root = normalize(rootDir);
+    try {
+      return MappedProjectIndex.open(
+          this.pathHelper.getCacheDirectory(root).resolve(PROJECT_INDEX_FILE));
+    } catch (IOException e) {
+      // A corrupt or outdated index is replaced by the next write.
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Brings the persistent project index up to date and publishes it for all processes. Files whose
+   * fingerprint did not change keep their summary from the previous generation; only new and
+   * changed files are parsed. If no file was added, changed or removed, nothing is written.
+   *
+   * @param rootDir The project root.
+   * @return The up-to-date generation of the index, mapped.
+   * @throws IOException If the project cannot be walked, a changed file cannot be read or the index
+   *     cannot be written.
+   */
+  public MappedProjectIndex writeProjectIndex(Path rootDir) throws IOException {
+    Path root = normalize(rootDir);
+    Path indexFile = this.pathHelper.getCacheDirectory(root).resolve(PROJECT_INDEX_FILE);
+    Optional<MappedProjectIndex> previous = this.openProjectIndex(root);
+    Map<Path, FileFingerprint> fingerprints = this.findFiles(root);
+    List<FileSummary> summaries = new ArrayList<>(fingerprints.size());
+    Map<Path, FileFingerprint> changed = new LinkedHashMap<>();
+    Map<Integer, FileSummary> reused = new HashMap<>();
+    for (Map.Entry<Path, FileFingerprint> entry : fingerprints.entrySet()) {
+      OptionalInt fileId =
+          previous.isPresent() ? previous.get().findFile(entry.getKey()) : OptionalInt.empty();
+      if (fileId.isPresent()
+          && previous.get().getFingerprint(fileId.getAsInt()).equals(entry.getValue())) {
+        MappedProjectIndex index = previous.get();
+        int id = fileId.getAsInt();
+        reused.put(
+            id,
+            new FileSummary(
+                entry.getKey(),
+                entry.getValue(),
+                index.getPackageName(id),
+                index.isMainClass(id),
+                new HashSet<>()));
+      } else {
+        changed.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (previous.isPresent()
+        && changed.isEmpty()
+        && reused.size() == previous.get().getFileCount()) {
+      return previous.get();
+    }
+    if (!reused.isEmpty()) {
+      // Unchanged files get their identifiers back from the previous generation's postings.
+      previous
+          .get()
+          .forEachPosting(
+              (identifier, fileId) -> {
+                FileSummary summary = reused.get(fileId);
+                if (summary != null) {
+                  summary.identifiers().add(identifier);
+                }
+              });
+      summaries.addAll(reused.values());
+    }
+    try {
+      changed.entrySet().parallelStream()
+          .map(entry -> this.summarizeFile(entry.getKey(), entry.getValue()))
+          .forEachOrdered(summaries::add);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    MappedProjectIndex.write(indexFile, summaries);
+    return MappedProjectIndex.open(indexFile)
+        .orElseThrow(() -> new NoSuchFileException(indexFile.toString()));
+  }
+
+  private FileSummary summarizeFile(Path path, FileFingerprint fingerprint) {
+    RequestScheduler.checkpoint();
+    try {
+      return this.analyzer.summarize(path, fingerprint);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the outline of a file, reusing the cached summary when the file did not change since
+   * it was last outlined. A new summary is saved to the project's cache directory right away.
+   *
+   * @param rootDir The project root the file belongs to.
+   * @param file The file.
+   * @return The outline of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  public FileOutline getOutline(Path rootDir, Path file) throws IOException {
+    Path root = normalize(rootDir);
+    OutlineIndex outlineIndex = this.getOutlineIndex(root);
+    FileOutline outline = outlineIndex.getOrIndex(file);
+    this.saveOutlineIndex(root, outlineIndex);
+    return outline;
+  }
+
+  /**
+   * Returns the outline index of a project without refreshing it. Files are added on demand by
+   * {@link #getOutline} and {@link #searchSymbols}, and all at once by the background refreshes.
+   * Each of them saves the index to the project's cache directory when it changed, and the first
+   * call of a process starts from the saved outlines.
+   *
+   * @param rootDir The project root.
+   * @return The outline index.
+   */
+  public OutlineIndex getOutlineIndex(Path rootDir) {
+    Path root = normalize(rootDir);
+    return this.outlineIndexes.computeIfAbsent(
+        root,
+        ignored ->
+            this.loadOutlineIndex(
+                this.pathHelper.getCacheDirectory(root).resolve(OUTLINE_INDEX_FILE)));
+  }
+
+  private OutlineIndex loadOutlineIndex(Path cacheFile) {
+    FileIndexer<FileOutline> indexer =
+        path -> FileOutline.of(this.analyzer.getSymbolDeclarations(path));
+    if (Files.isRegularFile(cacheFile)) {
+      try {
+        return OutlineIndex.load(cacheFile, indexer);
+      } catch (IOException e) {
+        // A corrupt or outdated cache is rebuilt from scratch.
+      }
+    }
+    return new OutlineIndex(indexer);
+  }
+
+  /**
+   * Searches the declarations of a project by name. The trigram index narrows the search to the
+   * files that can contain a match, whose declarations are read from their cached outlines.
+   *
+   * <p>The first search of a process brings the indexes saved by earlier processes up to date by
+   * fingerprint, which only reads the files changed since. Later searches are served from the
+   * indexes as they are and bring them up to date in the background, so files changed since are
+   * found by a later search.
+   *
+   * @param rootDir The project root.
+   * @param query The text to search for, matched case-insensitively.
+   * @param fuzzy Whether names that only contain the query's characters in order also match. Such
+   *     names are looked up in files sharing at least half of the query's trigrams.
+   * @param limit The maximum number of results.
+   * @return The matches, exact names first, then prefixes, substrings and fuzzy matches.
+   * @throws IOException If the project cannot be walked or a file cannot be read.
+   */
+  public List<SymbolLocation> searchSymbols(Path rootDir, String query, boolean fuzzy, int limit)
+      throws IOException {
+    Path root = normalize(rootDir);
+    String normalizedQuery = query.toLowerCase(Locale.ROOT);
+    OutlineIndex outlineIndex = this.getOutlineIndex(root);
+    TrigramIndex trigramIndex = this.trigramIndexes.get(root);
+    boolean refreshed = trigramIndex != null;
+    List<Path> candidates;
+    if (query.length() < 3) {
+      // Shorter than a trigram, the query may match in any file; every outline is searched.
+      if (!refreshed) {
+        outlineIndex.refresh(this.findFiles(root));
+      }
+      candidates = new ArrayList<>(outlineIndex.files());
+    } else {
+      if (!refreshed) {
+        trigramIndex = this.getTrigramIndex(root);
+      }
+      candidates = trigramIndex.findCandidates(query, fuzzy);
+      // Only candidates that are new or changed since their outline was taken are parsed.
+      outlineIndex.update(candidates);
+    }
+    this.saveOutlineIndex(root, outlineIndex);
+    if (refreshed) {
+      this.refreshSearchIndexesInBackground(root);
+    }
+    List<SymbolLocation> matches = new ArrayList<>();
+    for (Path candidate : candidates) {
+      Optional<FileOutline> outline = outlineIndex.get(candidate);
+      if (outline.isEmpty()) {
+        continue;
+      }
+      for (SymbolDeclaration declaration : outline.get().declarations()) {
+        if (getMatchRank(declaration.name(), normalizedQuery, fuzzy) >= 0) {
+          matches.add(new SymbolLocation(candidate, declaration));
+        }
+      }
+    }
+    return matches.stream()
+        .sorted(
+            Comparator.<SymbolLocation>comparingInt(
+                    match -> getMatchRank(match.declaration().name(), normalizedQuery, fuzzy))
+                .thenComparingInt(match -> match.declaration().name().length())
+                .thenComparing(match -> match.path().toString())
+                .thenComparingInt(match -> match.declaration().line()))
+        .limit(limit)
+        .toList();
+  }
+
+  /**
+   * Brings the trigram and outline indexes of a project up to date as background work. A refresh
+   * requested while another one is queued or running joins it instead of starting a new one.
+   *
+   * @param rootDir The project root.
+   * @return A future completed once the indexes were refreshed.
+   */
+  public CompletableFuture<Void> refreshSearchIndexesInBackground(Path rootDir) {
+    Path root = normalize(rootDir);
+    return this.searchRefreshes.compute(
+        root,
+        (key, pending) ->
+            pending != null && !pending.isDone()
+                ? pending
+                : RequestScheduler.getDefault()
+                    .submit(
+                        RequestScheduler.Priority.BACKGROUND,
+                        () -> {
+                          this.refreshSearchIndexes(root);
+                          return null;
+                        }));
+  }
+
+  private void refreshSearchIndexes(Path root) throws IOException {
+    Map<Path, FileFingerprint> files = this.findFiles(root);
+    this.getTrigramIndex(root, files);
+    OutlineIndex outlineIndex = this.getOutlineIndex(root);
+    outlineIndex.refresh(files);
+    this.saveOutlineIndex(root, outlineIndex);
+  }
+
+  private void saveOutlineIndex(Path root, OutlineIndex outlineIndex) {
+    if (!outlineIndex.isModified()) {
+      return;
+    }
+    try {
+      outlineIndex.save(this.pathHelper.getCacheDirectory(root).resolve(OUTLINE_INDEX_FILE));
+    } catch (IOException e) {
+      // The cache only saves work for the next process; the outlines in memory are valid.
+    }
+  }
+
+  /**
+   * Brings every persistent and in-memory index of a project up to date as background work, so
+   * later interactive requests on the project find them warm. The scan pauses whenever an
+   * interactive request is running.
+   *
+   * @param rootDir The project root.
+   * @return A future completed once all indexes were refreshed.
+   */
+  public CompletableFuture<Void> refreshInBackground(Path rootDir) {
+    Path root = normalize(rootDir);
+    return RequestScheduler.getDefault()
+        .submit(
+            RequestScheduler.Priority.BACKGROUND,
+            () -> {
+              this.getImportGraph(root);
+              this.getTypeHierarchy(root);
+              this.refreshSearchIndexes(root);
+              this.getIdentifierFilters(root);
+              this.writeProjectIndex(root);
+              return null;
+            });
+  }
+
+  /** Ranks a name against a lower-case query: 0 exact, 1 prefix, 2 substring, 3 fuzzy, -1 none. */
+  private static int getMatchRank(String name, String normalizedQuery, boolean fuzzy) {
+    String normalizedName = name.toLowerCase(Locale.ROOT);
+    if (normalizedName.equals(normalizedQuery)) {
+      return 0;
+    }
+    if (normalizedName.startsWith(normalizedQuery)) {
+      return 1;
+    }
+    if (normalizedName.contains(normalizedQuery)) {
+      return 2;
+    }
+    if (!fuzzy) {
+      return -1;
+    }
+    int position = 0;
+    for (int i = 0; i < normalizedQuery.length(); i++) {
+      position = normalizedName.indexOf(normalizedQuery.charAt(i), position);
+      if (position < 0) {
+        return -1;
+      }
+      position++;
+    }
+    return 3;
+  }
+
+  private Map<Path, FileFingerprint> findFiles(Path root) throws IOException {
+    return this.pathHelper.findFileFingerprintsByExtention(root, this.language);
+  }
+
+  private static Path normalize(Path rootDir) {
+    return rootDir.toAbsolutePath().normalize();
+  }
+}
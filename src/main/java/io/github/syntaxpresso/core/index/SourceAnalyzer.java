@@ -0,0 +1,56 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/** Extracts what the indexes of a {@link ProjectIndexes} record about a source file. */
+public interface SourceAnalyzer {
+  /**
+   * Extracts the package, the declared top-level types, the imports and the qualified names used
+   * in a file.
+   *
+   * @param path The file to analyze.
+   * @return The package-level dependencies of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  FileImports getFileImports(Path path) throws IOException;
+
+  /**
+   * Extracts every type declared in a file, including nested types, with its direct supertypes.
+   *
+   * @param path The file to analyze.
+   * @return The type declarations in source order.
+   * @throws IOException If the file cannot be read.
+   */
+  List<TypeDeclaration> getTypeDeclarations(Path path) throws IOException;
+
+  /**
+   * Collects the distinct names of all identifiers and type identifiers in a file.
+   *
+   * @param path The file to analyze.
+   * @return The identifier names.
+   * @throws IOException If the file cannot be read.
+   */
+  Set<String> getIdentifierNames(Path path) throws IOException;
+
+  /**
+   * Extracts the types, methods and fields declared in a file, including those of nested types.
+   *
+   * @param path The file to analyze.
+   * @return The declarations in source order.
+   * @throws IOException If the file cannot be read.
+   */
+  List<SymbolDeclaration> getSymbolDeclarations(Path path) throws IOException;
+
+  /**
+   * Summarizes a file for the {@link MappedProjectIndex}.
+   *
+   * @param path The file to analyze.
+   * @param fingerprint The fingerprint of the file.
+   * @return The summary of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  FileSummary summarize(Path path, FileFingerprint fingerprint) throws IOException;
+}
@@ -0,0 +1,22 @@
+package io.github.syntaxpresso.core.index;
+
+/**
+ * A named declaration in a file.
+ *
+ * @param name The declared name.
+ * @param kind The kind of declaration.
+ * @param containerName The qualified name of the enclosing type, or the package for top-level
+ *     types.
+ * @param line The one-based line of the name.
+ * @param column The one-based column of the name.
+ * @param endLine The one-based line on which the whole declaration ends.
+ * @param endColumn The one-based column after the end of the whole declaration.
+ */
+public record SymbolDeclaration(
+    String name,
+    SymbolKind kind,
+    String containerName,
+    int line,
+    int column,
+    int endLine,
+    int endColumn) {}
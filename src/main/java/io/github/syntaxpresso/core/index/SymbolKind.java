@@ -0,0 +1,12 @@
+package io.github.syntaxpresso.core.index;
+
+/** The kinds of declarations reported as symbols. */
+public enum SymbolKind {
+  CLASS,
+  INTERFACE,
+  ENUM,
+  RECORD,
+  ANNOTATION,
+  METHOD,
+  FIELD
+}
@@ -0,0 +1,11 @@
+package io.github.syntaxpresso.core.index;
+
+import java.nio.file.Path;
+
+/**
+ * A declaration and the file it was found in.
+ *
+ * @param path The declaring file.
+ * @param declaration The declaration.
+ */
+public record SymbolLocation(Path path, SymbolDeclaration declaration) {}
@@ -0,0 +1,246 @@
+package io.github.syntaxpresso.core.index;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Interns identifiers and paths as dense int ids, keeping their text off the heap.
+ *
+ * <p>The UTF-8 bytes of all symbols are appended to a single off-heap array, and an open-addressing
+ * hash table of ids finds existing symbols by hashing and comparing those bytes in place, so
+ * indexes can keep the symbols of a project as primitive int arrays instead of millions of {@link
+ * String} objects. Interning the same text again returns the same id.
+ *
+ * <p>Off-heap memory is only allocated on the first {@link #intern}, so tables can be created
+ * eagerly by long-lived services. Each array is reallocated from its own automatic arena when it
+ * grows, so the memory of the outgrown copy is released by the garbage collector.
+ *
+ * <p>Symbols are never removed: a table holds every distinct text interned into it, including the
+ * paths of files that were deleted since. That is bounded by the distinct paths and identifiers a
+ * project ever had, but a long-running owner should drop the table and its indexes together if
+ * {@link #size()} grows far beyond what the indexes still use.
+ */
+public class SymbolTable {
+  private static final int FNV_OFFSET = 0x811c9dc5;
+  private static final int FNV_PRIME = 0x01000193;
+
+  // UTF-8 text of all symbols, back to back.
+  private MemorySegment bytes;
+  private long usedBytes;
+  // Start of each symbol's text in bytes; the entry after the last symbol marks the end.
+  private MemorySegment starts;
+  private MemorySegment hashes;
+  // Open-addressing table of id + 1, with 0 for empty slots.
+  private MemorySegment table;
+  private int tableMask;
+  private int size;
+  private byte[] scratch = new byte[256];
+
+  /**
+   * Interns a string.
+   *
+   * @param text The text to intern.
+   * @return The id of the text.
+   */
+  public synchronized int intern(CharSequence text) {
+    int length = this.encode(text);
+    return this.intern(MemorySegment.ofArray(this.scratch).asSlice(0, length));
+  }
+
+  /** Interns a path by its string form. */
+  public int intern(Path path) {
+    return this.intern(path.toString());
+  }
+
+  /**
+   * Looks up a symbol without adding it.
+   *
+   * @param text The text to look for.
+   * @return The id of the text, or -1 if it was never interned.
+   */
+  public synchronized int find(CharSequence text) {
+    if (this.size == 0) {
+      return -1;
+    }
+    int length = this.encode(text);
+    MemorySegment key = MemorySegment.ofArray(this.scratch).asSlice(0, length);
+    int hash = hash(key);
+    for (int slot = hash & this.tableMask; ; slot = (slot + 1) & this.tableMask) {
+      int id = this.table.getAtIndex(ValueLayout.JAVA_INT, slot) - 1;
+      if (id < 0) {
+        return -1;
+      }
+      if (this.matches(id, hash, key)) {
+        return id;
+      }
+    }
+  }
+
+  /**
+   * Returns the text of a symbol.
+   *
+   * @param id The id returned by {@link #intern}.
+   * @return The text.
+   * @throws IndexOutOfBoundsException If no symbol has this id.
+   */
+  public synchronized String get(int id) {
+    if (id < 0 || id >= this.size) {
+      throw new IndexOutOfBoundsException("No symbol with id " + id);
+    }
+    long start = this.starts.getAtIndex(ValueLayout.JAVA_LONG, id);
+    long end = this.starts.getAtIndex(ValueLayout.JAVA_LONG, id + 1);
+    byte[] text = this.bytes.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE);
+    return new String(text, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the path a symbol was interned from with {@link #intern(Path)}. */
+  public Path getPath(int id) {
+    return Path.of(this.get(id));
+  }
+
+  /** Returns the number of interned symbols. */
+  public synchronized int size() {
+    return this.size;
+  }
+
+  /** Returns the off-heap memory held by the table, in bytes. */
+  public synchronized long memorySize() {
+    if (this.bytes == null) {
+      return 0;
+    }
+    return this.bytes.byteSize()
+        + this.starts.byteSize()
+        + this.hashes.byteSize()
+        + this.table.byteSize();
+  }
+
+  private int intern(MemorySegment key) {
+    if (this.bytes == null) {
+      this.bytes = Arena.ofAuto().allocate(64 * 1024);
+      this.starts = Arena.ofAuto().allocate(ValueLayout.JAVA_LONG, 1024 + 1);
+      this.hashes = Arena.ofAuto().allocate(ValueLayout.JAVA_INT, 1024);
+      this.table = Arena.ofAuto().allocate(ValueLayout.JAVA_INT, 2048);
+      this.tableMask = 2047;
+    }
+    int hash = hash(key);
+    int slot = hash & this.tableMask;
+    for (; ; slot = (slot + 1) & this.tableMask) {
+      int id = this.table.getAtIndex(ValueLayout.JAVA_INT, slot) - 1;
+      if (id < 0) {
+        break;
+      }
+      if (this.matches(id, hash, key)) {
+        return id;
+      }
+    }
+    int id = this.size;
+    this.ensureCapacity(key.byteSize());
+    MemorySegment.copy(key, 0, this.bytes, this.usedBytes, key.byteSize());
+    this.usedBytes += key.byteSize();
+    this.starts.setAtIndex(ValueLayout.JAVA_LONG, id + 1, this.usedBytes);
+    this.hashes.setAtIndex(ValueLayout.JAVA_INT, id, hash);
+    this.table.setAtIndex(ValueLayout.JAVA_INT, slot, id + 1);
+    this.size++;
+    // Keep the table at most half full, so probe sequences stay short.
+    if (this.size * 2L > this.tableMask + 1L) {
+      this.rehash();
+    }
+    return id;
+  }
+
+  private boolean matches(int id, int hash, MemorySegment key) {
+    if (this.hashes.getAtIndex(ValueLayout.JAVA_INT, id) != hash) {
+      return false;
+    }
+    long start = this.starts.getAtIndex(ValueLayout.JAVA_LONG, id);
+    long end = this.starts.getAtIndex(ValueLayout.JAVA_LONG, id + 1);
+    return end - start == key.byteSize()
+        && MemorySegment.mismatch(this.bytes, start, end, key, 0, key.byteSize()) < 0;
+  }
+
+  private void ensureCapacity(long additionalBytes) {
+    if (this.usedBytes + additionalBytes > this.bytes.byteSize()) {
+      long newSize = Math.max(this.usedBytes + additionalBytes, this.bytes.byteSize() * 2);
+      MemorySegment grown = Arena.ofAuto().allocate(newSize);
+      MemorySegment.copy(this.bytes, 0, grown, 0, this.usedBytes);
+      this.bytes = grown;
+    }
+    long idCapacity = this.hashes.byteSize() / Integer.BYTES;
+    if (this.size + 1 > idCapacity) {
+      MemorySegment grownStarts =
+          Arena.ofAuto().allocate(ValueLayout.JAVA_LONG, idCapacity * 2 + 1);
+      MemorySegment.copy(this.starts, 0, grownStarts, 0, this.starts.byteSize());
+      this.starts = grownStarts;
+      MemorySegment grownHashes = Arena.ofAuto().allocate(ValueLayout.JAVA_INT, idCapacity * 2);
+      MemorySegment.copy(this.hashes, 0, grownHashes, 0, this.hashes.byteSize());
+      this.hashes = grownHashes;
+    }
+  }
+
+  private void rehash() {
+    int capacity = (this.tableMask + 1) * 2;
+    MemorySegment grown = Arena.ofAuto().allocate(ValueLayout.JAVA_INT, capacity);
+    int mask = capacity - 1;
+    for (int id = 0; id < this.size; id++) {
+      int slot = this.hashes.getAtIndex(ValueLayout.JAVA_INT, id) & mask;
+      while (grown.getAtIndex(ValueLayout.JAVA_INT, slot) != 0) {
+        slot = (slot + 1) & mask;
+      }
+      grown.setAtIndex(ValueLayout.JAVA_INT, slot, id + 1);
+    }
+    this.table = grown;
+    this.tableMask = mask;
+  }
+
+  /**
+   * Encodes a text as UTF-8 into the scratch buffer, without creating a byte array per symbol.
+   * Unpaired surrogates become {@code '?'}, as in {@link String#getBytes}.
+   *
+   * @return The number of bytes written.
+   */
+  private int encode(CharSequence text) {
+    int end = text.length();
+    if (this.scratch.length < end * 3) {
+      this.scratch = new byte[Math.max(end * 3, this.scratch.length * 2)];
+    }
+    byte[] out = this.scratch;
+    int length = 0;
+    for (int i = 0; i < end; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        out[length++] = (byte) c;
+      } else if (c < 0x800) {
+        out[length++] = (byte) (0xC0 | (c >> 6));
+        out[length++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < end
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        out[length++] = (byte) (0xF0 | (codePoint >> 18));
+        out[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        out[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        out[length++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        out[length++] = '?';
+      } else {
+        out[length++] = (byte) (0xE0 | (c >> 12));
+        out[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        out[length++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return length;
+  }
+
+  /** 32-bit FNV-1a over the UTF-8 bytes, with a final mix to spread the low bits. */
+  private static int hash(MemorySegment key) {
+    int hash = FNV_OFFSET;
+    for (long i = 0; i < key.byteSize(); i++) {
+      hash ^= key.get(ValueLayout.JAVA_BYTE, i) & 0xFF;
+      hash *= FNV_PRIME;
+    }
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,460 @@
+package io.github.syntaxpresso.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps every case-insensitive three-character sequence of the identifiers in a project to the
+ * files containing it, to narrow substring and fuzzy identifier searches to a few candidate files.
+ *
+ * <p>Each file gets a dense int id, and the ids of the files containing a trigram are stored in
+ * ascending order as variable-length deltas in a byte array, which typically takes one byte per
+ * entry. A changed file gets a new id; the old one is only marked dead and filtered out on lookup
+ * until they outnumber the live ids, when the live ids are renumbered densely and the posting
+ * lists rewritten without the dead ones. The paths of the ids are interned in a {@link
+ * SymbolTable}, so the index holds no path objects.
+ *
+ * <p>Lookups intersect the posting lists starting from the shortest one, and fuzzy lookups count
+ * hits in arrays kept across queries, so no query allocates in proportion to the project.
+ *
+ * <p>The posting lists can be saved together with the fingerprints of the files they were built
+ * for, so a later process only re-indexes the files that changed.
+ */
+public class TrigramIndex extends ProjectIndex<TrigramIndex.FileTrigrams> {
+  private static final int MAGIC = 0x53505447;
+  private static final int FORMAT_VERSION = 1;
+
+  private final Map<Long, Postings> postings = new HashMap<>();
+  private final SymbolTable symbols;
+  // Path symbol and trigrams of each file id.
+  private int[] pathSymbols = new int[64];
+  private FileTrigrams[] files = new FileTrigrams[64];
+  private int fileCount;
+  private final BitSet liveIds = new BitSet();
+  // Dead ids still referenced by posting lists.
+  private int deadIds;
+  // Hit counts of fuzzy lookups, valid for the ids whose stamp is the current query's.
+  private int[] hits = new int[0];
+  private int[] hitStamps = new int[0];
+  private int queryStamp;
+  // Whether files were added or removed since the index was last saved or loaded.
+  private boolean modified;
+
+  public TrigramIndex(FileIndexer<FileTrigrams> indexer) {
+    this(indexer, new SymbolTable());
+  }
+
+  /**
+   * Creates an empty index.
+   *
+   * @param indexer Extracts the trigrams of a file.
+   * @param symbols The table the paths of indexed files are interned in, which may be shared with
+   *     other indexes.
+   */
+  public TrigramIndex(FileIndexer<FileTrigrams> indexer, SymbolTable symbols) {
+    super(indexer);
+    this.symbols = symbols;
+  }
+
+  /**
+   * Finds the files that may contain an identifier matching the query.
+   *
+   * @param query The text to search for, matched case-insensitively.
+   * @param fuzzy If true, a file qualifies when it contains at least half of the query's trigrams,
+   *     which tolerates typos and characters missing from the query. Otherwise every trigram is
+   *     required, as for a substring match.
+   * @return The candidate files, or every indexed file if the query is shorter than a trigram.
+   */
+  public synchronized List<Path> findCandidates(String query, boolean fuzzy) {
+    long[] keys = trigramKeys(List.of(query));
+    List<Path> candidates = new ArrayList<>();
+    if (keys.length == 0) {
+      for (int id = this.liveIds.nextSetBit(0); id >= 0; id = this.liveIds.nextSetBit(id + 1)) {
+        candidates.add(this.symbols.getPath(this.pathSymbols[id]));
+      }
+      return candidates;
+    }
+    List<Postings> lists = new ArrayList<>(keys.length);
+    for (long key : keys) {
+      Postings list = this.postings.get(key);
+      if (list != null) {
+        lists.add(list);
+      } else if (!fuzzy) {
+        return candidates;
+      }
+    }
+    if (fuzzy) {
+      this.countHits(lists, (keys.length + 1) / 2, candidates);
+    } else {
+      this.intersect(lists, candidates);
+    }
+    return candidates;
+  }
+
+  /** Adds the live files listed in every posting list. */
+  private void intersect(List<Postings> lists, List<Path> candidates) {
+    lists.sort(Comparator.comparingInt(list -> list.count));
+    int[] ids = lists.get(0).toArray();
+    int size = ids.length;
+    for (int i = 1; i < lists.size() && size > 0; i++) {
+      size = lists.get(i).retainAll(ids, size);
+    }
+    for (int i = 0; i < size; i++) {
+      if (this.liveIds.get(ids[i])) {
+        candidates.add(this.symbols.getPath(this.pathSymbols[ids[i]]));
+      }
+    }
+  }
+
+  /** Adds the live files listed in at least the required number of posting lists. */
+  private void countHits(List<Postings> lists, int required, List<Path> candidates) {
+    if (this.hits.length < this.fileCount) {
+      this.hits = new int[this.pathSymbols.length];
+      this.hitStamps = new int[this.pathSymbols.length];
+      this.queryStamp = 0;
+    }
+    int stamp = ++this.queryStamp;
+    for (Postings list : lists) {
+      list.forEach(
+          id -> {
+            if (this.hitStamps[id] != stamp) {
+              this.hitStamps[id] = stamp;
+              this.hits[id] = 0;
+            }
+            // Each file is added once, when it reaches the required number of hits.
+            if (++this.hits[id] == required && this.liveIds.get(id)) {
+              candidates.add(this.symbols.getPath(this.pathSymbols[id]));
+            }
+          });
+    }
+  }
+
+  /** Returns whether files were added or removed since the index was last saved or loaded. */
+  public synchronized boolean isModified() {
+    return this.modified;
+  }
+
+  /**
+   * Writes the posting lists and the fingerprints of the live files to a file, replacing it
+   * atomically. Dead ids are left out, so the saved ids are dense.
+   *
+   * @param file The file to write.
+   * @throws IOException If the file cannot be written.
+   */
+  public synchronized void save(Path file) throws IOException {
+    int[] newIds = new int[this.fileCount];
+    int liveCount = 0;
+    for (int id = 0; id < this.fileCount; id++) {
+      newIds[id] = this.liveIds.get(id) ? liveCount++ : -1;
+    }
+    Files.createDirectories(file.getParent());
+    Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(liveCount);
+        for (int id = this.liveIds.nextSetBit(0); id >= 0; id = this.liveIds.nextSetBit(id + 1)) {
+          Path path = this.symbols.getPath(this.pathSymbols[id]);
+          FileFingerprint fingerprint = this.getFingerprint(path).orElseThrow();
+          output.writeUTF(path.toString());
+          output.writeLong(fingerprint.lastModified());
+          output.writeLong(fingerprint.size());
+        }
+        List<Map.Entry<Long, Postings>> lists = new ArrayList<>();
+        for (Map.Entry<Long, Postings> entry : this.postings.entrySet()) {
+          Postings list =
+              this.deadIds == 0 ? entry.getValue() : entry.getValue().renumbered(newIds);
+          if (list.count > 0) {
+            lists.add(Map.entry(entry.getKey(), list));
+          }
+        }
+        output.writeInt(lists.size());
+        for (Map.Entry<Long, Postings> entry : lists) {
+          Postings list = entry.getValue();
+          output.writeLong(entry.getKey());
+          output.writeInt(list.count);
+          output.writeInt(list.lastId);
+          output.writeInt(list.size);
+          output.write(list.data, 0, list.size);
+        }
+      }
+      try {
+        Files.move(
+            tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+    this.modified = false;
+  }
+
+  /**
+   * Reads posting lists written by {@link #save(Path)}.
+   *
+   * @param file The file to read.
+   * @param indexer Extracts the trigrams of a file on later refreshes.
+   * @param symbols The table the paths of indexed files are interned in.
+   * @return The loaded index.
+   * @throws IOException If the file cannot be read or has an unknown format.
+   */
+  public static TrigramIndex load(
+      Path file, FileIndexer<FileTrigrams> indexer, SymbolTable symbols) throws IOException {
+    TrigramIndex index = new TrigramIndex(indexer, symbols);
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unsupported trigram index file: " + file);
+      }
+      int fileCount = input.readInt();
+      for (int i = 0; i < fileCount; i++) {
+        Path path = Path.of(input.readUTF());
+        FileFingerprint fingerprint = new FileFingerprint(input.readLong(), input.readLong());
+        // Files get the ids 0 to fileCount - 1 in the saved order; the posting lists follow.
+        index.restore(path, fingerprint, new FileTrigrams(new long[0]));
+      }
+      if (index.fileCount != fileCount) {
+        throw new IOException("Duplicate file in trigram index file: " + file);
+      }
+      int listCount = input.readInt();
+      for (int i = 0; i < listCount; i++) {
+        long key = input.readLong();
+        Postings list = new Postings();
+        list.count = input.readInt();
+        list.lastId = input.readInt();
+        list.size = input.readInt();
+        if (list.lastId >= fileCount || list.size < 0) {
+          throw new IOException("Corrupt trigram index file: " + file);
+        }
+        list.data = new byte[Math.max(4, list.size)];
+        input.readFully(list.data, 0, list.size);
+        index.postings.put(key, list);
+      }
+    }
+    index.modified = false;
+    return index;
+  }
+
+  /**
+   * Collects the distinct trigrams of a file's identifiers.
+   *
+   * @param identifiers The identifiers of the file.
+   * @return The trigrams of the file, ready to be added to an index.
+   */
+  public static FileTrigrams trigramsOf(Collection<String> identifiers) {
+    return new FileTrigrams(trigramKeys(identifiers));
+  }
+
+  @Override
+  protected void onAdded(Path path, FileTrigrams trigrams) {
+    int id = this.fileCount++;
+    if (id == this.pathSymbols.length) {
+      this.pathSymbols = Arrays.copyOf(this.pathSymbols, id * 2);
+      this.files = Arrays.copyOf(this.files, id * 2);
+    }
+    this.pathSymbols[id] = this.symbols.intern(path);
+    this.files[id] = trigrams;
+    this.liveIds.set(id);
+    for (long key : trigrams.keys) {
+      this.postings.computeIfAbsent(key, ignored -> new Postings()).add(id);
+    }
+    trigrams.fileId = id;
+    // The posting lists now hold the trigrams; the per-file copy is no longer needed.
+    trigrams.keys = null;
+    this.modified = true;
+  }
+
+  @Override
+  protected void onRemoved(Path path, FileTrigrams trigrams) {
+    this.liveIds.clear(trigrams.fileId);
+    this.files[trigrams.fileId] = null;
+    this.deadIds++;
+    this.modified = true;
+    if (this.deadIds > 1024 && this.deadIds > this.liveIds.cardinality()) {
+      this.compact();
+    }
+  }
+
+  /** Renumbers the live ids densely, in their current order, and drops the dead ones. */
+  private void compact() {
+    int[] newIds = new int[this.fileCount];
+    int liveCount = 0;
+    for (int id = 0; id < this.fileCount; id++) {
+      if (this.liveIds.get(id)) {
+        newIds[id] = liveCount;
+        this.pathSymbols[liveCount] = this.pathSymbols[id];
+        this.files[liveCount] = this.files[id];
+        this.files[liveCount].fileId = liveCount;
+        liveCount++;
+      } else {
+        newIds[id] = -1;
+      }
+    }
+    int capacity = Math.max(64, Integer.highestOneBit(Math.max(1, liveCount)) * 2);
+    this.pathSymbols = Arrays.copyOf(this.pathSymbols, capacity);
+    this.files = Arrays.copyOf(this.files, capacity);
+    this.postings.replaceAll((key, list) -> list.renumbered(newIds));
+    this.postings.values().removeIf(list -> list.count == 0);
+    this.fileCount = liveCount;
+    this.liveIds.clear();
+    this.liveIds.set(0, liveCount);
+    this.deadIds = 0;
+    this.hits = new int[0];
+    this.hitStamps = new int[0];
+  }
+
+  /** Returns the sorted, distinct trigram keys of the given strings, ignoring case. */
+  private static long[] trigramKeys(Collection<String> identifiers) {
+    long[] keys = new long[16];
+    int count = 0;
+    for (String identifier : identifiers) {
+      String text = identifier.toLowerCase(Locale.ROOT);
+      for (int i = 0; i + 3 <= text.length(); i++) {
+        if (count == keys.length) {
+          keys = Arrays.copyOf(keys, count * 2);
+        }
+        keys[count++] =
+            ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+      }
+    }
+    Arrays.sort(keys, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || keys[distinct - 1] != keys[i]) {
+        keys[distinct++] = keys[i];
+      }
+    }
+    return Arrays.copyOf(keys, distinct);
+  }
+
+  /**
+   * The trigrams of one file while it is being added, and its file id afterwards.
+   *
+   * <p>Instances are handed from the indexer to {@link #onAdded}, which moves the trigrams into the
+   * posting lists and keeps only the id.
+   */
+  public static final class FileTrigrams {
+    private long[] keys;
+    private int fileId = -1;
+
+    private FileTrigrams(long[] keys) {
+      this.keys = keys;
+    }
+  }
+
+  /** Ascending file ids encoded as variable-length deltas. */
+  private static final class Postings {
+    private byte[] data = new byte[4];
+    private int size;
+    private int count;
+    private int lastId = -1;
+
+    void add(int id) {
+      if (this.size + 5 > this.data.length) {
+        this.data = Arrays.copyOf(this.data, this.data.length * 2);
+      }
+      int delta = id - this.lastId;
+      while ((delta & ~0x7f) != 0) {
+        this.data[this.size++] = (byte) ((delta & 0x7f) | 0x80);
+        delta >>>= 7;
+      }
+      this.data[this.size++] = (byte) delta;
+      this.lastId = id;
+      this.count++;
+    }
+
+    void forEach(IdConsumer consumer) {
+      int id = -1;
+      int position = 0;
+      while (position < this.size) {
+        int delta = 0;
+        int shift = 0;
+        byte b;
+        do {
+          b = this.data[position++];
+          delta |= (b & 0x7f) << shift;
+          shift += 7;
+        } while (b < 0);
+        id += delta;
+        consumer.accept(id);
+      }
+    }
+
+    int[] toArray() {
+      int[] ids = new int[this.count];
+      int[] size = new int[1];
+      this.forEach(id -> ids[size[0]++] = id);
+      return ids;
+    }
+
+    /**
+     * Keeps the first {@code size} entries of an ascending id array that are also in this list.
+     *
+     * @return The number of entries kept at the start of the array.
+     */
+    int retainAll(int[] ids, int size) {
+      int kept = 0;
+      int index = 0;
+      int id = -1;
+      int position = 0;
+      while (position < this.size && index < size) {
+        int delta = 0;
+        int shift = 0;
+        byte b;
+        do {
+          b = this.data[position++];
+          delta |= (b & 0x7f) << shift;
+          shift += 7;
+        } while (b < 0);
+        id += delta;
+        while (index < size && ids[index] < id) {
+          index++;
+        }
+        if (index < size && ids[index] == id) {
+          ids[kept++] = id;
+          index++;
+        }
+      }
+      return kept;
+    }
+
+    /**
+     * Returns a copy with every id mapped to a new one, dropping ids mapped to -1; the mapping must
+     * keep the order.
+     */
+    Postings renumbered(int[] newIds) {
+      Postings retained = new Postings();
+      this.forEach(
+          id -> {
+            if (newIds[id] >= 0) {
+              retained.add(newIds[id]);
+            }
+          });
+      return retained;
+    }
+  }
+
+  @FunctionalInterface
+  private interface IdConsumer {
+    void accept(int id);
+  }
+}
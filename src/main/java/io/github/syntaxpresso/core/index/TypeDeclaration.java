@@ -0,0 +1,22 @@
+package io.github.syntaxpresso.core.index;
+
+import java.util.List;
+
+/**
+ * A type declared in a file, with the names of its direct supertypes.
+ *
+ * @param simpleName The simple name of the type.
+ * @param qualifiedName The name qualified with the package and any enclosing types.
+ * @param kind The kind of declaration.
+ * @param line The one-based line of the declaration's name.
+ * @param column The one-based column of the declaration's name.
+ * @param supertypes The references to the extended class and the extended or implemented
+ *     interfaces.
+ */
+public record TypeDeclaration(
+    String simpleName,
+    String qualifiedName,
+    TypeKind kind,
+    int line,
+    int column,
+    List<TypeReference> supertypes) {}
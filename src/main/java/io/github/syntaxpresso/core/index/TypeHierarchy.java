@@ -0,0 +1,224 @@
+package io.github.syntaxpresso.core.index;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The extends and implements relations between the types of a project.
+ *
+ * <p>Type names are interned to dense int ids, and the direct subtypes of each id are kept in a
+ * plain int array, so transitive queries are a breadth-first search over int arrays. Relations are
+ * recorded by simple name; a query for a qualified name then checks each edge by resolving the
+ * supertype reference against the declared project types, the way its file's imports would.
+ */
+public class TypeHierarchy extends ProjectIndex<List<TypeDeclaration>> {
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private int[][] subtypes = new int[64][];
+  private int[] subtypeCounts = new int[64];
+  private final List<List<IndexedType>> declarations = new ArrayList<>();
+
+  public TypeHierarchy(FileIndexer<List<TypeDeclaration>> indexer) {
+    super(indexer);
+  }
+
+  /**
+   * Finds the types that extend or implement the given type.
+   *
+   * <p>A simple name matches every type of that name. A qualified name only matches subtypes whose
+   * supertype reference resolves to it, through the declaring file's package and imports.
+   *
+   * @param typeName The simple or fully qualified name of the supertype.
+   * @param transitive Whether indirect subtypes should be included.
+   * @return The subtype declarations in breadth-first order.
+   */
+  public synchronized List<IndexedType> findSubtypes(String typeName, boolean transitive) {
+    boolean isQualified = typeName.indexOf('.') >= 0;
+    String simpleName = typeName.substring(typeName.lastIndexOf('.') + 1);
+    Integer rootId = this.ids.get(simpleName);
+    List<IndexedType> result = new ArrayList<>();
+    if (rootId == null) {
+      return result;
+    }
+    Set<TypeDeclaration> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    // The frontier holds supertypes by id and qualified name; an empty name matches any type.
+    ArrayDeque<Integer> queueIds = new ArrayDeque<>();
+    ArrayDeque<String> queueNames = new ArrayDeque<>();
+    if (isQualified || this.declarations.get(rootId).isEmpty()) {
+      queueIds.add(rootId);
+      queueNames.add(isQualified ? typeName : "");
+    } else {
+      for (IndexedType root : this.declarations.get(rootId)) {
+        visited.add(root.declaration());
+        queueIds.add(rootId);
+        queueNames.add(root.declaration().qualifiedName());
+      }
+    }
+    while (!queueIds.isEmpty()) {
+      int current = queueIds.poll();
+      String currentName = queueNames.poll();
+      int[] children = this.subtypes[current];
+      for (int i = 0; i < this.subtypeCounts[current]; i++) {
+        for (IndexedType child : this.declarations.get(children[i])) {
+          TypeDeclaration declaration = child.declaration();
+          if (visited.contains(declaration)
+              || !this.extendsType(declaration, this.names.get(current), currentName)) {
+            continue;
+          }
+          visited.add(declaration);
+          result.add(child);
+          if (transitive) {
+            queueIds.add(children[i]);
+            queueNames.add(declaration.qualifiedName());
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the project types a type directly extends or implements, resolving each supertype
+   * reference through the declaring file's package and imports. Supertypes declared outside the
+   * project are left out.
+   *
+   * @param declaration The subtype declaration.
+   * @return The supertype declarations in the order the declaration names them.
+   */
+  public synchronized List<IndexedType> findSupertypes(TypeDeclaration declaration) {
+    List<IndexedType> result = new ArrayList<>();
+    for (TypeReference supertype : declaration.supertypes()) {
+      String qualifiedName = this.resolve(supertype, "");
+      if (qualifiedName == null) {
+        continue;
+      }
+      for (IndexedType candidate : this.declarations.get(this.ids.get(supertype.simpleName()))) {
+        if (candidate.declaration().qualifiedName().equals(qualifiedName)) {
+          result.add(candidate);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Whether a declaration names the given type among its supertypes.
+   *
+   * @param qualifiedName The qualified name of the supertype, or an empty string to accept any
+   *     type with the simple name.
+   */
+  private boolean extendsType(
+      TypeDeclaration declaration, String simpleName, String qualifiedName) {
+    for (TypeReference supertype : declaration.supertypes()) {
+      if (supertype.simpleName().equals(simpleName)
+          && (qualifiedName.isEmpty()
+              || qualifiedName.equals(this.resolve(supertype, qualifiedName)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Resolves a reference to the first of its candidates declared in the project. A reference to
+   * no project type keeps the wanted name if that is one of its candidates, as for library types.
+   */
+  private String resolve(TypeReference reference, String wantedName) {
+    Integer id = this.ids.get(reference.simpleName());
+    List<IndexedType> declared = id == null ? List.of() : this.declarations.get(id);
+    for (String candidate : reference.qualifiedNames()) {
+      for (IndexedType indexedType : declared) {
+        if (indexedType.declaration().qualifiedName().equals(candidate)) {
+          return candidate;
+        }
+      }
+    }
+    return reference.qualifiedNames().contains(wantedName) ? wantedName : null;
+  }
+
+  /** Returns the declarations of all project types with the given simple name. */
+  public synchronized List<IndexedType> findDeclarations(String simpleName) {
+    Integer id = this.ids.get(simpleName);
+    return id == null ? List.of() : List.copyOf(this.declarations.get(id));
+  }
+
+  @Override
+  protected void onAdded(Path path, List<TypeDeclaration> types) {
+    for (TypeDeclaration type : types) {
+      int id = this.intern(type.simpleName());
+      this.declarations.get(id).add(new IndexedType(path, type));
+      for (TypeReference supertype : type.supertypes()) {
+        this.addSubtype(this.intern(supertype.simpleName()), id);
+      }
+    }
+  }
+
+  @Override
+  protected void onRemoved(Path path, List<TypeDeclaration> types) {
+    for (TypeDeclaration type : types) {
+      int id = this.ids.get(type.simpleName());
+      this.declarations.get(id).removeIf(indexed -> indexed.declaration() == type);
+      for (TypeReference supertype : type.supertypes()) {
+        this.removeSubtype(this.ids.get(supertype.simpleName()), id);
+      }
+    }
+  }
+
+  private int intern(String name) {
+    Integer existing = this.ids.get(name);
+    if (existing != null) {
+      return existing;
+    }
+    int id = this.ids.size();
+    this.ids.put(name, id);
+    this.names.add(name);
+    this.declarations.add(new ArrayList<>(1));
+    if (id == this.subtypes.length) {
+      this.subtypes = Arrays.copyOf(this.subtypes, id * 2);
+      this.subtypeCounts = Arrays.copyOf(this.subtypeCounts, id * 2);
+    }
+    return id;
+  }
+
+  /** Records one edge; the same edge may be recorded once per declaring file. */
+  private void addSubtype(int supertypeId, int subtypeId) {
+    int[] children = this.subtypes[supertypeId];
+    int count = this.subtypeCounts[supertypeId];
+    if (children == null) {
+      children = new int[4];
+    } else if (count == children.length) {
+      children = Arrays.copyOf(children, count * 2);
+    }
+    children[count] = subtypeId;
+    this.subtypes[supertypeId] = children;
+    this.subtypeCounts[supertypeId] = count + 1;
+  }
+
+  private void removeSubtype(int supertypeId, int subtypeId) {
+    int[] children = this.subtypes[supertypeId];
+    int count = this.subtypeCounts[supertypeId];
+    for (int i = 0; i < count; i++) {
+      if (children[i] == subtypeId) {
+        children[i] = children[count - 1];
+        this.subtypeCounts[supertypeId] = count - 1;
+        return;
+      }
+    }
+  }
+
+  /**
+   * A type declaration and the file it was found in.
+   *
+   * @param path The declaring file.
+   * @param declaration The declaration.
+   */
+  public record IndexedType(Path path, TypeDeclaration declaration) {}
+}
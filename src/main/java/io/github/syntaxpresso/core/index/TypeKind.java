@@ -0,0 +1,10 @@
+package io.github.syntaxpresso.core.index;
+
+/** The kinds of Java type declarations. */
+public enum TypeKind {
+  CLASS,
+  INTERFACE,
+  ENUM,
+  RECORD,
+  ANNOTATION
+}
@@ -0,0 +1,14 @@
+package io.github.syntaxpresso.core.index;
+
+import java.util.List;
+
+/**
+ * A reference to a type by name, as written in a file, with the types it may stand for.
+ *
+ * @param simpleName The simple name of the referenced type, without type arguments.
+ * @param qualifiedNames The fully qualified names the reference may stand for, in the order Java
+ *     looks them up: types declared in the file, single-type imports, the file's package,
+ *     on-demand imports and {@code java.lang}. The first one that is a project type is the one
+ *     meant; if none is, the reference names a library type.
+ */
+public record TypeReference(String simpleName, List<String> qualifiedNames) {}
@@ -0,0 +1,79 @@
+package io.github.syntaxpresso.core.server;
+
+import io.github.syntaxpresso.core.server.ServerProtocol.Request;
+import io.github.syntaxpresso.core.server.ServerProtocol.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * Forwards a command line to a running {@link SyntaxpressoServer}, turning this process into a
+ * thin client.
+ */
+public final class ServerClient {
+  private static final String STDIN_OPTION = "--stdin";
+
+  private ServerClient() {}
+
+  /**
+   * Runs a command on the server listening on the given socket.
+   *
+   * <p>The standard input is only read and forwarded if the arguments contain {@code --stdin}.
+   * When no server accepts the connection, nothing is sent and the caller should run the command
+   * itself. Once the request was sent, the command is never run twice: a failure to receive the
+   * response is reported as an error instead. The same applies when sending fails after the
+   * standard input was consumed, as the caller could no longer read it.
+   *
+   * @param socketPath The server socket.
+   * @param args The command line arguments.
+   * @param in The standard input of this process.
+   * @param out Receives the output of the command.
+   * @param err Receives the error output of the command.
+   * @return The exit code of the command, or empty if no server is available.
+   */
+  public static OptionalInt tryExecute(
+      Path socketPath, String[] args, InputStream in, PrintStream out, PrintStream err) {
+    if (!Files.exists(socketPath)) {
+      return OptionalInt.empty();
+    }
+    SocketChannel channel;
+    try {
+      channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+    } catch (IOException | UnsupportedOperationException e) {
+      return OptionalInt.empty();
+    }
+    try (channel) {
+      boolean readsInput = List.of(args).contains(STDIN_OPTION);
+      byte[] input = readsInput ? in.readAllBytes() : new byte[0];
+      Request request =
+          new Request(
+              ProcessHandle.current().pid(), System.getProperty("user.dir"), List.of(args), input);
+      try {
+        ServerProtocol.writeFrame(channel, ServerProtocol.encode(request));
+      } catch (IOException e) {
+        if (readsInput) {
+          err.println(
+              "Failed to send the request to the server at " + socketPath + ": " + e.getMessage());
+          return OptionalInt.of(1);
+        }
+        // The server went away before it saw the request.
+        return OptionalInt.empty();
+      }
+      Response response = ServerProtocol.decodeResponse(ServerProtocol.readFrame(channel));
+      out.print(response.out());
+      out.flush();
+      err.print(response.err());
+      err.flush();
+      return OptionalInt.of(response.exitCode());
+    } catch (IOException e) {
+      err.println("Lost the connection to the server at " + socketPath + ": " + e.getMessage());
+      return OptionalInt.of(1);
+    }
+  }
+}
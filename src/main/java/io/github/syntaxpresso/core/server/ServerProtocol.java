@@ -0,0 +1,183 @@
+package io.github.syntaxpresso.core.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The framing of requests and responses exchanged with a {@link SyntaxpressoServer}.
+ *
+ * <p>Every message is a frame: a big-endian 32-bit payload length followed by the payload. Strings
+ * are written as a 32-bit byte length followed by their UTF-8 bytes. A request carries an id
+ * chosen by the client, the client's working directory, the command line arguments and the bytes
+ * the command may read as its input; the response echoes the id, so a client can have several
+ * requests in flight on one connection and match the responses, which may arrive in any order.
+ */
+public final class ServerProtocol {
+  /** The largest accepted payload, guarding the server against corrupt or hostile lengths. */
+  public static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+  private ServerProtocol() {}
+
+  /**
+   * A command to run.
+   *
+   * @param id The id the response is tagged with.
+   * @param workingDirectory The directory relative paths in the arguments are resolved against.
+   * @param args The command line arguments.
+   * @param input The input of the command, e.g. buffer updates; empty if it reads none.
+   */
+  public record Request(long id, String workingDirectory, List<String> args, byte[] input) {}
+
+  /**
+   * The outcome of a command.
+   *
+   * @param id The id of the request.
+   * @param exitCode The exit code of the command.
+   * @param out What the command wrote to its output.
+   * @param err What the command wrote to its error output.
+   */
+  public record Response(long id, int exitCode, String out, String err) {}
+
+  /** Encodes a request as a frame, ready to be written. */
+  public static ByteBuffer encode(Request request) {
+    return frame(
+        output -> {
+          output.writeLong(request.id());
+          writeString(output, request.workingDirectory());
+          output.writeInt(request.args().size());
+          for (String arg : request.args()) {
+            writeString(output, arg);
+          }
+          output.writeInt(request.input().length);
+          output.write(request.input());
+        });
+  }
+
+  /** Encodes a response as a frame, ready to be written. */
+  public static ByteBuffer encode(Response response) {
+    return frame(
+        output -> {
+          output.writeLong(response.id());
+          output.writeInt(response.exitCode());
+          writeString(output, response.out());
+          writeString(output, response.err());
+        });
+  }
+
+  /**
+   * Decodes the payload of a request frame.
+   *
+   * @throws IOException If the payload is malformed.
+   */
+  public static Request decodeRequest(ByteBuffer payload) throws IOException {
+    try {
+      long id = payload.getLong();
+      String workingDirectory = readString(payload);
+      int argCount = payload.getInt();
+      if (argCount < 0 || argCount > payload.remaining()) {
+        throw new IOException("Invalid argument count: " + argCount);
+      }
+      List<String> args = new ArrayList<>(argCount);
+      for (int i = 0; i < argCount; i++) {
+        args.add(readString(payload));
+      }
+      return new Request(id, workingDirectory, args, readBytes(payload));
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed request frame", e);
+    }
+  }
+
+  /**
+   * Decodes the payload of a response frame.
+   *
+   * @throws IOException If the payload is malformed.
+   */
+  public static Response decodeResponse(ByteBuffer payload) throws IOException {
+    try {
+      return new Response(
+          payload.getLong(), payload.getInt(), readString(payload), readString(payload));
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed response frame", e);
+    }
+  }
+
+  /**
+   * Reads one frame from a blocking channel.
+   *
+   * @param channel The channel.
+   * @return The payload of the frame.
+   * @throws IOException If the channel is closed before a whole frame arrived.
+   */
+  public static ByteBuffer readFrame(ReadableByteChannel channel) throws IOException {
+    ByteBuffer header = readFully(channel, ByteBuffer.allocate(Integer.BYTES));
+    int length = header.flip().getInt();
+    if (length < 0 || length > MAX_FRAME_BYTES) {
+      throw new IOException("Invalid frame length: " + length);
+    }
+    return readFully(channel, ByteBuffer.allocate(length)).flip();
+  }
+
+  /** Writes a whole frame to a blocking channel. */
+  public static void writeFrame(WritableByteChannel channel, ByteBuffer frame) throws IOException {
+    while (frame.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("The connection was closed in the middle of a frame.");
+      }
+    }
+    return buffer;
+  }
+
+  private static ByteBuffer frame(PayloadWriter writer) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(0);
+      writer.write(output);
+    } catch (IOException e) {
+      // Writing to memory does not fail.
+      throw new UncheckedIOException(e);
+    }
+    ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+    frame.putInt(0, frame.capacity() - Integer.BYTES);
+    return frame;
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(ByteBuffer payload) {
+    return new String(readBytes(payload), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(ByteBuffer payload) {
+    int length = payload.getInt();
+    if (length < 0 || length > payload.remaining()) {
+      throw new IllegalArgumentException("Invalid length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    payload.get(bytes);
+    return bytes;
+  }
+
+  @FunctionalInterface
+  private interface PayloadWriter {
+    void write(DataOutputStream output) throws IOException;
+  }
+}
@@ -0,0 +1,323 @@
+package io.github.syntaxpresso.core.server;
+
+import io.github.syntaxpresso.core.Core;
+import io.github.syntaxpresso.core.common.CommandFactory;
+import io.github.syntaxpresso.core.common.RequestScheduler;
+import io.github.syntaxpresso.core.server.ServerProtocol.Request;
+import io.github.syntaxpresso.core.server.ServerProtocol.Response;
+import io.github.syntaxpresso.core.service.JavaService;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import picocli.CommandLine;
+
+/**
+ * Serves commands to any number of clients over a Unix domain socket, so several editors and
+ * scripts share one warm process: its parsers, its indexes and the unsaved buffers in {@link
+ * JavaService}.
+ *
+ * <p>A single thread multiplexes all connections with a {@link Selector} and non-blocking channels.
+ * Each complete request frame (see {@link ServerProtocol}) is run as an interactive request of the
+ * {@link RequestScheduler}, with its own command line whose output is captured, and its response
+ * is queued on the connection it came from. Responses are written as soon as the channel accepts
+ * them, so a slow client never holds up the others.
+ */
+public final class SyntaxpressoServer implements Closeable {
+  private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+  private final Path socketPath;
+  private final JavaService javaService;
+  private final RequestScheduler scheduler;
+  private final Selector selector;
+  private final ServerSocketChannel serverChannel;
+  // Connections with responses waiting, handed from request threads to the selector thread.
+  private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final CountDownLatch stopped = new CountDownLatch(1);
+  private volatile boolean running = true;
+
+  private SyntaxpressoServer(
+      Path socketPath,
+      JavaService javaService,
+      RequestScheduler scheduler,
+      Selector selector,
+      ServerSocketChannel serverChannel) {
+    this.socketPath = socketPath;
+    this.javaService = javaService;
+    this.scheduler = scheduler;
+    this.selector = selector;
+    this.serverChannel = serverChannel;
+  }
+
+  /**
+   * Binds a server to a socket. A socket file left behind by a server that is no longer running
+   * is replaced.
+   *
+   * @param socketPath The socket path.
+   * @param javaService The service shared by all requests.
+   * @return The server, ready to {@link #run()}.
+   * @throws IOException If another server is listening on the socket or it cannot be bound.
+   */
+  public static SyntaxpressoServer bind(Path socketPath, JavaService javaService)
+      throws IOException {
+    if (Files.exists(socketPath)) {
+      if (isListening(socketPath)) {
+        throw new IOException("A server is already listening on " + socketPath);
+      }
+      Files.deleteIfExists(socketPath);
+    }
+    Path parent = socketPath.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    Selector selector = Selector.open();
+    try {
+      serverChannel.bind(UnixDomainSocketAddress.of(socketPath));
+      serverChannel.configureBlocking(false);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      serverChannel.close();
+      selector.close();
+      throw e;
+    }
+    return new SyntaxpressoServer(
+        socketPath, javaService, RequestScheduler.getDefault(), selector, serverChannel);
+  }
+
+  /** Returns whether a server accepts connections on the given socket. */
+  public static boolean isListening(Path socketPath) {
+    try (SocketChannel ignored = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** Returns the socket path the server listens on. */
+  public Path getSocketPath() {
+    return this.socketPath;
+  }
+
+  /**
+   * Accepts and serves clients on the calling thread until {@link #close()} is called.
+   *
+   * @throws IOException If the server socket fails.
+   */
+  public void run() throws IOException {
+    if (!this.started.compareAndSet(false, true)) {
+      throw new IllegalStateException("The server is already running.");
+    }
+    try {
+      while (this.running) {
+        this.selector.select();
+        Connection pending;
+        while ((pending = this.pendingWrites.poll()) != null) {
+          pending.enableWrites();
+        }
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            this.accept();
+            continue;
+          }
+          Connection connection = (Connection) key.attachment();
+          try {
+            if (key.isReadable()) {
+              connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+              connection.write();
+            }
+          } catch (IOException e) {
+            connection.close();
+          }
+        }
+      }
+    } finally {
+      this.release();
+      this.stopped.countDown();
+    }
+  }
+
+  /**
+   * Stops the server and removes its socket file, waiting briefly for the serving thread to let
+   * go of its connections. Requests still running are abandoned.
+   */
+  @Override
+  public void close() throws IOException {
+    this.running = false;
+    if (this.started.compareAndSet(false, true)) {
+      // Never ran, so nothing else will release the socket.
+      this.release();
+      return;
+    }
+    this.selector.wakeup();
+    try {
+      this.stopped.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Closes every channel and deletes the socket file. Only called by the serving thread. */
+  private void release() throws IOException {
+    try {
+      for (SelectionKey key : this.selector.keys()) {
+        try {
+          key.channel().close();
+        } catch (IOException e) {
+          // Keep closing the remaining channels.
+        }
+      }
+      this.selector.close();
+    } finally {
+      Files.deleteIfExists(this.socketPath);
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = this.serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+    key.attach(new Connection(channel, key));
+  }
+
+  private Response execute(Request request) {
+    if (!request.args().isEmpty() && "server".equals(request.args().get(0))) {
+      return new Response(request.id(), 2, "", "A server cannot start another server.\n");
+    }
+    StringWriter out = new StringWriter();
+    StringWriter err = new StringWriter();
+    // Commands keep their options in fields, so every request gets its own command line; the
+    // services behind it are shared.
+    Path workingDirectory = Path.of(request.workingDirectory());
+    CommandFactory factory =
+        new CommandFactory(
+            this.javaService,
+            () -> new ByteArrayInputStream(request.input()),
+            workingDirectory::resolve);
+    CommandLine commandLine = new CommandLine(new Core(), factory);
+    commandLine.registerConverter(Path.class, factory.getPathResolver()::apply);
+    commandLine.setOut(new PrintWriter(out, true));
+    commandLine.setErr(new PrintWriter(err, true));
+    int exitCode = commandLine.execute(request.args().toArray(String[]::new));
+    return new Response(request.id(), exitCode, out.toString(), err.toString());
+  }
+
+  /** The state of one client connection. Only the selector thread reads and writes the channel. */
+  private final class Connection {
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+
+    private Connection(SocketChannel channel, SelectionKey key) {
+      this.channel = channel;
+      this.key = key;
+    }
+
+    private void read() throws IOException {
+      if (this.channel.read(this.readBuffer) < 0) {
+        this.close();
+        return;
+      }
+      this.readBuffer.flip();
+      while (this.readBuffer.remaining() >= Integer.BYTES) {
+        int length = this.readBuffer.getInt(this.readBuffer.position());
+        if (length < 0 || length > ServerProtocol.MAX_FRAME_BYTES) {
+          throw new IOException("Invalid frame length: " + length);
+        }
+        if (this.readBuffer.remaining() < Integer.BYTES + length) {
+          if (this.readBuffer.capacity() < Integer.BYTES + length) {
+            // Grow to hold the whole frame instead of reading it in pieces.
+            ByteBuffer larger = ByteBuffer.allocate(Integer.BYTES + length);
+            larger.put(this.readBuffer);
+            this.readBuffer = larger;
+            return;
+          }
+          break;
+        }
+        this.readBuffer.position(this.readBuffer.position() + Integer.BYTES);
+        ByteBuffer payload = this.readBuffer.slice(this.readBuffer.position(), length);
+        this.readBuffer.position(this.readBuffer.position() + length);
+        this.dispatch(ServerProtocol.decodeRequest(payload));
+      }
+      this.readBuffer.compact();
+    }
+
+    private void dispatch(Request request) {
+      SyntaxpressoServer.this
+          .scheduler
+          .submit(RequestScheduler.Priority.INTERACTIVE, () -> execute(request))
+          .whenComplete(
+              (response, error) -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                Response result =
+                    error == null
+                        ? response
+                        : new Response(request.id(), 1, "", String.valueOf(cause) + "\n");
+                this.responses.add(ServerProtocol.encode(result));
+                SyntaxpressoServer.this.pendingWrites.add(this);
+                SyntaxpressoServer.this.selector.wakeup();
+              });
+    }
+
+    private void enableWrites() {
+      if (this.key.isValid()) {
+        this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      }
+    }
+
+    private void write() throws IOException {
+      ByteBuffer response;
+      while ((response = this.responses.peek()) != null) {
+        this.channel.write(response);
+        if (response.hasRemaining()) {
+          return;
+        }
+        this.responses.poll();
+      }
+      this.key.interestOps(SelectionKey.OP_READ);
+      if (!this.responses.isEmpty()) {
+        // A response was queued after the loop ended; look at it on the next select.
+        this.enableWrites();
+      }
+    }
+
+    private void close() {
+      this.key.cancel();
+      try {
+        this.channel.close();
+      } catch (IOException e) {
+        // The client is gone either way.
+      }
+    }
+  }
+}
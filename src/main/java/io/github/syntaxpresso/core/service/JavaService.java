@@ -1,36 +1,79 @@
 package io.github.syntaxpresso.core.service;
 
 import io.github.syntaxpresso.core.command.java.extra.SourceDirectoryType;
+import io.github.syntaxpresso.core.common.BufferUpdate;
+import io.github.syntaxpresso.core.common.CompiledQuery;
+import io.github.syntaxpresso.core.common.RequestScheduler;
 import io.github.syntaxpresso.core.common.TSFile;
+import io.github.syntaxpresso.core.common.TSFileSnapshot;
+import io.github.syntaxpresso.core.common.TSTreeWalker;
+import io.github.syntaxpresso.core.common.extra.JavaQueries;
+import io.github.syntaxpresso.core.common.extra.JavaSymbols;
 import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import io.github.syntaxpresso.core.index.FileFingerprint;
+import io.github.syntaxpresso.core.index.FileImports;
+import io.github.syntaxpresso.core.index.FileSummary;
+import io.github.syntaxpresso.core.index.ProjectIndexes;
+import io.github.syntaxpresso.core.index.SourceAnalyzer;
+import io.github.syntaxpresso.core.index.SymbolDeclaration;
+import io.github.syntaxpresso.core.index.SymbolKind;
+import io.github.syntaxpresso.core.index.TypeDeclaration;
+import io.github.syntaxpresso.core.index.TypeKind;
+import io.github.syntaxpresso.core.index.TypeReference;
 import io.github.syntaxpresso.core.service.extra.JavaIdentifierType;
+import io.github.syntaxpresso.core.service.extra.ReferenceMatches;
 import io.github.syntaxpresso.core.service.extra.ScopeType;
 import io.github.syntaxpresso.core.util.PathHelper;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AccessLevel;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import org.treesitter.TSNode;
-import org.treesitter.TSQuery;
-import org.treesitter.TSQueryCapture;
-import org.treesitter.TSQueryCursor;
-import org.treesitter.TSQueryMatch;
 
 @Data
-@RequiredArgsConstructor
 public class JavaService {
   private final PathHelper pathHelper;
 
+  // Indexes of the projects this service works on, built from files analyzed by this service.
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private final ProjectIndexes projectIndexes;
+
+  // Latest snapshot of each unsaved editor buffer by normalized file path. Updates replace the
+  // snapshot atomically, so readers never see a half-applied edit and need no lock.
+  @Getter(AccessLevel.NONE)
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private final Map<Path, TSFileSnapshot> openBuffers = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a service with no open buffers and no indexes yet.
+   *
+   * @param pathHelper Finds the files and the cache directory of a project.
+   */
+  public JavaService(PathHelper pathHelper) {
+    this.pathHelper = pathHelper;
+    this.projectIndexes =
+        new ProjectIndexes(pathHelper, SupportedLanguage.JAVA, new JavaSourceAnalyzer());
+  }
+
   public boolean isJavaProject(File rootDir) {
     if (rootDir == null || !rootDir.isDirectory()) {
       return false;
@@ -79,172 +122,1395 @@ public class JavaService {
   }
 
   public Boolean isMainClass(TSFile file) {
-    String mainMethodQuery =
-        "(class_declaration  body: (class_body    (method_declaration       (modifiers) @mods      "
-            + " type: (void_type)       name: (identifier) @name       parameters:"
-            + " (formal_parameters         [          (formal_parameter type: (array_type element:"
-            + " (type_identifier) @param_type))          (spread_parameter (type_identifier)"
-            + " @param_type)        ]      )     )  ))";
-    TSQuery query = new TSQuery(file.getParser().getLanguage(), mainMethodQuery);
-    TSQueryCursor queryCursor = new TSQueryCursor();
-    queryCursor.exec(query, file.getTree().getRootNode());
-    TSQueryMatch match = new TSQueryMatch();
-    while (queryCursor.nextMatch(match)) {
-      Map<String, TSNode> captures = new HashMap<>();
-      for (TSQueryCapture capture : match.getCaptures()) {
-        String captureName = query.getCaptureNameForId(capture.getIndex());
-        captures.put(captureName, capture.getNode());
-      }
-      TSNode nameNode = captures.get("name");
-      TSNode modsNode = captures.get("mods");
-      TSNode paramTypeNode = captures.get("param_type");
-      if (nameNode != null && modsNode != null && paramTypeNode != null) {
-        String methodName =
-            file.getSourceCode().substring(nameNode.getStartByte(), nameNode.getEndByte());
-        String paramType =
-            file.getSourceCode()
-                .substring(paramTypeNode.getStartByte(), paramTypeNode.getEndByte());
-        String methodModifiers =
-            file.getSourceCode().substring(modsNode.getStartByte(), modsNode.getEndByte());
-        Set<String> modifiersSet =
-            new HashSet<>(Arrays.asList(methodModifiers.trim().split("\\s+")));
-        boolean hasCorrectModifiers =
-            modifiersSet.size() == 2
-                && modifiersSet.contains("public")
-                && modifiersSet.contains("static");
-        if (methodName.equals("main") && paramType.equals("String") && hasCorrectModifiers) {
-          return true;
-        }
-      }
-    }
-    return false;
+    boolean[] found = new boolean[1];
+    JavaQueries.MAIN_METHOD.forEachMatch(
+        file.getTree().getRootNode(),
+        match -> {
+          TSNode nameNode = match.get(JavaQueries.MAIN_METHOD_NAME);
+          TSNode modsNode = match.get(JavaQueries.MAIN_METHOD_MODIFIERS);
+          TSNode paramTypeNode = match.get(JavaQueries.MAIN_METHOD_PARAMETER_TYPE);
+          found[0] =
+              nameNode != null
+                  && modsNode != null
+                  && paramTypeNode != null
+                  && file.textEquals(nameNode, "main")
+                  && file.textEquals(paramTypeNode, "String")
+                  && this.hasExactModifiers(modsNode, JavaSymbols.PUBLIC, JavaSymbols.STATIC);
+          return !found[0];
+        });
+    return found[0];
   }
 
   public Optional<String> getPackageName(TSFile file) {
-    String packageQuery = "(package_declaration (scoped_identifier) @package_name)";
-    TSQuery query = new TSQuery(file.getParser().getLanguage(), packageQuery);
-    TSQueryCursor cursor = new TSQueryCursor();
-    cursor.exec(query, file.getTree().getRootNode());
-    TSQueryMatch match = new TSQueryMatch();
-    if (cursor.nextMatch(match)) {
-      for (TSQueryCapture capture : match.getCaptures()) {
-        TSNode node = capture.getNode();
-        String packageName = file.getTextFromRange(node.getStartByte(), node.getEndByte());
-        return Optional.of(packageName);
-      }
-    }
-    return Optional.empty();
+    return JavaQueries.PACKAGE_NAME
+        .findFirst(file.getTree().getRootNode(), JavaQueries.PACKAGE_NAME_NAME)
+        .map(node -> file.getTextFromRange(node.getStartByte(), node.getEndByte()));
   }
 
   public Optional<ScopeType> getNodeScope(TSNode node) {
     if (node == null) {
       return Optional.empty();
     }
-    String nodeType = node.getType();
-    if ("local_variable_declaration".equals(nodeType) || "formal_parameter".equals(nodeType)) {
+    int symbol = node.getSymbol();
+    if (symbol == JavaSymbols.LOCAL_VARIABLE_DECLARATION
+        || symbol == JavaSymbols.FORMAL_PARAMETER) {
       return Optional.of(ScopeType.LOCAL);
     }
-    boolean isPublic = false;
-    for (int i = 0; i < node.getChildCount(); i++) {
-      TSNode child = node.getChild(i);
-      if ("modifiers".equals(child.getType())) {
-        for (int j = 0; j < child.getChildCount(); j++) {
-          if ("public".equals(child.getChild(j).getType())) {
-            isPublic = true;
-            break;
+    if (JavaSymbols.isTypeDeclaration(symbol)
+        || isFieldDeclaration(symbol)
+        || symbol == JavaSymbols.METHOD_DECLARATION) {
+      // Only private members and types local to a block are confined to their file. Everything
+      // else, including package-private members and the implicitly public members of interfaces,
+      // can be used from other files.
+      TSNode parent = node.getParent();
+      boolean isLocalType = parent != null && parent.getSymbol() == JavaSymbols.BLOCK;
+      boolean isPrivate = this.hasModifier(node, JavaSymbols.PRIVATE);
+      return isPrivate || isLocalType
+          ? Optional.of(ScopeType.CLASS)
+          : Optional.of(ScopeType.PROJECT);
+    }
+    return Optional.empty();
+  }
+
+  public JavaIdentifierType getIdentifierType(TSNode node) {
+    if (node.getSymbol() != JavaSymbols.IDENTIFIER) {
+      return null;
+    }
+    TSNode parent = node.getParent();
+    if (parent == null) {
+      return null;
+    }
+    int parentSymbol = parent.getSymbol();
+    if (parentSymbol == JavaSymbols.VARIABLE_DECLARATOR) {
+      TSNode grandParent = parent.getParent();
+      if (grandParent != null && isFieldDeclaration(grandParent.getSymbol())) {
+        return JavaIdentifierType.FIELD_NAME;
+      }
+      return JavaIdentifierType.LOCAL_VARIABLE_NAME;
+    }
+    return this.getDeclarationIdentifierType(parentSymbol);
+  }
+
+  /**
+   * Classifies the identifier the walker is positioned on, using the walker's ancestor path instead
+   * of {@link TSNode#getParent()} lookups. The walker is left on the identifier.
+   */
+  public JavaIdentifierType getIdentifierType(TSTreeWalker walker) {
+    if (!walker.is(JavaSymbols.IDENTIFIER)) {
+      return null;
+    }
+    int startByte = walker.startByte();
+    if (!walker.gotoParent()) {
+      return null;
+    }
+    int levels = 1;
+    int parentSymbol = walker.symbol();
+    JavaIdentifierType identifierType;
+    if (parentSymbol == JavaSymbols.VARIABLE_DECLARATOR) {
+      identifierType = JavaIdentifierType.LOCAL_VARIABLE_NAME;
+      if (walker.gotoParent()) {
+        levels++;
+        if (isFieldDeclaration(walker.symbol())) {
+          identifierType = JavaIdentifierType.FIELD_NAME;
+        }
+      }
+    } else {
+      identifierType = this.getDeclarationIdentifierType(parentSymbol);
+    }
+    for (; levels > 0; levels--) {
+      walker.gotoFirstChildForByte(startByte);
+    }
+    return identifierType;
+  }
+
+  private JavaIdentifierType getDeclarationIdentifierType(int declarationSymbol) {
+    if (declarationSymbol == JavaSymbols.CLASS_DECLARATION) {
+      return JavaIdentifierType.CLASS_NAME;
+    }
+    if (declarationSymbol == JavaSymbols.METHOD_DECLARATION) {
+      return JavaIdentifierType.METHOD_NAME;
+    }
+    if (declarationSymbol == JavaSymbols.FORMAL_PARAMETER) {
+      return JavaIdentifierType.FORMAL_PARAMETER_NAME;
+    }
+    return null;
+  }
+
+  public JavaIdentifierType getIdentifierType(TSFile file, int line, int column) {
+    int byteOffset = file.getByteOffset(line, column);
+    if (byteOffset < 0) {
+      return null;
+    }
+    TSTreeWalker walker = TSTreeWalker.of(file.getTree().getRootNode());
+    walker.gotoNamedDescendantForByte(byteOffset);
+    return this.getIdentifierType(walker);
+  }
+
+  public Optional<TSNode> getDeclarationNode(TSNode identifierNode) {
+    JavaIdentifierType identifierType = this.getIdentifierType(identifierNode);
+    if (identifierType == null) {
+      return Optional.empty();
+    }
+    TSNode parent = identifierNode.getParent();
+    if (identifierType == JavaIdentifierType.FIELD_NAME
+        || identifierType == JavaIdentifierType.LOCAL_VARIABLE_NAME) {
+      // The identifier belongs to a variable_declarator inside the actual declaration.
+      return Optional.ofNullable(parent.getParent());
+    }
+    return Optional.of(parent);
+  }
+
+  public List<TSNode> findIdentifierNodes(
+      TSFile file, TSNode scopeNode, String name, boolean includeTypeIdentifiers) {
+    CompiledQuery query =
+        includeTypeIdentifiers ? JavaQueries.IDENTIFIERS_AND_TYPES : JavaQueries.IDENTIFIERS;
+    int nameCapture =
+        includeTypeIdentifiers
+            ? JavaQueries.IDENTIFIERS_AND_TYPES_NAME
+            : JavaQueries.IDENTIFIERS_NAME;
+    List<TSNode> identifierNodes = new ArrayList<>();
+    query.forEachMatch(
+        scopeNode,
+        match -> {
+          TSNode node = match.get(nameCapture);
+          if (node != null && file.textEquals(node, name)) {
+            identifierNodes.add(node);
           }
+          return true;
+        });
+    return identifierNodes;
+  }
+
+  /**
+   * Returns the node that bounds every possible reference to a declaration with a {@link
+   * ScopeType#LOCAL} or {@link ScopeType#CLASS} scope: the block around a local variable, the
+   * method, constructor or lambda declaring a parameter, or the top-level type around a member.
+   *
+   * @param file The file containing the declaration.
+   * @param declarationNode The declaration node, as returned by {@link #getDeclarationNode}.
+   * @return The scope node, or empty if the declaration has a project-wide scope.
+   */
+  public Optional<TSNode> getScopeNode(TSFile file, TSNode declarationNode) {
+    Optional<ScopeType> scope = this.getNodeScope(declarationNode);
+    if (scope.isEmpty() || scope.get() == ScopeType.PROJECT) {
+      return Optional.empty();
+    }
+    TSTreeWalker walker = TSTreeWalker.of(file.getTree().getRootNode());
+    walker.gotoNamedDescendantForByte(declarationNode.getStartByte());
+    int declarationSymbol = declarationNode.getSymbol();
+    int declarationEnd = declarationNode.getEndByte();
+    while (!walker.is(declarationSymbol) || walker.endByte() != declarationEnd) {
+      if (!walker.gotoParent()) {
+        return Optional.empty();
+      }
+    }
+    if (declarationSymbol == JavaSymbols.LOCAL_VARIABLE_DECLARATION) {
+      return walker.gotoParent() ? Optional.of(walker.node()) : Optional.empty();
+    }
+    if (declarationSymbol == JavaSymbols.FORMAL_PARAMETER) {
+      while (walker.gotoParent()) {
+        if (JavaSymbols.isParameterOwner(walker.symbol())) {
+          return Optional.of(walker.node());
         }
       }
-      if (isPublic) {
-        break;
+      return Optional.empty();
+    }
+    // Private members are visible anywhere in the top-level type, including nested types.
+    while (walker.depth() > 1) {
+      walker.gotoParent();
+    }
+    return Optional.of(walker.node());
+  }
+
+  /**
+   * Finds the identifiers referring to a locally or class scoped declaration, searching only the
+   * declaration's scope node in the already parsed file. Names are resolved by binding: uses of a
+   * variable shadowed by a nearer declaration, and field names where a method is renamed or the
+   * reverse, are not references.
+   *
+   * @param file The file containing the declaration.
+   * @param declarationNode The declaration node, as returned by {@link #getDeclarationNode}.
+   * @param name The declared name.
+   * @param includeTypeIdentifiers Whether type identifiers should be matched as well.
+   * @return The matching identifiers, or empty if the declaration has a project-wide scope and
+   *     cannot be resolved within one file.
+   */
+  public Optional<List<TSNode>> findReferencesInScope(
+      TSFile file, TSNode declarationNode, String name, boolean includeTypeIdentifiers) {
+    return this.findMatchesInScope(file, declarationNode, name, includeTypeIdentifiers)
+        .map(ReferenceMatches::references);
+  }
+
+  /**
+   * Like {@link #findReferencesInScope}, but also returns the uses of a class scoped member whose
+   * receiver cannot be resolved, which might refer to the member as well.
+   */
+  public Optional<ReferenceMatches> findMatchesInScope(
+      TSFile file, TSNode declarationNode, String name, boolean includeTypeIdentifiers) {
+    Optional<TSNode> scopeNode = this.getScopeNode(file, declarationNode);
+    if (scopeNode.isEmpty()) {
+      return Optional.empty();
+    }
+    int declarationSymbol = declarationNode.getSymbol();
+    if (declarationSymbol == JavaSymbols.FIELD_DECLARATION
+        || declarationSymbol == JavaSymbols.METHOD_DECLARATION) {
+      String declaringType = this.getEnclosingTypeName(file, declarationNode).orElse(null);
+      if (declaringType == null) {
+        return Optional.of(new ReferenceMatches(List.of(), List.of()));
       }
+      return Optional.of(
+          this.findMemberReferences(
+              file,
+              scopeNode.get(),
+              name,
+              declarationSymbol == JavaSymbols.METHOD_DECLARATION,
+              declaringType,
+              Set.of(declaringType)));
     }
-    if ("class_declaration".equals(nodeType)
-        || "interface_declaration".equals(nodeType)
-        || "enum_declaration".equals(nodeType)
-        || "record_declaration".equals(nodeType)
-        || "annotation_type_declaration".equals(nodeType)) {
-      return isPublic ? Optional.of(ScopeType.PROJECT) : Optional.of(ScopeType.CLASS);
+    // Types are matched by name; variables by the declaration their uses bind to.
+    TSNode variableName = null;
+    if (declarationSymbol == JavaSymbols.LOCAL_VARIABLE_DECLARATION) {
+      variableName = this.findDeclaratorName(file, declarationNode, name);
+    } else if (declarationSymbol == JavaSymbols.FORMAL_PARAMETER) {
+      variableName = this.matchName(file, getField(declarationNode, "name"), name);
     }
-    if ("field_declaration".equals(nodeType) || "method_declaration".equals(nodeType)) {
-      return isPublic ? Optional.of(ScopeType.PROJECT) : Optional.of(ScopeType.CLASS);
+    TSNode declaredName = variableName;
+    List<TSNode> references = new ArrayList<>();
+    TSTreeWalker.of(scopeNode.get())
+        .walk(
+            walker -> {
+              int symbol = walker.symbol();
+              if (symbol != JavaSymbols.IDENTIFIER
+                  && (!includeTypeIdentifiers || symbol != JavaSymbols.TYPE_IDENTIFIER)) {
+                return true;
+              }
+              // Only matching identifiers are materialized as nodes.
+              if (!file.textEquals(walker.startByte(), walker.endByte(), name)) {
+                return false;
+              }
+              TSNode identifier = walker.node();
+              if (declaredName == null
+                  || (this.isVariableName(identifier)
+                      && this.findVariableBinding(file, identifier)
+                          .filter(binding -> isSameNode(binding, declaredName))
+                          .isPresent())) {
+                references.add(identifier);
+              }
+              return false;
+            });
+    return Optional.of(new ReferenceMatches(references, List.of()));
+  }
+
+  /**
+   * Whether an identifier stands for a variable, rather than a member selected from another
+   * expression, a method or a segment of a qualified name.
+   */
+  private boolean isVariableName(TSNode identifier) {
+    TSNode parent = identifier.getParent();
+    if (parent == null || parent.isNull()) {
+      return false;
+    }
+    int parentSymbol = parent.getSymbol();
+    if (parentSymbol == JavaSymbols.FIELD_ACCESS) {
+      return !isField(parent, "field", identifier);
+    }
+    if (parentSymbol == JavaSymbols.METHOD_INVOCATION) {
+      return !isField(parent, "name", identifier);
+    }
+    if (parentSymbol == JavaSymbols.METHOD_REFERENCE) {
+      return isSameNode(parent.getNamedChild(0), identifier);
+    }
+    return parentSymbol != JavaSymbols.METHOD_DECLARATION
+        && parentSymbol != JavaSymbols.CONSTRUCTOR_DECLARATION
+        && parentSymbol != JavaSymbols.SCOPED_IDENTIFIER
+        && !JavaSymbols.isTypeDeclaration(parentSymbol);
+  }
+
+  private boolean hasModifier(TSNode declarationNode, int modifierSymbol) {
+    TSTreeWalker walker = TSTreeWalker.of(declarationNode);
+    if (!walker.gotoChild(JavaSymbols.MODIFIERS)) {
+      return false;
+    }
+    return walker.gotoChild(modifierSymbol);
+  }
+
+  /**
+   * Checks that a modifiers node consists of exactly the given modifier tokens, in any order, by
+   * their symbol ids rather than their text.
+   */
+  private boolean hasExactModifiers(TSNode modifiersNode, int... modifierSymbols) {
+    TSTreeWalker walker = TSTreeWalker.of(modifiersNode);
+    if (!walker.gotoFirstChild()) {
+      return modifierSymbols.length == 0;
+    }
+    int seen = 0;
+    int count = 0;
+    do {
+      int index = 0;
+      while (index < modifierSymbols.length && modifierSymbols[index] != walker.symbol()) {
+        index++;
+      }
+      if (index == modifierSymbols.length) {
+        return false;
+      }
+      seen |= 1 << index;
+      count++;
+    } while (walker.gotoNextSibling());
+    return count == modifierSymbols.length && seen == (1 << modifierSymbols.length) - 1;
+  }
+
+  /**
+   * Finds the declaration an unqualified variable name binds to within its file: the nearest local
+   * variable or parameter in scope, or else a field of an enclosing type. Locals declared after the
+   * name or in sibling blocks do not count.
+   *
+   * @param file The file containing the name.
+   * @param identifier An identifier used as a variable name, or the name of a declaration.
+   * @return The name node of the declaration, or empty if nothing in the file declares the name
+   *     where it is used, as for an inherited field.
+   */
+  public Optional<TSNode> findVariableBinding(TSFile file, TSNode identifier) {
+    String name = file.getTextFromRange(identifier.getStartByte(), identifier.getEndByte());
+    int position = identifier.getStartByte();
+    for (TSNode scope = identifier.getParent();
+        scope != null && !scope.isNull();
+        scope = scope.getParent()) {
+      TSNode binding = this.findDeclaredName(file, scope, name, position);
+      if (binding != null) {
+        return Optional.of(binding);
+      }
     }
     return Optional.empty();
   }
 
-  public JavaIdentifierType getIdentifierType(TSNode node) {
-    if (!"identifier".equals(node.getType())) {
+  /** Finds the name node of a variable the scope node declares before the position. */
+  private TSNode findDeclaredName(TSFile file, TSNode scope, String name, int position) {
+    int scopeSymbol = scope.getSymbol();
+    if (JavaSymbols.isMemberContainer(scopeSymbol)) {
+      // Fields are visible throughout their type, wherever they are declared.
+      for (int i = 0; i < scope.getNamedChildCount(); i++) {
+        TSNode member = scope.getNamedChild(i);
+        int symbol = member.getSymbol();
+        if (isFieldDeclaration(symbol)) {
+          TSNode found = this.findDeclaratorName(file, member, name);
+          if (found != null) {
+            return found;
+          }
+        }
+      }
       return null;
     }
-    TSNode parent = node.getParent();
-    if (parent == null) {
+    if (scopeSymbol == JavaSymbols.RECORD_DECLARATION) {
+      return this.findParameterName(file, getField(scope, "parameters"), name);
+    }
+    if (scopeSymbol == JavaSymbols.ENHANCED_FOR_STATEMENT
+        || scopeSymbol == JavaSymbols.CATCH_FORMAL_PARAMETER
+        || scopeSymbol == JavaSymbols.RESOURCE) {
+      return this.matchName(file, getField(scope, "name"), name);
+    }
+    if (scopeSymbol == JavaSymbols.LAMBDA_EXPRESSION) {
+      TSNode parameters = getField(scope, "parameters");
+      if (parameters != null && parameters.getSymbol() == JavaSymbols.IDENTIFIER) {
+        return this.matchName(file, parameters, name);
+      }
+    }
+    TSNode found = null;
+    for (int i = 0; i < scope.getNamedChildCount(); i++) {
+      TSNode child = scope.getNamedChild(i);
+      if (child.getStartByte() > position) {
+        break;
+      }
+      int symbol = child.getSymbol();
+      TSNode candidate = null;
+      if (symbol == JavaSymbols.LOCAL_VARIABLE_DECLARATION) {
+        candidate = this.findDeclaratorName(file, child, name);
+      } else if (symbol == JavaSymbols.FORMAL_PARAMETERS
+          || symbol == JavaSymbols.INFERRED_PARAMETERS) {
+        candidate = this.findParameterName(file, child, name);
+      } else if (symbol == JavaSymbols.CATCH_FORMAL_PARAMETER) {
+        candidate = this.matchName(file, getField(child, "name"), name);
+      } else if (symbol == JavaSymbols.RESOURCE_SPECIFICATION) {
+        for (int j = 0; j < child.getNamedChildCount() && candidate == null; j++) {
+          candidate = this.matchName(file, getField(child.getNamedChild(j), "name"), name);
+        }
+      }
+      if (candidate != null) {
+        found = candidate;
+      }
+    }
+    return found;
+  }
+
+  private TSNode findDeclaratorName(TSFile file, TSNode declaration, String name) {
+    for (int i = 0; i < declaration.getNamedChildCount(); i++) {
+      TSNode declarator = declaration.getNamedChild(i);
+      if (declarator.getSymbol() == JavaSymbols.VARIABLE_DECLARATOR) {
+        TSNode found = this.matchName(file, getField(declarator, "name"), name);
+        if (found != null) {
+          return found;
+        }
+      }
+    }
+    return null;
+  }
+
+  private TSNode findParameterName(TSFile file, TSNode parameters, String name) {
+    if (parameters == null) {
       return null;
     }
-    String parentType = parent.getType();
-    switch (parentType) {
-      case "class_declaration":
-        return JavaIdentifierType.CLASS_NAME;
-      case "method_declaration":
-        return JavaIdentifierType.METHOD_NAME;
-      case "formal_parameter":
-        return JavaIdentifierType.FORMAL_PARAMETER_NAME;
-      case "variable_declarator":
-        TSNode grandParent = parent.getParent();
-        if (grandParent != null && "field_declaration".equals(grandParent.getType())) {
-          return JavaIdentifierType.FIELD_NAME;
+    for (int i = 0; i < parameters.getNamedChildCount(); i++) {
+      TSNode parameter = parameters.getNamedChild(i);
+      int symbol = parameter.getSymbol();
+      TSNode found = null;
+      if (symbol == JavaSymbols.IDENTIFIER) {
+        found = this.matchName(file, parameter, name);
+      } else if (symbol == JavaSymbols.FORMAL_PARAMETER) {
+        found = this.matchName(file, getField(parameter, "name"), name);
+      } else if (symbol == JavaSymbols.SPREAD_PARAMETER) {
+        found = this.findDeclaratorName(file, parameter, name);
+      }
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
+  private TSNode matchName(TSFile file, TSNode nameNode, String name) {
+    return nameNode != null && file.textEquals(nameNode, name) ? nameNode : null;
+  }
+
+  /**
+   * Returns the simple name of the type a node is declared in. An anonymous class counts as the
+   * type it instantiates.
+   *
+   * @param file The file containing the node.
+   * @param node A node inside a type declaration, such as a member declaration.
+   * @return The name of the innermost enclosing type, or empty at the top level.
+   */
+  public Optional<String> getEnclosingTypeName(TSFile file, TSNode node) {
+    List<String> names = this.getEnclosingTypeNames(file, node);
+    return names.isEmpty() ? Optional.empty() : Optional.of(names.get(0));
+  }
+
+  /** Returns the simple names of the types enclosing a node, innermost first. */
+  private List<String> getEnclosingTypeNames(TSFile file, TSNode node) {
+    List<String> names = new ArrayList<>();
+    for (TSNode current = node.getParent();
+        current != null && !current.isNull();
+        current = current.getParent()) {
+      int symbol = current.getSymbol();
+      String name = null;
+      if (JavaSymbols.isTypeDeclaration(symbol)) {
+        TSNode nameNode = getField(current, "name");
+        name = nameNode == null ? null : this.getText(file, nameNode);
+      } else if (symbol == JavaSymbols.OBJECT_CREATION_EXPRESSION) {
+        // Only the class body follows the arguments of an instance creation.
+        TSNode arguments = getField(current, "arguments");
+        if (arguments != null && node.getStartByte() >= arguments.getEndByte()) {
+          name = this.getTypeName(file, getField(current, "type"));
         }
-        return JavaIdentifierType.LOCAL_VARIABLE_NAME;
-      default:
+      }
+      if (name != null) {
+        names.add(name);
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Resolves the static type of a receiver expression as far as the file tells: {@code this},
+   * {@code super}, variables with a declared type, type names, instance creations and casts.
+   *
+   * @return The simple name of the type, or null if it cannot be told without compiling.
+   */
+  private String resolveTypeName(TSFile file, TSNode expression) {
+    if (expression == null) {
+      return null;
+    }
+    int symbol = expression.getSymbol();
+    if (symbol == JavaSymbols.THIS) {
+      return this.getEnclosingTypeName(file, expression).orElse(null);
+    }
+    if (symbol == JavaSymbols.SUPER) {
+      for (TSNode current = expression.getParent();
+          current != null && !current.isNull();
+          current = current.getParent()) {
+        if (current.getSymbol() == JavaSymbols.CLASS_DECLARATION) {
+          TSNode superclass = getField(current, "superclass");
+          return superclass == null ? null : this.getTypeName(file, superclass.getNamedChild(0));
+        }
+      }
+      return null;
+    }
+    if (symbol == JavaSymbols.OBJECT_CREATION_EXPRESSION
+        || symbol == JavaSymbols.CAST_EXPRESSION) {
+      return this.getTypeName(file, getField(expression, "type"));
+    }
+    if (symbol == JavaSymbols.PARENTHESIZED_EXPRESSION) {
+      return this.resolveTypeName(file, expression.getNamedChild(0));
+    }
+    if (symbol == JavaSymbols.FIELD_ACCESS) {
+      TSNode object = getField(expression, "object");
+      TSNode field = getField(expression, "field");
+      if (object == null || field == null || object.getSymbol() != JavaSymbols.THIS) {
         return null;
+      }
+      // this.field: the field is declared in the enclosing type or not known in this file.
+      Optional<TSNode> binding = this.findVariableBinding(file, field);
+      return binding.map(name -> this.getDeclaredTypeName(file, name)).orElse(null);
+    }
+    if (symbol == JavaSymbols.TYPE_IDENTIFIER) {
+      return this.getText(file, expression);
     }
+    if (symbol != JavaSymbols.IDENTIFIER) {
+      return null;
+    }
+    Optional<TSNode> binding = this.findVariableBinding(file, expression);
+    if (binding.isPresent()) {
+      return this.getDeclaredTypeName(file, binding.get());
+    }
+    // A name that no variable declares is a type name, as in a static member access.
+    String name = this.getText(file, expression);
+    return Character.isUpperCase(name.charAt(0)) ? name : null;
   }
 
-  public JavaIdentifierType getIdentifierType(TSFile file, int line, int column) {
-    TSNode node = file.getNodeFromPosition(line, column);
-    return this.getIdentifierType(node);
+  /** Returns the simple name of the declared type of a variable, given its name node. */
+  private String getDeclaredTypeName(TSFile file, TSNode nameNode) {
+    TSNode declaration = nameNode.getParent();
+    TSNode declarator = null;
+    if (declaration.getSymbol() == JavaSymbols.VARIABLE_DECLARATOR) {
+      declarator = declaration;
+      declaration = declaration.getParent();
+    }
+    TSNode typeNode = getField(declaration, "type");
+    if (typeNode == null) {
+      return null;
+    }
+    if (declarator != null && file.textEquals(typeNode, "var")) {
+      return this.resolveTypeName(file, getField(declarator, "value"));
+    }
+    return this.getTypeName(file, typeNode);
   }
 
-  public List<TSNode> findClassUsages(Path rootDir, String className) {
-    List<TSNode> allUsages = new ArrayList<>();
-    List<TSFile> allJavaFiles;
-    try {
-      allJavaFiles = this.pathHelper.findFilesByExtention(rootDir, SupportedLanguage.JAVA);
-    } catch (IOException e) {
-      return allUsages;
+  /** Returns the simple name of a class or interface type node, without type arguments. */
+  private String getTypeName(TSFile file, TSNode typeNode) {
+    if (typeNode == null) {
+      return null;
     }
-    for (TSFile file : allJavaFiles) {
-      allUsages.addAll(this.findValidatedUsagesInFile(file, className));
+    int symbol = typeNode.getSymbol();
+    if (symbol == JavaSymbols.GENERIC_TYPE) {
+      return this.getTypeName(file, typeNode.getNamedChild(0));
     }
-    return allUsages;
+    if (symbol == JavaSymbols.TYPE_IDENTIFIER || symbol == JavaSymbols.SCOPED_TYPE_IDENTIFIER) {
+      return this.getSimpleName(this.getText(file, typeNode));
+    }
+    return null;
   }
 
-  private List<TSNode> findValidatedUsagesInFile(TSFile file, String className) {
-    List<TSNode> confirmedUsages = new ArrayList<>();
-    String usageQuery = "((identifier) @usage (#eq? @usage \"" + className + "\"))";
-    TSQuery query = new TSQuery(file.getParser().getLanguage(), usageQuery);
-    TSQueryCursor cursor = new TSQueryCursor();
-    cursor.exec(query, file.getTree().getRootNode());
-    TSQueryMatch match = new TSQueryMatch();
-    while (cursor.nextMatch(match)) {
-      for (TSQueryCapture capture : match.getCaptures()) {
-        TSNode potentialUsage = capture.getNode();
-        if (isUsageOfClass(file, potentialUsage, className)) {
-          confirmedUsages.add(potentialUsage);
+  /**
+   * Finds the references to a field or method of a type in a file. Accesses count when their
+   * receiver resolves to the declaring type or one of its subtypes, and unqualified names when an
+   * enclosing type is one of them and, for fields, no nearer variable shadows the field. Method
+   * declarations in these types count as well, as they override the renamed method.
+   *
+   * <p>Accesses of the same name and kind whose receiver cannot be resolved within the file, such
+   * as the result of a method call, a field declared in another file or an untyped lambda
+   * parameter, are returned separately.
+   *
+   * @param file The file to search.
+   * @param name The member name.
+   * @param isMethod Whether the member is a method rather than a field.
+   * @param declaringType The simple name of the type declaring the member.
+   * @param owningTypes The simple names of the declaring type and its subtypes.
+   * @return The identifiers referring to the member, including its declaration, and those that
+   *     might.
+   */
+  public ReferenceMatches findMemberReferences(
+      TSFile file, String name, boolean isMethod, String declaringType, Set<String> owningTypes) {
+    return this.findMemberReferences(
+        file, file.getTree().getRootNode(), name, isMethod, declaringType, owningTypes);
+  }
+
+  private ReferenceMatches findMemberReferences(
+      TSFile file,
+      TSNode scopeNode,
+      String name,
+      boolean isMethod,
+      String declaringType,
+      Set<String> owningTypes) {
+    List<TSNode> references = new ArrayList<>();
+    List<TSNode> unresolved = new ArrayList<>();
+    for (TSNode identifier : this.findIdentifierNodes(file, scopeNode, name, false)) {
+      switch (this.matchMember(file, identifier, isMethod, declaringType, owningTypes)) {
+        case REFERENCE -> references.add(identifier);
+        case UNRESOLVED -> unresolved.add(identifier);
+        case NONE -> {}
+      }
+    }
+    return new ReferenceMatches(references, unresolved);
+  }
+
+  /** How an identifier relates to a member: it refers to it, might refer to it, or does not. */
+  private enum MemberMatch {
+    REFERENCE,
+    UNRESOLVED,
+    NONE
+  }
+
+  private static MemberMatch match(boolean isReference) {
+    return isReference ? MemberMatch.REFERENCE : MemberMatch.NONE;
+  }
+
+  private MemberMatch matchMember(
+      TSFile file,
+      TSNode identifier,
+      boolean isMethod,
+      String declaringType,
+      Set<String> owningTypes) {
+    TSNode parent = identifier.getParent();
+    if (parent == null || parent.isNull()) {
+      return MemberMatch.NONE;
+    }
+    int parentSymbol = parent.getSymbol();
+    boolean isMethodName = false;
+    TSNode receiver = null;
+    if (parentSymbol == JavaSymbols.METHOD_INVOCATION && isField(parent, "name", identifier)) {
+      isMethodName = true;
+      receiver = getField(parent, "object");
+    } else if (parentSymbol == JavaSymbols.METHOD_REFERENCE
+        && parent.getNamedChildCount() > 1
+        && isSameNode(parent.getNamedChild(parent.getNamedChildCount() - 1), identifier)) {
+      isMethodName = true;
+      receiver = parent.getNamedChild(0);
+    } else if (parentSymbol == JavaSymbols.METHOD_DECLARATION) {
+      return match(
+          isMethod
+              && isField(parent, "name", identifier)
+              && this.getEnclosingTypeName(file, parent).filter(owningTypes::contains).isPresent());
+    } else if (parentSymbol == JavaSymbols.FIELD_ACCESS) {
+      if (!isField(parent, "field", identifier)) {
+        return match(
+            !isMethod
+                && this.isUnqualifiedFieldReference(file, identifier, declaringType, owningTypes));
+      }
+      receiver = getField(parent, "object");
+    } else if (parentSymbol == JavaSymbols.VARIABLE_DECLARATOR) {
+      // Only the declaration itself; a field of the same name in a subtype hides it.
+      TSNode declaration = parent.getParent();
+      return match(
+          !isMethod
+              && isField(parent, "name", identifier)
+              && isFieldDeclaration(declaration.getSymbol())
+              && this.getEnclosingTypeName(file, declaration)
+                  .filter(declaringType::equals)
+                  .isPresent());
+    } else if (parentSymbol == JavaSymbols.SCOPED_IDENTIFIER
+        || parentSymbol == JavaSymbols.IMPORT_DECLARATION
+        || parentSymbol == JavaSymbols.PACKAGE_DECLARATION
+        || parentSymbol == JavaSymbols.CONSTRUCTOR_DECLARATION
+        || JavaSymbols.isTypeDeclaration(parentSymbol)) {
+      return MemberMatch.NONE;
+    }
+    if (isMethodName != isMethod) {
+      return MemberMatch.NONE;
+    }
+    if (receiver != null) {
+      String receiverType = this.resolveTypeName(file, receiver);
+      if (receiverType == null) {
+        return MemberMatch.UNRESOLVED;
+      }
+      return match(owningTypes.contains(receiverType));
+    }
+    if (isMethod) {
+      return match(
+          this.getEnclosingTypeNames(file, identifier).stream().anyMatch(owningTypes::contains));
+    }
+    return match(this.isUnqualifiedFieldReference(file, identifier, declaringType, owningTypes));
+  }
+
+  /** Whether a method declaration is annotated with {@code @Override}. */
+  public boolean isOverride(TSFile file, TSNode methodDeclaration) {
+    TSTreeWalker walker = TSTreeWalker.of(methodDeclaration);
+    if (!walker.gotoChild(JavaSymbols.MODIFIERS) || !walker.gotoFirstChild()) {
+      return false;
+    }
+    do {
+      if (walker.is(JavaSymbols.MARKER_ANNOTATION)) {
+        TSNode name = getField(walker.node(), "name");
+        if (name != null && this.getSimpleName(this.getText(file, name)).equals("Override")) {
+          return true;
         }
       }
+    } while (walker.gotoNextSibling());
+    return false;
+  }
+
+  private boolean isUnqualifiedFieldReference(
+      TSFile file, TSNode identifier, String declaringType, Set<String> owningTypes) {
+    Optional<TSNode> binding = this.findVariableBinding(file, identifier);
+    if (binding.isPresent()) {
+      TSNode declarator = binding.get().getParent();
+      TSNode declaration = declarator.getParent();
+      return declarator.getSymbol() == JavaSymbols.VARIABLE_DECLARATOR
+          && isFieldDeclaration(declaration.getSymbol())
+          && this.getEnclosingTypeName(file, declaration).filter(declaringType::equals).isPresent();
+    }
+    // Nothing in the file declares the name: it is a field inherited by an enclosing type.
+    return this.getEnclosingTypeNames(file, identifier).stream().anyMatch(owningTypes::contains);
+  }
+
+  /** Whether a node declares fields: a field declaration or an interface constant. */
+  private static boolean isFieldDeclaration(int symbol) {
+    return symbol == JavaSymbols.FIELD_DECLARATION || symbol == JavaSymbols.CONSTANT_DECLARATION;
+  }
+
+  /** Returns the child of a node with the given field name, or null if there is none. */
+  private static TSNode getField(TSNode node, String field) {
+    TSNode child = node.getChildByFieldName(field);
+    return child == null || child.isNull() ? null : child;
+  }
+
+  private static boolean isField(TSNode parent, String field, TSNode child) {
+    TSNode fieldNode = getField(parent, field);
+    return fieldNode != null && isSameNode(fieldNode, child);
+  }
+
+  private static boolean isSameNode(TSNode a, TSNode b) {
+    return a.getStartByte() == b.getStartByte()
+        && a.getEndByte() == b.getEndByte()
+        && a.getSymbol() == b.getSymbol();
+  }
+
+  /**
+   * Extracts the package, the declared top-level types, the imports and the qualified names used
+   * in a file.
+   *
+   * @param file The file to analyze.
+   * @return The package-level dependencies of the file.
+   */
+  public FileImports getFileImports(TSFile file) {
+    String packageName = this.getPackageName(file).orElse("");
+    Set<String> declaredTypes = new HashSet<>();
+    Set<String> importedTypes = new HashSet<>();
+    Set<String> importedPackages = new HashSet<>();
+    Set<String> qualifiedNames = new HashSet<>();
+    TSTreeWalker.of(file.getTree().getRootNode())
+        .walk(
+            walker -> {
+              int symbol = walker.symbol();
+              if (symbol == JavaSymbols.PACKAGE_DECLARATION) {
+                return false;
+              }
+              if (symbol == JavaSymbols.IMPORT_DECLARATION) {
+                this.collectImport(file, walker.node(), importedTypes, importedPackages);
+                return false;
+              }
+              if (walker.depth() == 1 && JavaSymbols.isTypeDeclaration(symbol)) {
+                TSNode nameNode = walker.node().getChildByFieldName("name");
+                if (nameNode != null && !nameNode.isNull()) {
+                  declaredTypes.add(this.getText(file, nameNode));
+                }
+              } else if (symbol == JavaSymbols.SCOPED_TYPE_IDENTIFIER
+                  || symbol == JavaSymbols.SCOPED_IDENTIFIER
+                  || symbol == JavaSymbols.FIELD_ACCESS) {
+                qualifiedNames.add(this.getText(file, walker.node()));
+              }
+              return true;
+            });
+    return new FileImports(
+        packageName,
+        Set.copyOf(declaredTypes),
+        Set.copyOf(importedTypes),
+        Set.copyOf(importedPackages),
+        Set.copyOf(qualifiedNames));
+  }
+
+  /**
+   * Extracts every type declared in a file, including nested types, with its direct supertypes.
+   *
+   * @param file The file to analyze.
+   * @return The type declarations in source order.
+   */
+  public List<TypeDeclaration> getTypeDeclarations(TSFile file) {
+    String packageName = this.getPackageName(file).orElse("");
+    List<TypeDeclaration> declarations = new ArrayList<>();
+    List<List<String>> supertypeNames = new ArrayList<>();
+    // Qualified names of the types declared in the file by simple name, the first one winning.
+    Map<String, String> fileTypes = new HashMap<>();
+    // Qualified names of the enclosing types, with the walker depth they were declared at.
+    List<String> enclosingNames = new ArrayList<>();
+    List<Integer> enclosingDepths = new ArrayList<>();
+    TSTreeWalker.of(file.getTree().getRootNode())
+        .walk(
+            walker -> {
+              TypeKind kind = this.getTypeKind(walker.symbol());
+              if (kind == null) {
+                return true;
+              }
+              TSNode declarationNode = walker.node();
+              TSNode nameNode = declarationNode.getChildByFieldName("name");
+              if (nameNode == null || nameNode.isNull()) {
+                return true;
+              }
+              int depth = walker.depth();
+              while (!enclosingDepths.isEmpty()
+                  && enclosingDepths.get(enclosingDepths.size() - 1) >= depth) {
+                enclosingDepths.remove(enclosingDepths.size() - 1);
+                enclosingNames.remove(enclosingNames.size() - 1);
+              }
+              String simpleName = this.getText(file, nameNode);
+              String outerName =
+                  enclosingNames.isEmpty()
+                      ? packageName
+                      : enclosingNames.get(enclosingNames.size() - 1);
+              String qualifiedName =
+                  outerName.isEmpty() ? simpleName : outerName + "." + simpleName;
+              enclosingNames.add(qualifiedName);
+              enclosingDepths.add(depth);
+              fileTypes.putIfAbsent(simpleName, qualifiedName);
+              supertypeNames.add(this.getSupertypeNames(file, declarationNode));
+              declarations.add(
+                  new TypeDeclaration(
+                      simpleName,
+                      qualifiedName,
+                      kind,
+                      nameNode.getStartPoint().getRow() + 1,
+                      nameNode.getStartPoint().getColumn() + 1,
+                      List.of()));
+              return true;
+            });
+    if (declarations.isEmpty()) {
+      return declarations;
+    }
+    // Supertypes may name types declared further down, so they are resolved after the walk.
+    Set<String> importedTypes = new HashSet<>();
+    Set<String> importedPackages = new HashSet<>();
+    TSTreeWalker imports = TSTreeWalker.of(file.getTree().getRootNode());
+    if (imports.gotoFirstChild()) {
+      do {
+        if (imports.is(JavaSymbols.IMPORT_DECLARATION)) {
+          this.collectImport(file, imports.node(), importedTypes, importedPackages);
+        }
+      } while (imports.gotoNextSibling());
+    }
+    for (int i = 0; i < declarations.size(); i++) {
+      List<TypeReference> supertypes = new ArrayList<>();
+      for (String supertypeName : supertypeNames.get(i)) {
+        supertypes.add(
+            this.getTypeReference(
+                supertypeName, packageName, fileTypes, importedTypes, importedPackages));
+      }
+      TypeDeclaration declaration = declarations.get(i);
+      declarations.set(
+          i,
+          new TypeDeclaration(
+              declaration.simpleName(),
+              declaration.qualifiedName(),
+              declaration.kind(),
+              declaration.line(),
+              declaration.column(),
+              List.copyOf(supertypes)));
+    }
+    return declarations;
+  }
+
+  /**
+   * Lists the qualified names a type name written in a file may stand for, in the order Java looks
+   * them up. The first segment of a dotted name is looked up as a type before it is taken as a
+   * package.
+   */
+  private TypeReference getTypeReference(
+      String name,
+      String packageName,
+      Map<String, String> fileTypes,
+      Set<String> importedTypes,
+      Set<String> importedPackages) {
+    int dot = name.indexOf('.');
+    String first = dot < 0 ? name : name.substring(0, dot);
+    String rest = dot < 0 ? "" : name.substring(dot);
+    Set<String> candidates = new LinkedHashSet<>();
+    String fileType = fileTypes.get(first);
+    if (fileType != null) {
+      candidates.add(fileType + rest);
+    }
+    for (String importedType : importedTypes) {
+      if (importedType.equals(first) || importedType.endsWith("." + first)) {
+        candidates.add(importedType + rest);
+      }
+    }
+    candidates.add(packageName.isEmpty() ? name : packageName + "." + name);
+    for (String importedPackage : importedPackages) {
+      candidates.add(importedPackage + "." + name);
+    }
+    candidates.add(dot < 0 ? "java.lang." + name : name);
+    return new TypeReference(this.getSimpleName(name), List.copyOf(candidates));
+  }
+
+  /**
+   * Collects the distinct names of all identifiers and type identifiers in a file.
+   *
+   * @param file The file to analyze.
+   * @return The identifier names.
+   */
+  public Set<String> getIdentifierNames(TSFile file) {
+    Set<String> names = new HashSet<>();
+    TSTreeWalker.of(file.getTree().getRootNode())
+        .walk(
+            walker -> {
+              int symbol = walker.symbol();
+              if (symbol == JavaSymbols.IDENTIFIER || symbol == JavaSymbols.TYPE_IDENTIFIER) {
+                names.add(file.getTextFromRange(walker.startByte(), walker.endByte()));
+                return false;
+              }
+              return true;
+            });
+    return names;
+  }
+
+  /**
+   * Extracts the types, methods and fields declared in a file, including those of nested types.
+   *
+   * @param file The file to analyze.
+   * @return The declarations in source order.
+   */
+  public List<SymbolDeclaration> getSymbolDeclarations(TSFile file) {
+    String packageName = this.getPackageName(file).orElse("");
+    List<SymbolDeclaration> declarations = new ArrayList<>();
+    // Qualified names of the enclosing types, with the walker depth they were declared at.
+    List<String> enclosingNames = new ArrayList<>();
+    List<Integer> enclosingDepths = new ArrayList<>();
+    TSTreeWalker.of(file.getTree().getRootNode())
+        .walk(
+            walker -> {
+              int symbol = walker.symbol();
+              TypeKind typeKind = this.getTypeKind(symbol);
+              if (typeKind == null
+                  && symbol != JavaSymbols.METHOD_DECLARATION
+                  && symbol != JavaSymbols.FIELD_DECLARATION) {
+                return true;
+              }
+              int depth = walker.depth();
+              while (!enclosingDepths.isEmpty()
+                  && enclosingDepths.get(enclosingDepths.size() - 1) >= depth) {
+                enclosingDepths.remove(enclosingDepths.size() - 1);
+                enclosingNames.remove(enclosingNames.size() - 1);
+              }
+              String containerName =
+                  enclosingNames.isEmpty()
+                      ? packageName
+                      : enclosingNames.get(enclosingNames.size() - 1);
+              TSNode declarationNode = walker.node();
+              if (symbol == JavaSymbols.FIELD_DECLARATION) {
+                TSTreeWalker declarators = TSTreeWalker.of(declarationNode);
+                if (declarators.gotoFirstChild()) {
+                  do {
+                    if (declarators.is(JavaSymbols.VARIABLE_DECLARATOR)) {
+                      this.addSymbolDeclaration(
+                          file,
+                          declarations,
+                          declarators.node().getChildByFieldName("name"),
+                          declarationNode,
+                          SymbolKind.FIELD,
+                          containerName);
+                    }
+                  } while (declarators.gotoNextSibling());
+                }
+                return false;
+              }
+              TSNode nameNode = declarationNode.getChildByFieldName("name");
+              if (symbol == JavaSymbols.METHOD_DECLARATION) {
+                this.addSymbolDeclaration(
+                    file,
+                    declarations,
+                    nameNode,
+                    declarationNode,
+                    SymbolKind.METHOD,
+                    containerName);
+                return false;
+              }
+              if (nameNode == null || nameNode.isNull()) {
+                return true;
+              }
+              this.addSymbolDeclaration(
+                  file,
+                  declarations,
+                  nameNode,
+                  declarationNode,
+                  SymbolKind.valueOf(typeKind.name()),
+                  containerName);
+              String simpleName = this.getText(file, nameNode);
+              enclosingNames.add(
+                  containerName.isEmpty() ? simpleName : containerName + "." + simpleName);
+              enclosingDepths.add(depth);
+              return true;
+            });
+    return declarations;
+  }
+
+  private void addSymbolDeclaration(
+      TSFile file,
+      List<SymbolDeclaration> declarations,
+      TSNode nameNode,
+      TSNode declarationNode,
+      SymbolKind kind,
+      String containerName) {
+    if (nameNode == null || nameNode.isNull()) {
+      return;
+    }
+    declarations.add(
+        new SymbolDeclaration(
+            this.getText(file, nameNode),
+            kind,
+            containerName,
+            nameNode.getStartPoint().getRow() + 1,
+            nameNode.getStartPoint().getColumn() + 1,
+            declarationNode.getEndPoint().getRow() + 1,
+            declarationNode.getEndPoint().getColumn() + 1));
+  }
+
+  /**
+   * Applies unsaved editor content to the buffers of the given files. A file without an open buffer
+   * starts from its content on disk, or from an empty text if it does not exist yet; the update is
+   * then applied incrementally to a working copy of the latest snapshot, so only the edited parts
+   * of the tree are re-parsed, and the result is published as the buffer's next snapshot.
+   *
+   * @param updates The updates to apply, in order.
+   * @param defaultPath The file of updates that do not name one, or null if every update must.
+   * @return The normalized paths of the updated buffers.
+   * @throws IOException If a file cannot be read.
+   * @throws IllegalArgumentException If an update names no file and there is no default, or an
+   *     edit lies outside of its buffer.
+   */
+  public Set<Path> applyBufferUpdates(List<BufferUpdate> updates, Path defaultPath)
+      throws IOException {
+    Set<Path> paths = new LinkedHashSet<>();
+    for (BufferUpdate update : updates) {
+      Path filePath = update.filePath() != null ? update.filePath() : defaultPath;
+      if (filePath == null) {
+        throw new IllegalArgumentException("A buffer update does not name its file.");
+      }
+      Path path = filePath.toAbsolutePath().normalize();
+      try {
+        // Updates of one buffer are serialized by the map; other buffers and readers proceed.
+        this.openBuffers.compute(
+            path,
+            (key, current) -> {
+              TSFile buffer;
+              try {
+                buffer = current != null ? current.toFile() : this.loadBuffer(key);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+              update.applyTo(buffer);
+              return buffer.snapshot();
+            });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      paths.add(path);
     }
+    return paths;
+  }
+
+  /**
+   * Returns the latest snapshot of the unsaved buffer of a file, if an editor sent one.
+   *
+   * @param path The file.
+   * @return The snapshot, or empty if the file is only known from disk.
+   */
+  public Optional<TSFileSnapshot> getBuffer(Path path) {
+    return Optional.ofNullable(this.openBuffers.get(path.toAbsolutePath().normalize()));
+  }
+
+  /** Returns the normalized paths of all files with an unsaved buffer. */
+  public Set<Path> getBufferPaths() {
+    return Set.copyOf(this.openBuffers.keySet());
+  }
+
+  /**
+   * Drops the buffer of a file, e.g. once the editor saved it, so it is read from disk again.
+   *
+   * @param path The file.
+   */
+  public void closeBuffer(Path path) {
+    this.openBuffers.remove(path.toAbsolutePath().normalize());
+  }
+
+  /**
+   * Returns the current content of a file: its unsaved buffer when one is open, else the content
+   * on disk.
+   *
+   * @param path The file.
+   * @return The source code.
+   * @throws IOException If the file has no buffer and cannot be read.
+   */
+  public String readSourceCode(Path path) throws IOException {
+    TSFileSnapshot buffer = this.openBuffers.get(path.toAbsolutePath().normalize());
+    if (buffer != null) {
+      return buffer.getSourceCode();
+    }
+    return Files.readString(path, StandardCharsets.UTF_8);
+  }
+
+  private TSFile loadBuffer(Path path) throws IOException {
+    return Files.isRegularFile(path)
+        ? this.parseFile(path)
+        : new TSFile(SupportedLanguage.JAVA, "");
+  }
+
+  /**
+   * Returns the outline of a file, reusing the cached summary when the file did not change since
+   * it was last outlined. Files with an unsaved buffer are outlined from the buffer instead.
+   *
+   * @param rootDir The project root the file belongs to.
+   * @param file The file.
+   * @return The types, methods and fields declared in the file, in source order.
+   * @throws IOException If the file cannot be read.
+   */
+  public List<SymbolDeclaration> getOutline(Path rootDir, Path file) throws IOException {
+    Optional<TSFileSnapshot> buffer = this.getBuffer(file);
+    if (buffer.isPresent()) {
+      return this.getSymbolDeclarations(buffer.get().toFile());
+    }
+    return this.projectIndexes.getOutline(rootDir, file).declarations();
+  }
+
+  private TypeKind getTypeKind(int symbol) {
+    if (symbol == JavaSymbols.CLASS_DECLARATION) {
+      return TypeKind.CLASS;
+    }
+    if (symbol == JavaSymbols.INTERFACE_DECLARATION) {
+      return TypeKind.INTERFACE;
+    }
+    if (symbol == JavaSymbols.ENUM_DECLARATION) {
+      return TypeKind.ENUM;
+    }
+    if (symbol == JavaSymbols.RECORD_DECLARATION) {
+      return TypeKind.RECORD;
+    }
+    if (symbol == JavaSymbols.ANNOTATION_TYPE_DECLARATION) {
+      return TypeKind.ANNOTATION;
+    }
+    return null;
+  }
+
+  /**
+   * Collects the type names, as written but without type arguments, in the superclass,
+   * super_interfaces and extends_interfaces.
+   */
+  private List<String> getSupertypeNames(TSFile file, TSNode declarationNode) {
+    List<String> supertypes = new ArrayList<>();
+    TSTreeWalker clauses = TSTreeWalker.of(declarationNode);
+    if (!clauses.gotoFirstChild()) {
+      return supertypes;
+    }
+    do {
+      int symbol = clauses.symbol();
+      if (symbol != JavaSymbols.SUPERCLASS
+          && symbol != JavaSymbols.SUPER_INTERFACES
+          && symbol != JavaSymbols.EXTENDS_INTERFACES) {
+        continue;
+      }
+      TSTreeWalker.of(clauses.node())
+          .walk(
+              walker -> {
+                int typeSymbol = walker.symbol();
+                if (typeSymbol == JavaSymbols.GENERIC_TYPE) {
+                  // Only the raw type counts, not its type arguments.
+                  if (walker.gotoFirstChild()) {
+                    supertypes.add(this.getText(file, walker.node()));
+                    walker.gotoParent();
+                  }
+                  return false;
+                }
+                if (typeSymbol == JavaSymbols.TYPE_IDENTIFIER
+                    || typeSymbol == JavaSymbols.SCOPED_TYPE_IDENTIFIER) {
+                  supertypes.add(this.getText(file, walker.node()));
+                  return false;
+                }
+                return true;
+              });
+    } while (clauses.gotoNextSibling());
+    return supertypes;
+  }
+
+  private String getSimpleName(String name) {
+    return name.substring(name.lastIndexOf('.') + 1);
+  }
+
+  private TSFile parseFile(Path path) throws IOException {
+    return new TSFile(SupportedLanguage.JAVA, Files.readString(path, StandardCharsets.UTF_8));
+  }
+
+  private void collectImport(
+      TSFile file, TSNode importNode, Set<String> importedTypes, Set<String> importedPackages) {
+    TSTreeWalker walker = TSTreeWalker.of(importNode);
+    if (!walker.gotoFirstChild()) {
+      return;
+    }
+    boolean isStatic = false;
+    boolean isOnDemand = false;
+    String name = null;
+    do {
+      int symbol = walker.symbol();
+      if (symbol == JavaSymbols.STATIC) {
+        isStatic = true;
+      } else if (symbol == JavaSymbols.ASTERISK) {
+        isOnDemand = true;
+      } else if (symbol == JavaSymbols.SCOPED_IDENTIFIER || symbol == JavaSymbols.IDENTIFIER) {
+        name = this.getText(file, walker.node());
+      }
+    } while (walker.gotoNextSibling());
+    if (name == null) {
+      return;
+    }
+    if (isOnDemand) {
+      importedPackages.add(name);
+    } else if (isStatic) {
+      int lastDot = name.lastIndexOf('.');
+      if (lastDot > 0) {
+        importedTypes.add(name.substring(0, lastDot));
+      }
+    } else {
+      importedTypes.add(name);
+    }
+  }
+
+  /** Returns the text of a node with whitespace removed, as dotted names may span lines. */
+  private String getText(TSFile file, TSNode node) {
+    String text = file.getTextFromRange(node.getStartByte(), node.getEndByte());
+    for (int i = 0; i < text.length(); i++) {
+      if (Character.isWhitespace(text.charAt(i))) {
+        return text.replaceAll("\\s+", "");
+      }
+    }
+    return text;
+  }
+
+  /**
+   * Finds the names referring to a class in all files of a project that can refer to it. Files
+   * with an unsaved buffer are searched in their buffer content.
+   *
+   * @param rootDir The project root.
+   * @param className The simple name of the class.
+   * @return The identifiers referring to the class.
+   * @throws IOException If the project cannot be indexed or a candidate file cannot be read.
+   */
+  public List<TSNode> findClassUsages(Path rootDir, String className) throws IOException {
+    // Only files in the same package, files importing the class and files naming it by its
+    // qualified name can refer to it, and only if the name occurs in them at all.
+    List<Path> candidateFiles =
+        this.projectIndexes
+            .getIdentifierFilters(rootDir)
+            .filter(
+                this.projectIndexes.getImportGraph(rootDir).findCandidateFiles(className),
+                className);
+    List<TSNode> allUsages = new ArrayList<>();
+    for (Path candidateFile : candidateFiles) {
+      RequestScheduler.checkpoint();
+      String sourceCode;
+      try {
+        sourceCode = this.readSourceCode(candidateFile);
+      } catch (NoSuchFileException e) {
+        // Deleted since the index was built.
+        continue;
+      }
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      allUsages.addAll(this.findClassUsages(file, className));
+    }
+    return allUsages;
+  }
+
+  /**
+   * Finds the names in a file that refer to a class: type names, the declaration and its
+   * constructors, static member accesses and the last segment of imports.
+   *
+   * @param file The file to search.
+   * @param className The simple name of the class.
+   * @return The identifiers referring to the class.
+   */
+  public List<TSNode> findClassUsages(TSFile file, String className) {
+    List<TSNode> confirmedUsages = new ArrayList<>();
+    JavaQueries.IDENTIFIERS_AND_TYPES.forEachMatch(
+        file.getTree().getRootNode(),
+        match -> {
+          TSNode potentialUsage = match.get(JavaQueries.IDENTIFIERS_AND_TYPES_NAME);
+          if (potentialUsage != null && this.isUsageOfClass(file, potentialUsage, className)) {
+            confirmedUsages.add(potentialUsage);
+          }
+          return true;
+        });
     return confirmedUsages;
   }
 
   private boolean isUsageOfClass(
       TSFile fileContainingUsage, TSNode potentialUsage, String className) {
-    TSNode declarationNode =
-        fileContainingUsage.getNodeFromPosition(
-            potentialUsage.getStartPoint().getRow() + 1,
-            potentialUsage.getStartPoint().getColumn() + 1);
-    if ("class_declaration".equals(declarationNode.getType())) {
+    if (!fileContainingUsage.textEquals(potentialUsage, className)) {
+      return false;
+    }
+    if (potentialUsage.getSymbol() == JavaSymbols.TYPE_IDENTIFIER) {
       return true;
     }
+    TSNode parent = potentialUsage.getParent();
+    if (parent == null || parent.isNull()) {
+      return false;
+    }
+    int parentSymbol = parent.getSymbol();
+    if (JavaSymbols.isTypeDeclaration(parentSymbol)
+        || parentSymbol == JavaSymbols.CONSTRUCTOR_DECLARATION) {
+      return true;
+    }
+    if (parentSymbol == JavaSymbols.SCOPED_IDENTIFIER && isField(parent, "name", potentialUsage)) {
+      // The class name ending an import such as import com.example.ClassName;
+      TSNode grandParent = parent.getParent();
+      return grandParent != null
+          && !grandParent.isNull()
+          && grandParent.getSymbol() == JavaSymbols.IMPORT_DECLARATION;
+    }
+    if (parentSymbol == JavaSymbols.FIELD_ACCESS
+        || parentSymbol == JavaSymbols.METHOD_INVOCATION) {
+      // Static member access such as ClassName.member or ClassName.method().
+      TSNode objectNode = parent.getChildByFieldName("object");
+      return objectNode != null
+          && !objectNode.isNull()
+          && objectNode.getStartByte() == potentialUsage.getStartByte()
+          && objectNode.getEndByte() == potentialUsage.getEndByte();
+    }
     return false;
   }
+
+  /** Analyzes Java files for the project indexes, parsing them from disk. */
+  private final class JavaSourceAnalyzer implements SourceAnalyzer {
+    @Override
+    public FileImports getFileImports(Path path) throws IOException {
+      return JavaService.this.getFileImports(JavaService.this.parseFile(path));
+    }
+
+    @Override
+    public List<TypeDeclaration> getTypeDeclarations(Path path) throws IOException {
+      return JavaService.this.getTypeDeclarations(JavaService.this.parseFile(path));
+    }
+
+    @Override
+    public Set<String> getIdentifierNames(Path path) throws IOException {
+      return JavaService.this.getIdentifierNames(JavaService.this.parseFile(path));
+    }
+
+    @Override
+    public List<SymbolDeclaration> getSymbolDeclarations(Path path) throws IOException {
+      return JavaService.this.getSymbolDeclarations(JavaService.this.parseFile(path));
+    }
+
+    @Override
+    public FileSummary summarize(Path path, FileFingerprint fingerprint) throws IOException {
+      TSFile file = JavaService.this.parseFile(path);
+      return new FileSummary(
+          path,
+          fingerprint,
+          JavaService.this.getPackageName(file).orElse(""),
+          JavaService.this.isMainClass(file),
+          JavaService.this.getIdentifierNames(file));
+    }
+  }
 }
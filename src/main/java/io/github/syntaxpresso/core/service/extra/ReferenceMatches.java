@@ -0,0 +1,13 @@
+package io.github.syntaxpresso.core.service.extra;
+
+import java.util.List;
+import org.treesitter.TSNode;
+
+/**
+ * The identifiers found for a declared name in a file.
+ *
+ * @param references The identifiers referring to the declaration.
+ * @param unresolved The identifiers of the same name and kind that might refer to the declaration,
+ *     but whose receiver type cannot be told without compiling.
+ */
+public record ReferenceMatches(List<TSNode> references, List<TSNode> unresolved) {}
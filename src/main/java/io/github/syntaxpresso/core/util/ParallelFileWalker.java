@@ -0,0 +1,165 @@
+package io.github.syntaxpresso.core.util;
+
+import io.github.syntaxpresso.core.common.RequestScheduler;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Walks a directory tree in parallel, with one fork-join task per directory.
+ *
+ * <p>A directory is listed with {@link Files#newDirectoryStream}, which only reads entry names.
+ * Attributes of an entry come from the caller's {@code knownAttributes} where it has them, such as
+ * files a {@link io.github.syntaxpresso.core.index.GitIndex} shows unchanged, and are read once
+ * otherwise. They decide whether the entry is a subdirectory to fork a task for or a file to
+ * report, so no entry is stat'ed twice. Matching files are passed to the consumer as soon as they
+ * are listed, from whichever worker listed them, so later stages such as parsing overlap with the
+ * walk; the consumer must be thread-safe.
+ *
+ * <p>When called from a fork-join worker the tasks run in that worker's pool, so a background scan
+ * stays on the background pool; otherwise they run in the common pool. Like {@link Files#walk},
+ * symbolic links to directories are not followed, while links to regular files are reported with
+ * the attributes of their target.
+ */
+public final class ParallelFileWalker {
+  private final Function<Path, BasicFileAttributes> knownAttributes;
+  private final BiPredicate<Path, BasicFileAttributes> filter;
+  private final BiConsumer<Path, BasicFileAttributes> consumer;
+  private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+  private ParallelFileWalker(
+      Function<Path, BasicFileAttributes> knownAttributes,
+      BiPredicate<Path, BasicFileAttributes> filter,
+      BiConsumer<Path, BasicFileAttributes> consumer) {
+    this.knownAttributes = knownAttributes;
+    this.filter = filter;
+    this.consumer = consumer;
+  }
+
+  /**
+   * Walks the tree below the given root and reports every regular file accepted by the filter.
+   *
+   * @param root The directory to walk. A regular file is reported on its own.
+   * @param filter Decides from a file's path and attributes whether it is reported.
+   * @param consumer Receives the accepted files, possibly from several threads at once.
+   * @throws IOException If the root or one of its directories cannot be read. The walk stops at
+   *     the first error.
+   */
+  public static void walk(
+      Path root,
+      BiPredicate<Path, BasicFileAttributes> filter,
+      BiConsumer<Path, BasicFileAttributes> consumer)
+      throws IOException {
+    walk(root, path -> null, filter, consumer);
+  }
+
+  /**
+   * Walks the tree below the given root and reports every regular file accepted by the filter,
+   * taking the attributes of entries from the caller where it knows them.
+   *
+   * @param root The directory to walk. A regular file is reported on its own.
+   * @param knownAttributes Returns the attributes of an entry without touching the disk, or null if
+   *     they must be read. It is called from several threads at once.
+   * @param filter Decides from a file's path and attributes whether it is reported.
+   * @param consumer Receives the accepted files, possibly from several threads at once.
+   * @throws IOException If the root or one of its directories cannot be read. The walk stops at
+   *     the first error.
+   */
+  public static void walk(
+      Path root,
+      Function<Path, BasicFileAttributes> knownAttributes,
+      BiPredicate<Path, BasicFileAttributes> filter,
+      BiConsumer<Path, BasicFileAttributes> consumer)
+      throws IOException {
+    ParallelFileWalker walker = new ParallelFileWalker(knownAttributes, filter, consumer);
+    BasicFileAttributes attributes = Files.readAttributes(root, BasicFileAttributes.class);
+    if (attributes.isDirectory()) {
+      walker.new DirectoryTask(root).invoke();
+    } else {
+      walker.report(root, attributes);
+    }
+    IOException failure = walker.failure.get();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void report(Path path, BasicFileAttributes attributes) {
+    if (attributes.isRegularFile() && this.filter.test(path, attributes)) {
+      this.consumer.accept(path, attributes);
+    }
+  }
+
+  private void fail(IOException e) {
+    this.failure.compareAndSet(null, e);
+  }
+
+  private final class DirectoryTask extends RecursiveAction {
+    private final Path directory;
+
+    private DirectoryTask(Path directory) {
+      this.directory = directory;
+    }
+
+    @Override
+    protected void compute() {
+      if (ParallelFileWalker.this.failure.get() != null) {
+        return;
+      }
+      List<DirectoryTask> subdirectories = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory)) {
+        for (Path path : entries) {
+          // Walking a large project is a long loop; let background walks yield here.
+          RequestScheduler.checkpoint();
+          this.visit(path, subdirectories);
+        }
+      } catch (DirectoryIteratorException e) {
+        ParallelFileWalker.this.fail(e.getCause());
+        return;
+      } catch (IOException e) {
+        ParallelFileWalker.this.fail(e);
+        return;
+      }
+      invokeAll(subdirectories);
+    }
+
+    private void visit(Path path, List<DirectoryTask> subdirectories) throws IOException {
+      BasicFileAttributes attributes = ParallelFileWalker.this.knownAttributes.apply(path);
+      if (attributes == null) {
+        try {
+          attributes =
+              Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+          // The entry was deleted between listing the directory and reading it.
+          return;
+        }
+      }
+      if (attributes.isDirectory()) {
+        subdirectories.add(new DirectoryTask(path));
+      } else if (attributes.isSymbolicLink()) {
+        try {
+          BasicFileAttributes target = Files.readAttributes(path, BasicFileAttributes.class);
+          if (!target.isDirectory()) {
+            ParallelFileWalker.this.report(path, target);
+          }
+        } catch (IOException e) {
+          // A dangling link is not a file.
+        }
+      } else {
+        ParallelFileWalker.this.report(path, attributes);
+      }
+    }
+  }
+}
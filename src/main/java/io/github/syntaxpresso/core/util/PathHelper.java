@@ -2,14 +2,27 @@ package io.github.syntaxpresso.core.util;
 
 import io.github.syntaxpresso.core.common.TSFile;
 import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import io.github.syntaxpresso.core.index.FileFingerprint;
+import io.github.syntaxpresso.core.index.GitIndex;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,28 +33,104 @@ public class PathHelper {
 
   /**
    * Recursively finds all files in a directory that match a given language's file extension and
-   * converts them into a list of {@link TSFile} objects.
+   * converts them into a list of {@link TSFile} objects. Files are parsed in parallel while the
+   * directory tree is still being walked.
    *
    * @param rootDir The directory to start the search from.
    * @param supportedLanguage The language whose file extension will be used for filtering.
-   * @return A {@link List} of {@link TSFile} objects. The list will be empty if no matching files
-   *     are found.
+   * @return A {@link List} of {@link TSFile} objects, ordered by path. The list will be empty if no
+   *     matching files are found.
    * @throws IOException if an I/O error occurs when walking the file tree.
    */
   public List<TSFile> findFilesByExtention(Path rootDir, SupportedLanguage supportedLanguage)
       throws IOException {
-    List<TSFile> tsFiles = new ArrayList<>();
-    try (Stream<Path> stream = Files.walk(rootDir)) {
-      List<Path> filePaths =
-          stream
-              .filter(Files::isRegularFile)
-              .filter(path -> path.toString().endsWith(supportedLanguage.getFileExtension()))
-              .collect(Collectors.toList());
-      for (Path filePath : filePaths) {
-        tsFiles.add(new TSFile(supportedLanguage, filePath));
+    Map<Path, TSFile> tsFiles = new ConcurrentSkipListMap<>();
+    this.walkFilesByExtention(
+        rootDir,
+        supportedLanguage,
+        (path, attributes) -> tsFiles.put(path, new TSFile(supportedLanguage, path)));
+    return new ArrayList<>(tsFiles.values());
+  }
+
+  /**
+   * Recursively finds the paths of all files in a directory that match a given language's file
+   * extension, without reading or parsing them.
+   *
+   * @param rootDir The directory to start the search from.
+   * @param supportedLanguage The language whose file extension will be used for filtering.
+   * @return A {@link List} of matching file paths, ordered by path. The list will be empty if no
+   *     matching files are found.
+   * @throws IOException if an I/O error occurs when walking the file tree.
+   */
+  public List<Path> findFilePathsByExtention(Path rootDir, SupportedLanguage supportedLanguage)
+      throws IOException {
+    Queue<Path> paths = new ConcurrentLinkedQueue<>();
+    this.walkFilesByExtention(rootDir, supportedLanguage, (path, attributes) -> paths.add(path));
+    List<Path> sortedPaths = new ArrayList<>(paths);
+    Collections.sort(sortedPaths);
+    return sortedPaths;
+  }
+
+  /**
+   * Recursively finds all files in a directory that match a given language's file extension, with
+   * the fingerprints the indexes use to detect changes. In a git working tree, files whose index
+   * entry shows them unchanged are not stat'ed; see {@link #walkFilesByExtention}.
+   *
+   * @param rootDir The directory to start the search from.
+   * @param supportedLanguage The language whose file extension will be used for filtering.
+   * @return The fingerprints of the matching files, ordered by path.
+   * @throws IOException if an I/O error occurs when walking the file tree.
+   */
+  public Map<Path, FileFingerprint> findFileFingerprintsByExtention(
+      Path rootDir, SupportedLanguage supportedLanguage) throws IOException {
+    Map<Path, FileFingerprint> fingerprints = new ConcurrentSkipListMap<>();
+    this.walkFilesByExtention(
+        rootDir,
+        supportedLanguage,
+        (path, attributes) -> fingerprints.put(path, FileFingerprint.of(attributes)));
+    return fingerprints;
+  }
+
+  /**
+   * Recursively walks a directory in parallel and hands every file that matches a given language's
+   * file extension to a consumer as soon as it is found, together with its attributes.
+   *
+   * <p>With the {@code syntaxpresso.trustGitFsmonitor} system property set to true and the
+   * directory part of a git working tree, the attributes of tracked files the repository's
+   * fsmonitor saw unchanged are taken from the git index instead of the disk; edits made after the
+   * last git command that wrote the index are then only noticed once git runs again. Without the
+   * property the index is not read at all.
+   *
+   * @param rootDir The directory to start the search from.
+   * @param supportedLanguage The language whose file extension will be used for filtering.
+   * @param consumer Receives the matching files; it is called from several threads at once.
+   * @throws IOException if an I/O error occurs when walking the file tree.
+   * @see ParallelFileWalker
+   */
+  public void walkFilesByExtention(
+      Path rootDir,
+      SupportedLanguage supportedLanguage,
+      BiConsumer<Path, BasicFileAttributes> consumer)
+      throws IOException {
+    String fileExtension = supportedLanguage.getFileExtension();
+    Function<Path, BasicFileAttributes> knownAttributes = path -> null;
+    Optional<GitIndex> gitIndex = Optional.empty();
+    if (Boolean.getBoolean("syntaxpresso.trustGitFsmonitor")) {
+      try {
+        gitIndex = GitIndex.find(rootDir);
+      } catch (IOException e) {
+        // An unreadable git index only costs the shortcut; every file is stat'ed instead.
       }
     }
-    return tsFiles;
+    if (gitIndex.isPresent()) {
+      GitIndex index = gitIndex.get();
+      knownAttributes = path -> index.getUnchangedAttributes(path.toAbsolutePath()).orElse(null);
+    }
+    ParallelFileWalker.walk(
+        rootDir,
+        knownAttributes,
+        (path, attributes) -> path.toString().endsWith(fileExtension),
+        consumer);
   }
 
   /**
@@ -72,6 +161,64 @@ public class PathHelper {
     }
   }
 
+  /**
+   * Returns the directory where persistent indexes of a project are cached. It lives under the
+   * {@code syntaxpresso.cacheDir} system property if set, else under {@code
+   * $XDG_CACHE_HOME/syntaxpresso} (or {@code ~/.cache/syntaxpresso}), in a subdirectory derived
+   * from the project root. The directory is not created by this method.
+   *
+   * @param rootDir The project root.
+   * @return The cache directory of the project.
+   */
+  public Path getCacheDirectory(Path rootDir) {
+    String cacheDir = System.getProperty("syntaxpresso.cacheDir");
+    String cacheHome = System.getenv("XDG_CACHE_HOME");
+    Path baseDir;
+    if (cacheDir != null && !cacheDir.isBlank()) {
+      baseDir = Path.of(cacheDir);
+    } else if (cacheHome != null && !cacheHome.isBlank()) {
+      baseDir = Path.of(cacheHome).resolve("syntaxpresso");
+    } else {
+      baseDir = Path.of(System.getProperty("user.home"), ".cache", "syntaxpresso");
+    }
+    Path root = rootDir.toAbsolutePath().normalize();
+    String projectKey;
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest(root.toString().getBytes(StandardCharsets.UTF_8));
+      projectKey = HexFormat.of().formatHex(digest, 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    Path fileName = root.getFileName();
+    String projectName = fileName == null ? "root" : fileName.toString();
+    return baseDir.resolve(projectName + "-" + projectKey);
+  }
+
+  /**
+   * Returns the Unix domain socket a shared server listens on. It is the {@code
+   * syntaxpresso.socket} system property if set, else {@code syntaxpresso.sock} in {@code
+   * $XDG_RUNTIME_DIR}, or in the cache base directory if there is no runtime directory.
+   *
+   * @return The socket path.
+   */
+  public Path getServerSocketPath() {
+    String socket = System.getProperty("syntaxpresso.socket");
+    if (socket != null && !socket.isBlank()) {
+      return Path.of(socket);
+    }
+    String runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+    if (runtimeDir != null && !runtimeDir.isBlank()) {
+      return Path.of(runtimeDir, "syntaxpresso.sock");
+    }
+    String cacheHome = System.getenv("XDG_CACHE_HOME");
+    if (cacheHome != null && !cacheHome.isBlank()) {
+      return Path.of(cacheHome, "syntaxpresso", "syntaxpresso.sock");
+    }
+    return Path.of(System.getProperty("user.home"), ".cache", "syntaxpresso", "syntaxpresso.sock");
+  }
+
   /**
    * Renames or moves a directory. This operation is not atomic.
    *
@@ -0,0 +1,90 @@
+package io.github.syntaxpresso.core.command.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.syntaxpresso.core.index.ProjectIndexes;
+import io.github.syntaxpresso.core.service.JavaService;
+import io.github.syntaxpresso.core.util.PathHelper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+@DisplayName("GetMainClassCommand Tests")
+class GetMainClassCommandTest {
+  private static final String MAIN_METHOD = "public static void main(String[] args) {}";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private JavaService javaService;
+
+  @BeforeEach
+  void setUp() {
+    javaService = new JavaService(new PathHelper());
+  }
+
+  private JsonNode run(Path cwd) throws IOException {
+    StringWriter out = new StringWriter();
+    CommandLine commandLine = new CommandLine(new GetMainClassCommand(javaService));
+    commandLine.setOut(new PrintWriter(out, true));
+    assertEquals(0, commandLine.execute("--cwd", cwd.toString()));
+    String output = out.toString().strip();
+    return output.isEmpty() ? null : objectMapper.readTree(output);
+  }
+
+  private static Path writeClass(Path root, String name, String body) throws IOException {
+    Path file = root.resolve("src/main/java/com/example/" + name + ".java");
+    Files.createDirectories(file.getParent());
+    return Files.writeString(
+        file, "package com.example;\n\npublic class " + name + " {\n  " + body + "\n}\n");
+  }
+
+  @Nested
+  @DisplayName("call()")
+  class CallTests {
+    @Test
+    @DisplayName("should build the project index and report the main class")
+    void call_withoutIndex_shouldFindMainClass(@TempDir Path tempDir) throws IOException {
+      Path main = writeClass(tempDir, "App", MAIN_METHOD);
+      writeClass(tempDir, "Service", "void run() {}");
+      JsonNode response = run(tempDir);
+      assertTrue(response.get("succeed").asBoolean(), response.toString());
+      assertEquals(main.toString(), response.get("data").get("filePath").asText());
+      assertEquals("com.example", response.get("data").get("packageName").asText());
+      assertTrue(javaService.getProjectIndexes().openProjectIndex(tempDir).isPresent());
+    }
+
+    @Test
+    @DisplayName("should rebuild the index when the recorded main class changed")
+    void call_withChangedMainClass_shouldRebuildIndex(@TempDir Path tempDir) throws IOException {
+      Path app = writeClass(tempDir, "App", MAIN_METHOD);
+      Path tool = writeClass(tempDir, "Tool", "void run() {}");
+      assertEquals(app.toString(), run(tempDir).get("data").get("filePath").asText());
+      writeClass(tempDir, "App", "void stop() { /* no main method any more */ }");
+      writeClass(tempDir, "Tool", MAIN_METHOD + " // the entry point moved here");
+      assertEquals(tool.toString(), run(tempDir).get("data").get("filePath").asText());
+    }
+
+    @Test
+    @DisplayName("should print nothing and keep the index when no file has a main method")
+    void call_withoutMainClass_shouldNotRewriteIndex(@TempDir Path tempDir) throws IOException {
+      writeClass(tempDir, "Service", "void run() {}");
+      assertNull(run(tempDir));
+      ProjectIndexes projectIndexes = javaService.getProjectIndexes();
+      long generation = projectIndexes.openProjectIndex(tempDir).orElseThrow().getGeneration();
+      assertNull(run(tempDir));
+      assertEquals(
+          generation, projectIndexes.openProjectIndex(tempDir).orElseThrow().getGeneration());
+    }
+  }
+}
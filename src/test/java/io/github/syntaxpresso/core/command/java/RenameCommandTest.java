@@ -0,0 +1,268 @@
+package io.github.syntaxpresso.core.command.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.syntaxpresso.core.service.JavaService;
+import io.github.syntaxpresso.core.util.PathHelper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+@DisplayName("RenameCommand Tests")
+class RenameCommandTest {
+  private static final String SHAPE =
+      """
+      package a;
+
+      public class Shape {
+        public int size;
+
+        public int area() {
+          return size * size;
+        }
+      }
+      """;
+  private static final String SQUARE =
+      """
+      package a;
+
+      public class Square extends Shape {
+        @Override
+        public int area() {
+          return size;
+        }
+      }
+      """;
+  private static final String USER =
+      """
+      package b;
+
+      import a.Shape;
+
+      class User {
+        int measure(Shape shape, Other other) {
+          return shape.area() + shape.size + other.area() + other.size;
+        }
+      }
+      """;
+  private static final String OTHER =
+      """
+      package b;
+
+      class Other {
+        int size;
+
+        int area() {
+          return size;
+        }
+      }
+      """;
+  private static final String CIRCLE =
+      """
+      package a;
+
+      public class Circle extends Shape {
+        @Override
+        public int area() {
+          return 3 * size * size;
+        }
+      }
+      """;
+  private static final String CLIENT =
+      """
+      package b;
+
+      import a.Shape;
+      import java.util.function.ToIntFunction;
+
+      class Client {
+        Shape shape() {
+          return null;
+        }
+
+        int measure(Shape first) {
+          ToIntFunction<Shape> metric = s -> s.area();
+          return first.area() + shape().area() + metric.applyAsInt(first);
+        }
+      }
+      """;
+  private static final String TASK =
+      """
+      package b;
+
+      class Task implements Runnable {
+        @Override
+        public void run() {}
+      }
+      """;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  @TempDir Path tempDir;
+  private JavaService javaService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    javaService = new JavaService(new PathHelper());
+    write("a/Shape.java", SHAPE);
+    write("a/Square.java", SQUARE);
+    write("b/User.java", USER);
+    write("b/Other.java", OTHER);
+  }
+
+  private void write(String relativePath, String content) throws IOException {
+    Path file = tempDir.resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+
+  private String read(String relativePath) throws IOException {
+    return Files.readString(tempDir.resolve(relativePath));
+  }
+
+  /** Returns the one-based line and column of the first occurrence of the marker. */
+  private static int[] position(String content, String marker) {
+    int offset = content.indexOf(marker);
+    String before = content.substring(0, offset);
+    int line = (int) before.chars().filter(c -> c == '\n').count() + 1;
+    return new int[] {line, offset - before.lastIndexOf('\n')};
+  }
+
+  /** Renames the identifier starting at the first occurrence of the marker in Shape.java. */
+  private JsonNode rename(String marker, String newName) throws IOException {
+    return rename("a/Shape.java", SHAPE, marker, newName);
+  }
+
+  private JsonNode rename(String relativePath, String content, String marker, String newName)
+      throws IOException {
+    JsonNode response = execute(relativePath, content, marker, newName);
+    assertTrue(response.get("succeed").asBoolean(), response.toString());
+    return response.get("data");
+  }
+
+  private JsonNode execute(String marker, String newName) throws IOException {
+    return execute("a/Shape.java", SHAPE, marker, newName);
+  }
+
+  private JsonNode execute(String relativePath, String content, String marker, String newName)
+      throws IOException {
+    int[] position = position(content, marker);
+    StringWriter out = new StringWriter();
+    CommandLine commandLine =
+        new CommandLine(new RenameCommand(javaService, InputStream::nullInputStream, Path::of));
+    commandLine.setOut(new PrintWriter(out, true));
+    commandLine.execute(
+        "--cwd", tempDir.toString(),
+        "--file-path", tempDir.resolve(relativePath).toString(),
+        "--line", String.valueOf(position[0]),
+        "--column", String.valueOf(position[1]),
+        "--new-name", newName);
+    return objectMapper.readTree(out.toString().strip());
+  }
+
+  @Nested
+  @DisplayName("call() with a project-wide scope")
+  class ProjectScopeTests {
+    @Test
+    @DisplayName("should rename a method and its overrides but not a namesake in another type")
+    void call_withMethod_shouldRenameReferencesThroughDeclaringType() throws IOException {
+      JsonNode data = rename("area()", "surface");
+      assertEquals(3, data.get("renamedNodes").asInt());
+      assertEquals(0, data.get("unresolvedReferences").size());
+      assertTrue(read("a/Square.java").contains("public int surface() {"));
+      assertTrue(read("b/User.java").contains("shape.surface() + shape.size + other.area()"));
+      assertEquals(OTHER, read("b/Other.java"));
+    }
+
+    @Test
+    @DisplayName("should rename an overriding method in its supertype and sibling overrides")
+    void call_withOverridingMethod_shouldRenameAlongHierarchy() throws IOException {
+      write("a/Circle.java", CIRCLE);
+      JsonNode data = rename("a/Square.java", SQUARE, "area()", "surface");
+      assertEquals(4, data.get("renamedNodes").asInt());
+      assertTrue(read("a/Shape.java").contains("public int surface() {"));
+      assertTrue(read("a/Square.java").contains("public int surface() {"));
+      assertTrue(read("a/Circle.java").contains("public int surface() {"));
+      assertTrue(read("b/User.java").contains("shape.surface() + shape.size + other.area()"));
+      assertEquals(OTHER, read("b/Other.java"));
+    }
+
+    @Test
+    @DisplayName("should refuse to rename a method overriding one declared outside the project")
+    void call_withLibraryOverride_shouldFailWithoutChanges() throws IOException {
+      write("b/Task.java", TASK);
+      JsonNode response = execute("b/Task.java", TASK, "run()", "execute");
+      assertFalse(response.get("succeed").asBoolean());
+      assertEquals(TASK, read("b/Task.java"));
+    }
+
+    @Test
+    @DisplayName("should report uses whose receiver cannot be resolved instead of renaming them")
+    void call_withUnresolvedReceivers_shouldReportThem() throws IOException {
+      write("b/Client.java", CLIENT);
+      JsonNode data = rename("area()", "surface");
+      assertEquals(4, data.get("renamedNodes").asInt());
+      String client = read("b/Client.java");
+      assertTrue(client.contains("s -> s.area();"));
+      assertTrue(client.contains("first.surface() + shape().area() + metric"));
+      // Reported where they are after the rename, so the second one moved along the line.
+      JsonNode unresolved = data.get("unresolvedReferences");
+      assertEquals(2, unresolved.size());
+      assertLocation(unresolved.get(0), "b/Client.java", position(client, "area();"));
+      assertLocation(unresolved.get(1), "b/Client.java", position(client, "area() + metric"));
+    }
+
+    private void assertLocation(JsonNode location, String relativePath, int[] position) {
+      assertEquals(tempDir.resolve(relativePath).toString(), location.get("filePath").asText());
+      assertEquals(position[0], location.get("line").asInt());
+      assertEquals(position[1], location.get("column").asInt());
+    }
+
+    @Test
+    @DisplayName("should rename a field inherited by a subtype but not a namesake in another type")
+    void call_withField_shouldRenameReferencesThroughDeclaringType() throws IOException {
+      JsonNode data = rename("size;", "width");
+      assertEquals(5, data.get("renamedNodes").asInt());
+      assertTrue(read("a/Shape.java").contains("return width * width;"));
+      assertTrue(read("a/Square.java").contains("return width;"));
+      assertTrue(read("b/User.java").contains("shape.width + other.area() + other.size;"));
+      assertEquals(OTHER, read("b/Other.java"));
+    }
+
+    @Test
+    @DisplayName("should rename a class, its file, its imports and its type references")
+    void call_withClass_shouldRenameUsagesAndMoveFile() throws IOException {
+      JsonNode data = rename("Shape {", "Form");
+      assertEquals(4, data.get("renamedNodes").asInt());
+      assertEquals(tempDir.resolve("a/Form.java").toString(), data.get("filePath").asText());
+      assertFalse(Files.exists(tempDir.resolve("a/Shape.java")));
+      assertTrue(read("a/Form.java").contains("public class Form {"));
+      assertTrue(read("a/Square.java").contains("extends Form {"));
+      assertTrue(read("b/User.java").contains("import a.Form;"));
+      assertTrue(read("b/User.java").contains("int measure(Form shape, Other other)"));
+    }
+
+    @Test
+    @DisplayName("should refuse to rename a class onto the file of another class")
+    void call_withExistingTargetFile_shouldFailWithoutChanges() throws IOException {
+      String square = read("a/Square.java");
+      JsonNode response = execute("Shape {", "Square");
+      assertFalse(response.get("succeed").asBoolean());
+      assertEquals(SHAPE, read("a/Shape.java"));
+      assertEquals(square, read("a/Square.java"));
+      assertEquals(USER, read("b/User.java"));
+    }
+  }
+}
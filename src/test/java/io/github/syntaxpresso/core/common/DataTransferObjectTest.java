@@ -0,0 +1,76 @@
+package io.github.syntaxpresso.core.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.syntaxpresso.core.command.java.dto.GetMainClassResponse;
+import io.github.syntaxpresso.core.command.java.dto.RenameResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("DataTransferObject Tests")
+class DataTransferObjectTest {
+
+  private final ObjectMapper objectMapper =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  @Nested
+  @DisplayName("toString()")
+  class ToStringTests {
+    @Test
+    @DisplayName("should match Jackson output for a compiled payload")
+    void toString_withCompiledPayload_shouldMatchJackson() throws IOException {
+      GetMainClassResponse response =
+          GetMainClassResponse.builder()
+              .filePath("/tmp/src/main/java/com/example/Main.java")
+              .packageName("com.example")
+              .build();
+      DataTransferObject<GetMainClassResponse> dto = DataTransferObject.success(response);
+      assertEquals(objectMapper.writeValueAsString(dto), dto.toString());
+    }
+
+    @Test
+    @DisplayName("should match Jackson output for null fields and escaped characters")
+    void toString_withNullsAndEscapes_shouldMatchJackson() throws IOException {
+      RenameResponse response =
+          RenameResponse.builder().renamedNodes(3).newName("Café\t\"Name\"\n").build();
+      DataTransferObject<RenameResponse> dto = DataTransferObject.success(response);
+      assertEquals(objectMapper.writeValueAsString(dto), dto.toString());
+    }
+
+    @Test
+    @DisplayName("should match Jackson output for errors and empty successes")
+    void toString_withoutPayload_shouldMatchJackson() throws IOException {
+      DataTransferObject<Object> error = DataTransferObject.error("Package name not found");
+      DataTransferObject<Object> empty = DataTransferObject.success();
+      assertEquals(objectMapper.writeValueAsString(error), error.toString());
+      assertEquals(objectMapper.writeValueAsString(empty), empty.toString());
+    }
+
+    @Test
+    @DisplayName("should fall back to Jackson for payloads without a compiled writer")
+    void toString_withUncompiledPayload_shouldUseJackson() throws IOException {
+      DataTransferObject<String> dto = DataTransferObject.success("plain");
+      assertEquals(objectMapper.writeValueAsString(dto), dto.toString());
+    }
+  }
+
+  @Nested
+  @DisplayName("writeTo()")
+  class WriteToTests {
+    @Test
+    @DisplayName("should write the same bytes as toString()")
+    void writeTo_shouldWriteUtf8Document() throws IOException {
+      DataTransferObject<GetMainClassResponse> dto =
+          DataTransferObject.success(new GetMainClassResponse("/tmp/Main.java", "com.example"));
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      dto.writeTo(outputStream);
+      assertEquals(dto.toString(), outputStream.toString(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package io.github.syntaxpresso.core.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("FileWriteBatch Tests")
+class FileWriteBatchTest {
+
+  @Nested
+  @DisplayName("commit()")
+  class CommitTests {
+    @Test
+    @DisplayName("should apply moves, writes and deletions together")
+    void commit_shouldApplyAllOperations(@TempDir Path tempDir) throws IOException {
+      Path moved = tempDir.resolve("Old.java");
+      Path deleted = tempDir.resolve("Deleted.java");
+      Files.writeString(moved, "class Old {}");
+      Files.writeString(deleted, "class Deleted {}");
+      Path destination = tempDir.resolve("pkg/New.java");
+      new FileWriteBatch(true)
+          .move(moved, destination)
+          .write(destination, "class New {}")
+          .write(tempDir.resolve("Other.java"), "class Other {}")
+          .delete(deleted)
+          .commit();
+      assertFalse(Files.exists(moved));
+      assertFalse(Files.exists(deleted));
+      assertEquals("class New {}", Files.readString(destination));
+      assertEquals("class Other {}", Files.readString(tempDir.resolve("Other.java")));
+      assertEquals(List.of(), leftovers(tempDir));
+    }
+
+    @Test
+    @DisplayName("should not rewrite a file whose content is unchanged")
+    void commit_withUnchangedContent_shouldSkipWrite(@TempDir Path tempDir) throws IOException {
+      Path file = tempDir.resolve("Same.java");
+      Files.writeString(file, "class Same {}");
+      FileTime lastModified = FileTime.fromMillis(1_000_000L);
+      Files.setLastModifiedTime(file, lastModified);
+      new FileWriteBatch().write(file, "class Same {}").commit();
+      assertEquals(lastModified, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    @DisplayName("should restore every file when an operation fails")
+    void commit_whenOperationFails_shouldRollBack(@TempDir Path tempDir) throws IOException {
+      Path first = tempDir.resolve("First.java");
+      Path blocker = tempDir.resolve("Blocker.java");
+      Files.writeString(first, "original");
+      Files.writeString(blocker, "not a directory");
+      FileWriteBatch batch =
+          new FileWriteBatch()
+              .write(first, "changed")
+              .move(blocker, tempDir.resolve("Blocker.java/Nested.java"));
+      assertThrows(IOException.class, batch::commit);
+      assertEquals("original", Files.readString(first));
+      assertEquals("not a directory", Files.readString(blocker));
+      assertEquals(List.of(), leftovers(tempDir));
+    }
+
+    @Test
+    @DisplayName("should not move a file over another file unless asked to replace it")
+    void commit_withExistingMoveDestination_shouldFailUnlessReplacing(@TempDir Path tempDir)
+        throws IOException {
+      Path source = Files.writeString(tempDir.resolve("Old.java"), "class Old {}");
+      Path destination = Files.writeString(tempDir.resolve("New.java"), "class New {}");
+      FileWriteBatch batch = new FileWriteBatch().move(source, destination);
+      assertThrows(FileAlreadyExistsException.class, batch::commit);
+      assertEquals("class Old {}", Files.readString(source));
+      assertEquals("class New {}", Files.readString(destination));
+      assertEquals(List.of(), leftovers(tempDir));
+      new FileWriteBatch().move(source, destination, true).commit();
+      assertFalse(Files.exists(source));
+      assertEquals("class Old {}", Files.readString(destination));
+      assertEquals(List.of(), leftovers(tempDir));
+    }
+
+    @Test
+    @DisplayName("should keep the permissions of a rewritten file")
+    void commit_withRewrittenFile_shouldKeepPermissions(@TempDir Path tempDir)
+        throws IOException {
+      assumeTrue(Files.getFileAttributeView(tempDir, PosixFileAttributeView.class) != null);
+      Path script = Files.writeString(tempDir.resolve("run.sh"), "echo old");
+      Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwxr-x---");
+      Files.setPosixFilePermissions(script, permissions);
+      new FileWriteBatch().write(script, "echo new").commit();
+      assertEquals("echo new", Files.readString(script));
+      assertEquals(permissions, Files.getPosixFilePermissions(script));
+    }
+
+    @Test
+    @DisplayName("should give a new file the permissions of any new file in its directory")
+    void commit_withNewFile_shouldUseDefaultPermissions(@TempDir Path tempDir)
+        throws IOException {
+      assumeTrue(Files.getFileAttributeView(tempDir, PosixFileAttributeView.class) != null);
+      Path reference = Files.createFile(tempDir.resolve("Reference.java"));
+      Path created = tempDir.resolve("Created.java");
+      new FileWriteBatch().write(created, "class Created {}").commit();
+      assertEquals(
+          Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(created));
+    }
+
+    @Test
+    @DisplayName("should restore a deleted file when a later operation fails")
+    void commit_whenFailingAfterDeletion_shouldRestoreFile(@TempDir Path tempDir)
+        throws IOException {
+      Path deleted = Files.writeString(tempDir.resolve("Deleted.java"), "class Deleted {}");
+      Path directory = Files.createDirectory(tempDir.resolve("pkg"));
+      Files.writeString(directory.resolve("Kept.java"), "class Kept {}");
+      FileWriteBatch batch = new FileWriteBatch().delete(deleted).delete(directory);
+      assertThrows(IOException.class, batch::commit);
+      assertEquals("class Deleted {}", Files.readString(deleted));
+      assertEquals("class Kept {}", Files.readString(directory.resolve("Kept.java")));
+      assertEquals(List.of(), leftovers(tempDir));
+    }
+
+    @Test
+    @DisplayName("should commit on a background thread")
+    void commitAsync_shouldWriteFile(@TempDir Path tempDir) throws IOException {
+      Path file = tempDir.resolve("Async.java");
+      new FileWriteBatch().write(file, "class Async {}").commitAsync().join();
+      assertTrue(Files.exists(file));
+      assertEquals("class Async {}", Files.readString(file));
+    }
+  }
+
+  private static List<Path> leftovers(Path directory) throws IOException {
+    try (Stream<Path> stream = Files.walk(directory)) {
+      return stream
+          .filter(
+              path ->
+                  path.getFileName().toString().endsWith(".tmp")
+                      || path.getFileName().toString().endsWith(".bak"))
+          .toList();
+    }
+  }
+}
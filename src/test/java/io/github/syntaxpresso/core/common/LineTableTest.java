@@ -0,0 +1,70 @@
+package io.github.syntaxpresso.core.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("LineTable Tests")
+class LineTableTest {
+  private static final String SOURCE = "class A {\n  String ä = \"😀\";\n  int b;\n}";
+
+  @Nested
+  @DisplayName("toCharOffset() and toByteOffset()")
+  class ConversionTests {
+    @Test
+    @DisplayName("should convert every character boundary in both directions")
+    void conversions_shouldRoundTrip() {
+      LineTable lineTable = LineTable.of(SOURCE);
+      for (int i = 0; i <= SOURCE.length(); i++) {
+        if (i > 0 && Character.isHighSurrogate(SOURCE.charAt(i - 1))) {
+          continue;
+        }
+        int byteOffset = SOURCE.substring(0, i).getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(byteOffset, lineTable.toByteOffset(SOURCE, i));
+        assertEquals(i, lineTable.toCharOffset(SOURCE, byteOffset));
+      }
+    }
+
+    @Test
+    @DisplayName("should reject offsets inside a character or outside of the source")
+    void toCharOffset_withInvalidOffset_shouldThrow() {
+      LineTable lineTable = LineTable.of(SOURCE);
+      int umlaut = SOURCE.indexOf('ä');
+      assertThrows(
+          IllegalArgumentException.class, () -> lineTable.toCharOffset(SOURCE, umlaut + 1));
+      int length = SOURCE.getBytes(StandardCharsets.UTF_8).length;
+      assertEquals(SOURCE.length(), lineTable.toCharOffset(SOURCE, length));
+      assertThrows(
+          IndexOutOfBoundsException.class, () -> lineTable.toCharOffset(SOURCE, length + 1));
+    }
+
+    @Test
+    @DisplayName("should map an index inside a surrogate pair to the start of the pair")
+    void toByteOffset_insideSurrogatePair_shouldReturnPairStart() {
+      LineTable lineTable = LineTable.of(SOURCE);
+      int emoji = SOURCE.indexOf("😀");
+      assertEquals(
+          lineTable.toByteOffset(SOURCE, emoji), lineTable.toByteOffset(SOURCE, emoji + 1));
+    }
+  }
+
+  @Nested
+  @DisplayName("of()")
+  class OfTests {
+    @Test
+    @DisplayName("should record the byte offset of every line start")
+    void of_shouldCountUtf8Bytes() {
+      LineTable lineTable = LineTable.of(SOURCE);
+      assertEquals(4, lineTable.getLineCount());
+      assertEquals(10, lineTable.getLineStartByte(1));
+      // "  String ä = "😀";" takes 21 bytes plus the newline.
+      assertEquals(32, lineTable.getLineStartByte(2));
+      assertEquals(2, lineTable.findRow(35));
+      assertEquals(SOURCE.getBytes(StandardCharsets.UTF_8).length, lineTable.getByteLength());
+    }
+  }
+}
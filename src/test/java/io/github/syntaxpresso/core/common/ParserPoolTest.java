@@ -0,0 +1,78 @@
+package io.github.syntaxpresso.core.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.treesitter.TSParser;
+import org.treesitter.TSTree;
+
+@DisplayName("ParserPool Tests")
+class ParserPoolTest {
+
+  @Nested
+  @DisplayName("borrow()")
+  class BorrowTests {
+    @Test
+    @DisplayName("should hand out the returned parser again")
+    void borrow_afterClose_shouldReuseParser() {
+      ParserPool pool = new ParserPool(SupportedLanguage.JAVA.getLanguage(), 2);
+      TSParser first;
+      try (ParserPool.Lease lease = pool.borrow()) {
+        first = lease.parser();
+      }
+      try (ParserPool.Lease lease = pool.borrow()) {
+        assertSame(first, lease.parser());
+      }
+      assertEquals(1, pool.getStats().created());
+      assertEquals(2, pool.getStats().borrows());
+    }
+
+    @Test
+    @DisplayName("should not create more parsers than its size under contention")
+    void borrow_fromManyVirtualThreads_shouldStayBounded() throws Exception {
+      ParserPool pool = new ParserPool(SupportedLanguage.JAVA.getLanguage(), 2);
+      List<Future<TSTree>> results = new ArrayList<>();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int i = 0; i < 64; i++) {
+          String sourceCode = "class A" + i + " { void run() {} }";
+          results.add(
+              executor.submit(
+                  () -> {
+                    try (ParserPool.Lease lease = pool.borrow()) {
+                      return lease.parser().parseString(null, sourceCode);
+                    }
+                  }));
+        }
+      }
+      for (Future<TSTree> result : results) {
+        assertEquals("program", result.get().getRootNode().getType());
+      }
+      ParserPool.Stats stats = pool.getStats();
+      assertTrue(stats.created() <= 2);
+      assertEquals(64, stats.borrows());
+      assertEquals(stats.created(), stats.idle());
+    }
+
+    @Test
+    @DisplayName("should reject using a parser after it was returned")
+    void parser_afterClose_shouldThrow() {
+      ParserPool pool = new ParserPool(SupportedLanguage.JAVA.getLanguage(), 1);
+      ParserPool.Lease lease = pool.borrow();
+      lease.close();
+      lease.close();
+      assertThrows(IllegalStateException.class, lease::parser);
+      assertEquals(1, pool.getStats().idle());
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package io.github.syntaxpresso.core.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.syntaxpresso.core.common.RequestScheduler.Priority;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RequestScheduler Tests")
+class RequestSchedulerTest {
+
+  @Nested
+  @DisplayName("checkpoint()")
+  class CheckpointTests {
+    @Test
+    @DisplayName("should pause background work while an interactive request runs")
+    void checkpoint_duringInteractiveRequest_shouldPauseBackground() throws Exception {
+      RequestScheduler scheduler = new RequestScheduler(1);
+      CountDownLatch interactiveStarted = new CountDownLatch(1);
+      CountDownLatch releaseInteractive = new CountDownLatch(1);
+      CompletableFuture<Boolean> interactive =
+          scheduler.submit(
+              Priority.INTERACTIVE,
+              () -> {
+                interactiveStarted.countDown();
+                return releaseInteractive.await(5, TimeUnit.SECONDS);
+              });
+      assertTrue(interactiveStarted.await(5, TimeUnit.SECONDS));
+      CompletableFuture<Void> background =
+          scheduler.submit(
+              Priority.BACKGROUND,
+              () -> {
+                RequestScheduler.checkpoint();
+                return null;
+              });
+      Thread.sleep(100);
+      assertFalse(background.isDone());
+      releaseInteractive.countDown();
+      assertTrue(interactive.get(5, TimeUnit.SECONDS));
+      background.get(5, TimeUnit.SECONDS);
+      assertEquals(1, scheduler.getPreemptions());
+      assertEquals(0, scheduler.getActiveInteractive());
+    }
+
+    @Test
+    @DisplayName("should never pause interactive requests")
+    void checkpoint_onInteractiveThread_shouldReturnImmediately() throws Exception {
+      RequestScheduler scheduler = new RequestScheduler(1);
+      boolean background =
+          scheduler.callInteractive(
+              () -> {
+                RequestScheduler.checkpoint();
+                return RequestScheduler.isBackgroundThread();
+              });
+      assertFalse(background);
+      assertEquals(0, scheduler.getPreemptions());
+    }
+  }
+
+  @Nested
+  @DisplayName("submit()")
+  class SubmitTests {
+    @Test
+    @DisplayName("should keep parallel streams of background work on background threads")
+    void submit_background_shouldRunParallelStreamsInBudget() throws Exception {
+      RequestScheduler scheduler = new RequestScheduler(2);
+      boolean allBackground =
+          scheduler
+              .submit(
+                  Priority.BACKGROUND,
+                  () ->
+                      IntStream.range(0, 1_000)
+                          .parallel()
+                          .allMatch(i -> RequestScheduler.isBackgroundThread()))
+              .get(5, TimeUnit.SECONDS);
+      assertTrue(allBackground);
+    }
+  }
+}
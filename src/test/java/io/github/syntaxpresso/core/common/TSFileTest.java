@@ -6,6 +6,8 @@ import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -27,7 +29,7 @@ class TSFileTest {
     @DisplayName("should create TSFile from a string")
     void constructor_fromString_shouldSucceed() {
       TSFile tsFile = new TSFile(language, initialContent);
-      assertNotNull(tsFile.getParser());
+      assertEquals(language, tsFile.getLanguage());
       assertNotNull(tsFile.getTree());
       assertEquals(initialContent, tsFile.getSourceCode());
       assertThrows(IllegalStateException.class, tsFile::getFile);
@@ -39,7 +41,7 @@ class TSFileTest {
       Path file = tempDir.resolve("MyClass.java");
       Files.writeString(file, initialContent);
       TSFile tsFile = new TSFile(language, file);
-      assertNotNull(tsFile.getParser());
+      assertEquals(language, tsFile.getLanguage());
       assertNotNull(tsFile.getTree());
       assertEquals(initialContent, tsFile.getSourceCode());
       assertEquals(file.toFile(), tsFile.getFile());
@@ -80,6 +82,111 @@ class TSFileTest {
       tsFile.updateSourceCode(node, "UpdatedClass");
       assertEquals("public class UpdatedClass {}", tsFile.getSourceCode());
     }
+
+    @Test
+    @DisplayName("should re-parse a line and column edit incrementally")
+    void updateSourceCode_fromPositions_shouldReparseEditedRange() {
+      tsFile.updateSourceCode(1, 23, 1, 23, "\n  int count;\n  void run() {}\n");
+      assertEquals(
+          "public class MyClass {\n  int count;\n  void run() {}\n}", tsFile.getSourceCode());
+      TSNode node = tsFile.getNodeFromPosition(3, 8);
+      assertNotNull(node);
+      assertEquals("run", tsFile.getTextFromRange(node.getStartByte(), node.getEndByte()));
+      assertThrows(
+          IllegalArgumentException.class, () -> tsFile.updateSourceCode(9, 1, 9, 2, "x"));
+    }
+
+    @Test
+    @DisplayName("should match a full parse after a diffed full-text update")
+    void updateSourceCode_full_shouldMatchFreshParse() {
+      tsFile.updateSourceCode("public class MyClass { int a; }");
+      tsFile.updateSourceCode("public class MyClass { int a; String b; }");
+      TSFile fresh = new TSFile(language, tsFile.getSourceCode());
+      assertEquals(nodeRanges(fresh), nodeRanges(tsFile));
+    }
+
+    @Test
+    @DisplayName("should convert byte offsets when the source contains non-ASCII text")
+    void updateSourceCode_withNonAsciiSource_shouldReplaceByByteOffsets() {
+      TSFile file = new TSFile(language, "class Größe { String s = \"😀\"; int wert; }");
+      TSNode node = file.getNodeFromPosition(1, 42);
+      assertEquals("wert", file.getTextFromRange(node.getStartByte(), node.getEndByte()));
+      assertTrue(file.textEquals(node, "wert"));
+      assertFalse(file.textEquals(node, "wer"));
+      file.updateSourceCode(node, "wertNeu");
+      assertEquals("class Größe { String s = \"😀\"; int wertNeu; }", file.getSourceCode());
+      TSNode className = file.getNodeFromPosition(1, 7);
+      assertEquals(
+          "Größe", file.getTextFromRange(className.getStartByte(), className.getEndByte()));
+      assertTrue(file.textEquals(className, "Größe"));
+      file.updateSourceCode(List.of(className), "Maß");
+      assertEquals("class Maß { String s = \"😀\"; int wertNeu; }", file.getSourceCode());
+      assertEquals(nodeRanges(new TSFile(language, file.getSourceCode())), nodeRanges(file));
+    }
+
+    @Test
+    @DisplayName("should apply line and byte column edits after non-ASCII text")
+    void updateSourceCode_fromPositionsAfterNonAscii_shouldUseByteColumns() {
+      TSFile file = new TSFile(language, "// ä\nclass A { int ü = 1; }");
+      // "ü" takes the bytes at columns 15 and 16 of the second line.
+      new TextEdit(2, 15, 2, 17, "x").applyTo(file);
+      assertEquals("// ä\nclass A { int x = 1; }", file.getSourceCode());
+      assertThrows(
+          IllegalArgumentException.class, () -> file.updateSourceCode(1, 5, 1, 5, "x"));
+      assertEquals(nodeRanges(new TSFile(language, file.getSourceCode())), nodeRanges(file));
+    }
+
+    @Test
+    @DisplayName("should diff a full-text update around non-ASCII text")
+    void updateSourceCode_fullWithNonAscii_shouldMatchFreshParse() {
+      TSFile file = new TSFile(language, "class A { String s = \"😀\"; int ä; }");
+      file.updateSourceCode("class A { String s = \"😁\"; int äb; }");
+      assertEquals("class A { String s = \"😁\"; int äb; }", file.getSourceCode());
+      assertEquals(nodeRanges(new TSFile(language, file.getSourceCode())), nodeRanges(file));
+    }
+
+    private List<String> nodeRanges(TSFile file) {
+      List<String> ranges = new ArrayList<>();
+      TSTreeWalker.of(file.getTree().getRootNode())
+          .walk(
+              walker -> {
+                TSNode node = walker.node();
+                ranges.add(node.getType() + "@" + node.getStartByte() + "-" + node.getEndByte());
+                return true;
+              });
+      return ranges;
+    }
+  }
+
+  @Nested
+  @DisplayName("Snapshot Tests")
+  class SnapshotTests {
+    @Test
+    @DisplayName("should keep a snapshot unchanged while the file is edited")
+    void snapshot_afterEdit_shouldKeepOldVersion() {
+      TSFile tsFile = new TSFile(language, initialContent);
+      TSFileSnapshot snapshot = tsFile.snapshot();
+      tsFile.updateSourceCode(13, 20, "Renamed");
+      assertEquals(initialContent, snapshot.getSourceCode());
+      assertEquals(snapshot.getVersion() + 1, tsFile.getVersion());
+      TSFile copy = snapshot.toFile();
+      TSNode node = copy.getNodeFromPosition(1, 15);
+      assertEquals("MyClass", copy.getTextFromRange(node.getStartByte(), node.getEndByte()));
+    }
+
+    @Test
+    @DisplayName("should let working copies be edited independently")
+    void toFile_shouldCreateIndependentCopies() {
+      TSFileSnapshot snapshot = new TSFile(language, initialContent).snapshot();
+      TSFile first = snapshot.toFile();
+      TSFile second = snapshot.toFile();
+      first.updateSourceCode(13, 20, "First");
+      assertEquals("public class First {}", first.getSourceCode());
+      assertEquals(initialContent, second.getSourceCode());
+      assertEquals(snapshot.getVersion(), second.getVersion());
+      TSNode node = second.getNodeFromPosition(1, 15);
+      assertEquals("MyClass", second.getTextFromRange(node.getStartByte(), node.getEndByte()));
+    }
   }
 
   @Nested
@@ -164,6 +271,38 @@ class TSFileTest {
       assertNull(tsFile.getNodeFromPosition(99, 99));
     }
 
+    @Test
+    @DisplayName("should resolve several positions in one pass")
+    void getNodesFromPositions_shouldMatchSingleLookups() {
+      TSFile multiLineFile =
+          new TSFile(language, "public class MyClass {\n  int first;\n  void method() {}\n}\n");
+      int[] lines = {3, 1, 2, 1, 99};
+      int[] columns = {8, 15, 7, 1, 1};
+      TSNode[] nodes = multiLineFile.getNodesFromPositions(lines, columns);
+      assertEquals(lines.length, nodes.length);
+      for (int i = 0; i < 4; i++) {
+        TSNode expected = multiLineFile.getNodeFromPosition(lines[i], columns[i]);
+        assertNotNull(nodes[i]);
+        assertEquals(expected.getType(), nodes[i].getType());
+        assertEquals(expected.getStartByte(), nodes[i].getStartByte());
+        assertEquals(expected.getEndByte(), nodes[i].getEndByte());
+      }
+      assertEquals(
+          "method",
+          multiLineFile.getTextFromRange(nodes[0].getStartByte(), nodes[0].getEndByte()));
+      assertNull(nodes[4]);
+    }
+
+    @Test
+    @DisplayName("should convert positions to byte offsets")
+    void getByteOffset_shouldUseLineStarts() {
+      TSFile multiLineFile = new TSFile(language, "class A {\n  int b;\n}");
+      assertEquals(0, multiLineFile.getByteOffset(1, 1));
+      assertEquals(12, multiLineFile.getByteOffset(2, 3));
+      assertEquals(-1, multiLineFile.getByteOffset(2, 20));
+      assertEquals(-1, multiLineFile.getByteOffset(4, 1));
+    }
+
     @Test
     @DisplayName("should extract text from a byte range")
     void getTextFromRange_shouldReturnSubstring() {
@@ -0,0 +1,138 @@
+package io.github.syntaxpresso.core.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.treesitter.TSNode;
+
+@DisplayName("TSTreeWalker Tests")
+class TSTreeWalkerTest {
+  private final String sourceCode = "class A {\n  int x = 1;\n  void run() {}\n}";
+  private TSFile tsFile;
+
+  @BeforeEach
+  void setup() {
+    tsFile = new TSFile(SupportedLanguage.JAVA, sourceCode);
+  }
+
+  @Nested
+  @DisplayName("walk()")
+  class WalkTests {
+    @Test
+    @DisplayName("should visit named nodes in pre-order and return to the root")
+    void walk_shouldVisitInPreOrder() {
+      TSTreeWalker walker = TSTreeWalker.of(tsFile.getTree().getRootNode());
+      List<String> declarations = new ArrayList<>();
+      walker.walk(
+          w -> {
+            if (w.type().endsWith("_declaration")) {
+              declarations.add(w.type());
+            }
+            return true;
+          });
+      assertEquals(
+          List.of("class_declaration", "field_declaration", "method_declaration"), declarations);
+      assertEquals(0, walker.depth());
+    }
+
+    @Test
+    @DisplayName("should stop early when requested")
+    void walk_withStop_shouldEndWalk() {
+      TSTreeWalker walker = TSTreeWalker.of(tsFile.getTree().getRootNode());
+      List<String> visited = new ArrayList<>();
+      walker.walk(
+          w -> {
+            visited.add(w.type());
+            if ("class_declaration".equals(w.type())) {
+              w.stop();
+            }
+            return true;
+          });
+      assertEquals(List.of("program", "class_declaration"), visited);
+    }
+  }
+
+  @Nested
+  @DisplayName("gotoNamedDescendantForByte()")
+  class GotoNamedDescendantForByteTests {
+    @Test
+    @DisplayName("should land on the identifier and keep its ancestors")
+    void gotoNamedDescendantForByte_shouldKeepAncestorPath() {
+      TSTreeWalker walker = TSTreeWalker.of(tsFile.getTree().getRootNode());
+      assertTrue(walker.gotoNamedDescendantForByte(sourceCode.indexOf("x =")));
+      assertEquals("identifier", walker.type());
+      assertTrue(walker.gotoParent());
+      assertEquals("variable_declarator", walker.type());
+      assertTrue(walker.gotoParent());
+      assertEquals("field_declaration", walker.type());
+    }
+
+    @Test
+    @DisplayName("should not move above its root")
+    void gotoParent_atRoot_shouldReturnFalse() {
+      TSTreeWalker walker = TSTreeWalker.of(tsFile.getTree().getRootNode());
+      assertFalse(walker.gotoParent());
+      assertFalse(walker.gotoNamedDescendantForByte(sourceCode.length() + 10));
+    }
+  }
+
+  @Nested
+  @DisplayName("bindings")
+  class BindingTests {
+    private List<String> describe(TSTreeWalker walker) {
+      List<String> nodes = new ArrayList<>();
+      walker.walk(
+          w -> {
+            nodes.add(
+                String.format(
+                    "%d %s %d %d %d-%d %b",
+                    w.depth(),
+                    w.type(),
+                    w.symbol(),
+                    w.fieldId(),
+                    w.startByte(),
+                    w.endByte(),
+                    w.isNamed()));
+            return true;
+          });
+      return nodes;
+    }
+
+    @Test
+    @DisplayName("should walk the same nodes with the default and the JNI binding")
+    void walk_withEitherBinding_shouldMatch() {
+      TSTreeWalker walker = TSTreeWalker.of(tsFile.getTree().getRootNode());
+      TSTreeWalker jniWalker = TSTreeWalker.ofJni(tsFile.getTree().getRootNode());
+      assertEquals(describe(jniWalker), describe(walker));
+    }
+
+    @Test
+    @DisplayName("should name error nodes of files with syntax errors")
+    void walk_withSyntaxError_shouldReportErrorNodes() {
+      TSFile broken = new TSFile(SupportedLanguage.JAVA, "class A { void run( { int x = ; }");
+      TSTreeWalker walker = TSTreeWalker.of(broken.getTree().getRootNode());
+      List<String> nodes = describe(walker);
+      assertEquals(describe(TSTreeWalker.ofJni(broken.getTree().getRootNode())), nodes);
+      assertTrue(nodes.stream().anyMatch(node -> node.contains(" ERROR ")), nodes.toString());
+    }
+
+    @Test
+    @DisplayName("should return nodes that match the walker's position")
+    void node_shouldMatchPosition() {
+      TSTreeWalker walker = TSTreeWalker.of(tsFile.getTree().getRootNode());
+      assertTrue(walker.gotoNamedDescendantForByte(sourceCode.indexOf("run")));
+      TSNode node = walker.node();
+      assertEquals(walker.startByte(), node.getStartByte());
+      assertEquals(walker.endByte(), node.getEndByte());
+      assertEquals("method_declaration", node.getParent().getType());
+    }
+  }
+}
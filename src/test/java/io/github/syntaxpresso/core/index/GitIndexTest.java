@@ -0,0 +1,197 @@
+package io.github.syntaxpresso.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("GitIndex Tests")
+class GitIndexTest {
+  private static final long MODIFIED_SECONDS = 1_700_000_000L;
+
+  /** Writes an index with one regular file entry per path; the first one is assume-unchanged. */
+  private static Path writeIndex(Path gitDir, int version, List<String> paths) throws IOException {
+    return writeIndex(gitDir, version, paths, null);
+  }
+
+  /**
+   * Writes an index like {@link #writeIndex(Path, int, List)}, followed by a fsmonitor extension
+   * if {@code dirtyBits} is given, whose set bits mark the entries the monitor reported changed.
+   */
+  private static Path writeIndex(Path gitDir, int version, List<String> paths, Long dirtyBits)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeBytes("DIRC");
+    out.writeInt(version);
+    out.writeInt(paths.size());
+    byte[] previous = new byte[0];
+    for (int i = 0; i < paths.size(); i++) {
+      byte[] name = paths.get(i).getBytes(StandardCharsets.UTF_8);
+      int start = out.size();
+      out.writeLong(0); // ctime
+      out.writeInt((int) MODIFIED_SECONDS);
+      out.writeInt(500_000_000);
+      out.writeLong(0); // dev, ino
+      out.writeInt(0100644);
+      out.writeLong(0); // uid, gid
+      out.writeInt(100 + i);
+      out.write(new byte[20]);
+      out.writeShort((i == 0 ? 0x8000 : 0) | Math.min(name.length, 0xFFF));
+      if (version == 4) {
+        int common = 0;
+        while (common < previous.length
+            && common < name.length
+            && previous[common] == name[common]) {
+          common++;
+        }
+        out.writeByte(previous.length - common); // short enough for a single varint byte
+        out.write(name, common, name.length - common);
+        out.writeByte(0);
+      } else {
+        out.write(name);
+        int length = out.size() - start;
+        out.write(new byte[8 - (length % 8)]);
+      }
+      previous = name;
+    }
+    if (dirtyBits != null) {
+      out.writeBytes("FSMN");
+      out.writeInt(44);
+      out.writeInt(1); // version
+      out.writeLong(0); // timestamp of the last query
+      out.writeInt(28); // size of the bitmap
+      out.writeInt(paths.size()); // bit count
+      out.writeInt(2); // word count
+      out.writeLong(1L << 33); // no running words, one literal word
+      out.writeLong(dirtyBits);
+      out.writeInt(0); // position of the last run-length word
+    }
+    out.write(new byte[20]); // checksum
+    Path indexFile = gitDir.resolve("index");
+    Files.write(indexFile, bytes.toByteArray());
+    return indexFile;
+  }
+
+  @Nested
+  @DisplayName("read()")
+  class ReadTests {
+    @Test
+    @DisplayName("should read entries of a version 2 index")
+    void read_version2_shouldReturnEntries(@TempDir Path tempDir) throws IOException {
+      Path gitDir = Files.createDirectory(tempDir.resolve(".git"));
+      writeIndex(gitDir, 2, List.of("src/A.java", "src/B.java"));
+      GitIndex index = GitIndex.find(tempDir.resolve("src")).orElseThrow();
+      assertEquals(2, index.getVersion());
+      assertEquals(tempDir.toAbsolutePath().normalize(), index.getWorkTree());
+      assertEquals(
+          List.of("src/A.java", "src/B.java"),
+          index.getEntries().stream().map(GitIndex.Entry::path).toList());
+      GitIndex.Entry entry = index.getEntry(tempDir.resolve("src/B.java")).orElseThrow();
+      assertEquals(101, entry.size());
+      assertTrue(entry.isRegularFile());
+      assertFalse(entry.assumeValid());
+    }
+
+    @Test
+    @DisplayName("should expand prefix-compressed paths of a version 4 index")
+    void read_version4_shouldExpandPaths(@TempDir Path tempDir) throws IOException {
+      Path gitDir = Files.createDirectory(tempDir.resolve(".git"));
+      List<String> paths = List.of("src/main/A.java", "src/main/Ab.java", "src/test/T.java");
+      writeIndex(gitDir, 4, paths);
+      GitIndex index = GitIndex.find(tempDir).orElseThrow();
+      assertEquals(paths, index.getEntries().stream().map(GitIndex.Entry::path).toList());
+    }
+
+    @Test
+    @DisplayName("should reject a file that is not an index")
+    void read_withInvalidSignature_shouldThrow(@TempDir Path tempDir) throws IOException {
+      Path file = Files.writeString(tempDir.resolve("index"), "not an index at all");
+      assertThrows(IOException.class, () -> GitIndex.read(tempDir, file, 20));
+    }
+
+    @Test
+    @DisplayName("should follow the gitdir of a linked worktree")
+    void find_withGitFile_shouldReadLinkedIndex(@TempDir Path tempDir) throws IOException {
+      Path gitDir = Files.createDirectories(tempDir.resolve("repo/.git/worktrees/feature"));
+      writeIndex(gitDir, 2, List.of("A.java"));
+      Path workTree = Files.createDirectory(tempDir.resolve("feature"));
+      Files.writeString(workTree.resolve(".git"), "gitdir: ../repo/.git/worktrees/feature\n");
+      GitIndex index = GitIndex.find(workTree).orElseThrow();
+      assertEquals(workTree.toAbsolutePath().normalize(), index.getWorkTree());
+      assertTrue(index.getEntry(workTree.resolve("A.java")).isPresent());
+    }
+  }
+
+  @Nested
+  @DisplayName("getUnchangedAttributes()")
+  class GetUnchangedAttributesTests {
+    @Test
+    @DisplayName("should not vouch for any entry without fsmonitor data")
+    void getUnchangedAttributes_withoutFsmonitor_shouldReturnEmpty(@TempDir Path tempDir)
+        throws IOException {
+      Path gitDir = Files.createDirectory(tempDir.resolve(".git"));
+      writeIndex(gitDir, 3, List.of("A.java", "B.java"));
+      GitIndex index = GitIndex.find(tempDir).orElseThrow();
+      assertFalse(index.hasFsmonitor());
+      assertTrue(index.getEntry(tempDir.resolve("A.java")).orElseThrow().assumeValid());
+      assertTrue(index.getUnchangedAttributes(tempDir.resolve("A.java")).isEmpty());
+      assertTrue(index.getUnchangedAttributes(tempDir.resolve("B.java")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should vouch for the entries the fsmonitor saw unchanged")
+    void getUnchangedAttributes_withFsmonitor_shouldSkipDirtyEntries(@TempDir Path tempDir)
+        throws IOException {
+      Path gitDir = Files.createDirectory(tempDir.resolve(".git"));
+      writeIndex(gitDir, 2, List.of("A.java", "B.java", "C.java"), 0b010L);
+      GitIndex index = GitIndex.find(tempDir).orElseThrow();
+      assertTrue(index.hasFsmonitor());
+      Optional<BasicFileAttributes> attributes =
+          index.getUnchangedAttributes(tempDir.resolve("C.java"));
+      assertTrue(attributes.isPresent());
+      assertTrue(attributes.get().isRegularFile());
+      assertEquals(102, attributes.get().size());
+      assertEquals(
+          FileTime.fromMillis(MODIFIED_SECONDS * 1000 + 500), attributes.get().lastModifiedTime());
+      assertTrue(index.getUnchangedAttributes(tempDir.resolve("A.java")).isPresent());
+      assertTrue(index.getUnchangedAttributes(tempDir.resolve("B.java")).isEmpty());
+      assertTrue(index.getUnchangedAttributes(tempDir.resolve("D.java")).isEmpty());
+    }
+  }
+
+  @Nested
+  @DisplayName("find()")
+  class FindTests {
+    @Test
+    @DisplayName("should reuse the parsed index until the index file changes")
+    void find_withUnchangedIndex_shouldReturnCachedInstance(@TempDir Path tempDir)
+        throws IOException {
+      Path gitDir = Files.createDirectory(tempDir.resolve(".git"));
+      writeIndex(gitDir, 2, List.of("A.java"));
+      GitIndex first = GitIndex.find(tempDir).orElseThrow();
+      assertSame(first, GitIndex.find(tempDir).orElseThrow());
+      writeIndex(gitDir, 2, List.of("A.java", "B.java"));
+      GitIndex second = GitIndex.find(tempDir).orElseThrow();
+      assertNotSame(first, second);
+      assertEquals(2, second.getEntries().size());
+    }
+  }
+}
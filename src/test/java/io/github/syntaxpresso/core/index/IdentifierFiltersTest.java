@@ -0,0 +1,64 @@
+package io.github.syntaxpresso.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("IdentifierFilters Tests")
+class IdentifierFiltersTest {
+  private final AtomicInteger indexedFiles = new AtomicInteger();
+
+  // Treats every whitespace separated word of a file as an identifier.
+  private final FileIndexer<Set<String>> indexer =
+      path -> {
+        indexedFiles.incrementAndGet();
+        return Set.of(Files.readString(path).split("\\s+"));
+      };
+
+  @Nested
+  @DisplayName("filter()")
+  class FilterTests {
+    @Test
+    @DisplayName("should keep files containing the identifier and reject the others")
+    void filter_shouldRejectFilesWithoutIdentifier(@TempDir Path tempDir) throws IOException {
+      Path first = Files.writeString(tempDir.resolve("First.java"), "alpha beta gamma");
+      Path second = Files.writeString(tempDir.resolve("Second.java"), "delta epsilon");
+      IdentifierFilters filters = new IdentifierFilters(indexer);
+      filters.refresh(List.of(first, second));
+      assertEquals(List.of(first), filters.filter(List.of(first, second), "beta"));
+      assertTrue(filters.mightContain(second, "epsilon"));
+      assertFalse(filters.mightContain(second, "alpha"));
+    }
+  }
+
+  @Nested
+  @DisplayName("save() and load()")
+  class PersistenceTests {
+    @Test
+    @DisplayName("should only rebuild files that changed since they were saved")
+    void load_shouldReuseUnchangedFilters(@TempDir Path tempDir) throws IOException {
+      Path first = Files.writeString(tempDir.resolve("First.java"), "alpha beta");
+      Path second = Files.writeString(tempDir.resolve("Second.java"), "gamma");
+      IdentifierFilters filters = new IdentifierFilters(indexer);
+      filters.refresh(List.of(first, second));
+      Path cacheFile = tempDir.resolve("cache/filters.bin");
+      filters.save(cacheFile);
+      Files.writeString(second, "gamma delta");
+      IdentifierFilters loaded = IdentifierFilters.load(cacheFile, indexer);
+      assertEquals(1, loaded.refresh(List.of(first, second)));
+      assertTrue(loaded.mightContain(first, "alpha"));
+      assertTrue(loaded.mightContain(second, "delta"));
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package io.github.syntaxpresso.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("MappedProjectIndex Tests")
+class MappedProjectIndexTest {
+
+  private static List<FileSummary> summaries(Path root) {
+    return List.of(
+        new FileSummary(
+            root.resolve("src/b/Service.java"),
+            new FileFingerprint(2000L, 20L),
+            "com.example.b",
+            false,
+            Set.of("Service", "userName", "Größe")),
+        new FileSummary(
+            root.resolve("src/a/App.java"),
+            new FileFingerprint(1000L, 10L),
+            "com.example.a",
+            true,
+            Set.of("App", "main", "userName")));
+  }
+
+  @Nested
+  @DisplayName("write() and open()")
+  class WriteAndOpenTests {
+    @Test
+    @DisplayName("should read back every file summary")
+    void open_afterWrite_shouldReturnSummaries(@TempDir Path tempDir) throws IOException {
+      Path file = tempDir.resolve("cache/project-index.bin");
+      MappedProjectIndex.write(file, summaries(tempDir));
+      MappedProjectIndex index = MappedProjectIndex.open(file).orElseThrow();
+      assertEquals(2, index.getFileCount());
+      int app = index.findFile(tempDir.resolve("src/a/App.java")).orElseThrow();
+      assertEquals(tempDir.resolve("src/a/App.java"), index.getPath(app));
+      assertEquals(new FileFingerprint(1000L, 10L), index.getFingerprint(app));
+      assertEquals("com.example.a", index.getPackageName(app));
+      assertTrue(index.isMainClass(app));
+      assertArrayEquals(new int[] {app}, index.findMainClassFiles());
+      assertTrue(index.findFile(tempDir.resolve("src/Missing.java")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should find the files containing an identifier")
+    void findFilesContaining_shouldReturnPostings(@TempDir Path tempDir) throws IOException {
+      Path file = tempDir.resolve("project-index.bin");
+      MappedProjectIndex.write(file, summaries(tempDir));
+      MappedProjectIndex index = MappedProjectIndex.open(file).orElseThrow();
+      int app = index.findFile(tempDir.resolve("src/a/App.java")).orElseThrow();
+      int service = index.findFile(tempDir.resolve("src/b/Service.java")).orElseThrow();
+      assertArrayEquals(new int[] {app, service}, index.findFilesContaining("userName"));
+      assertArrayEquals(new int[] {service}, index.findFilesContaining("Größe"));
+      assertArrayEquals(new int[0], index.findFilesContaining("missing"));
+      Map<Integer, Set<String>> identifiers = new HashMap<>();
+      index.forEachPosting(
+          (identifier, fileId) ->
+              identifiers.computeIfAbsent(fileId, id -> new HashSet<>()).add(identifier));
+      assertEquals(Set.of("App", "main", "userName"), identifiers.get(app));
+    }
+
+    @Test
+    @DisplayName("should return empty for a missing file and reject a corrupt one")
+    void open_withMissingOrCorruptFile(@TempDir Path tempDir) throws IOException {
+      assertTrue(MappedProjectIndex.open(tempDir.resolve("missing.bin")).isEmpty());
+      Path corrupt = Files.writeString(tempDir.resolve("corrupt.bin"), "not an index");
+      assertThrows(IOException.class, () -> MappedProjectIndex.open(corrupt));
+    }
+  }
+
+  @Nested
+  @DisplayName("isStale()")
+  class IsStaleTests {
+    @Test
+    @DisplayName("should keep showing its generation after a newer one is published")
+    void isStale_afterNewGeneration_shouldReturnTrue(@TempDir Path tempDir) throws IOException {
+      Path file = tempDir.resolve("project-index.bin");
+      MappedProjectIndex.write(file, summaries(tempDir));
+      MappedProjectIndex first = MappedProjectIndex.open(file).orElseThrow();
+      assertFalse(first.isStale());
+      MappedProjectIndex.write(file, summaries(tempDir).subList(0, 1));
+      MappedProjectIndex second = MappedProjectIndex.open(file).orElseThrow();
+      assertTrue(first.isStale());
+      assertFalse(second.isStale());
+      assertEquals(first.getGeneration() + 1, second.getGeneration());
+      assertEquals(2, first.getFileCount());
+      assertEquals(1, second.getFileCount());
+    }
+  }
+}
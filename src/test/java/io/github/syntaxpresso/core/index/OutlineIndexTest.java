@@ -0,0 +1,71 @@
+package io.github.syntaxpresso.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("OutlineIndex Tests")
+class OutlineIndexTest {
+  private final AtomicInteger indexedFiles = new AtomicInteger();
+
+  // Declares a class for every whitespace separated word of a file.
+  private final FileIndexer<FileOutline> indexer =
+      path -> {
+        indexedFiles.incrementAndGet();
+        return FileOutline.of(
+            Arrays.stream(Files.readString(path).split("\\s+"))
+                .map(word -> new SymbolDeclaration(word, SymbolKind.CLASS, "", 1, 1, 1, 2))
+                .toList());
+      };
+
+  private static List<String> names(OutlineIndex index, Path file) {
+    return index.get(file).orElseThrow().declarations().stream()
+        .map(SymbolDeclaration::name)
+        .toList();
+  }
+
+  @Nested
+  @DisplayName("save() and load()")
+  class PersistenceTests {
+    @Test
+    @DisplayName("should only outline files that changed since they were saved")
+    void load_shouldReuseUnchangedOutlines(@TempDir Path tempDir) throws IOException {
+      Path first = Files.writeString(tempDir.resolve("First.java"), "Alpha Beta");
+      Path second = Files.writeString(tempDir.resolve("Second.java"), "Gamma");
+      OutlineIndex index = new OutlineIndex(indexer);
+      index.refresh(List.of(first, second));
+      assertTrue(index.isModified());
+      Path cacheFile = tempDir.resolve("cache/outlines.bin");
+      index.save(cacheFile);
+      assertFalse(index.isModified());
+      Files.writeString(second, "Gamma Delta");
+      OutlineIndex loaded = OutlineIndex.load(cacheFile, indexer);
+      assertFalse(loaded.isModified());
+      assertEquals(List.of("Alpha", "Beta"), names(loaded, first));
+      indexedFiles.set(0);
+      assertEquals(1, loaded.refresh(List.of(first, second)));
+      assertEquals(1, indexedFiles.get());
+      assertEquals(List.of("Gamma", "Delta"), names(loaded, second));
+      assertTrue(loaded.isModified());
+    }
+
+    @Test
+    @DisplayName("should reject a file of another format")
+    void load_withCorruptFile_shouldThrow(@TempDir Path tempDir) throws IOException {
+      Path corrupt = Files.writeString(tempDir.resolve("outlines.bin"), "not an outline index");
+      assertThrows(IOException.class, () -> OutlineIndex.load(corrupt, indexer));
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package io.github.syntaxpresso.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SymbolTable Tests")
+class SymbolTableTest {
+
+  @Nested
+  @DisplayName("intern()")
+  class InternTests {
+    @Test
+    @DisplayName("should return the same id for equal text and distinct ids otherwise")
+    void intern_shouldDeduplicate() {
+      SymbolTable symbols = new SymbolTable();
+      int first = symbols.intern("userName");
+      int second = symbols.intern("userId");
+      assertNotEquals(first, second);
+      assertEquals(first, symbols.intern("userName"));
+      assertEquals(2, symbols.size());
+      assertEquals("userId", symbols.get(second));
+    }
+
+    @Test
+    @DisplayName("should round-trip non-ASCII symbols")
+    void intern_withNonAscii_shouldRoundTrip() {
+      SymbolTable symbols = new SymbolTable();
+      int id = symbols.intern("Größe");
+      assertEquals(id, symbols.intern(new StringBuilder("Grö").append("ße")));
+      assertEquals("𝛼Value", symbols.get(symbols.intern("𝛼Value")));
+    }
+
+    @Test
+    @DisplayName("should keep every symbol while the table grows")
+    void intern_manySymbols_shouldGrow() {
+      SymbolTable symbols = new SymbolTable();
+      for (int i = 0; i < 50_000; i++) {
+        assertEquals(i, symbols.intern("identifier" + i));
+      }
+      for (int i = 0; i < 50_000; i += 997) {
+        assertEquals(i, symbols.find("identifier" + i));
+        assertEquals("identifier" + i, symbols.get(i));
+      }
+      assertEquals(50_000, symbols.size());
+    }
+
+    @Test
+    @DisplayName("should round-trip paths")
+    void intern_withPath_shouldReturnPath() {
+      SymbolTable symbols = new SymbolTable();
+      Path path = Path.of("src", "main", "java", "App.java").toAbsolutePath();
+      assertEquals(path, symbols.getPath(symbols.intern(path)));
+    }
+  }
+
+  @Nested
+  @DisplayName("find()")
+  class FindTests {
+    @Test
+    @DisplayName("should not add missing symbols")
+    void find_whenMissing_shouldReturnMinusOne() {
+      SymbolTable symbols = new SymbolTable();
+      assertEquals(-1, symbols.find("missing"));
+      symbols.intern("present");
+      assertEquals(-1, symbols.find("missing"));
+      assertEquals(1, symbols.size());
+      assertEquals(0L, new SymbolTable().memorySize());
+      assertThrows(IndexOutOfBoundsException.class, () -> symbols.get(1));
+    }
+  }
+}
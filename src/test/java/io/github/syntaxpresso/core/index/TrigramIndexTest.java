@@ -0,0 +1,113 @@
+package io.github.syntaxpresso.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("TrigramIndex Tests")
+class TrigramIndexTest {
+
+  private final AtomicInteger indexedFiles = new AtomicInteger();
+
+  // Indexes the whitespace-separated words of a file as its identifiers.
+  private final FileIndexer<TrigramIndex.FileTrigrams> indexer =
+      path -> {
+        indexedFiles.incrementAndGet();
+        return TrigramIndex.trigramsOf(List.of(Files.readString(path).split("\\s+")));
+      };
+
+  private TrigramIndex newIndex() {
+    return new TrigramIndex(indexer);
+  }
+
+  private static Set<String> names(List<Path> paths) {
+    return paths.stream().map(path -> path.getFileName().toString()).collect(Collectors.toSet());
+  }
+
+  @Nested
+  @DisplayName("findCandidates()")
+  class FindCandidatesTests {
+    @Test
+    @DisplayName("should require every trigram unless fuzzy")
+    void findCandidates_shouldMatchTrigrams(@TempDir Path tempDir) throws IOException {
+      Path order = Files.writeString(tempDir.resolve("Order"), "orderService placeOrder");
+      Path customer = Files.writeString(tempDir.resolve("Customer"), "customerName");
+      TrigramIndex index = newIndex();
+      index.refresh(List.of(order, customer));
+      assertEquals(Set.of("Order"), names(index.findCandidates("OrderServ", false)));
+      assertEquals(Set.of(), names(index.findCandidates("ordrServ", false)));
+      assertEquals(Set.of("Order"), names(index.findCandidates("ordrServ", true)));
+      assertEquals(Set.of("Order", "Customer"), names(index.findCandidates("er", false)));
+    }
+
+    @Test
+    @DisplayName("should renumber the files once dead ids outnumber the live ones")
+    void findCandidates_afterManyChanges_shouldCompactIds(@TempDir Path tempDir)
+        throws IOException {
+      Path stable = Files.writeString(tempDir.resolve("Stable"), "stableName");
+      Path changing = tempDir.resolve("Changing");
+      TrigramIndex index = newIndex();
+      index.refresh(List.of(stable));
+      // Each change has another size, so its fingerprint differs and it gets a new id.
+      for (int i = 0; i < 1100; i++) {
+        Files.writeString(changing, "changingName" + "x".repeat(i));
+        index.update(List.of(changing));
+      }
+      assertEquals(Set.of("Stable"), names(index.findCandidates("stable", false)));
+      assertEquals(Set.of("Changing"), names(index.findCandidates("changing", true)));
+      assertEquals(Set.of("Stable", "Changing"), names(index.findCandidates("name", false)));
+    }
+  }
+
+  @Nested
+  @DisplayName("save() and load()")
+  class PersistenceTests {
+    @Test
+    @DisplayName("should only re-index files that changed since they were saved")
+    void load_shouldReuseUnchangedPostings(@TempDir Path tempDir) throws IOException {
+      Path order = Files.writeString(tempDir.resolve("Order"), "orderService");
+      Path customer = Files.writeString(tempDir.resolve("Customer"), "customerName");
+      Path removed = Files.writeString(tempDir.resolve("Removed"), "removedName");
+      TrigramIndex index = newIndex();
+      index.refresh(List.of(order, customer, removed));
+      // Leaves a dead id behind, which is not saved.
+      index.refresh(List.of(order, customer));
+      assertTrue(index.isModified());
+      Path cacheFile = tempDir.resolve("cache/trigrams.bin");
+      index.save(cacheFile);
+      assertFalse(index.isModified());
+      Files.writeString(customer, "customerName invoiceTotal");
+      TrigramIndex loaded = TrigramIndex.load(cacheFile, indexer, new SymbolTable());
+      assertFalse(loaded.isModified());
+      assertEquals(Set.of("Customer"), names(loaded.findCandidates("name", false)));
+      assertEquals(Set.of("Order"), names(loaded.findCandidates("service", false)));
+      assertEquals(Set.of(), names(loaded.findCandidates("removed", false)));
+      indexedFiles.set(0);
+      assertEquals(1, loaded.refresh(List.of(order, customer)));
+      assertEquals(1, indexedFiles.get());
+      assertEquals(Set.of("Customer"), names(loaded.findCandidates("invoice", false)));
+      assertEquals(Set.of("Order"), names(loaded.findCandidates("service", false)));
+    }
+
+    @Test
+    @DisplayName("should reject a file of another format")
+    void load_withCorruptFile_shouldThrow(@TempDir Path tempDir) throws IOException {
+      Path corrupt = Files.writeString(tempDir.resolve("trigrams.bin"), "not a trigram index");
+      assertThrows(
+          IOException.class, () -> TrigramIndex.load(corrupt, indexer, new SymbolTable()));
+    }
+  }
+}
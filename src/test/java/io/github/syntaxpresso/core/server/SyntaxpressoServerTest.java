@@ -0,0 +1,137 @@
+package io.github.syntaxpresso.core.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.syntaxpresso.core.server.ServerProtocol.Request;
+import io.github.syntaxpresso.core.server.ServerProtocol.Response;
+import io.github.syntaxpresso.core.service.JavaService;
+import io.github.syntaxpresso.core.util.PathHelper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalInt;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("SyntaxpressoServer Tests")
+class SyntaxpressoServerTest {
+
+  @Nested
+  @DisplayName("ServerProtocol")
+  class ProtocolTests {
+    @Test
+    @DisplayName("should round-trip requests and responses through frames")
+    void encode_thenDecode_shouldRoundTrip() throws IOException {
+      Request request =
+          new Request(7, "/work", List.of("java", "outline"), "ä".getBytes(StandardCharsets.UTF_8));
+      ByteBuffer frame = ServerProtocol.encode(request);
+      assertEquals(frame.capacity() - Integer.BYTES, frame.getInt());
+      Request decoded = ServerProtocol.decodeRequest(frame.slice());
+      assertEquals(7, decoded.id());
+      assertEquals("/work", decoded.workingDirectory());
+      assertEquals(List.of("java", "outline"), decoded.args());
+      assertEquals("ä", new String(decoded.input(), StandardCharsets.UTF_8));
+      ByteBuffer responseFrame = ServerProtocol.encode(new Response(7, 0, "out", "err"));
+      responseFrame.position(Integer.BYTES);
+      assertEquals(
+          new Response(7, 0, "out", "err"), ServerProtocol.decodeResponse(responseFrame.slice()));
+    }
+  }
+
+  @Nested
+  @DisplayName("run()")
+  class RunTests {
+    @Test
+    @DisplayName("should run forwarded commands and resolve paths against the client directory")
+    void tryExecute_withRunningServer_shouldReturnCommandOutput(@TempDir Path tempDir)
+        throws Exception {
+      Path file = Files.writeString(tempDir.resolve("Shop.java"), "class Shop { void open() {} }");
+      Path socket = tempDir.resolve("s.sock");
+      SyntaxpressoServer server =
+          SyntaxpressoServer.bind(socket, new JavaService(new PathHelper()));
+      Thread serverThread = Thread.ofPlatform().start(() -> runQuietly(server));
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        String[] args = {
+          "java", "outline", "--cwd", tempDir.toString(), "--file-path", file.toString()
+        };
+        OptionalInt exitCode =
+            ServerClient.tryExecute(
+                socket,
+                args,
+                new ByteArrayInputStream(new byte[0]),
+                new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+        assertEquals(OptionalInt.of(0), exitCode);
+        String output = out.toString(StandardCharsets.UTF_8);
+        assertTrue(output.contains("\"open\""), output);
+      } finally {
+        server.close();
+        serverThread.join(5_000);
+      }
+      assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    @DisplayName("should resolve buffer update paths against the client directory")
+    void execute_withRelativeBufferPath_shouldResolveAgainstClientDirectory(@TempDir Path tempDir)
+        throws Exception {
+      Files.writeString(tempDir.resolve("Shop.java"), "class Shop { void open() {} }");
+      Path socket = tempDir.resolve("s.sock");
+      SyntaxpressoServer server =
+          SyntaxpressoServer.bind(socket, new JavaService(new PathHelper()));
+      Thread serverThread = Thread.ofPlatform().start(() -> runQuietly(server));
+      try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+        String update =
+            "{\"filePath\": \"Shop.java\", \"content\": \"class Shop { void close() {} }\"}";
+        Request request =
+            new Request(
+                1,
+                tempDir.toString(),
+                List.of("java", "outline", "--cwd", ".", "--file-path", "Shop.java", "--stdin"),
+                update.getBytes(StandardCharsets.UTF_8));
+        ServerProtocol.writeFrame(channel, ServerProtocol.encode(request));
+        Response response = ServerProtocol.decodeResponse(ServerProtocol.readFrame(channel));
+        assertEquals(0, response.exitCode(), response.err());
+        assertTrue(response.out().contains("\"close\""), response.out());
+      } finally {
+        server.close();
+        serverThread.join(5_000);
+      }
+    }
+
+    @Test
+    @DisplayName("should let the caller fall back when no server is listening")
+    void tryExecute_withoutServer_shouldReturnEmpty(@TempDir Path tempDir) {
+      OptionalInt exitCode =
+          ServerClient.tryExecute(
+              tempDir.resolve("missing.sock"),
+              new String[] {"java"},
+              new ByteArrayInputStream(new byte[0]),
+              System.out,
+              System.err);
+      assertTrue(exitCode.isEmpty());
+    }
+  }
+
+  private static void runQuietly(SyntaxpressoServer server) {
+    try {
+      server.run();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
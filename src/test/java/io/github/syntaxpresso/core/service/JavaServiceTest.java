@@ -5,18 +5,30 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.github.syntaxpresso.core.command.java.extra.SourceDirectoryType;
+import io.github.syntaxpresso.core.common.BufferUpdate;
 import io.github.syntaxpresso.core.common.TSFile;
+import io.github.syntaxpresso.core.common.TextEdit;
 import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
+import io.github.syntaxpresso.core.index.SymbolDeclaration;
+import io.github.syntaxpresso.core.index.SymbolKind;
+import io.github.syntaxpresso.core.index.SymbolLocation;
+import io.github.syntaxpresso.core.index.TypeHierarchy;
+import io.github.syntaxpresso.core.service.extra.ScopeType;
 import io.github.syntaxpresso.core.util.PathHelper;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.treesitter.TSNode;
 
 @DisplayName("JavaService Tests")
 class JavaServiceTest {
@@ -146,6 +158,24 @@ class JavaServiceTest {
       TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
       assertTrue(javaService.isMainClass(file));
     }
+
+    @Test
+    @DisplayName("should require exactly the public and static modifiers, in any order")
+    void isMainClass_shouldCheckModifierSet() {
+      TSFile reordered =
+          new TSFile(
+              SupportedLanguage.JAVA, "class Main { static public void main(String[] args) {} }");
+      TSFile extraModifier =
+          new TSFile(
+              SupportedLanguage.JAVA,
+              "class Main { public static final void main(String[] args) {} }");
+      TSFile otherName =
+          new TSFile(
+              SupportedLanguage.JAVA, "class Main { public static void mainly(String[] args) {} }");
+      assertTrue(javaService.isMainClass(reordered));
+      assertFalse(javaService.isMainClass(extraModifier));
+      assertFalse(javaService.isMainClass(otherName));
+    }
   }
 
   @Nested
@@ -181,4 +211,437 @@ class JavaServiceTest {
       assertFalse(packageName.isPresent());
     }
   }
+
+  @Nested
+  @DisplayName("findIdentifierNodes()")
+  class FindIdentifierNodesTests {
+    private final String sourceCode =
+        """
+        public class Counter {
+          private int count;
+
+          public Counter increment(Counter other) {
+            count = count + other.count;
+            return this;
+          }
+        }
+        """;
+
+    @Test
+    @DisplayName("should find identifiers and type identifiers with the given name")
+    void findIdentifierNodes_withTypeIdentifiers_shouldFindClassUsages() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      List<TSNode> nodes =
+          javaService.findIdentifierNodes(file, file.getTree().getRootNode(), "Counter", true);
+      assertEquals(3, nodes.size());
+    }
+
+    @Test
+    @DisplayName("should only find plain identifiers when type identifiers are excluded")
+    void findIdentifierNodes_withoutTypeIdentifiers_shouldFindFieldUsages() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      List<TSNode> nodes =
+          javaService.findIdentifierNodes(file, file.getTree().getRootNode(), "Counter", false);
+      assertEquals(1, nodes.size());
+      List<TSNode> countNodes =
+          javaService.findIdentifierNodes(file, file.getTree().getRootNode(), "count", false);
+      assertEquals(4, countNodes.size());
+    }
+
+    @Test
+    @DisplayName("should resolve the declaration and scope of a field")
+    void getDeclarationNode_forPrivateField_shouldHaveClassScope() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      TSNode fieldName = file.getNodeFromPosition(2, 15);
+      Optional<TSNode> declaration = javaService.getDeclarationNode(fieldName);
+      assertTrue(declaration.isPresent());
+      assertEquals("field_declaration", declaration.get().getType());
+      assertEquals(Optional.of(ScopeType.CLASS), javaService.getNodeScope(declaration.get()));
+    }
+
+    @Test
+    @DisplayName("should give package-private and interface members a project-wide scope")
+    void getNodeScope_forNonPrivateMembers_shouldHaveProjectScope() {
+      TSFile file =
+          new TSFile(
+              SupportedLanguage.JAVA,
+              "interface Shape {\n  int area();\n}\n\nclass Square {\n  int size;\n}\n");
+      TSNode method = javaService.getDeclarationNode(file.getNodeFromPosition(2, 7)).get();
+      TSNode field = javaService.getDeclarationNode(file.getNodeFromPosition(6, 7)).get();
+      assertEquals(Optional.of(ScopeType.PROJECT), javaService.getNodeScope(method));
+      assertEquals(Optional.of(ScopeType.PROJECT), javaService.getNodeScope(field));
+    }
+  }
+
+  @Nested
+  @DisplayName("findReferencesInScope()")
+  class FindReferencesInScopeTests {
+    private final String shadowingSourceCode =
+        """
+        public class Tally {
+          private int count;
+
+          public void bump(int step) {
+            {
+              int count = step;
+              count++;
+            }
+            count += step;
+          }
+
+          // A constructor assigning its parameter to the field it shadows.
+          public Tally(int count) {
+            this.count = count;
+          }
+        }
+        """;
+
+    private final String sourceCode =
+        """
+        public class Counter {
+          private int total;
+
+          public void add(int value) {
+            int total = value;
+            total = total + value;
+          }
+
+          public void reset(int value) {
+            this.total = value;
+          }
+        }
+        """;
+
+    private List<Integer> rows(List<TSNode> nodes) {
+      return nodes.stream().map(node -> node.getStartPoint().getRow() + 1).toList();
+    }
+
+    @Test
+    @DisplayName("should only search the block around a local variable")
+    void findReferencesInScope_forLocalVariable_shouldStayInBlock() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      TSNode declaration = javaService.getDeclarationNode(file.getNodeFromPosition(5, 9)).get();
+      Optional<List<TSNode>> references =
+          javaService.findReferencesInScope(file, declaration, "total", false);
+      assertTrue(references.isPresent());
+      assertEquals(3, references.get().size());
+    }
+
+    @Test
+    @DisplayName("should only search the method declaring a parameter")
+    void findReferencesInScope_forParameter_shouldStayInMethod() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      TSNode declaration = javaService.getDeclarationNode(file.getNodeFromPosition(4, 23)).get();
+      Optional<List<TSNode>> references =
+          javaService.findReferencesInScope(file, declaration, "value", false);
+      assertTrue(references.isPresent());
+      assertEquals(3, references.get().size());
+    }
+
+    @Test
+    @DisplayName("should skip uses of a local variable shadowing a private field")
+    void findReferencesInScope_forPrivateField_shouldSkipShadowedUses() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      TSNode declaration = javaService.getDeclarationNode(file.getNodeFromPosition(2, 15)).get();
+      Optional<List<TSNode>> references =
+          javaService.findReferencesInScope(file, declaration, "total", false);
+      assertTrue(references.isPresent());
+      assertEquals(2, references.get().size());
+      assertEquals(List.of(2, 10), rows(references.get()));
+    }
+
+    @Test
+    @DisplayName("should tell a field from a parameter of the same name in this.name = name")
+    void findReferencesInScope_withFieldAssignedFromParameter_shouldSeparateThem() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, shadowingSourceCode);
+      TSNode field = javaService.getDeclarationNode(file.getNodeFromPosition(2, 15)).get();
+      TSNode parameter = javaService.getDeclarationNode(file.getNodeFromPosition(13, 20)).get();
+      assertEquals(
+          List.of(2, 9, 14),
+          rows(javaService.findReferencesInScope(file, field, "count", false).get()));
+      assertEquals(
+          List.of(13, 14),
+          rows(javaService.findReferencesInScope(file, parameter, "count", false).get()));
+    }
+
+    @Test
+    @DisplayName("should only find the uses of a local variable declared in a nested block")
+    void findReferencesInScope_forLocalInNestedBlock_shouldStayInBlock() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, shadowingSourceCode);
+      TSNode local = javaService.getDeclarationNode(file.getNodeFromPosition(6, 11)).get();
+      assertEquals(
+          List.of(6, 7),
+          rows(javaService.findReferencesInScope(file, local, "count", false).get()));
+    }
+
+    @Test
+    @DisplayName("should not rename a method where a private field of the same name is renamed")
+    void findReferencesInScope_forPrivateField_shouldSkipMethodNames() {
+      TSFile file =
+          new TSFile(
+              SupportedLanguage.JAVA,
+              "class Box {\n  private int size;\n\n  int size() {\n    return size;\n  }\n}\n");
+      TSNode field = javaService.getDeclarationNode(file.getNodeFromPosition(2, 15)).get();
+      assertEquals(
+          List.of(2, 5),
+          rows(javaService.findReferencesInScope(file, field, "size", false).get()));
+    }
+
+    @Test
+    @DisplayName("should return empty for a project-wide declaration")
+    void findReferencesInScope_forPublicMethod_shouldReturnEmpty() {
+      TSFile file = new TSFile(SupportedLanguage.JAVA, sourceCode);
+      TSNode declaration = javaService.getDeclarationNode(file.getNodeFromPosition(4, 15)).get();
+      assertFalse(javaService.findReferencesInScope(file, declaration, "add", false).isPresent());
+    }
+  }
+
+  @Nested
+  @DisplayName("findClassUsages()")
+  class FindClassUsagesTests {
+    @TempDir Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+      write("a/Foo.java", "package a;\n\npublic class Foo {}");
+      write("a/Sibling.java", "package a;\n\nclass Sibling {\n  Foo foo;\n}");
+      write("b/User.java", "package b;\n\nimport a.Foo;\n\nclass User {\n  Foo foo;\n}");
+      write("c/Wildcard.java", "package c;\n\nimport a.*;\n\nclass Wildcard {}");
+      write("d/Qualified.java", "package d;\n\nclass Qualified {\n  a.Foo foo;\n}");
+      write("e/Unrelated.java", "package e;\n\nclass Unrelated {\n  String s = \"Foo\";\n}");
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+      Path file = tempDir.resolve(relativePath);
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, content);
+    }
+
+    @Test
+    @DisplayName("should only consider files that can refer to the class")
+    void getImportGraph_shouldPruneUnrelatedFiles() throws IOException {
+      Set<String> candidates =
+          javaService.getProjectIndexes().getImportGraph(tempDir).findCandidateFiles("Foo").stream()
+              .map(path -> path.getFileName().toString())
+              .collect(Collectors.toSet());
+      assertEquals(
+          Set.of(
+              "Foo.java", "Sibling.java", "User.java", "Wildcard.java", "Qualified.java"),
+          candidates);
+    }
+
+    @Test
+    @DisplayName("should re-index a file after it changed")
+    void getImportGraph_afterChange_shouldReindexFile() throws IOException {
+      javaService.getProjectIndexes().getImportGraph(tempDir);
+      write("e/Unrelated.java", "package e;\n\nimport a.Foo;\n\nclass Unrelated {}\n");
+      Set<Path> candidates =
+          javaService.getProjectIndexes().getImportGraph(tempDir).findCandidateFiles("Foo");
+      assertTrue(candidates.contains(tempDir.resolve("e/Unrelated.java").toAbsolutePath()));
+    }
+
+    @Test
+    @DisplayName("should find the declaration, imports and type references in candidate files")
+    void findClassUsages_shouldFindValidatedUsages() throws IOException {
+      List<TSNode> usages = javaService.findClassUsages(tempDir, "Foo");
+      assertEquals(5, usages.size());
+    }
+
+    @Test
+    @DisplayName("should search the unsaved buffer of an open candidate file")
+    void findClassUsages_withBuffer_shouldUseBufferContent() throws IOException {
+      Path user = tempDir.resolve("b/User.java");
+      javaService.applyBufferUpdates(
+          List.of(
+              new BufferUpdate(null, "package b;\n\nimport a.Foo;\n\nclass User {}", List.of())),
+          user);
+      assertEquals(4, javaService.findClassUsages(tempDir, "Foo").size());
+    }
+  }
+
+  @Nested
+  @DisplayName("getTypeHierarchy()")
+  class GetTypeHierarchyTests {
+    @TempDir Path tempDir;
+
+    private void write(String relativePath, String content) throws IOException {
+      Path file = tempDir.resolve(relativePath);
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, content);
+    }
+
+    private Set<String> names(List<TypeHierarchy.IndexedType> types) {
+      return types.stream()
+          .map(indexedType -> indexedType.declaration().qualifiedName())
+          .collect(Collectors.toSet());
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+      write("a/Shape.java", "package a;\n\npublic interface Shape {}");
+      write("a/Polygon.java", "package a;\n\npublic interface Polygon extends Shape {}");
+      write("b/Square.java", "package b;\n\nclass Square implements a.Polygon {}");
+      write(
+          "b/Circle.java",
+          "package b;\n\nclass Circle implements Comparable<Circle>, a.Shape {\n"
+              + "  static class Unit extends Circle {}\n}");
+    }
+
+    @Test
+    @DisplayName("should resolve direct and transitive subtypes")
+    void findSubtypes_shouldFollowHierarchy() throws IOException {
+      TypeHierarchy typeHierarchy = javaService.getProjectIndexes().getTypeHierarchy(tempDir);
+      assertEquals(
+          Set.of("a.Polygon", "b.Circle"), names(typeHierarchy.findSubtypes("Shape", false)));
+      assertEquals(
+          Set.of("a.Polygon", "b.Circle", "b.Square", "b.Circle.Unit"),
+          names(typeHierarchy.findSubtypes("Shape", true)));
+    }
+
+    @Test
+    @DisplayName("should resolve qualified supertypes through the package and imports")
+    void findSubtypes_withQualifiedName_shouldResolveImports() throws IOException {
+      write("c/Shape.java", "package c;\n\npublic interface Shape {}");
+      write("c/Blob.java", "package c;\n\nclass Blob implements Shape {}");
+      write("d/Hexagon.java", "package d;\n\nimport a.*;\n\nclass Hexagon implements Shape {}");
+      TypeHierarchy typeHierarchy = javaService.getProjectIndexes().getTypeHierarchy(tempDir);
+      assertEquals(
+          Set.of("a.Polygon", "b.Circle", "b.Square", "b.Circle.Unit", "d.Hexagon"),
+          names(typeHierarchy.findSubtypes("a.Shape", true)));
+      assertEquals(Set.of("c.Blob"), names(typeHierarchy.findSubtypes("c.Shape", true)));
+      assertEquals(
+          Set.of("a.Polygon", "b.Circle", "c.Blob", "d.Hexagon"),
+          names(typeHierarchy.findSubtypes("Shape", false)));
+    }
+
+    @Test
+    @DisplayName("should drop the relations of a changed file")
+    void findSubtypes_afterChange_shouldInvalidateFile() throws IOException {
+      javaService.getProjectIndexes().getTypeHierarchy(tempDir);
+      write("b/Square.java", "package b;\n\nclass Square {}\n");
+      TypeHierarchy typeHierarchy = javaService.getProjectIndexes().getTypeHierarchy(tempDir);
+      assertEquals(Set.of(), names(typeHierarchy.findSubtypes("Polygon", true)));
+    }
+  }
+
+  @Nested
+  @DisplayName("searchSymbols()")
+  class SearchSymbolsTests {
+    @TempDir Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+      Files.writeString(
+          tempDir.resolve("OrderService.java"),
+          "class OrderService {\n  int orderCount;\n  void placeOrder() {}\n}");
+      Files.writeString(
+          tempDir.resolve("Customer.java"), "class Customer {\n  String name;\n}");
+    }
+
+    private List<String> names(List<SymbolLocation> matches) {
+      return matches.stream().map(match -> match.declaration().name()).toList();
+    }
+
+    private List<String> search(String query, boolean fuzzy) throws IOException {
+      return names(javaService.getProjectIndexes().searchSymbols(tempDir, query, fuzzy, 10));
+    }
+
+    @Test
+    @DisplayName("should rank exact and prefix matches before substrings")
+    void searchSymbols_shouldRankMatches() throws IOException {
+      assertEquals(List.of("orderCount", "OrderService", "placeOrder"), search("order", false));
+    }
+
+    @Test
+    @DisplayName("should tolerate missing characters when fuzzy")
+    void searchSymbols_withFuzzy_shouldMatchSubsequences() throws IOException {
+      assertEquals(List.of(), search("ordrService", false));
+      assertEquals(List.of("OrderService"), search("ordrService", true));
+    }
+
+    @Test
+    @DisplayName("should match queries shorter than a trigram against the outlines")
+    void searchSymbols_withShortQuery_shouldSearchOutlines() throws IOException {
+      assertEquals(List.of("name"), search("na", false));
+      assertEquals(List.of("placeOrder"), search("pl", false));
+    }
+
+    @Test
+    @DisplayName("should find changed files once the background refresh completed")
+    void searchSymbols_afterChange_shouldRefreshInBackground() throws IOException {
+      assertEquals(List.of(), search("invoice", false));
+      Files.writeString(tempDir.resolve("Invoice.java"), "class Invoice {}");
+      javaService.getProjectIndexes().refreshSearchIndexesInBackground(tempDir).join();
+      assertEquals(List.of("Invoice"), search("invoice", false));
+    }
+  }
+
+  @Nested
+  @DisplayName("getOutline()")
+  class GetOutlineTests {
+    @TempDir Path tempDir;
+
+    @Test
+    @DisplayName("should list types, methods and fields with their containers and ranges")
+    void getOutline_shouldListDeclarations() throws IOException {
+      Path file =
+          Files.writeString(
+              tempDir.resolve("Shop.java"),
+              "package com.example;\n\npublic class Shop {\n  private int a, b;\n\n"
+                  + "  void open() {}\n\n  enum State { OPEN }\n}\n");
+      List<SymbolDeclaration> outline = javaService.getOutline(tempDir, file);
+      assertEquals(
+          List.of(
+              new SymbolDeclaration("Shop", SymbolKind.CLASS, "com.example", 3, 14, 9, 2),
+              new SymbolDeclaration("a", SymbolKind.FIELD, "com.example.Shop", 4, 15, 4, 20),
+              new SymbolDeclaration("b", SymbolKind.FIELD, "com.example.Shop", 4, 18, 4, 20),
+              new SymbolDeclaration("open", SymbolKind.METHOD, "com.example.Shop", 6, 8, 6, 17),
+              new SymbolDeclaration("State", SymbolKind.ENUM, "com.example.Shop", 8, 8, 8, 22)),
+          outline);
+    }
+
+    @Test
+    @DisplayName("should reuse the cached summary until the file changes")
+    void getOutline_afterChange_shouldReindex() throws IOException {
+      Path file = Files.writeString(tempDir.resolve("A.java"), "class A {}");
+      assertEquals("A", javaService.getOutline(tempDir, file).get(0).name());
+      Files.writeString(file, "class Bb {}");
+      assertEquals("Bb", javaService.getOutline(tempDir, file).get(0).name());
+    }
+
+    @Test
+    @DisplayName("should reuse the summaries saved by an earlier service without re-parsing")
+    void getOutline_inNewService_shouldReuseSavedSummaries() throws IOException {
+      Path cacheDir = tempDir.resolve(".cache");
+      PathHelper pathHelper =
+          new PathHelper() {
+            @Override
+            public Path getCacheDirectory(Path rootDir) {
+              return cacheDir;
+            }
+          };
+      Path file = Files.writeString(tempDir.resolve("A.java"), "class A {}");
+      FileTime lastModified = Files.getLastModifiedTime(file);
+      assertEquals("A", new JavaService(pathHelper).getOutline(tempDir, file).get(0).name());
+      // Same size and time: only a service that re-parses the file sees the new name.
+      Files.writeString(file, "class B {}");
+      Files.setLastModifiedTime(file, lastModified);
+      assertEquals("A", new JavaService(pathHelper).getOutline(tempDir, file).get(0).name());
+    }
+
+    @Test
+    @DisplayName("should outline the unsaved buffer of an open file")
+    void getOutline_withBuffer_shouldUseBufferContent() throws IOException {
+      Path file = Files.writeString(tempDir.resolve("A.java"), "class A {}");
+      javaService.applyBufferUpdates(
+          List.of(
+              new BufferUpdate(null, "class A {}", List.of()),
+              new BufferUpdate(null, null, List.of(new TextEdit(1, 7, 1, 8, "Draft")))),
+          file);
+      assertEquals("Draft", javaService.getOutline(tempDir, file).get(0).name());
+      assertEquals("class A {}", Files.readString(file));
+      javaService.closeBuffer(file);
+      assertEquals("A", javaService.getOutline(tempDir, file).get(0).name());
+    }
+  }
 }
@@ -0,0 +1,63 @@
+package io.github.syntaxpresso.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("ParallelFileWalker Tests")
+class ParallelFileWalkerTest {
+
+  @Nested
+  @DisplayName("walk()")
+  class WalkTests {
+    @Test
+    @DisplayName("should report files and links to files, but not descend into linked directories")
+    void walk_withSymbolicLinks_shouldNotFollowDirectories(@TempDir Path tempDir)
+        throws IOException {
+      Path project = Files.createDirectories(tempDir.resolve("project/src"));
+      Path outside = Files.createDirectories(tempDir.resolve("outside"));
+      Path file = Files.createFile(project.resolve("A.java"));
+      Files.createFile(outside.resolve("B.java"));
+      Files.createSymbolicLink(project.resolve("Link.java"), file);
+      Files.createSymbolicLink(project.resolve("linked"), outside);
+      Set<Path> found = ConcurrentHashMap.newKeySet();
+      ParallelFileWalker.walk(
+          tempDir.resolve("project"),
+          (path, attributes) -> true,
+          (path, attributes) -> found.add(path));
+      assertEquals(Set.of(file, project.resolve("Link.java")), found);
+    }
+
+    @Test
+    @DisplayName("should report a root that is a file on its own")
+    void walk_withFileRoot_shouldReportIt(@TempDir Path tempDir) throws IOException {
+      Path file = Files.createFile(tempDir.resolve("A.java"));
+      Set<Path> found = ConcurrentHashMap.newKeySet();
+      ParallelFileWalker.walk(
+          file, (path, attributes) -> true, (path, attributes) -> found.add(path));
+      assertEquals(Set.of(file), found);
+    }
+
+    @Test
+    @DisplayName("should fail for a missing root")
+    void walk_withMissingRoot_shouldThrow(@TempDir Path tempDir) {
+      assertThrows(
+          NoSuchFileException.class,
+          () ->
+              ParallelFileWalker.walk(
+                  tempDir.resolve("missing"),
+                  (path, attributes) -> true,
+                  (path, attributes) -> {}));
+    }
+  }
+}
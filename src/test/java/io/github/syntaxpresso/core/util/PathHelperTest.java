@@ -9,8 +9,12 @@ import io.github.syntaxpresso.core.common.extra.SupportedLanguage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -57,6 +61,39 @@ class PathHelperTest {
     }
   }
 
+  @Nested
+  @DisplayName("findFilePathsByExtention()")
+  class FindFilePathsByExtentionTests {
+    @Test
+    @DisplayName("should find files in every directory of a wide tree, ordered by path")
+    void findFilePathsByExtention_withManyDirectories_shouldReturnSortedPaths(
+        @TempDir Path tempDir) throws IOException {
+      List<Path> expected = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        Path dir = tempDir.resolve("pkg" + i).resolve("nested");
+        Files.createDirectories(dir);
+        expected.add(Files.createFile(dir.resolve("Type" + i + ".java")));
+        Files.createFile(dir.resolve("notes" + i + ".txt"));
+      }
+      Collections.sort(expected);
+      List<Path> paths = pathHelper.findFilePathsByExtention(tempDir, SupportedLanguage.JAVA);
+      assertEquals(expected, paths);
+    }
+
+    @Test
+    @DisplayName("should stream each file once with its attributes")
+    void walkFilesByExtention_shouldPassAttributes(@TempDir Path tempDir) throws IOException {
+      Files.createDirectories(tempDir.resolve("a/b"));
+      Files.writeString(tempDir.resolve("a/b/Main.java"), "class Main {}");
+      Map<Path, Long> sizes = new ConcurrentHashMap<>();
+      pathHelper.walkFilesByExtention(
+          tempDir,
+          SupportedLanguage.JAVA,
+          (path, attributes) -> sizes.merge(path, attributes.size(), Long::sum));
+      assertEquals(Map.of(tempDir.resolve("a/b/Main.java"), 13L), sizes);
+    }
+  }
+
   @Nested
   @DisplayName("findDirectoryRecursively()")
   class FindDirectoryRecursivelyTests {